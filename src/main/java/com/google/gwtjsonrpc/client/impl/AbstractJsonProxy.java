@@ -33,6 +33,7 @@ public abstract class AbstractJsonProxy implements JsonDefTarget {
   String url;
 
   private XsrfManager xsrfManager = JsonUtil.getDefaultXsrfManager();
+  private int requestCompression = -1;
 
   @Override
   public String getServiceEntryPoint() {
@@ -60,6 +61,23 @@ public abstract class AbstractJsonProxy implements JsonDefTarget {
     xsrfManager = m;
   }
 
+  /** @return shortest request body compressed before it is sent; -1 if none are. */
+  public int getRequestCompression() {
+    return requestCompression;
+  }
+
+  /**
+   * Compress POST request bodies of at least <code>minLength</code> characters with gzip.
+   *
+   * <p>Bodies are only compressed in browsers providing <code>CompressionStream</code>; others
+   * send them as is. The server accepts both.
+   *
+   * @param minLength shortest body to compress; -1, the default, to never compress.
+   */
+  public void setRequestCompression(final int minLength) {
+    requestCompression = minLength;
+  }
+
   public void setRpcToken(String theRpcToken)
   {
     xsrfManager.setToken(this, theRpcToken);
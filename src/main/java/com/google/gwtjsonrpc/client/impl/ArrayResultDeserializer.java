@@ -26,6 +26,7 @@ public abstract class ArrayResultDeserializer {
   }-*/;
 
   protected static native int getResultSize(JavaScriptObject responseObject) /*-{
-    return responseObject.result.length;
+    var r = responseObject.result;
+    return r.rows !== undefined ? r.rows.length : r.length;
   }-*/;
 }
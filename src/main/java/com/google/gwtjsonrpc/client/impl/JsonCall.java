@@ -14,11 +14,13 @@
 
 package com.google.gwtjsonrpc.client.impl;
 
+import com.google.gwt.core.client.JavaScriptException;
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.http.client.Request;
 import com.google.gwt.http.client.RequestBuilder;
 import com.google.gwt.http.client.RequestCallback;
 import com.google.gwt.http.client.RequestException;
+import com.google.gwt.xhr.client.XMLHttpRequest;
 import com.google.gwtjsonrpc.client.ServerUnavailableException;
 import com.google.gwtjsonrpc.client.event.RpcCompleteEvent;
 import com.google.gwtjsonrpc.client.event.RpcStartEvent;
@@ -101,6 +103,94 @@ public abstract class JsonCall<T> implements RequestCallback {
     }
   }
 
+  /**
+   * Send a POST request.
+   *
+   * <p>The body is compressed with gzip if the proxy asks for it, see {@link
+   * AbstractJsonProxy#setRequestCompression(int)}, and the browser can.
+   *
+   * @param rb request to send, with its callback set.
+   * @param body the request body.
+   */
+  protected void sendBody(final RequestBuilder rb, final String body) {
+    final int min = proxy.getRequestCompression();
+    if (min < 0 || body.length() < min || !canCompress()) {
+      rb.setRequestData(body);
+      send(rb);
+      return;
+    }
+
+    attempts++;
+    sendCompressed(rb, body);
+    if (attempts == 1) {
+      RpcStartEvent.fire(this);
+    }
+  }
+
+  private static native boolean canCompress() /*-{
+    return !!($wnd.CompressionStream && $wnd.Response && $wnd.Blob
+        && $wnd.Blob.prototype.stream);
+  }-*/;
+
+  private native void sendCompressed(RequestBuilder rb, String body) /*-{
+    var self = this;
+    var gz = new $wnd.Blob([body]).stream().pipeThrough(new $wnd.CompressionStream('gzip'));
+    new $wnd.Response(gz).arrayBuffer().then(
+      $entry(function(data) {
+        self.@com.google.gwtjsonrpc.client.impl.JsonCall::onCompressed(Lcom/google/gwt/http/client/RequestBuilder;Lcom/google/gwt/core/client/JavaScriptObject;)(rb, data);
+      }),
+      $entry(function(err) {
+        self.@com.google.gwtjsonrpc.client.impl.JsonCall::onCompressionFailed(Lcom/google/gwt/http/client/RequestBuilder;Ljava/lang/String;)(rb, body);
+      }));
+  }-*/;
+
+  private void onCompressionFailed(final RequestBuilder rb, final String body) {
+    rb.setRequestData(body);
+    try {
+      rb.send();
+    } catch (RequestException e) {
+      RpcCompleteEvent.fire(this);
+      callback.onFailure(e);
+    }
+  }
+
+  /**
+   * Send the compressed body as {@link RequestBuilder#send()} would send the plain one, which
+   * cannot take binary data: same method, URL, credentials and timeout, and the response is
+   * delivered through a {@link Request}.
+   */
+  private void onCompressed(final RequestBuilder rb, final JavaScriptObject data) {
+    final XMLHttpRequest xhr = XMLHttpRequest.create();
+    try {
+      if (rb.getUser() != null && rb.getPassword() != null) {
+        xhr.open(rb.getHTTPMethod(), rb.getUrl(), rb.getUser(), rb.getPassword());
+      } else if (rb.getUser() != null) {
+        xhr.open(rb.getHTTPMethod(), rb.getUrl(), rb.getUser());
+      } else {
+        xhr.open(rb.getHTTPMethod(), rb.getUrl());
+      }
+      xhr.setRequestHeader("Content-Type", rb.getHeader("Content-Type"));
+      xhr.setRequestHeader("Accept", rb.getHeader("Accept"));
+      xhr.setRequestHeader("Content-Encoding", "gzip");
+      send(xhr, rb.getTimeoutMillis(), data);
+    } catch (JavaScriptException e) {
+      RpcCompleteEvent.fire(this);
+      callback.onFailure(new RequestException(e.getMessage()));
+    }
+  }
+
+  private native void send(XMLHttpRequest xhr, int timeoutMillis, JavaScriptObject data) /*-{
+    var self = this;
+    var request = @com.google.gwt.http.client.Request::new(Lcom/google/gwt/xhr/client/XMLHttpRequest;ILcom/google/gwt/http/client/RequestCallback;)(xhr, timeoutMillis, self);
+    xhr.onreadystatechange = $entry(function() {
+      if (xhr.readyState == 4) {
+        xhr.onreadystatechange = function() {};
+        request.@com.google.gwt.http.client.Request::fireOnResponseReceived(Lcom/google/gwt/http/client/RequestCallback;)(self);
+      }
+    });
+    xhr.send(data);
+  }-*/;
+
   @Override
   public void onError(final Request request, final Throwable exception) {
     RpcCompleteEvent.fire(this);
@@ -14,6 +14,8 @@
 
 package com.google.gwtjsonrpc.client.impl;
 
+import com.google.gwt.core.client.JavaScriptObject;
+
 /**
  * Converter between JSON and Java object representations.
  *
@@ -40,6 +42,22 @@ public abstract class JsonSerializer<T> {
    */
   public abstract void printJson(StringBuilder sb, T o);
 
+  /**
+   * Convert a Java object to the JavaScript value its JSON text describes.
+   *
+   * <p>Used when requests are encoded by the browser's <code>JSON.stringify</code>. The default
+   * implementation parses the output of {@link #printJson(StringBuilder, Object)}; serializers of
+   * frequently used types build the value directly.
+   *
+   * @param o the Java instance being converted. Never null.
+   * @return a JavaScript object, array, string, number or boolean.
+   */
+  public Object toJso(final T o) {
+    final StringBuilder sb = new StringBuilder();
+    printJson(sb, o);
+    return parse(sb.toString());
+  }
+
   /**
    * Convert from JSON (stored as a JavaScriptObject) into a new Java instance.
    *
@@ -50,6 +68,50 @@ public abstract class JsonSerializer<T> {
    */
   public abstract T fromJson(Object o);
 
+  /**
+   * Convert a long to a JavaScript number, or to a decimal string if a number cannot hold it
+   * exactly. The server reads both.
+   */
+  public static final Object longToJso(final long v) {
+    if (-MAX_SAFE_LONG <= v && v <= MAX_SAFE_LONG) {
+      return (double) v;
+    }
+    return String.valueOf(v);
+  }
+
+  /** Convert the decimal text of a long, or "null", like {@link #longToJso(long)}. */
+  public static final Object longToJso(final String v) {
+    if (v == null || JS_NULL.equals(v)) {
+      return null;
+    }
+    return longToJso(Long.parseLong(v));
+  }
+
+  private static final long MAX_SAFE_LONG = (1L << 53) - 1;
+
+  protected static final native Object parse(String json) /*-{ return JSON.parse(json); }-*/;
+
+  /** Set a property of a JavaScript object. */
+  public static final native void set(JavaScriptObject o, String name, Object v)
+  /*-{ o[name] = v; }-*/;
+
+  /** Set a numeric property of a JavaScript object. */
+  public static final native void setNumber(JavaScriptObject o, String name, double v)
+  /*-{ o[name] = v; }-*/;
+
+  /** Set a boolean property of a JavaScript object. */
+  public static final native void setBoolean(JavaScriptObject o, String name, boolean v)
+  /*-{ o[name] = v; }-*/;
+
+  /** Append a value to a JavaScript array. */
+  public static final native void push(JavaScriptObject a, Object v) /*-{ a.push(v); }-*/;
+
+  /** Append a number to a JavaScript array. */
+  public static final native void pushNumber(JavaScriptObject a, double v) /*-{ a.push(v); }-*/;
+
+  /** Append a boolean to a JavaScript array. */
+  public static final native void pushBoolean(JavaScriptObject a, boolean v) /*-{ a.push(v); }-*/;
+
   /** Return the first character of a string, or '\0' if the string is empty. */
   public static final char toChar(final String val) {
     return val.length() > 0 ? val.charAt(0) : '\0';
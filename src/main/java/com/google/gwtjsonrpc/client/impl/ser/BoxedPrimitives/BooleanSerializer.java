@@ -14,6 +14,12 @@ public class BooleanSerializer extends JsonSerializer
 		sb.append(o != null ? o.toString() : JsonSerializer.JS_NULL);
 	}
 
+	@Override
+	public Object toJso(Object o)
+	{
+		return o;
+	}
+
 	@Override
 	public Boolean fromJson(Object o)
 	{
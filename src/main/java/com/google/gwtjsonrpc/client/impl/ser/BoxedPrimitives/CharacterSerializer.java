@@ -14,6 +14,12 @@ public class CharacterSerializer extends JsonSerializer
 		sb.append(o != null ? o.toString() : JsonSerializer.JS_NULL);
 	}
 
+	@Override
+	public Object toJso(Object o)
+	{
+		return String.valueOf(o);
+	}
+
 	@Override
 	public Character fromJson(Object o)
 	{
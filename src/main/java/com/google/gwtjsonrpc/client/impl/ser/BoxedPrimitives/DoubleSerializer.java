@@ -14,6 +14,12 @@ public class DoubleSerializer extends JsonSerializer
 		sb.append(o != null ? o.toString() : JsonSerializer.JS_NULL);
 	}
 
+	@Override
+	public Object toJso(Object o)
+	{
+		return o;
+	}
+
 	@Override
 	public Double fromJson(Object o)
 	{
@@ -14,6 +14,12 @@ public class IntegerSerializer extends JsonSerializer
 		sb.append(o != null ? o.toString() : JsonSerializer.JS_NULL);
 	}
 
+	@Override
+	public Object toJso(Object o)
+	{
+		return ((Number) o).doubleValue();
+	}
+
 	@Override
 	public Integer fromJson(Object o)
 	{
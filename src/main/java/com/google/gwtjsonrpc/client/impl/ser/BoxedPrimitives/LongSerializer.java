@@ -14,6 +14,12 @@ public class LongSerializer extends JsonSerializer
 		sb.append(o != null ? o.toString() : JsonSerializer.JS_NULL);
 	}
 
+	@Override
+	public Object toJso(Object o)
+	{
+		return longToJso((Long) o);
+	}
+
 	@Override
 	public Long fromJson(Object o)
 	{
@@ -0,0 +1,83 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.client.impl.ser;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwtjsonrpc.client.impl.JsonSerializer;
+
+/**
+ * Reads a list sent by column, <code>{"cols":[...],"rows":[[...],...]}</code>.
+ *
+ * <p>A single view object is created per list, with a getter for each column reading from the
+ * current row. Generated serializers read the view as if it was the element object, so no object
+ * is built per row.
+ */
+final class ColumnarView {
+  /** @return true if the JSON value is a list sent by column. */
+  static native boolean isColumnar(JavaScriptObject o)
+  /*-{ return o.cols !== undefined && o.rows !== undefined; }-*/;
+
+  /** @return number of elements in a list, sent by column or not. */
+  static native int size(JavaScriptObject o)
+  /*-{ return o.rows !== undefined ? o.rows.length : o.length; }-*/;
+
+  /** @return a view over the rows of a list sent by column. */
+  static native JavaScriptObject create(JavaScriptObject o) /*-{
+    var view = {};
+    var cols = o.cols;
+    for (var i = 0; i < cols.length; i++) {
+      Object.defineProperty(view, cols[i], {
+        enumerable : true,
+        get : (function(c) { return function() { return this.__row[c]; }; })(i)
+      });
+    }
+    return view;
+  }-*/;
+
+  /** @return the view positioned on row <code>i</code>; null if the element is null. */
+  static native Object row(JavaScriptObject view, JavaScriptObject o, int i) /*-{
+    var r = o.rows[i];
+    if (r == null) return null;
+    view.__row = r;
+    return view;
+  }-*/;
+
+  /**
+   * @return a new object reading row <code>i</code> through the view, for elements kept after the
+   *     list is read; null if the element is null.
+   */
+  static native Object rowObject(JavaScriptObject view, JavaScriptObject o, int i) /*-{
+    var r = o.rows[i];
+    if (r == null) return null;
+    return Object.create(view, { __row : { value : r } });
+  }-*/;
+
+  /**
+   * @return element <code>i</code> of a list, sent by column if <code>view</code> is not null, to be
+   *     read by the serializer <code>s</code>.
+   */
+  static Object element(
+      final JsonSerializer<?> s, final JavaScriptObject view, final JavaScriptObject o, final int i) {
+    if (view == null) {
+      return get(o, i);
+    }
+    // views keep the object they are given, so each needs its own
+    return s instanceof OverlaySerializer ? rowObject(view, o, i) : row(view, o, i);
+  }
+
+  private static native Object get(JavaScriptObject o, int i) /*-{ return o[i]; }-*/;
+
+  private ColumnarView() {}
+}
@@ -24,4 +24,9 @@ public abstract class EnumSerializer<T extends Enum<?>> extends JsonSerializer<T
     sb.append(o.name());
     sb.append('"');
   }
+
+  @Override
+  public Object toJso(final T o) {
+    return o.name();
+  }
 }
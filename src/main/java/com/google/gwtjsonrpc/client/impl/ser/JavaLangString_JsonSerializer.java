@@ -34,6 +34,11 @@ public final class JavaLangString_JsonSerializer extends JsonSerializer<java.lan
     sb.append(JsonUtils.escapeValue(o));
   }
 
+  @Override
+  public Object toJso(final java.lang.String o) {
+    return o;
+  }
+
   @Override
   public String fromResult(JavaScriptObject responseObject) {
     return PrimitiveResultDeserializers.stringResult(responseObject);
@@ -0,0 +1,50 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.client.impl.ser;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwtjsonrpc.client.impl.JsonSerializer;
+import com.google.gwtjsonrpc.client.impl.ResultDeserializer;
+import java.sql.Date;
+
+/**
+ * Serialization of a {@link java.sql.Date} as milliseconds since the epoch, for services annotated
+ * with {@link com.google.gwtjsonrpc.common.EpochTimestamps}.
+ */
+public final class JavaSqlDate_EpochJsonSerializer extends JsonSerializer<java.sql.Date>
+    implements ResultDeserializer<java.sql.Date> {
+  public static final JavaSqlDate_EpochJsonSerializer INSTANCE =
+      new JavaSqlDate_EpochJsonSerializer();
+
+  @Override
+  public java.sql.Date fromJson(final Object o) {
+    return JavaSqlDate_JsonSerializer.INSTANCE.fromJson(o);
+  }
+
+  @Override
+  public void printJson(final StringBuilder sb, final java.sql.Date o) {
+    sb.append(o.getTime());
+  }
+
+  @Override
+  public Object toJso(final java.sql.Date o) {
+    return (double) o.getTime();
+  }
+
+  @Override
+  public Date fromResult(JavaScriptObject responseObject) {
+    return fromJson(PrimitiveResultDeserializers.valueResult(responseObject));
+  }
+}
@@ -26,10 +26,13 @@ public final class JavaSqlDate_JsonSerializer extends JsonSerializer<java.sql.Da
 
   @Override
   public java.sql.Date fromJson(final Object o) {
-    if (o != null) {
-      return parseDate((String) o);
+    if (o == null) {
+      return null;
+    } else if (o instanceof Double) {
+      // milliseconds since the epoch, see EpochTimestamps
+      return new java.sql.Date(((Double) o).longValue());
     }
-    return null;
+    return parseDate((String) o);
   }
 
   @Override
@@ -41,6 +44,10 @@ public final class JavaSqlDate_JsonSerializer extends JsonSerializer<java.sql.Da
 
   private static native String toString(double utcMilli) /*-{
     var d = new Date(utcMilli);
+    var y = d.getUTCFullYear();
+    if (1000 <= y && y <= 9999) {
+      return d.toISOString().substring(0, 10);
+    }
     var p2 = @com.google.gwtjsonrpc.client.impl.ser.JavaSqlTimestamp_JsonSerializer::padTwo(I);
     return d.getUTCFullYear() + "-" +
     p2(1 + d.getUTCMonth()) + "-" +
@@ -49,6 +56,14 @@ public final class JavaSqlDate_JsonSerializer extends JsonSerializer<java.sql.Da
 
   @SuppressWarnings("deprecation")
   protected static java.sql.Date parseDate(final String s) {
+    if (s.length() == 10 && s.charAt(4) == '-' && s.charAt(7) == '-') {
+      final int y = digits(s, 0, 4);
+      final int m = digits(s, 5, 2);
+      final int d = digits(s, 8, 2);
+      if (y >= 0 && m >= 0 && d >= 0) {
+        return new java.sql.Date(y - 1900, m - 1, d);
+      }
+    }
     final String[] split = s.split("-");
     if (split.length != 3) {
       throw new IllegalArgumentException("Invalid escape format: " + s);
@@ -74,8 +89,21 @@ public final class JavaSqlDate_JsonSerializer extends JsonSerializer<java.sql.Da
     }
   }
 
+  /** @return the value of <code>len</code> decimal digits at <code>pos</code>; -1 if not digits. */
+  private static int digits(final String s, final int pos, final int len) {
+    int v = 0;
+    for (int i = pos; i < pos + len; i++) {
+      final char c = s.charAt(i);
+      if (c < '0' || '9' < c) {
+        return -1;
+      }
+      v = v * 10 + (c - '0');
+    }
+    return v;
+  }
+
   @Override
   public Date fromResult(JavaScriptObject responseObject) {
-    return fromJson(PrimitiveResultDeserializers.stringResult(responseObject));
+    return fromJson(PrimitiveResultDeserializers.valueResult(responseObject));
   }
 }
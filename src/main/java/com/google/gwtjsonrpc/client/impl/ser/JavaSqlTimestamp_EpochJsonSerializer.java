@@ -0,0 +1,60 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.client.impl.ser;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwtjsonrpc.client.impl.JsonSerializer;
+import com.google.gwtjsonrpc.client.impl.ResultDeserializer;
+import java.sql.Timestamp;
+
+/**
+ * Serialization of a {@link java.sql.Timestamp} as milliseconds since the epoch, for services
+ * annotated with {@link com.google.gwtjsonrpc.common.EpochTimestamps}.
+ */
+public final class JavaSqlTimestamp_EpochJsonSerializer extends JsonSerializer<java.sql.Timestamp>
+    implements ResultDeserializer<java.sql.Timestamp> {
+  public static final JavaSqlTimestamp_EpochJsonSerializer INSTANCE =
+      new JavaSqlTimestamp_EpochJsonSerializer();
+
+  @Override
+  public java.sql.Timestamp fromJson(final Object o) {
+    return JavaSqlTimestamp_JsonSerializer.INSTANCE.fromJson(o);
+  }
+
+  @Override
+  public void printJson(final StringBuilder sb, final java.sql.Timestamp o) {
+    if (o.getNanos() % 1000000 == 0) {
+      sb.append(o.getTime());
+    } else {
+      sb.append('[').append(o.getTime()).append(',').append(o.getNanos()).append(']');
+    }
+  }
+
+  @Override
+  public Object toJso(final java.sql.Timestamp o) {
+    if (o.getNanos() % 1000000 == 0) {
+      return (double) o.getTime();
+    }
+    return pair(o.getTime(), o.getNanos());
+  }
+
+  private static native JavaScriptObject pair(double millis, int nanos)
+  /*-{ return [millis, nanos]; }-*/;
+
+  @Override
+  public Timestamp fromResult(JavaScriptObject responseObject) {
+    return fromJson(PrimitiveResultDeserializers.valueResult(responseObject));
+  }
+}
@@ -28,12 +28,23 @@ public final class JavaSqlTimestamp_JsonSerializer extends JsonSerializer<java.s
 
   @Override
   public java.sql.Timestamp fromJson(final Object o) {
-    if (o != null) {
+    if (o == null) {
+      return null;
+    } else if (o instanceof String) {
       return parseTimestamp((String) o);
+    } else if (o instanceof Double) {
+      // milliseconds since the epoch, see EpochTimestamps
+      return new java.sql.Timestamp(((Double) o).longValue());
     }
-    return null;
+    // [millis, nanos]
+    final JavaScriptObject a = (JavaScriptObject) o;
+    final java.sql.Timestamp t = new java.sql.Timestamp((long) get(a, 0));
+    t.setNanos((int) get(a, 1));
+    return t;
   }
 
+  private static native double get(JavaScriptObject a, int i) /*-{ return a[i]; }-*/;
+
   @Override
   public void printJson(final StringBuilder sb, final java.sql.Timestamp o) {
     sb.append('"');
@@ -60,9 +71,15 @@ public final class JavaSqlTimestamp_JsonSerializer extends JsonSerializer<java.s
 
   private static native String toString(double utcMilli) /*-{
     var d = new Date(utcMilli);
+    var y = d.getUTCFullYear();
+    if (1000 <= y && y <= 9999) {
+      // yyyy-MM-ddTHH:mm:ss.SSSZ, formatted by the browser
+      var iso = d.toISOString();
+      return iso.substring(0, 10) + " " + iso.substring(11, 23) + "000000";
+    }
     var p2 = @com.google.gwtjsonrpc.client.impl.ser.JavaSqlTimestamp_JsonSerializer::padTwo(I);
     var p3 = @com.google.gwtjsonrpc.client.impl.ser.JavaSqlTimestamp_JsonSerializer::padThree(I);
-    return d.getUTCFullYear() + "-" +
+    return y + "-" +
     p2(1 + d.getUTCMonth()) + "-" +
     p2(d.getUTCDate())+ " " +
     p2(d.getUTCHours()) + ":" +
@@ -77,6 +94,6 @@ public final class JavaSqlTimestamp_JsonSerializer extends JsonSerializer<java.s
 
   @Override
   public Timestamp fromResult(JavaScriptObject responseObject) {
-    return fromJson(PrimitiveResultDeserializers.stringResult(responseObject));
+    return fromJson(PrimitiveResultDeserializers.valueResult(responseObject));
   }
 }
@@ -0,0 +1,121 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.client.impl.ser;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwtjsonrpc.client.impl.JsonSerializer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.RandomAccess;
+
+/**
+ * A {@link java.util.List} backed by a parsed JSON array, converting each element on first access.
+ *
+ * <p>Converted elements are kept, so each is read once. Elements may be replaced in place; adding,
+ * removing or storing null first copies the remaining elements into an {@link ArrayList}.
+ */
+public class LazyList<T> extends AbstractList<T> implements RandomAccess {
+  private final JsonSerializer<T> serializer;
+  private JavaScriptObject jso;
+  private JavaScriptObject view;
+  private Object[] cache;
+  private ArrayList<T> copy;
+
+  /**
+   * @param jso the JSON array, or a list sent by column.
+   * @param s serializer of the elements.
+   */
+  public LazyList(final JavaScriptObject jso, final JsonSerializer<T> s) {
+    serializer = s;
+    this.jso = jso;
+    if (ColumnarView.isColumnar(jso)) {
+      view = ColumnarView.create(jso);
+    }
+    cache = new Object[ColumnarView.size(jso)];
+  }
+
+  @Override
+  public int size() {
+    return copy != null ? copy.size() : cache.length;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public T get(final int index) {
+    if (copy != null) {
+      return copy.get(index);
+    }
+    checkIndex(index);
+    Object v = cache[index];
+    if (v == null) {
+      // unread, or null in the JSON and cheap to read again
+      v = serializer.fromJson(ColumnarView.element(serializer, view, jso, index));
+      cache[index] = v;
+    }
+    return (T) v;
+  }
+
+  @Override
+  public T set(final int index, final T element) {
+    if (copy == null && element != null) {
+      final T old = get(index);
+      cache[index] = element;
+      return old;
+    }
+    return copied().set(index, element);
+  }
+
+  @Override
+  public void add(final int index, final T element) {
+    copied().add(index, element);
+    modCount++;
+  }
+
+  @Override
+  public T remove(final int index) {
+    final T old = copied().remove(index);
+    modCount++;
+    return old;
+  }
+
+  @Override
+  public void clear() {
+    copy = new ArrayList<>();
+    jso = null;
+    view = null;
+    cache = null;
+    modCount++;
+  }
+
+  private ArrayList<T> copied() {
+    if (copy == null) {
+      final ArrayList<T> r = new ArrayList<>(cache.length);
+      for (int i = 0; i < cache.length; i++) {
+        r.add(get(i));
+      }
+      copy = r;
+      jso = null;
+      view = null;
+      cache = null;
+    }
+    return copy;
+  }
+
+  private void checkIndex(final int index) {
+    if (index < 0 || index >= cache.length) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + cache.length);
+    }
+  }
+}
@@ -0,0 +1,41 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.client.impl.ser;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwtjsonrpc.client.impl.JsonSerializer;
+
+/**
+ * Serialization for a {@link java.util.List} read lazily.
+ *
+ * <p>When deserialized from JSON the List implementation is a {@link LazyList} over the parsed
+ * array. Serializing to JSON is the same as {@link ListSerializer}.
+ */
+public class LazyListSerializer<T> extends ListSerializer<T> {
+  private final JsonSerializer<T> serializer;
+
+  public LazyListSerializer(final JsonSerializer<T> s) {
+    super(s);
+    serializer = s;
+  }
+
+  @Override
+  public java.util.List<T> fromJson(final Object o) {
+    if (o == null) {
+      return null;
+    }
+    return new LazyList<>((JavaScriptObject) o, serializer);
+  }
+}
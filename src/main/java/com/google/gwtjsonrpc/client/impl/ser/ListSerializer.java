@@ -23,7 +23,7 @@ import java.util.ArrayList;
  * Serialization for a {@link java.util.List}.
  *
  * <p>When deserialized from JSON the List implementation is always an {@link ArrayList}. When
- * serializing to JSON any List is permitted.
+ * serializing to JSON any List is permitted. Lists sent by column are read as well.
  */
 public class ListSerializer<T> extends JsonSerializer<java.util.List<T>>
     implements ResultDeserializer<java.util.List<T>> {
@@ -52,6 +52,15 @@ public class ListSerializer<T> extends JsonSerializer<java.util.List<T>>
     sb.append(']');
   }
 
+  @Override
+  public Object toJso(final java.util.List<T> o) {
+    final JavaScriptObject r = JavaScriptObject.createArray();
+    for (final T item : o) {
+      push(r, item != null ? serializer.toJso(item) : null);
+    }
+    return r;
+  }
+
   @Override
   public java.util.List<T> fromJson(final Object o) {
     if (o == null) {
@@ -59,6 +68,16 @@ public class ListSerializer<T> extends JsonSerializer<java.util.List<T>>
     }
 
     final JavaScriptObject jso = (JavaScriptObject) o;
+    if (ColumnarView.isColumnar(jso)) {
+      final JavaScriptObject view = ColumnarView.create(jso);
+      final int n = ColumnarView.size(jso);
+      final ArrayList<T> r = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        r.add(serializer.fromJson(ColumnarView.element(serializer, view, jso, i)));
+      }
+      return r;
+    }
+
     final int n = size(jso);
     final ArrayList<T> r = new ArrayList<>(n);
     for (int i = 0; i < n; i++) {
@@ -45,13 +45,31 @@ public class ObjectArraySerializer<T> {
     sb.append(']');
   }
 
+  public Object toJso(final T[] o) {
+    final JavaScriptObject r = JavaScriptObject.createArray();
+    for (int i = 0, n = o.length; i < n; i++) {
+      final T v = o[i];
+      JsonSerializer.push(r, v != null ? serializer.toJso(v) : null);
+    }
+    return r;
+  }
+
   public void fromJson(final JavaScriptObject jso, final T[] r) {
+    if (ColumnarView.isColumnar(jso)) {
+      final JavaScriptObject view = ColumnarView.create(jso);
+      for (int i = 0; i < r.length; i++) {
+        r[i] = serializer.fromJson(ColumnarView.element(serializer, view, jso, i));
+      }
+      return;
+    }
     for (int i = 0; i < r.length; i++) {
       r[i] = serializer.fromJson(get(jso, i));
     }
   }
 
-  public static native int size(JavaScriptObject o) /*-{ return o.length; }-*/;
+  public static int size(JavaScriptObject o) {
+    return ColumnarView.size(o);
+  }
 
   private static final native Object get(JavaScriptObject o, int i) /*-{ return o[i]; }-*/;
 }
@@ -68,6 +68,22 @@ public class ObjectMapSerializer<K, V> extends JsonSerializer<java.util.Map<K, V
     sb.append('}');
   }
 
+  @Override
+  public Object toJso(final java.util.Map<K, V> o) {
+    final JavaScriptObject keys = JavaScriptObject.createArray();
+    for (final K k : o.keySet()) {
+      push(keys, k != null ? keySerializer.toJso(k) : null);
+    }
+    final JavaScriptObject values = JavaScriptObject.createArray();
+    for (final V v : o.values()) {
+      push(values, v != null ? valueSerializer.toJso(v) : null);
+    }
+    final JavaScriptObject r = JavaScriptObject.createObject();
+    set(r, "keys", keys);
+    set(r, "values", values);
+    return r;
+  }
+
   private static <T> void encode(
       final StringBuilder sb, final JsonSerializer<T> serializer, final T item) {
     if (item != null) {
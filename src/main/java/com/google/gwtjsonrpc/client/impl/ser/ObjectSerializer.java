@@ -17,6 +17,7 @@ package com.google.gwtjsonrpc.client.impl.ser;
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwtjsonrpc.client.impl.JsonSerializer;
 import com.google.gwtjsonrpc.client.impl.ResultDeserializer;
+import com.google.gwtjsonrpc.common.JsonConstants;
 
 /** Base class for generated JsonSerializer implementations. */
 public abstract class ObjectSerializer<T extends Object> extends JsonSerializer<T>
@@ -30,6 +31,45 @@ public abstract class ObjectSerializer<T extends Object> extends JsonSerializer<
 
   protected abstract int printJsonImpl(int field, StringBuilder sb, Object o);
 
+  /**
+   * Print the {@link JsonConstants#TYPE_PROPERTY} of an object whose declared type has subclasses.
+   *
+   * @param field number of properties already printed.
+   * @param sb the output.
+   * @param name qualified source name of the object's class.
+   * @return the number of properties printed, including this one.
+   */
+  protected static int printType(final int field, final StringBuilder sb, final String name) {
+    if (field > 0) {
+      sb.append(',');
+    }
+    sb.append("\"" + JsonConstants.TYPE_PROPERTY + "\":\"").append(name).append('"');
+    return field + 1;
+  }
+
+  @Override
+  public Object toJso(final Object o) {
+    final JavaScriptObject dst = JavaScriptObject.createObject();
+    toJsoImpl(dst, o);
+    return dst;
+  }
+
+  /**
+   * Set the properties of an object's JSON representation.
+   *
+   * <p>Generated serializers set them directly; the default copies them from the output of {@link
+   * #printJsonImpl(int, StringBuilder, Object)}.
+   */
+  protected void toJsoImpl(final JavaScriptObject dst, final Object o) {
+    final StringBuilder sb = new StringBuilder("{");
+    printJsonImpl(0, sb, o);
+    sb.append('}');
+    copy(dst, parse(sb.toString()));
+  }
+
+  private static native void copy(JavaScriptObject dst, Object src)
+  /*-{ for (var k in src) dst[k] = src[k]; }-*/;
+
   @Override
   public T fromResult(JavaScriptObject responseObject) {
     final JavaScriptObject result = objectResult(responseObject);
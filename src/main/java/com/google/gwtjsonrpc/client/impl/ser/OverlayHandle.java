@@ -0,0 +1,32 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.client.impl.ser;
+
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * Base class for {@link com.google.gwtjsonrpc.common.JsonOverlay} views read through a Java object
+ * holding the parsed JSON.
+ *
+ * <p>GWT lets only one JavaScriptObject class implement an interface. A view used by services of
+ * both the regular and the compact encoding is a JavaScriptObject in the first encoding generated,
+ * and a handle in the other.
+ */
+public abstract class OverlayHandle {
+  protected final JavaScriptObject jso;
+
+  protected OverlayHandle(final JavaScriptObject jso) {
+    this.jso = jso;
+  }
+}
@@ -0,0 +1,77 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.client.impl.ser;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsonUtils;
+import com.google.gwtjsonrpc.client.impl.JsonSerializer;
+import com.google.gwtjsonrpc.client.impl.ResultDeserializer;
+
+/**
+ * Base class for generated serializers of {@link com.google.gwtjsonrpc.common.JsonOverlay} views.
+ *
+ * <p>Views read from JSON are the parsed JavaScript objects themselves, or an {@link OverlayHandle}
+ * on them, so nothing is copied in either direction. A view implemented by a Java class is written
+ * by the serializer of the class the view reads.
+ */
+public abstract class OverlaySerializer<T> extends JsonSerializer<T>
+    implements ResultDeserializer<T> {
+  @Override
+  @SuppressWarnings("unchecked")
+  public void printJson(final StringBuilder sb, final T o) {
+    if (o instanceof JavaScriptObject) {
+      sb.append(JsonUtils.stringify(plain((JavaScriptObject) o)));
+    } else if (o instanceof OverlayHandle) {
+      sb.append(JsonUtils.stringify(plain(((OverlayHandle) o).jso)));
+    } else {
+      dtoSerializer().printJson(sb, o);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Object toJso(final T o) {
+    if (o instanceof JavaScriptObject) {
+      return plain((JavaScriptObject) o);
+    }
+    if (o instanceof OverlayHandle) {
+      return plain(((OverlayHandle) o).jso);
+    }
+    return dtoSerializer().toJso(o);
+  }
+
+  @Override
+  public T fromResult(final JavaScriptObject responseObject) {
+    final JavaScriptObject result = ObjectSerializer.objectResult(responseObject);
+    return result == null ? null : fromJson(result);
+  }
+
+  /**
+   * @return serializer of the class the view reads, for views implemented by Java objects.
+   * @throws IllegalArgumentException if the view does not declare the class it reads.
+   */
+  @SuppressWarnings("rawtypes")
+  protected JsonSerializer dtoSerializer() {
+    throw new IllegalArgumentException("JsonOverlay view without a class is not a JavaScriptObject");
+  }
+
+  /** @return the object itself, or a copy of its properties if it is a row of a columnar list. */
+  private static native JavaScriptObject plain(JavaScriptObject o) /*-{
+    if (o.__row === undefined) return o;
+    var r = {};
+    for (var k in o) r[k] = o[k];
+    return r;
+  }-*/;
+}
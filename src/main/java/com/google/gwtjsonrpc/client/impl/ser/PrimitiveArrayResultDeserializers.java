@@ -23,9 +23,8 @@ public class PrimitiveArrayResultDeserializers extends ArrayResultDeserializer {
       new ResultDeserializer<Boolean[]>() {
         @Override
         public Boolean[] fromResult(JavaScriptObject responseObject) {
-          final Boolean[] tmp = new Boolean[getResultSize(responseObject)];
-          PrimitiveArraySerializer.INSTANCE.fromJson(getResult(responseObject), tmp);
-          return tmp;
+          final JavaScriptObject result = getResult(responseObject);
+          return result == null ? null : PrimitiveArraySerializer.INSTANCE.boxedBooleans(result);
         }
       };
   public static ResultDeserializer<Byte[]> BYTE_INSTANCE =
@@ -50,9 +49,8 @@ public class PrimitiveArrayResultDeserializers extends ArrayResultDeserializer {
       new ResultDeserializer<Double[]>() {
         @Override
         public Double[] fromResult(JavaScriptObject responseObject) {
-          final Double[] tmp = new Double[getResultSize(responseObject)];
-          PrimitiveArraySerializer.INSTANCE.fromJson(getResult(responseObject), tmp);
-          return tmp;
+          final JavaScriptObject result = getResult(responseObject);
+          return result == null ? null : PrimitiveArraySerializer.INSTANCE.boxedDoubles(result);
         }
       };
   public static ResultDeserializer<Float[]> FLOAT_INSTANCE =
@@ -82,4 +80,80 @@ public class PrimitiveArrayResultDeserializers extends ArrayResultDeserializer {
           return tmp;
         }
       };
+  public static ResultDeserializer<Long[]> LONG_INSTANCE =
+      new ResultDeserializer<Long[]>() {
+        @Override
+        public Long[] fromResult(JavaScriptObject responseObject) {
+          final Long[] tmp = new Long[getResultSize(responseObject)];
+          PrimitiveArraySerializer.INSTANCE.fromJson(getResult(responseObject), tmp);
+          return tmp;
+        }
+      };
+
+  // Arrays of primitives
+  public static ResultDeserializer<boolean[]> PRIMITIVE_BOOLEAN_INSTANCE =
+      new ResultDeserializer<boolean[]>() {
+        @Override
+        public boolean[] fromResult(JavaScriptObject responseObject) {
+          final JavaScriptObject result = getResult(responseObject);
+          return result == null ? null : PrimitiveArraySerializer.INSTANCE.booleans(result);
+        }
+      };
+  public static ResultDeserializer<byte[]> PRIMITIVE_BYTE_INSTANCE =
+      new ResultDeserializer<byte[]>() {
+        @Override
+        public byte[] fromResult(JavaScriptObject responseObject) {
+          final JavaScriptObject result = getResult(responseObject);
+          return result == null ? null : PrimitiveArraySerializer.INSTANCE.bytes(result);
+        }
+      };
+  public static ResultDeserializer<char[]> PRIMITIVE_CHAR_INSTANCE =
+      new ResultDeserializer<char[]>() {
+        @Override
+        public char[] fromResult(JavaScriptObject responseObject) {
+          final char[] tmp = new char[getResultSize(responseObject)];
+          PrimitiveArraySerializer.INSTANCE.fromJson(getResult(responseObject), tmp);
+          return tmp;
+        }
+      };
+  public static ResultDeserializer<double[]> PRIMITIVE_DOUBLE_INSTANCE =
+      new ResultDeserializer<double[]>() {
+        @Override
+        public double[] fromResult(JavaScriptObject responseObject) {
+          final JavaScriptObject result = getResult(responseObject);
+          return result == null ? null : PrimitiveArraySerializer.INSTANCE.doubles(result);
+        }
+      };
+  public static ResultDeserializer<float[]> PRIMITIVE_FLOAT_INSTANCE =
+      new ResultDeserializer<float[]>() {
+        @Override
+        public float[] fromResult(JavaScriptObject responseObject) {
+          final JavaScriptObject result = getResult(responseObject);
+          return result == null ? null : PrimitiveArraySerializer.INSTANCE.floats(result);
+        }
+      };
+  public static ResultDeserializer<int[]> PRIMITIVE_INT_INSTANCE =
+      new ResultDeserializer<int[]>() {
+        @Override
+        public int[] fromResult(JavaScriptObject responseObject) {
+          final JavaScriptObject result = getResult(responseObject);
+          return result == null ? null : PrimitiveArraySerializer.INSTANCE.ints(result);
+        }
+      };
+  public static ResultDeserializer<long[]> PRIMITIVE_LONG_INSTANCE =
+      new ResultDeserializer<long[]>() {
+        @Override
+        public long[] fromResult(JavaScriptObject responseObject) {
+          final JavaScriptObject result = getResult(responseObject);
+          return result == null ? null : PrimitiveArraySerializer.INSTANCE.longs(result);
+        }
+      };
+  public static ResultDeserializer<short[]> PRIMITIVE_SHORT_INSTANCE =
+      new ResultDeserializer<short[]>() {
+        @Override
+        public short[] fromResult(JavaScriptObject responseObject) {
+          final JavaScriptObject result = getResult(responseObject);
+          return result == null ? null : PrimitiveArraySerializer.INSTANCE.shorts(result);
+        }
+      };
 }
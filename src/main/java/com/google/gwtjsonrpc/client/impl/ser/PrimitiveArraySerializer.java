@@ -21,6 +21,15 @@ import com.google.gwtjsonrpc.client.impl.JsonSerializer;
 public class PrimitiveArraySerializer {
   public static final PrimitiveArraySerializer INSTANCE = new PrimitiveArraySerializer();
 
+  private static final boolean[] BOOLEANS = new boolean[0];
+  private static final byte[] BYTES = new byte[0];
+  private static final double[] DOUBLES = new double[0];
+  private static final float[] FLOATS = new float[0];
+  private static final int[] INTS = new int[0];
+  private static final short[] SHORTS = new short[0];
+  private static final Boolean[] BOXED_BOOLEANS = new Boolean[0];
+  private static final Double[] BOXED_DOUBLES = new Double[0];
+
   private void printJsonWithToString(final StringBuilder sb, final Object[] o) {
     sb.append('[');
     for (int i = 0, n = o.length; i < n; i++) {
@@ -34,7 +43,7 @@ public class PrimitiveArraySerializer {
 
   // Serialisation of Boxed Primitives
   public void printJson(final StringBuilder sb, final Boolean[] o) {
-    printJsonWithToString(sb, o);
+    sb.append(stringify(o));
   }
 
   public void printJson(final StringBuilder sb, final Byte[] o) {
@@ -55,7 +64,7 @@ public class PrimitiveArraySerializer {
   }
 
   public void printJson(final StringBuilder sb, final Double[] o) {
-    printJsonWithToString(sb, o);
+    sb.append(stringify(o));
   }
 
   public void printJson(final StringBuilder sb, final Long[] o) {
@@ -76,28 +85,18 @@ public class PrimitiveArraySerializer {
 
   // Serialisation of Primitives
   public void printJson(final StringBuilder sb, final boolean[] o) {
-    sb.append('[');
-    for (int i = 0, n = o.length; i < n; i++) {
-      if (i > 0) {
-        sb.append(',');
-      }
-      sb.append(o[i]);
-    }
-    sb.append(']');
+    sb.append('[').append(join(o)).append(']');
   }
 
   public void printJson(final StringBuilder sb, final byte[] o) {
-    sb.append('[');
-    for (int i = 0, n = o.length; i < n; i++) {
-      if (i > 0) {
-        sb.append(',');
-      }
-      sb.append(o[i]);
-    }
-    sb.append(']');
+    sb.append('[').append(join(o)).append(']');
   }
 
   public void printJson(final StringBuilder sb, final char[] o) {
+    sb.append(stringifyChars(o));
+  }
+
+  public void printJson(final StringBuilder sb, final long[] o) {
     sb.append('[');
     for (int i = 0, n = o.length; i < n; i++) {
       if (i > 0) {
@@ -108,65 +107,131 @@ public class PrimitiveArraySerializer {
     sb.append(']');
   }
 
+  // Arrays of JavaScript numbers and booleans are written by the browser in one call
+  private static native String join(Object a) /*-{ return a.join(","); }-*/;
+
+  private static native String stringify(Object a) /*-{ return JSON.stringify(a); }-*/;
+
+  private static native String stringifyChars(Object a) /*-{
+    var r = new Array(a.length);
+    for (var i = 0; i < a.length; i++) r[i] = String.fromCharCode(a[i]);
+    return JSON.stringify(r);
+  }-*/;
+
   public void printJson(final StringBuilder sb, final double[] o) {
-    sb.append('[');
+    sb.append('[').append(join(o)).append(']');
+  }
+
+  public void printJson(final StringBuilder sb, final float[] o) {
+    sb.append('[').append(join(o)).append(']');
+  }
+
+  public void printJson(final StringBuilder sb, final int[] o) {
+    sb.append('[').append(join(o)).append(']');
+  }
+
+  public void printJson(final StringBuilder sb, final short[] o) {
+    sb.append('[').append(join(o)).append(']');
+  }
+
+  // Conversion for JSON.stringify; arrays holding JavaScript numbers and booleans are used as-is
+  public Object toJso(final boolean[] o) {
+    return o;
+  }
+
+  public Object toJso(final byte[] o) {
+    return o;
+  }
+
+  public Object toJso(final double[] o) {
+    return o;
+  }
+
+  public Object toJso(final float[] o) {
+    return o;
+  }
+
+  public Object toJso(final int[] o) {
+    return o;
+  }
+
+  public Object toJso(final short[] o) {
+    return o;
+  }
+
+  public Object toJso(final Boolean[] o) {
+    return o;
+  }
+
+  public Object toJso(final Double[] o) {
+    return o;
+  }
+
+  public Object toJso(final Byte[] o) {
+    return numbers(o);
+  }
+
+  public Object toJso(final Float[] o) {
+    return numbers(o);
+  }
+
+  public Object toJso(final Integer[] o) {
+    return numbers(o);
+  }
+
+  public Object toJso(final Short[] o) {
+    return numbers(o);
+  }
+
+  public Object toJso(final Long[] o) {
+    final JavaScriptObject r = JavaScriptObject.createArray();
     for (int i = 0, n = o.length; i < n; i++) {
-      if (i > 0) {
-        sb.append(',');
-      }
-      sb.append(o[i]);
+      JsonSerializer.push(r, o[i] != null ? JsonSerializer.longToJso(o[i]) : null);
     }
-    sb.append(']');
+    return r;
   }
 
-  public void printJson(final StringBuilder sb, final float[] o) {
-    sb.append('[');
+  public Object toJso(final long[] o) {
+    final JavaScriptObject r = JavaScriptObject.createArray();
     for (int i = 0, n = o.length; i < n; i++) {
-      if (i > 0) {
-        sb.append(',');
-      }
-      sb.append(o[i]);
+      JsonSerializer.push(r, JsonSerializer.longToJso(o[i]));
     }
-    sb.append(']');
+    return r;
   }
 
-  public void printJson(final StringBuilder sb, final int[] o) {
-    sb.append('[');
+  public Object toJso(final Character[] o) {
+    final JavaScriptObject r = JavaScriptObject.createArray();
     for (int i = 0, n = o.length; i < n; i++) {
-      if (i > 0) {
-        sb.append(',');
-      }
-      sb.append(o[i]);
+      JsonSerializer.push(r, o[i] != null ? String.valueOf(o[i]) : null);
     }
-    sb.append(']');
+    return r;
   }
 
-  public void printJson(final StringBuilder sb, final short[] o) {
-    sb.append('[');
+  public Object toJso(final char[] o) {
+    final JavaScriptObject r = JavaScriptObject.createArray();
     for (int i = 0, n = o.length; i < n; i++) {
-      if (i > 0) {
-        sb.append(',');
-      }
-      sb.append(o[i]);
+      JsonSerializer.push(r, String.valueOf(o[i]));
     }
-    sb.append(']');
+    return r;
   }
 
-  // DeSerialisation native getters
-  private static final native boolean getBoolean(JavaScriptObject jso, int pos)
-      /*-{ return jso[pos]; }-*/ ;
+  private static Object numbers(final Number[] o) {
+    final JavaScriptObject r = JavaScriptObject.createArray();
+    for (int i = 0, n = o.length; i < n; i++) {
+      JsonSerializer.push(r, o[i] != null ? o[i].doubleValue() : null);
+    }
+    return r;
+  }
 
+  // DeSerialisation native getters
   private static final native byte getByte(JavaScriptObject jso, int pos)
       /*-{ return jso[pos]; }-*/ ;
 
   private static final native String getString(JavaScriptObject jso, int pos)
       /*-{ return jso[pos]; }-*/ ;
 
-  private static final native double getDouble(JavaScriptObject jso, int pos)
-      /*-{ return jso[pos]; }-*/ ;
-
-  private static final native Long getLong(JavaScriptObject jso, int pos)
-    /*-{ return jso[pos]; }-*/ ;
+  private static final native String getLong(JavaScriptObject jso, int pos)
+      /*-{ var v = jso[pos]; return v == null ? null : "" + v; }-*/ ;
 
   private static final native float getFloat(JavaScriptObject jso, int pos)
       /*-{ return jso[pos]; }-*/ ;
@@ -179,9 +244,7 @@ public class PrimitiveArraySerializer {
 
   // DeSerialisation of boxed primitive arrays
   public void fromJson(final JavaScriptObject jso, final Boolean[] r) {
-    for (int i = 0; i < r.length; i++) {
-      r[i] = getBoolean(jso, i);
-    }
+    copy(jso, r);
   }
 
   public void fromJson(final JavaScriptObject jso, final Byte[] r) {
@@ -197,14 +260,13 @@ public class PrimitiveArraySerializer {
   }
 
   public void fromJson(final JavaScriptObject jso, final Double[] r) {
-    for (int i = 0; i < r.length; i++) {
-      r[i] = getDouble(jso, i);
-    }
+    copy(jso, r);
   }
 
   public void fromJson(final JavaScriptObject jso, final Long[] r) {
     for (int i = 0; i < r.length; i++) {
-      r[i] = getLong(jso, i);
+      final String v = getLong(jso, i);
+      r[i] = v != null ? Long.valueOf(Long.parseLong(v)) : null;
     }
   }
 
@@ -228,15 +290,11 @@ public class PrimitiveArraySerializer {
 
   // DeSerialisation of primitive arrays
   public void fromJson(final JavaScriptObject jso, final boolean[] r) {
-    for (int i = 0; i < r.length; i++) {
-      r[i] = getBoolean(jso, i);
-    }
+    copy(jso, r);
   }
 
   public void fromJson(final JavaScriptObject jso, final byte[] r) {
-    for (int i = 0; i < r.length; i++) {
-      r[i] = getByte(jso, i);
-    }
+    copy(jso, r);
   }
 
   public void fromJson(final JavaScriptObject jso, final char[] r) {
@@ -246,26 +304,127 @@ public class PrimitiveArraySerializer {
   }
 
   public void fromJson(final JavaScriptObject jso, final double[] r) {
-    for (int i = 0; i < r.length; i++) {
-      r[i] = getDouble(jso, i);
-    }
+    copy(jso, r);
   }
 
   public void fromJson(final JavaScriptObject jso, final float[] r) {
-    for (int i = 0; i < r.length; i++) {
-      r[i] = getFloat(jso, i);
-    }
+    copy(jso, r);
   }
 
   public void fromJson(final JavaScriptObject jso, final int[] r) {
-    for (int i = 0; i < r.length; i++) {
-      r[i] = getInteger(jso, i);
-    }
+    copy(jso, r);
   }
 
   public void fromJson(final JavaScriptObject jso, final short[] r) {
+    copy(jso, r);
+  }
+
+  public void fromJson(final JavaScriptObject jso, final long[] r) {
     for (int i = 0; i < r.length; i++) {
-      r[i] = getShort(jso, i);
+      r[i] = Long.parseLong(getLong(jso, i));
     }
   }
+
+  private static native void copy(JavaScriptObject jso, Object r) /*-{
+    for (var i = 0, n = r.length; i < n; i++) r[i] = jso[i];
+  }-*/;
+
+  // Adopting JSON arrays of numbers and booleans: GWT represents them the same way as Java
+  // arrays once they carry the Java type, so nothing is copied. Numeric arrays may also arrive
+  // as base64 text of their little-endian bytes, see BinaryArray.
+  public boolean[] booleans(final Object json) {
+    return (boolean[]) adopt(json, BOOLEANS, null);
+  }
+
+  public byte[] bytes(final Object json) {
+    return (byte[]) adopt(json, BYTES, "Int8Array");
+  }
+
+  public double[] doubles(final Object json) {
+    return (double[]) adopt(json, DOUBLES, "Float64Array");
+  }
+
+  public float[] floats(final Object json) {
+    return (float[]) adopt(json, FLOATS, "Float32Array");
+  }
+
+  public int[] ints(final Object json) {
+    return (int[]) adopt(json, INTS, "Int32Array");
+  }
+
+  public short[] shorts(final Object json) {
+    return (short[]) adopt(json, SHORTS, null);
+  }
+
+  public Boolean[] boxedBooleans(final Object json) {
+    return (Boolean[]) adopt(json, BOXED_BOOLEANS, null);
+  }
+
+  public Double[] boxedDoubles(final Object json) {
+    return (Double[]) adopt(json, BOXED_DOUBLES, null);
+  }
+
+  public long[] longs(final Object json) {
+    if (json instanceof String) {
+      // each long is two little-endian int words, low word first
+      final int[] words = ints(json);
+      final long[] r = new long[words.length / 2];
+      for (int i = 0; i < r.length; i++) {
+        r[i] = ((long) words[2 * i + 1] << 32) | (words[2 * i] & 0xffffffffL);
+      }
+      return r;
+    }
+    final long[] r = new long[ObjectArraySerializer.size((JavaScriptObject) json)];
+    fromJson((JavaScriptObject) json, r);
+    return r;
+  }
+
+  /**
+   * @return the JSON array, given the Java type of the array <code>type</code>; base64 text is
+   *     first decoded through the typed array <code>view</code>.
+   */
+  private static native Object adopt(Object json, Object type, String view) /*-{
+    if (typeof json == 'string') {
+      var s = $wnd.atob(json);
+      var b = new Uint8Array(s.length);
+      for (var i = 0; i < s.length; i++) b[i] = s.charCodeAt(i);
+      json = Array.prototype.slice.call(new $wnd[view](b.buffer));
+    }
+    return @com.google.gwt.lang.Array::stampJavaTypeInfo(Ljava/lang/Object;[Ljava/lang/Object;)(json, type);
+  }-*/;
+
+  // Base64 text of the little-endian bytes, for fields and methods marked BinaryArray
+  public String toBase64(final byte[] o) {
+    return base64(o, "Int8Array");
+  }
+
+  public String toBase64(final double[] o) {
+    return base64(o, "Float64Array");
+  }
+
+  public String toBase64(final float[] o) {
+    return base64(o, "Float32Array");
+  }
+
+  public String toBase64(final int[] o) {
+    return base64(o, "Int32Array");
+  }
+
+  public String toBase64(final long[] o) {
+    final int[] words = new int[2 * o.length];
+    for (int i = 0; i < o.length; i++) {
+      words[2 * i] = (int) o[i];
+      words[2 * i + 1] = (int) (o[i] >> 32);
+    }
+    return toBase64(words);
+  }
+
+  private static native String base64(Object a, String view) /*-{
+    var b = new Uint8Array(new $wnd[view](a).buffer);
+    var s = '';
+    for (var i = 0; i < b.length; i += 0x8000) {
+      s += String.fromCharCode.apply(null, b.subarray(i, i + 0x8000));
+    }
+    return $wnd.btoa(s);
+  }-*/;
 }
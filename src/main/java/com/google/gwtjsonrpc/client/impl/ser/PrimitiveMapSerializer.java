@@ -60,6 +60,19 @@ public class PrimitiveMapSerializer<K, V> extends JsonSerializer<Map<K, V>>
 		sb.append('}');
 	}
 
+	@Override
+	public Object toJso(final java.util.Map<K, V> o) {
+		final JavaScriptObject r = JavaScriptObject.createObject();
+		for (final Map.Entry<K, V> e : o.entrySet()) {
+			// same property name as printJson
+			final StringBuilder k = new StringBuilder();
+			encode(k, keySerializer, e.getKey());
+			final V v = e.getValue();
+			set(r, k.toString(), v != null ? valueSerializer.toJso(v) : null);
+		}
+		return r;
+	}
+
 	private static <T> void encode(
 		final StringBuilder sb, final JsonSerializer<T> serializer, final T item) {
 		if (item != null) {
@@ -31,6 +31,11 @@ public class PrimitiveResultDeserializers {
     return responseObject.result;
   }-*/;
 
+  /** @return the result as it is, a string, number, array or object. */
+  static native Object valueResult(JavaScriptObject responseObject) /*-{
+    return responseObject.result;
+  }-*/;
+
   static char charResult(JavaScriptObject responseObject) {
     return JsonSerializer.toChar(stringResult(responseObject));
   }
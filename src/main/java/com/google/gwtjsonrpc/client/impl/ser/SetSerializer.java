@@ -52,6 +52,15 @@ public class SetSerializer<T> extends JsonSerializer<java.util.Set<T>>
     sb.append(']');
   }
 
+  @Override
+  public Object toJso(final java.util.Set<T> o) {
+    final JavaScriptObject r = JavaScriptObject.createArray();
+    for (final T item : o) {
+      push(r, item != null ? serializer.toJso(item) : null);
+    }
+    return r;
+  }
+
   @Override
   public java.util.Set<T> fromJson(final Object o) {
     if (o == null) {
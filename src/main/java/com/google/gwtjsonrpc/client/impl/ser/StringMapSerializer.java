@@ -55,6 +55,16 @@ public class StringMapSerializer<V> extends JsonSerializer<java.util.Map<String,
     sb.append('}');
   }
 
+  @Override
+  public Object toJso(final java.util.Map<String, V> o) {
+    final JavaScriptObject r = JavaScriptObject.createObject();
+    for (final Map.Entry<String, V> e : o.entrySet()) {
+      final V v = e.getValue();
+      set(r, e.getKey(), v != null ? valueSerializer.toJso(v) : null);
+    }
+    return r;
+  }
+
   private static <T> void encode(
       final StringBuilder sb, final JsonSerializer<T> serializer, final T item) {
     if (item != null) {
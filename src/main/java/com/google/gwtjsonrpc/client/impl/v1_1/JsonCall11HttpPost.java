@@ -62,9 +62,8 @@ public class JsonCall11HttpPost<T> extends JsonCall<T> {
     rb.setHeader("Content-Type", JsonConstants.JSON_REQ_CT);
     rb.setHeader("Accept", JsonConstants.JSON_TYPE);
     rb.setCallback(this);
-    rb.setRequestData(body.toString());
 
-    send(rb);
+    sendBody(rb, body.toString());
   }
 
   @Override
@@ -53,8 +53,7 @@ public class JsonCall20HttpPost<T> extends JsonCall20<T> {
     rb.setHeader("Content-Type", JsonConstants.JSONRPC20_REQ_CT);
     rb.setHeader("Accept", JsonConstants.JSONRPC20_ACCEPT_CTS);
     rb.setCallback(this);
-    rb.setRequestData(body.toString());
 
-    send(rb);
+    sendBody(rb, body.toString());
   }
 }
@@ -0,0 +1,34 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sends a <code>byte[]</code>, <code>int[]</code>, <code>long[]</code>, <code>float[]</code> or
+ * <code>double[]</code> as a base64 string of its little-endian bytes instead of a JSON array.
+ *
+ * <p>On a field it applies to the array the field holds; on a {@link RemoteJsonService} method, to
+ * the array result and to every array parameter of a supported type. Large numeric payloads shrink
+ * and no longer go through number formatting and parsing; doubles and floats keep every bit.
+ *
+ * <p>Readers on both ends accept either the base64 string or a plain JSON array, so only the
+ * writing side depends on the annotation.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.FIELD})
+public @interface BinaryArray {}
@@ -0,0 +1,36 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation accepting request bodies larger than the servlet's usual limit for a {@link
+ * RemoteJsonService} method.
+ *
+ * <p>A body over the usual limit is spooled to a temporary file and its parameters are read from a
+ * memory mapping of that file, so the heap only holds the decoded parameter values. Only a few
+ * such bodies are read at a time. The method name must precede the parameters in the body, as the
+ * generated client sends it.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface BulkUpload {
+  /** @return largest request body accepted, in bytes, after any decompression. */
+  int maxSize() default 256 * 1024 * 1024;
+}
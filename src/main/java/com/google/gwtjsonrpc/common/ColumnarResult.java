@@ -0,0 +1,31 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation sending the List or array result of a {@link RemoteJsonService} method by column.
+ *
+ * <p>When every element of the result is null or an instance of exactly the declared element class,
+ * the result is sent as <code>{"cols":["a","b"],"rows":[[1,2],[3,4]]}</code> instead of repeating
+ * the property names in each element. Other results are sent as usual. The generated client reads
+ * both forms.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ColumnarResult {}
@@ -0,0 +1,44 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Selects the compact encoding for the objects of a {@link RemoteJsonService}.
+ *
+ * <p>Both the generated client and the server then:
+ *
+ * <ul>
+ *   <li>name object properties by the base 36 index of the field, counting the serialized fields
+ *       of the class with superclass fields first and each class's fields sorted by name, so the
+ *       first field is <code>"0"</code> and the 37th is <code>"10"</code>;
+ *   <li>write enum constants as their ordinal rather than their name;
+ *   <li>omit numeric and boolean primitive fields holding zero or false, and read a missing one
+ *       as zero or false whatever its initial value.
+ * </ul>
+ *
+ * <p>The names are positions, not identities. Client and server must be built from the same DTO
+ * classes: adding, removing or renaming a field changes the names of the fields sorted after it,
+ * and of every field of the subclasses, and a client built before the change reads and writes the
+ * wrong fields without any error. Do not use this encoding where a deployed client may outlive a
+ * server change, such as a GWT application that stays open across releases.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CompactEncoding {}
@@ -0,0 +1,34 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sends the {@link java.sql.Timestamp} and {@link java.sql.Date} values of a {@link
+ * RemoteJsonService} as milliseconds since the epoch rather than as formatted strings.
+ *
+ * <p>A timestamp with nanoseconds beyond its milliseconds is sent as the array <code>
+ * [millis, nanos]</code>, with <code>nanos</code> the full value of {@link
+ * java.sql.Timestamp#getNanos()}. The generated client and the server both write this form for an
+ * annotated service and still read the string form from it. The generated client reads numbers and
+ * arrays for any service.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface EpochTimestamps {}
@@ -31,6 +31,95 @@ public class JavaSqlTimestampHelper {
    * @return resulting timestamp.
    */
   public static Timestamp parseTimestamp(String s) {
+    Timestamp r = parseCanonical(s);
+    return r != null ? r : parseGeneral(s);
+  }
+
+  /**
+   * Parse the common shapes of {@link #parseTimestamp(String)} by hand: a 4-digit year from 1583,
+   * the first Gregorian year, 2-digit fields, and up to 9 fraction digits.
+   *
+   * @return the timestamp; null for any other input, which {@link #parseGeneral(String)} handles.
+   */
+  private static Timestamp parseCanonical(String s) {
+    int n = s.length();
+    if (n < 10 || s.charAt(4) != '-' || s.charAt(7) != '-') {
+      return null;
+    }
+    int yyyy = digits(s, 0, 4);
+    int mm = digits(s, 5, 2);
+    int dd = digits(s, 8, 2);
+    if (yyyy < 1583 || mm < 1 || 12 < mm || dd < 0) {
+      return null;
+    }
+    // fields out of range roll over, as Date.UTC does
+    long t = daysFromCivil(yyyy, mm, dd) * 86400000L;
+    int ns = 0;
+    if (n > 10) {
+      if (n < 19 || s.charAt(10) != ' ' || s.charAt(13) != ':' || s.charAt(16) != ':') {
+        return null;
+      }
+      int hh = digits(s, 11, 2);
+      int mi = digits(s, 14, 2);
+      int ss = digits(s, 17, 2);
+      if (hh < 0 || mi < 0 || ss < 0) {
+        return null;
+      }
+      t += hh * 3600000L + mi * 60000L + ss * 1000L;
+
+      int p = 19;
+      if (p < n && s.charAt(p) == '.') {
+        int start = ++p;
+        while (p < n && p - start < 9 && isDigit(s.charAt(p))) {
+          ns = ns * 10 + (s.charAt(p++) - '0');
+        }
+        if (p == start || (p < n && isDigit(s.charAt(p)))) {
+          return null;
+        }
+        for (int i = p - start; i < 9; i++) {
+          ns *= 10;
+        }
+      }
+      if (p < n) {
+        if (n - p != 6 || s.charAt(p) != ' ') {
+          return null;
+        }
+        t -= parseTimeZone(s.substring(p + 1));
+      }
+    }
+    Timestamp result = new Timestamp(t);
+    result.setNanos(ns);
+    return result;
+  }
+
+  /** @return the value of <code>len</code> decimal digits at <code>pos</code>; -1 if not digits. */
+  private static int digits(String s, int pos, int len) {
+    int v = 0;
+    for (int i = pos; i < pos + len; i++) {
+      char c = s.charAt(i);
+      if (!isDigit(c)) {
+        return -1;
+      }
+      v = v * 10 + (c - '0');
+    }
+    return v;
+  }
+
+  private static boolean isDigit(char c) {
+    return '0' <= c && c <= '9';
+  }
+
+  /** @return days from 1970-01-01 to a date of the proleptic Gregorian calendar. */
+  private static long daysFromCivil(int y, int m, int d) {
+    y -= m <= 2 ? 1 : 0;
+    int era = (y >= 0 ? y : y - 399) / 400;
+    int yoe = y - era * 400;
+    int doy = (153 * (m > 2 ? m - 3 : m + 9) + 2) / 5 + d - 1;
+    int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+    return era * 146097L + doe - 719468;
+  }
+
+  private static Timestamp parseGeneral(String s) {
     String[] components = s.split(" ");
     if (components.length < 1 || components.length > 3) {
       throw new IllegalArgumentException("Expected date and optional time: " + s);
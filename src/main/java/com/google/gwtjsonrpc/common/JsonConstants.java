@@ -35,6 +35,9 @@ public class JsonConstants {
   public static final String JSONRPC20_ACCEPT_CTS =
       JSON_TYPE + ",application/json,application/jsonrequest";
 
+  /** Property naming the concrete class of an object whose declared type has subclasses. */
+  public static final String TYPE_PROPERTY = "_type_";
+
   /** Error message when xsrfKey in request is missing or invalid. */
   public static final String ERROR_INVALID_XSRF = "Invalid xsrfKey in request";
 }
@@ -0,0 +1,46 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an interface as a read-only view of an object, read directly from the parsed JSON.
+ *
+ * <p>The generated client implements the interface with a <code>JavaScriptObject</code> overlay, so
+ * a result read through the view is never copied into Java objects. Each method without parameters
+ * reads the property named after it, <code>getName()</code>, <code>isName()</code> and <code>
+ * name()</code> all reading <code>"name"</code>. Methods may return:
+ *
+ * <ul>
+ *   <li>primitives, boxed primitives and Strings, read in place;
+ *   <li>other <code>JsonOverlay</code> interfaces, also read in place;
+ *   <li>the class named by {@link #value()}, converting the object into a new Java instance to edit;
+ *   <li>any other serializable type, converted on every call.
+ * </ul>
+ *
+ * <p>When {@link #value()} names the class the view reads, methods are matched to its fields by
+ * name, which is required for services using the {@link CompactEncoding}. The server encodes the
+ * class as usual, and reads a view naming no class as a proxy over its JSON; views are only useful
+ * as results and parameters of a {@link RemoteJsonService}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface JsonOverlay {
+  /** @return the class whose JSON encoding the view reads; Object if not declared. */
+  Class<?> value() default Object.class;
+}
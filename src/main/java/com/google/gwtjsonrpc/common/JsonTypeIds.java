@@ -0,0 +1,34 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.common;
+
+/** Numeric type ids, computed identically by the client generator and the server. */
+public final class JsonTypeIds {
+  /**
+   * Compute the default id of a class.
+   *
+   * @param qualifiedName the qualified source name of the class, e.g. <code>a.b.Outer.Inner</code>.
+   * @return a non-negative id derived from the 32 bit FNV-1a hash of the name.
+   */
+  public static int of(final String qualifiedName) {
+    int h = 0x811c9dc5;
+    for (int i = 0; i < qualifiedName.length(); i++) {
+      h ^= qualifiedName.charAt(i);
+      h *= 0x01000193;
+    }
+    return h & 0x7fffffff;
+  }
+
+  private JsonTypeIds() {}
+}
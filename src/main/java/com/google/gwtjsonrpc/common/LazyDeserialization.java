@@ -0,0 +1,33 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Reads a <code>java.util.List</code> lazily on the client.
+ *
+ * <p>On a {@link RemoteJsonService} method it applies to the List result; on a field, or on a
+ * method of a {@link JsonOverlay} view, to the List it holds. The list is backed by the parsed JSON
+ * array and converts each element on first access, so screens showing a few rows of a long list
+ * pay only for those rows. The list is copied into an ArrayList the first time its size changes.
+ *
+ * <p>The server ignores this annotation.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.FIELD})
+public @interface LazyDeserialization {}
@@ -0,0 +1,32 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Reads a <code>Map&lt;Integer, V&gt;</code> or <code>Map&lt;Long, V&gt;</code> field on the server
+ * into a map storing its keys unboxed, <code>com.google.gwtjsonrpc.server.IntKeyMap</code> or
+ * <code>LongKeyMap</code>.
+ *
+ * <p>The JSON form is unchanged: an object named by the decimal keys. The GWT client ignores the
+ * annotation and reads such fields into a HashMap as before.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface PrimitiveKeyMap {}
@@ -0,0 +1,776 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.processor;
+
+import com.google.gwtjsonrpc.common.AsyncCallback;
+import com.google.gwtjsonrpc.common.BinaryArray;
+import com.google.gwtjsonrpc.common.PrimitiveKeyMap;
+import com.google.gwtjsonrpc.common.RemoteJsonService;
+import com.google.gwtjsonrpc.server.BinaryArrayTypeAdapter;
+import com.google.gwtjsonrpc.server.GenerateTypeAdapters;
+import com.google.gwtjsonrpc.server.GeneratedTypeAdapter;
+import com.google.gwtjsonrpc.server.GeneratedTypeAdapterFactory;
+import com.google.gwtjsonrpc.server.IntKeyMap;
+import com.google.gwtjsonrpc.server.LongKeyMap;
+import com.google.gwtjsonrpc.server.PrimitiveKeyMapTypeAdapter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates a reflection-free Gson TypeAdapter for each DTO used by the services named in a
+ * {@link GenerateTypeAdapters} annotation.
+ *
+ * <p>Starting from the parameter and result types of the services, all reachable classes are
+ * visited, including subclasses found in the same compilation. Each concrete, non-generic class
+ * with a no-argument constructor accessible from the annotated class's package gets a {@link
+ * GeneratedTypeAdapter} in that package, which {@link GeneratedTypeAdapterFactory} finds at
+ * runtime. Other classes are left to Gson's reflective adapter.
+ *
+ * <p>All non-static, non-transient fields are generated, superclass fields first and fields of
+ * each class sorted by name. Which of them are written and read, and under what names, is left to
+ * the Gson instance at runtime.
+ */
+@SupportedAnnotationTypes(TypeAdapterProcessor.ANNOTATION)
+public class TypeAdapterProcessor extends AbstractProcessor {
+  static final String ANNOTATION = "com.google.gwtjsonrpc.server.GenerateTypeAdapters";
+
+  private static final Comparator<VariableElement> FIELD_COMP =
+      Comparator.comparing(f -> f.getSimpleName().toString());
+
+  private final Set<String> generated = new HashSet<>();
+  private Types types;
+  private Elements elements;
+  private TypeMirror serviceType;
+  private TypeMirror callbackType;
+
+  @Override
+  public synchronized void init(final ProcessingEnvironment env) {
+    super.init(env);
+    types = env.getTypeUtils();
+    elements = env.getElementUtils();
+
+    final TypeElement s = elements.getTypeElement(RemoteJsonService.class.getCanonicalName());
+    final TypeElement c = elements.getTypeElement(AsyncCallback.class.getCanonicalName());
+    if (s != null && c != null) {
+      serviceType = types.erasure(s.asType());
+      callbackType = types.erasure(c.asType());
+    }
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(
+      final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+    final TypeElement annotation = elements.getTypeElement(ANNOTATION);
+    if (serviceType == null || annotation == null) {
+      return false;
+    }
+
+    final List<TypeElement> all = new ArrayList<>();
+    collectTypes(roundEnv.getRootElements(), all);
+
+    for (final TypeElement target :
+        ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+      final PackageElement pkg = elements.getPackageOf(target);
+      final Reachable r = new Reachable(all);
+      for (final TypeElement t : services(target, annotation)) {
+        r.addService(t);
+      }
+
+      for (final TypeElement t : r.classes) {
+        // One adapter per DTO: the factory finds it by the DTO's name.
+        //
+        final String name = elements.getBinaryName(t).toString();
+        if (generated.contains(name)) {
+          continue;
+        }
+        final List<Property> props = properties(t, pkg);
+        if (props != null) {
+          generated.add(name);
+          write(t, pkg, target, props);
+        }
+      }
+    }
+    return true;
+  }
+
+  /** @return the services listed by the annotation on a class. */
+  private List<TypeElement> services(final TypeElement target, final TypeElement annotation) {
+    final List<TypeElement> r = new ArrayList<>();
+    for (final AnnotationMirror m : target.getAnnotationMirrors()) {
+      if (!types.isSameType(m.getAnnotationType(), annotation.asType())) {
+        continue;
+      }
+      for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e :
+          m.getElementValues().entrySet()) {
+        if (!e.getKey().getSimpleName().contentEquals("value")) {
+          continue;
+        }
+        for (final Object v : (List<?>) e.getValue().getValue()) {
+          final TypeMirror t = (TypeMirror) ((AnnotationValue) v).getValue();
+          if (t.getKind() == TypeKind.DECLARED
+              && types.isAssignable(types.erasure(t), serviceType)) {
+            r.add((TypeElement) ((DeclaredType) t).asElement());
+          }
+        }
+      }
+    }
+    return r;
+  }
+
+  private static void collectTypes(
+      final Iterable<? extends Element> in, final List<TypeElement> out) {
+    for (final TypeElement t : ElementFilter.typesIn(in)) {
+      out.add(t);
+      collectTypes(t.getEnclosedElements(), out);
+    }
+  }
+
+  /** Classes reachable from service method signatures. */
+  private class Reachable {
+    final List<TypeElement> compiled;
+    final Set<TypeElement> classes = new LinkedHashSet<>();
+    final Set<TypeElement> visited = new HashSet<>();
+
+    Reachable(final List<TypeElement> compiled) {
+      this.compiled = compiled;
+    }
+
+    void addService(final TypeElement service) {
+      final DeclaredType st = (DeclaredType) service.asType();
+      for (final ExecutableElement m : ElementFilter.methodsIn(elements.getAllMembers(service))) {
+        if (m.getEnclosingElement().getKind() != ElementKind.INTERFACE) {
+          continue;
+        }
+        final List<? extends TypeMirror> params =
+            ((ExecutableType) types.asMemberOf(st, m)).getParameterTypes();
+        for (final TypeMirror p : params) {
+          if (types.isSameType(types.erasure(p), callbackType)) {
+            for (final TypeMirror a : ((DeclaredType) p).getTypeArguments()) {
+              add(a);
+            }
+          } else {
+            add(p);
+          }
+        }
+      }
+    }
+
+    void add(final TypeMirror t) {
+      switch (t.getKind()) {
+        case ARRAY:
+          add(((ArrayType) t).getComponentType());
+          break;
+
+        case WILDCARD:
+          final WildcardType w = (WildcardType) t;
+          if (w.getExtendsBound() != null) {
+            add(w.getExtendsBound());
+          }
+          break;
+
+        case DECLARED:
+          final DeclaredType d = (DeclaredType) t;
+          for (final TypeMirror a : d.getTypeArguments()) {
+            add(a);
+          }
+          final TypeElement e = (TypeElement) d.asElement();
+          if (isStandard(e) || e.getKind() == ElementKind.ENUM || !visited.add(e)) {
+            break;
+          }
+          if (e.getKind() == ElementKind.CLASS) {
+            classes.add(e);
+            for (final Property p : fields(e, d)) {
+              add(p.type);
+            }
+          }
+          for (final TypeElement sub : compiled) {
+            if (sub != e
+                && sub.getKind() == ElementKind.CLASS
+                && types.isSubtype(types.erasure(sub.asType()), types.erasure(e.asType()))) {
+              add(sub.asType());
+            }
+          }
+          break;
+
+        default:
+          break;
+      }
+    }
+  }
+
+  /** A serialized field, as seen from the DTO class that declares or inherits it. */
+  private static class Property {
+    VariableElement field;
+    TypeMirror type;
+    String id;
+    int index;
+    boolean direct;
+    boolean binary;
+    boolean primitiveKeys;
+  }
+
+  /** All serialized fields of a class, superclass fields first. */
+  private List<Property> fields(final TypeElement cls, final DeclaredType asType) {
+    return fields(cls, asType, elements.getPackageOf(cls));
+  }
+
+  /**
+   * All fields Gson may serialize, superclass fields first.
+   *
+   * @param pkg package of the generated code, deciding which fields it can access directly.
+   */
+  private List<Property> fields(
+      final TypeElement cls, final DeclaredType asType, final PackageElement pkg) {
+    final List<TypeElement> chain = new ArrayList<>();
+    for (TypeElement c = cls; c != null; c = superclass(c)) {
+      chain.add(0, c);
+    }
+
+    final List<Property> r = new ArrayList<>();
+    final Set<String> ids = new HashSet<>();
+    for (final TypeElement c : chain) {
+      if (c.getQualifiedName().contentEquals(Object.class.getName())) {
+        continue;
+      }
+      final List<VariableElement> fields = new ArrayList<>();
+      for (final VariableElement f : ElementFilter.fieldsIn(c.getEnclosedElements())) {
+        final Set<Modifier> m = f.getModifiers();
+        if (!m.contains(Modifier.STATIC) && !m.contains(Modifier.TRANSIENT)) {
+          fields.add(f);
+        }
+      }
+      Collections.sort(fields, FIELD_COMP);
+
+      for (final VariableElement f : fields) {
+        final Property p = new Property();
+        p.field = f;
+        p.type = types.asMemberOf(asType, f);
+        p.index = r.size();
+        p.direct =
+            !f.getModifiers().contains(Modifier.PRIVATE)
+                && !f.getModifiers().contains(Modifier.FINAL)
+                && accessible(c, pkg)
+                && (f.getModifiers().contains(Modifier.PUBLIC)
+                    || elements.getPackageOf(c).equals(pkg));
+        p.binary = f.getAnnotation(BinaryArray.class) != null;
+        if (p.binary && !isBinaryArray(p.type)) {
+          processingEnv
+              .getMessager()
+              .printMessage(
+                  Diagnostic.Kind.ERROR,
+                  BinaryArray.class.getSimpleName() + " does not support " + p.type,
+                  f);
+        }
+        p.primitiveKeys = f.getAnnotation(PrimitiveKeyMap.class) != null;
+        if (p.primitiveKeys && !isPrimitiveKeyMap(p.type)) {
+          processingEnv
+              .getMessager()
+              .printMessage(
+                  Diagnostic.Kind.ERROR,
+                  PrimitiveKeyMap.class.getSimpleName() + " does not support " + p.type,
+                  f);
+        }
+
+        String id = f.getSimpleName().toString();
+        for (int n = 2; !ids.add(id); n++) {
+          id = f.getSimpleName() + "_" + n;
+        }
+        p.id = id;
+        r.add(p);
+      }
+    }
+    return r;
+  }
+
+  private TypeElement superclass(final TypeElement c) {
+    final TypeMirror s = c.getSuperclass();
+    return s.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) s).asElement() : null;
+  }
+
+  /**
+   * @param pkg package of the generated code.
+   * @return the properties of a class; null if no adapter can be generated for it.
+   */
+  private List<Property> properties(final TypeElement cls, final PackageElement pkg) {
+    final Set<Modifier> m = cls.getModifiers();
+    if (m.contains(Modifier.ABSTRACT)
+        || !cls.getTypeParameters().isEmpty()
+        || (cls.getNestingKind() == NestingKind.MEMBER && !m.contains(Modifier.STATIC))
+        || !accessible(cls, pkg)) {
+      return null;
+    }
+
+    boolean hasConstructor = false;
+    for (final ExecutableElement c : ElementFilter.constructorsIn(cls.getEnclosedElements())) {
+      final Set<Modifier> cm = c.getModifiers();
+      if (c.getParameters().isEmpty()
+          && (cm.contains(Modifier.PUBLIC)
+              || (!cm.contains(Modifier.PRIVATE) && elements.getPackageOf(cls).equals(pkg)))) {
+        hasConstructor = true;
+      }
+    }
+    if (!hasConstructor) {
+      return null;
+    }
+
+    for (TypeElement c = superclass(cls); c != null; c = superclass(c)) {
+      if (isStandard(c) && !c.getQualifiedName().contentEquals(Object.class.getName())) {
+        return null;
+      }
+    }
+
+    final List<Property> props = fields(cls, (DeclaredType) cls.asType(), pkg);
+    for (final Property p : props) {
+      if (!accessible(p.type, pkg)
+          || !accessible(types.erasure(p.field.asType()), pkg)) {
+        processingEnv
+            .getMessager()
+            .printMessage(
+                Diagnostic.Kind.NOTE,
+                "Using reflection for " + cls.getQualifiedName() + ": field " + p.field,
+                cls);
+        return null;
+      }
+    }
+    return props;
+  }
+
+  private boolean accessible(final TypeMirror t, final PackageElement pkg) {
+    switch (t.getKind()) {
+      case BOOLEAN:
+      case BYTE:
+      case CHAR:
+      case DOUBLE:
+      case FLOAT:
+      case INT:
+      case LONG:
+      case SHORT:
+        return true;
+
+      case ARRAY:
+        return accessible(((ArrayType) t).getComponentType(), pkg);
+
+      case WILDCARD:
+        final WildcardType w = (WildcardType) t;
+        return (w.getExtendsBound() == null || accessible(w.getExtendsBound(), pkg))
+            && (w.getSuperBound() == null || accessible(w.getSuperBound(), pkg));
+
+      case DECLARED:
+        for (final TypeMirror a : ((DeclaredType) t).getTypeArguments()) {
+          if (!accessible(a, pkg)) {
+            return false;
+          }
+        }
+        return accessible((TypeElement) ((DeclaredType) t).asElement(), pkg);
+
+      default:
+        return false;
+    }
+  }
+
+  private boolean accessible(final TypeElement e, final PackageElement pkg) {
+    for (Element c = e; c instanceof TypeElement; c = c.getEnclosingElement()) {
+      final Set<Modifier> m = c.getModifiers();
+      if (m.contains(Modifier.PRIVATE)
+          || (!m.contains(Modifier.PUBLIC) && !elements.getPackageOf(c).equals(pkg))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isStandard(final TypeElement e) {
+    final String n = e.getQualifiedName().toString();
+    return n.startsWith("java.") || n.startsWith("javax.");
+  }
+
+  private boolean isString(final TypeMirror t) {
+    return t.getKind() == TypeKind.DECLARED
+        && ((TypeElement) ((DeclaredType) t).asElement())
+            .getQualifiedName()
+            .contentEquals(String.class.getName());
+  }
+
+  /**
+   * @return true if a value of this declared type is written by the adapter of its runtime class.
+   *     Like Gson, only a field declared with a plain class looks at the runtime class; one with
+   *     type arguments is written by the adapter of its declared type.
+   */
+  private boolean isPolymorphic(final TypeMirror t) {
+    if (t.getKind() != TypeKind.DECLARED || !((DeclaredType) t).getTypeArguments().isEmpty()) {
+      return false;
+    }
+    final TypeElement e = (TypeElement) ((DeclaredType) t).asElement();
+    return e.getKind() != ElementKind.ENUM && !e.getModifiers().contains(Modifier.FINAL);
+  }
+
+  private void write(
+      final TypeElement cls,
+      final PackageElement target,
+      final TypeElement origin,
+      final List<Property> props) {
+    final String pkg = target.getQualifiedName().toString();
+    final String binary = elements.getBinaryName(cls).toString();
+    final String adapter = GeneratedTypeAdapterFactory.adapterName(pkg, binary);
+    final String simple = adapter.substring(pkg.isEmpty() ? 0 : pkg.length() + 1);
+    final String dto = cls.getQualifiedName().toString();
+
+    try (Writer r =
+        processingEnv
+            .getFiler()
+            .createResource(
+                StandardLocation.CLASS_OUTPUT,
+                "",
+                GeneratedTypeAdapterFactory.registryName(binary),
+                origin, cls)
+            .openWriter()) {
+      r.write(adapter + "\n");
+    } catch (IOException e) {
+      processingEnv
+          .getMessager()
+          .printMessage(Diagnostic.Kind.ERROR, "Cannot register " + adapter + ": " + e, origin);
+      return;
+    }
+
+    try (PrintWriter w =
+        new PrintWriter(
+            processingEnv.getFiler().createSourceFile(adapter, origin, cls).openWriter())) {
+      if (!pkg.isEmpty()) {
+        w.println("package " + pkg + ";");
+        w.println();
+      }
+      w.println("/** Generated by " + getClass().getName() + " for {@link " + dto + "}. */");
+      w.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+      w.println(
+          "public final class "
+              + simple
+              + " extends "
+              + GeneratedTypeAdapter.class.getName()
+              + "<"
+              + dto
+              + "> {");
+
+      for (final Property p : props) {
+        if (!p.direct) {
+          final String declaring =
+              elements.getBinaryName((TypeElement) p.field.getEnclosingElement()).toString();
+          final String args = dto + ".class, \"" + declaring + "\", \"" + p.field + "\"";
+          w.println(
+              "  private static final java.lang.invoke.MethodHandle GET_"
+                  + p.id
+                  + " = getter("
+                  + args
+                  + ");");
+          w.println(
+              "  private static final java.lang.invoke.MethodHandle SET_"
+                  + p.id
+                  + " = setter("
+                  + args
+                  + ");");
+        }
+      }
+      for (final Property p : props) {
+        if (usesAdapter(p)) {
+          w.println("  private final com.google.gson.TypeAdapter<" + boxed(p.type) + "> a_" + p.id + ";");
+        }
+      }
+      w.println();
+
+      w.println("  public " + simple + "(com.google.gson.Gson gson) {");
+      w.print("    super(gson, properties(gson, " + dto + ".class");
+      for (final Property p : props) {
+        final String declaring =
+            elements.getBinaryName((TypeElement) p.field.getEnclosingElement()).toString();
+        w.println(",");
+        w.print("        \"" + declaring + "\", \"" + p.field + "\"");
+      }
+      w.println("));");
+      for (final Property p : props) {
+        if (usesAdapter(p)) {
+          if (p.binary) {
+            w.println(
+                "    a_"
+                    + p.id
+                    + " = "
+                    + BinaryArrayTypeAdapter.class.getName()
+                    + ".of(gson, "
+                    + p.type
+                    + ".class);");
+            continue;
+          }
+          if (p.primitiveKeys) {
+            w.println(
+                "    a_"
+                    + p.id
+                    + " = "
+                    + PrimitiveKeyMapTypeAdapter.class.getName()
+                    + ".of(gson, new com.google.gson.reflect.TypeToken<"
+                    + p.type
+                    + ">() {});");
+            continue;
+          }
+          w.print("    a_" + p.id + " = gson.getAdapter(");
+          if (p.type.getKind() == TypeKind.DECLARED
+              && ((DeclaredType) p.type).getTypeArguments().isEmpty()) {
+            w.print(p.type + ".class");
+          } else {
+            w.print("new com.google.gson.reflect.TypeToken<" + p.type + ">() {}");
+          }
+          w.println(");");
+        }
+      }
+      w.println("  }");
+      w.println();
+
+      w.println("  @Override");
+      w.println("  protected " + dto + " newInstance() {");
+      w.println("    return new " + dto + "();");
+      w.println("  }");
+      w.println();
+
+      w.println("  @Override");
+      w.println(
+          "  public void writeFields(com.google.gson.stream.JsonWriter out, "
+              + dto
+              + " src) throws java.io.IOException {");
+      for (final Property p : props) {
+        w.println("    if (properties.serialized[" + p.index + "]) {");
+        writeProperty(w, p);
+        w.println("    }");
+      }
+      w.println("  }");
+      w.println();
+
+      w.println("  @Override");
+      w.println(
+          "  protected boolean readField(com.google.gson.stream.JsonReader in, String name, "
+              + dto
+              + " dst) throws java.io.IOException {");
+      w.println("    switch (properties.indexOf(name)) {");
+      for (final Property p : props) {
+        w.println("      case " + p.index + ":");
+        w.println("        " + readProperty(p));
+        w.println("        return true;");
+      }
+      w.println("      default:");
+      w.println("        return false;");
+      w.println("    }");
+      w.println("  }");
+
+      for (final Property p : props) {
+        writeAccessors(w, dto, p);
+      }
+      w.println("}");
+    } catch (IOException e) {
+      processingEnv
+          .getMessager()
+          .printMessage(Diagnostic.Kind.ERROR, "Cannot write " + adapter + ": " + e, origin);
+    }
+  }
+
+  /** @return true for the array types {@link BinaryArray} supports. */
+  private static boolean isBinaryArray(final TypeMirror t) {
+    if (t.getKind() != TypeKind.ARRAY) {
+      return false;
+    }
+    switch (((ArrayType) t).getComponentType().getKind()) {
+      case BYTE:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /** @return true for the map types {@link PrimitiveKeyMap} supports. */
+  private static boolean isPrimitiveKeyMap(final TypeMirror t) {
+    if (t.getKind() != TypeKind.DECLARED) {
+      return false;
+    }
+    final DeclaredType d = (DeclaredType) t;
+    final String map = ((TypeElement) d.asElement()).getQualifiedName().toString();
+    if (d.getTypeArguments().size() != 2) {
+      return false;
+    }
+    final String key = d.getTypeArguments().get(0).toString();
+    if (key.equals(Integer.class.getName())) {
+      return map.equals(Map.class.getName()) || map.equals(IntKeyMap.class.getName());
+    } else if (key.equals(Long.class.getName())) {
+      return map.equals(Map.class.getName()) || map.equals(LongKeyMap.class.getName());
+    }
+    return false;
+  }
+
+  private boolean usesAdapter(final Property p) {
+    return !p.type.getKind().isPrimitive() && !isString(p.type);
+  }
+
+  private String boxed(final TypeMirror t) {
+    if (t.getKind().isPrimitive()) {
+      return types.boxedClass(types.getPrimitiveType(t.getKind())).getQualifiedName().toString();
+    }
+    return t.toString();
+  }
+
+  private void writeProperty(final PrintWriter w, final Property p) {
+    final String name = "out.name(properties.names[" + p.index + "])";
+    final String get = "get_" + p.id + "(src)";
+    switch (p.type.getKind()) {
+      case BOOLEAN:
+      case BYTE:
+      case INT:
+      case LONG:
+      case SHORT:
+        w.println("      " + name + ".value(" + get + ");");
+        return;
+      case CHAR:
+        w.println("      " + name + ".value(String.valueOf(" + get + "));");
+        return;
+      case DOUBLE:
+        w.println("      " + name + ";");
+        w.println("      writeDouble(out, " + get + ");");
+        return;
+      case FLOAT:
+        w.println("      " + name + ";");
+        w.println("      writeFloat(out, " + get + ");");
+        return;
+      default:
+        break;
+    }
+
+    w.println("      {");
+    w.println("        final " + p.type + " v = " + get + ";");
+    w.println("        if (v != null) {");
+    if (isString(p.type)) {
+      w.println("          " + name + ".value(v);");
+    } else if (isPolymorphic(p.type)) {
+      w.println("          " + name + ";");
+      w.println(
+          "        runtimeAdapter(a_"
+              + p.id
+              + ", "
+              + types.erasure(p.type)
+              + ".class, v).write(out, v);");
+    } else {
+      w.println("          " + name + ";");
+      w.println("          a_" + p.id + ".write(out, v);");
+    }
+    w.println("        } else if (out.getSerializeNulls()) {");
+    w.println("          " + name + ".nullValue();");
+    w.println("        }");
+    w.println("      }");
+  }
+
+  private String readProperty(final Property p) {
+    final String set = "set_" + p.id + "(dst, ";
+    switch (p.type.getKind()) {
+      case BOOLEAN:
+        return "if (!nextNull(in)) " + set + "in.nextBoolean());";
+      case BYTE:
+        return "if (!nextNull(in)) " + set + "(byte) in.nextInt());";
+      case SHORT:
+        return "if (!nextNull(in)) " + set + "(short) in.nextInt());";
+      case INT:
+        return "if (!nextNull(in)) " + set + "in.nextInt());";
+      case LONG:
+        return "if (!nextNull(in)) " + set + "in.nextLong());";
+      case FLOAT:
+        return "if (!nextNull(in)) " + set + "(float) in.nextDouble());";
+      case DOUBLE:
+        return "if (!nextNull(in)) " + set + "in.nextDouble());";
+      case CHAR:
+        return "if (!nextNull(in)) " + set + "nextChar(in));";
+      default:
+        if (isString(p.type)) {
+          return set + "nextString(in));";
+        }
+        return set + "a_" + p.id + ".read(in));";
+    }
+  }
+
+  private void writeAccessors(final PrintWriter w, final String dto, final Property p) {
+    final String field = p.field.getSimpleName().toString();
+    w.println();
+    w.println("  private static " + p.type + " get_" + p.id + "(" + dto + " o) {");
+    if (p.direct) {
+      w.println("    return o." + field + ";");
+    } else {
+      final String erased = types.erasure(p.field.asType()).toString();
+      final String cast = erased.equals(p.type.toString()) ? "" : "(" + p.type + ") ";
+      w.println("    try {");
+      w.println("      return " + cast + "(" + erased + ") GET_" + p.id + ".invokeExact(o);");
+      w.println("    } catch (Throwable t) {");
+      w.println("      throw rethrow(t);");
+      w.println("    }");
+    }
+    w.println("  }");
+    w.println();
+
+    w.println("  private static void set_" + p.id + "(" + dto + " o, " + p.type + " v) {");
+    if (p.direct) {
+      w.println("    o." + field + " = v;");
+    } else {
+      final String erased = types.erasure(p.field.asType()).toString();
+      w.println("    try {");
+      w.println("      SET_" + p.id + ".invokeExact(o, (" + erased + ") v);");
+      w.println("    } catch (Throwable t) {");
+      w.println("      throw rethrow(t);");
+      w.println("    }");
+    }
+    w.println("  }");
+  }
+}
@@ -17,6 +17,8 @@ package com.google.gwtjsonrpc.rebind;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.client.JsonUtils;
+import com.google.gwt.core.ext.BadPropertyValueException;
+import com.google.gwt.core.ext.ConfigurationProperty;
 import com.google.gwt.core.ext.GeneratorContext;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.TreeLogger.Type;
@@ -40,11 +42,16 @@ import com.google.gwtjsonrpc.client.JsonUtil;
 import com.google.gwtjsonrpc.client.impl.AbstractJsonProxy;
 import com.google.gwtjsonrpc.client.impl.JsonSerializer;
 import com.google.gwtjsonrpc.client.impl.ResultDeserializer;
+import com.google.gwtjsonrpc.client.impl.ser.PrimitiveArraySerializer;
 import com.google.gwtjsonrpc.client.impl.v1_1.JsonCall11HttpPost;
 import com.google.gwtjsonrpc.client.impl.v2_0.JsonCall20HttpGet;
 import com.google.gwtjsonrpc.client.impl.v2_0.JsonCall20HttpPost;
 import com.google.gwtjsonrpc.common.AsyncCallback;
+import com.google.gwtjsonrpc.common.BinaryArray;
+import com.google.gwtjsonrpc.common.CompactEncoding;
+import com.google.gwtjsonrpc.common.EpochTimestamps;
 import com.google.gwtjsonrpc.common.HostPageCache;
+import com.google.gwtjsonrpc.common.LazyDeserialization;
 import com.google.gwtjsonrpc.common.RpcImpl;
 import com.google.gwtjsonrpc.common.RpcImpl.Transport;
 import com.google.gwtjsonrpc.common.RpcImpl.Version;
@@ -54,11 +61,18 @@ import java.util.Set;
 
 class ProxyCreator {
   private static final String PROXY_SUFFIX = "_JsonProxy";
+
+  /**
+   * Configuration property selecting how requests are encoded: "false" appends JSON text, "true"
+   * builds JavaScript values and encodes them with the browser's <code>JSON.stringify</code>.
+   */
+  static final String STRINGIFY_PROPERTY = "gwtjsonrpc.stringify";
   private JClassType svcInf;
   private JClassType asyncCallbackClass;
   private SerializerCreator serializerCreator;
   private ResultDeserializerCreator deserializerCreator;
   private int instanceField;
+  private boolean stringify;
 
   ProxyCreator(final JClassType remoteService) {
     svcInf = remoteService;
@@ -66,8 +80,13 @@ class ProxyCreator {
 
   String create(final TreeLogger logger, final GeneratorContext context)
       throws UnableToCompleteException {
-    serializerCreator = new SerializerCreator(context);
+    serializerCreator =
+        new SerializerCreator(
+            context,
+            svcInf.isAnnotationPresent(CompactEncoding.class),
+            svcInf.isAnnotationPresent(EpochTimestamps.class));
     deserializerCreator = new ResultDeserializerCreator(context, serializerCreator);
+    stringify = isStringify(logger, context);
     final TypeOracle typeOracle = context.getTypeOracle();
     try {
       asyncCallbackClass = typeOracle.getType(AsyncCallback.class.getName());
@@ -90,6 +109,17 @@ class ProxyCreator {
     return getProxyQualifiedName();
   }
 
+  private static boolean isStringify(final TreeLogger logger, final GeneratorContext context) {
+    try {
+      final ConfigurationProperty p =
+          context.getPropertyOracle().getConfigurationProperty(STRINGIFY_PROPERTY);
+      return !p.getValues().isEmpty() && Boolean.parseBoolean(p.getValues().get(0));
+    } catch (BadPropertyValueException e) {
+      logger.log(TreeLogger.DEBUG, STRINGIFY_PROPERTY + " not defined");
+      return false;
+    }
+  }
+
   private void checkMethods(final TreeLogger logger) throws UnableToCompleteException {
     final Set<String> declaredNames = new HashSet<>();
     final JMethod[] methodList = svcInf.getOverridableMethods();
@@ -183,6 +213,18 @@ class ProxyCreator {
           logger.branch(
               TreeLogger.DEBUG, m.getName() + ", result " + resultType.getQualifiedSourceName());
       serializerCreator.checkCanSerialize(branch, resultType);
+      SerializerCreator.isLazyList(branch, resultType, m);
+      if (m.isAnnotationPresent(BinaryArray.class)) {
+        boolean binary = isBinaryArray(resultType);
+        for (int i = 0; i < params.length - 1; i++) {
+          binary |= isBinaryArray(params[i].getType());
+        }
+        if (!binary) {
+          branch.log(TreeLogger.ERROR, BinaryArray.class.getSimpleName() + " on " + m
+              + " requires a byte[], int[], long[], float[] or double[] parameter or result", null);
+          throw new UnableToCompleteException();
+        }
+      }
       if (resultType.isArray() != null) {
         // Arrays need a special deserializer
         deserializerCreator.create(branch, resultType.isArray());
@@ -298,6 +340,8 @@ class ProxyCreator {
     final JClassType resultType = callback.getType().isParameterized().getTypeArgs()[0];
     final String[] serializerFields = new String[params.length];
     final HostPageCache hpc = method.getAnnotation(HostPageCache.class);
+    final boolean lazyResult = method.isAnnotationPresent(LazyDeserialization.class);
+    final boolean binary = method.isAnnotationPresent(BinaryArray.class);
 
     w.println();
     for (int i = 0; i < params.length - 1; i++) {
@@ -321,7 +365,7 @@ class ProxyCreator {
       w.print(" ");
       w.print(serializerFields[params.length - 1]);
       w.print(" = ");
-      serializerCreator.generateSerializerReference(resultType, w);
+      serializerCreator.generateSerializerReference(resultType, w, lazyResult);
       w.println(";");
     }
 
@@ -395,6 +439,8 @@ class ProxyCreator {
     final String reqDataStr;
     if (params.length == 1) {
       reqDataStr = "\"[]\"";
+    } else if (stringify) {
+      reqDataStr = generateStringifyParams(w, nameFactory, params, serializerFields, binary);
     } else {
       final String reqData = nameFactory.createName("reqData");
       w.println("final StringBuilder " + reqData + " = new StringBuilder();");
@@ -416,6 +462,17 @@ class ProxyCreator {
                 || SerializerCreator.isBoxedPrimitive(pType))
             && !SerializerCreator.isJsonString(pType)) {
           w.println(reqData + ".append(" + pName + ");");
+        } else if (binary && isBinaryArray(pType)) {
+          w.println("if (" + pName + " != null) {");
+          w.indent();
+          w.println(reqData + ".append('\"').append(" + PrimitiveArraySerializer.class.getName()
+              + ".INSTANCE.toBase64(" + pName + ")).append('\"');");
+          w.outdent();
+          w.println("} else {");
+          w.indent();
+          w.println(reqData + ".append(" + JsonSerializer.class.getName() + ".JS_NULL);");
+          w.outdent();
+          w.println("}");
         } else {
           w.println("if (" + pName + " != null) {");
           w.indent();
@@ -453,6 +510,51 @@ class ProxyCreator {
     w.println("}");
   }
 
+  private String generateStringifyParams(
+      final SourceWriter w,
+      final NameFactory nameFactory,
+      final JParameter[] params,
+      final String[] serializerFields,
+      final boolean binary) {
+    final String reqData = nameFactory.createName("reqData");
+    final String js = JsonSerializer.class.getName();
+    w.println("final JavaScriptObject " + reqData + " = JavaScriptObject.createArray();");
+    for (int i = 0; i < params.length - 1; i++) {
+      final JType pType = params[i].getType();
+      final String pName = params[i].getName();
+      if (pType == JPrimitiveType.CHAR || SerializerCreator.isBoxedCharacter(pType)) {
+        w.println(js + ".push(" + reqData + ", String.valueOf(" + pName + "));");
+      } else if (pType == JPrimitiveType.BOOLEAN) {
+        w.println(js + ".pushBoolean(" + reqData + ", " + pName + ");");
+      } else if (pType == JPrimitiveType.LONG) {
+        w.println(js + ".push(" + reqData + ", " + js + ".longToJso(" + pName + "));");
+      } else if (pType.isPrimitive() != null) {
+        w.println(js + ".pushNumber(" + reqData + ", " + pName + ");");
+      } else if (binary && isBinaryArray(pType)) {
+        w.println(js + ".push(" + reqData + ", " + pName + " != null ? "
+            + PrimitiveArraySerializer.class.getName() + ".INSTANCE.toBase64(" + pName
+            + ") : null);");
+      } else {
+        w.print(js + ".push(" + reqData + ", " + pName + " != null ? ");
+        if (SerializerCreator.needsTypeParameter(pType)) {
+          w.print(serializerFields[i]);
+        } else if (SerializerCreator.isBoxedPrimitive(pType)) {
+          w.print(serializerCreator.serializerFor(pType) + ".INSTANCE");
+        } else {
+          serializerCreator.generateSerializerReference(pType, w);
+        }
+        w.println(".toJso(" + pName + ") : null);");
+      }
+    }
+    return JsonUtils.class.getSimpleName() + ".stringify(" + reqData + ")";
+  }
+
+  /** @return true for the array types {@link BinaryArray} supports. */
+  private static boolean isBinaryArray(final JType type) {
+    return type.isArray() != null
+        && SerializerCreator.isBinaryComponent(type.isArray().getComponentType());
+  }
+
   private String getProxyQualifiedName() {
     final String[] name = synthesizeTopLevelClassName(svcInf, PROXY_SUFFIX);
     return name[0].length() == 0 ? name[1] : name[0] + "." + name[1];
@@ -48,6 +48,9 @@ import java.util.HashMap;
  */
 class ResultDeserializerCreator {
   private static final String DSER_SUFFIX = "_ResultDeserializer";
+  private static final String COMPACT_DSER_SUFFIX = "_CompactResultDeserializer";
+  private static final String EPOCH_DSER_SUFFIX = "_EpochResultDeserializer";
+  private static final String COMPACT_EPOCH_DSER_SUFFIX = "_CompactEpochResultDeserializer";
 
   private GeneratorContext context;
   private HashMap<String, String> generatedDeserializers;
@@ -144,8 +147,14 @@ class ResultDeserializerCreator {
     return end >= 0 ? compSerializer.substring(0, end) : "";
   }
 
-  private static String getDeserializerSimpleName(JClassType targetType) {
-    return ProxyCreator.synthesizeTopLevelClassName(targetType, DSER_SUFFIX)[1];
+  private String getDeserializerSimpleName(JClassType targetType) {
+    final String suffix;
+    if (serializerCreator.isEpoch()) {
+      suffix = serializerCreator.isCompact() ? COMPACT_EPOCH_DSER_SUFFIX : EPOCH_DSER_SUFFIX;
+    } else {
+      suffix = serializerCreator.isCompact() ? COMPACT_DSER_SUFFIX : DSER_SUFFIX;
+    }
+    return ProxyCreator.synthesizeTopLevelClassName(targetType, suffix)[1];
   }
 
   private SourceWriter getSourceWriter(TreeLogger logger, GeneratorContext context) {
@@ -181,6 +190,11 @@ class ResultDeserializerCreator {
           + "."
           + componentType.getSimpleSourceName().toUpperCase()
           + "_INSTANCE";
+    if (componentType.isPrimitive() != null)
+      return PrimitiveArrayResultDeserializers.class.getCanonicalName()
+          + ".PRIMITIVE_"
+          + componentType.getSimpleSourceName().toUpperCase()
+          + "_INSTANCE";
     final String name = generatedDeserializers.get(targetType.getQualifiedSourceName());
 
     return name == null ? null : name + ".INSTANCE";
@@ -25,6 +25,14 @@ import com.google.gwt.user.rebind.SourceWriter;
 import com.google.gwtjsonrpc.client.impl.JsonSerializer;
 import com.google.gwtjsonrpc.client.impl.ser.*;
 import com.google.gwtjsonrpc.client.impl.ser.BoxedPrimitives.*;
+import com.google.gwtjsonrpc.common.BinaryArray;
+import com.google.gwtjsonrpc.common.CompactEncoding;
+import com.google.gwtjsonrpc.common.EpochTimestamps;
+import com.google.gwtjsonrpc.common.JsonConstants;
+import com.google.gwtjsonrpc.common.JsonOverlay;
+import com.google.gwtjsonrpc.common.JsonTypeId;
+import com.google.gwtjsonrpc.common.JsonTypeIds;
+import com.google.gwtjsonrpc.common.LazyDeserialization;
 import com.google.gwtjsonrpc.common.SkipSerialization;
 
 import java.io.PrintWriter;
@@ -35,6 +43,11 @@ import java.util.stream.Collectors;
 
 class SerializerCreator {
   private static final String SER_SUFFIX = "_JsonSerializer";
+  private static final String COMPACT_SER_SUFFIX = "_CompactJsonSerializer";
+  private static final String EPOCH_SER_SUFFIX = "_EpochJsonSerializer";
+  private static final String COMPACT_EPOCH_SER_SUFFIX = "_CompactEpochJsonSerializer";
+  private static final String OVERLAY_SUFFIX = "_JsonOverlay";
+  private static final String COMPACT_OVERLAY_SUFFIX = "_CompactJsonOverlay";
   private static final Comparator<JField> FIELD_COMP =
       new Comparator<JField>() {
         @Override
@@ -45,10 +58,12 @@ class SerializerCreator {
 
   private static final HashMap<String, String> defaultSerializers;
   private static final HashMap<String, String> parameterizedSerializers;
+  private static final HashMap<String, String> epochSerializers;
 
   static {
     defaultSerializers = new HashMap<>();
     parameterizedSerializers = new HashMap<>();
+    epochSerializers = new HashMap<>();
 
     defaultSerializers.put(
         java.lang.String.class.getCanonicalName(),
@@ -101,16 +116,38 @@ class SerializerCreator {
         java.util.Set.class.getCanonicalName(), SetSerializer.class.getCanonicalName());
     parameterizedSerializers.put(
         java.util.HashSet.class.getCanonicalName(), SetSerializer.class.getCanonicalName());
+
+    epochSerializers.put(
+        java.sql.Date.class.getCanonicalName(),
+        JavaSqlDate_EpochJsonSerializer.class.getCanonicalName());
+    epochSerializers.put(
+        java.sql.Timestamp.class.getCanonicalName(),
+        JavaSqlTimestamp_EpochJsonSerializer.class.getCanonicalName());
   }
 
   private final HashMap<String, String> generatedSerializers;
   private final HashMap<String, String> queuedForGeneration;
   private final Set<String> canSerialize;
   private final GeneratorContext context;
+  private final boolean compact;
+  private final boolean epoch;
   private JClassType targetType;
 
   SerializerCreator(final GeneratorContext c) {
+    this(c, false, false);
+  }
+
+  /**
+   * @param c the generator context.
+   * @param compact true to generate serializers for the {@link CompactEncoding}, which are named
+   *     differently so both kinds can exist in one module.
+   * @param epoch true to write timestamps and dates as milliseconds, see {@link EpochTimestamps};
+   *     these serializers are named differently too.
+   */
+  SerializerCreator(final GeneratorContext c, final boolean compact, final boolean epoch) {
     context = c;
+    this.compact = compact;
+    this.epoch = epoch;
     generatedSerializers = new HashMap<>();
     queuedForGeneration = new HashMap<>();
     canSerialize = new HashSet<>();
@@ -129,6 +166,9 @@ class SerializerCreator {
       //Don't throw an exception, but also don't create a serializer for this class
       return null;
     }
+    if (isOverlay(targetType)) {
+      return createOverlay(targetType, logger);
+    }
     checkCanSerialize(logger, targetType, true);
     final String sn = getSerializerQualifiedName(targetType);
     String aQSN = getQualifiedSourceName(targetType);
@@ -154,10 +194,14 @@ class SerializerCreator {
 
     generateSingleton(srcWriter);
     if (targetType.isEnum() != null) {
+      if (compact) {
+        generateEnumPrintOrdinal(srcWriter);
+      }
       generateEnumFromJson(srcWriter);
     } else {
-      generateInstanceMembers(srcWriter);
+      generateInstanceMembers(srcWriter, logger);
       generatePrintJson(srcWriter, logger);
+      generateToJso(srcWriter, logger);
       generateFromJson(srcWriter, logger);
       generateGetSets(srcWriter);
     }
@@ -342,6 +386,9 @@ class SerializerCreator {
     }
 
     final String qsn = getQualifiedSourceName(t);
+    if (epoch && epochSerializers.containsKey(qsn)) {
+      return epochSerializers.get(qsn);
+    }
     if (defaultSerializers.containsKey(qsn)) {
       return defaultSerializers.get(qsn);
     }
@@ -391,32 +438,110 @@ class SerializerCreator {
     w.println();
   }
 
-  private void generateInstanceMembers(final SourceWriter w) {
+  private void generateInstanceMembers(final SourceWriter w, final TreeLogger logger)
+      throws UnableToCompleteException {
     for (final JField f : sortFields(targetType)) {
       final JType ft = f.getType();
       if (needsTypeParameter(ft)) {
-        final String serType = serializerFor(ft);
-        w.print("private ");
-        w.print(serType);
-        String aGenericType = getTypedQualifiedSourceName(ft);
-        if (aGenericType.indexOf("<") >= 0) {
-          aGenericType = aGenericType.substring(aGenericType.indexOf("<"));
-          if (serType.equals(StringMapSerializer.class.getName())) {
-            aGenericType = "<" + aGenericType.substring(aGenericType.indexOf(", ") + 2, aGenericType.lastIndexOf(">") + 1);
-          }
-          w.print(aGenericType);
-        }
-        w.print(" ");
-        w.print("ser_" + f.getName());
-        w.print(" = ");
-        generateSerializerReference(ft, w);
+        final String serType = getSerializerType(ft);
+
+        // Built on first use rather than in the constructor: serializers of
+        // mutually referencing types are created while each other's INSTANCE
+        // may still be null.
+        w.println("private " + serType + " ser_" + f.getName() + ";");
+        w.println("private " + serType + " ser_" + f.getName() + "() {");
+        w.indent();
+        w.println("if (ser_" + f.getName() + " == null) {");
+        w.indent();
+        w.print("ser_" + f.getName() + " = ");
+        generateSerializerReference(ft, w, isLazyList(logger, ft, f));
         w.println(";");
+        w.outdent();
+        w.println("}");
+        w.println("return ser_" + f.getName() + ";");
+        w.outdent();
+        w.println("}");
       }
     }
     w.println();
   }
 
+  /**
+   * @return true if a member holding a List is annotated with {@link LazyDeserialization}.
+   * @throws UnableToCompleteException if the annotation is on a member of another type.
+   */
+  static boolean isLazyList(final TreeLogger logger, final JType type, final HasAnnotations member)
+      throws UnableToCompleteException {
+    if (!member.isAnnotationPresent(LazyDeserialization.class)) {
+      return false;
+    }
+    if (type.isParameterized() == null
+        || !type.getErasedType().getQualifiedSourceName().equals(List.class.getName())) {
+      logger.log(TreeLogger.ERROR, LazyDeserialization.class.getSimpleName() + " on " + member
+          + " requires the type " + List.class.getName() + ", not " + type, null);
+      throw new UnableToCompleteException();
+    }
+    return true;
+  }
+  /**
+   * @return true if the array held by <code>member</code> is sent as base64, see {@link
+   *     BinaryArray}.
+   * @throws UnableToCompleteException the annotation is on an unsupported type.
+   */
+  static boolean isBinaryArray(final TreeLogger logger, final JType type, final HasAnnotations member)
+      throws UnableToCompleteException {
+    if (!member.isAnnotationPresent(BinaryArray.class)) {
+      return false;
+    }
+    final JArrayType a = type.isArray();
+    if (a == null || !isBinaryComponent(a.getComponentType())) {
+      logger.log(TreeLogger.ERROR, BinaryArray.class.getSimpleName() + " on " + member
+          + " requires byte[], int[], long[], float[] or double[], not " + type, null);
+      throw new UnableToCompleteException();
+    }
+    return true;
+  }
+
+  static boolean isBinaryComponent(final JType componentType) {
+    return componentType == JPrimitiveType.BYTE
+        || componentType == JPrimitiveType.INT
+        || componentType == JPrimitiveType.LONG
+        || componentType == JPrimitiveType.FLOAT
+        || componentType == JPrimitiveType.DOUBLE;
+  }
+
+
+  /** @return the declared type of a serializer built for a type needing type parameters. */
+  private String getSerializerType(final JType ft) {
+    String serType = serializerFor(ft);
+    String aGenericType = getTypedQualifiedSourceName(ft);
+    if (aGenericType.indexOf("<") >= 0) {
+      aGenericType = aGenericType.substring(aGenericType.indexOf("<"));
+      if (serType.equals(StringMapSerializer.class.getName())) {
+        aGenericType = "<" + aGenericType.substring(aGenericType.indexOf(", ") + 2, aGenericType.lastIndexOf(">") + 1);
+      }
+      serType += aGenericType;
+    }
+    return serType;
+  }
+
   void generateSerializerReference(final JType type, final SourceWriter w) {
+    generateSerializerReference(type, w, false);
+  }
+
+  /**
+   * Print the expression building the serializer of a type.
+   *
+   * @param lazy true to read a List lazily, see {@link #isLazyList(TreeLogger, JType,
+   *     HasAnnotations)}.
+   */
+  void generateSerializerReference(final JType type, final SourceWriter w, final boolean lazy) {
+    if (lazy) {
+      w.print("new " + LazyListSerializer.class.getCanonicalName() + "(");
+      generateSerializerReference(type.isParameterized().getTypeArgs()[0], w);
+      w.print(")");
+      return;
+    }
     if (type.isArray() != null) {
       final JType componentType = type.isArray().getComponentType();
       if (componentType.isPrimitive() != null || isBoxedPrimitive(componentType)) {
@@ -505,8 +630,8 @@ class SerializerCreator {
         w.print("(final JavaScriptObject instance)");
         w.println("/*-{ ");
         w.indent();
-        w.print("return instance.");
-        w.print(f.getName());
+        w.print("return instance");
+        w.print(compact ? "[\"" + getJsonFieldName(f) + "\"]" : "." + f.getName());
         w.println(";");
         w.outdent();
         w.println("}-*/;");
@@ -543,8 +668,16 @@ class SerializerCreator {
         w.println("/*-{ ");
         w.indent();
 
-        w.print("return instance.");
-        w.print(getPrettyFieldName(f.getName()));
+        if (compact && f.getType().isPrimitive() != null) {
+          // omitted when zero or false
+          final String def = f.getType() == JPrimitiveType.BOOLEAN ? "false" : "0";
+          w.print("return (instance[\"" + getJsonFieldName(f) + "\"] || " + def + ")");
+        } else if (compact) {
+          w.print("return instance[\"" + getJsonFieldName(f) + "\"]");
+        } else {
+          w.print("return instance.");
+          w.print(getPrettyFieldName(f.getName()));
+        }
         if (isLong(f.getType())) {
           w.print(" + \"\"");
         }
@@ -563,6 +696,14 @@ class SerializerCreator {
     w.print(getQualifiedSourceName(targetType));
     w.println(" fromJson(Object in) {");
     w.indent();
+    if (compact) {
+      w.println("if (in instanceof Double) {");
+      w.indent();
+      w.print("return " + getQualifiedSourceName(targetType) + ".values()");
+      w.println("[((Double)in).intValue()];");
+      w.outdent();
+      w.println("}");
+    }
     w.print("return in != null");
     w.print(" ? " + getQualifiedSourceName(targetType) + ".valueOf((String)in)");
     w.print(" : null");
@@ -572,7 +713,30 @@ class SerializerCreator {
     w.println();
   }
 
-  private void generatePrintJson(final SourceWriter w, TreeLogger theLogger) {
+  private void generateEnumPrintOrdinal(final SourceWriter w) {
+    w.println("@Override");
+    w.print("public void printJson(final StringBuilder sb, final ");
+    w.print(getQualifiedSourceName(targetType));
+    w.println(" o) {");
+    w.indent();
+    w.println("sb.append(o.ordinal());");
+    w.outdent();
+    w.println("}");
+    w.println();
+
+    w.println("@Override");
+    w.print("public Object toJso(final ");
+    w.print(getQualifiedSourceName(targetType));
+    w.println(" o) {");
+    w.indent();
+    w.println("return (double) o.ordinal();");
+    w.outdent();
+    w.println("}");
+    w.println();
+  }
+
+  private void generatePrintJson(final SourceWriter w, TreeLogger theLogger)
+      throws UnableToCompleteException {
     final JField[] fieldList = sortFields(targetType);
     w.print("protected int printJsonImpl(int fieldCount, StringBuilder sb, ");
     w.println("Object instance) {");
@@ -590,13 +754,16 @@ class SerializerCreator {
     List<JClassType> aSubTypes = getSubTypes(targetType, theLogger);
     if (aSubTypes.size() > 0 )
     {
-      w.println("switch (instance.getClass().getName()){");
-      w.indent();
+      // Class literals compare by identity, no name is built or hashed.
+      // The concrete class leads, so the server can pick it before reading fields.
+      w.println("final Class<?> type = instance.getClass();");
       aSubTypes.forEach(aSubClass -> {
-        w.println("case \"" + getQualifiedSourceName(aSubClass) + "\" : return " + getSerializerQualifiedName(aSubClass) + ".INSTANCE.printTypeCheckedJsonImpl(fieldCount, sb, instance, false);");
+        w.println("if (type == " + aSubClass.getErasedType().getQualifiedSourceName() + ".class) return " + getSerializerQualifiedName(aSubClass) + ".INSTANCE.printTypeCheckedJsonImpl("
+            + "printType(fieldCount, sb, \"" + getTypeName(aSubClass) + "\"), sb, instance, false);");
       });
-      w.outdent();
-      w.println("}");
+      if (!targetType.isAbstract() && targetType.isInterface() == null) {
+        w.println("fieldCount = printType(fieldCount, sb, \"" + getTypeName(targetType) + "\");");
+      }
       w.println();
     }
     w.outdent();
@@ -623,8 +790,18 @@ class SerializerCreator {
         doget = "src." + f.getName();
       }
 
-      final String doname = "sb.append(\"\\\"" + getPrettyFieldName(f.getName()) + "\\\":\");";
-      if (f.getType() == JPrimitiveType.CHAR || isBoxedCharacter(f.getType())) {
+      final String doname = "sb.append(\"\\\"" + getJsonFieldName(f) + "\\\":\");";
+      if (isBinaryArray(theLogger, f.getType(), f)) {
+        w.println("if (" + doget + " != null) {");
+        w.indent();
+        w.println(docomma);
+        w.println(doname);
+        w.println("sb.append('\"').append(" + PrimitiveArraySerializer.class.getName()
+            + ".INSTANCE.toBase64(" + doget + ")).append('\"');");
+        w.outdent();
+        w.println("}");
+        w.println();
+      } else if (f.getType() == JPrimitiveType.CHAR || isBoxedCharacter(f.getType())) {
         w.println(docomma);
         w.println(doname);
         w.println("sb.append(" + JsonUtils.class.getSimpleName());
@@ -638,6 +815,22 @@ class SerializerCreator {
         w.outdent();
         w.println("}");
         w.println();
+      } else if (compact && f.getType().isPrimitive() != null) {
+        // zero and false are left out, the reader defaults missing fields
+        if (f.getType() == JPrimitiveType.BOOLEAN) {
+          w.println("if (" + doget + ") {");
+        } else if (isLong(f.getType()) && f.isPrivate()) {
+          w.println("if (!\"0\".equals(" + doget + ")) {");
+        } else {
+          w.println("if (" + doget + " != 0) {");
+        }
+        w.indent();
+        w.println(docomma);
+        w.println(doname);
+        w.println("sb.append(" + doget + ");");
+        w.outdent();
+        w.println("}");
+        w.println();
       } else if (isJsonPrimitive(f.getType()) || isBoxedPrimitive(f.getType())) {
         w.println(docomma);
         w.println(doname);
@@ -649,20 +842,8 @@ class SerializerCreator {
         w.println(docomma);
         w.println(doname);
         if (needsTypeParameter(f.getType())) {
-          w.println("try{");
-          w.indent();
-          w.print("ser_" + f.getName());
-          w.println(".printJson(sb, " + doget + ");");
-          w.outdent();
-          w.println("} catch(Exception anE){");
-          w.indent();
-          w.print("ser_" + f.getName() + " = ");
-          generateSerializerReference(f.getType(), w);
-          w.println(";");
-          w.print("ser_" + f.getName());
+          w.print("ser_" + f.getName() + "()");
           w.println(".printJson(sb, " + doget + ");");
-          w.outdent();
-          w.println("}");
         } else {
           w.print(serializerFor(f.getType()) + ".INSTANCE");
           w.println(".printJson(sb, " + doget + ");");
@@ -679,7 +860,113 @@ class SerializerCreator {
     w.println();
   }
 
-  private void generateFromJson(final SourceWriter w, TreeLogger theLogger) {
+  /** Same fields, order and omissions as printJson, but set on a JavaScript object. */
+  private void generateToJso(final SourceWriter w, TreeLogger theLogger) {
+    w.println("protected void toJsoImpl(JavaScriptObject dst, Object instance) {");
+    w.indent();
+    w.println("toJsoTypeCheckedImpl(dst, instance, true);");
+    w.outdent();
+    w.println("}");
+
+    w.print("public void toJsoTypeCheckedImpl(JavaScriptObject dst, ");
+    w.println("Object instance, boolean doCheckType) {");
+    w.indent();
+
+    final List<JClassType> aSubTypes = getSubTypes(targetType, theLogger);
+    if (aSubTypes.size() > 0) {
+      w.println("if (doCheckType) {");
+      w.indent();
+      w.println("final Class<?> type = instance.getClass();");
+      final String tag = "set(dst, \"" + JsonConstants.TYPE_PROPERTY + "\", \"";
+      aSubTypes.forEach(aSubClass -> {
+        w.println("if (type == " + aSubClass.getErasedType().getQualifiedSourceName() + ".class) { "
+            + tag + getTypeName(aSubClass) + "\"); "
+            + getSerializerQualifiedName(aSubClass) + ".INSTANCE.toJsoTypeCheckedImpl(dst, instance, false); return; }");
+      });
+      if (!targetType.isAbstract() && targetType.isInterface() == null) {
+        w.println(tag + getTypeName(targetType) + "\");");
+      }
+      w.outdent();
+      w.println("}");
+    }
+
+    w.print("final ");
+    w.print(getTypedQualifiedSourceName(targetType));
+    w.print(" src = (");
+    w.print(getTypedQualifiedSourceName(targetType));
+    w.println(")instance;");
+
+    if (needsSuperSerializer(targetType)) {
+      w.print("super.toJsoTypeCheckedImpl(dst, (");
+      w.print(getTypedQualifiedSourceName(targetType.getSuperclass()));
+      w.println(")src, false);");
+    }
+
+    for (final JField f : sortFields(targetType)) {
+      final JType ft = f.getType();
+      final String doget;
+      if (f.isPrivate()) {
+        doget = "objectGet_" + f.getName() + "(src)";
+      } else {
+        doget = "src." + f.getName();
+      }
+      final String name = "\"" + getJsonFieldName(f) + "\"";
+
+      if (ft == JPrimitiveType.CHAR || isBoxedCharacter(ft)) {
+        w.println("set(dst, " + name + ", String.valueOf(" + doget + "));");
+        continue;
+      }
+      if (f.isAnnotationPresent(BinaryArray.class)) {
+        w.println("if (" + doget + " != null) set(dst, " + name + ", "
+            + PrimitiveArraySerializer.class.getName() + ".INSTANCE.toBase64(" + doget + "));");
+        continue;
+      }
+      if (compact && ft.isPrimitive() != null) {
+        if (ft == JPrimitiveType.BOOLEAN) {
+          w.print("if (" + doget + ") ");
+        } else if (isLong(ft) && f.isPrivate()) {
+          w.print("if (!\"0\".equals(" + doget + ")) ");
+        } else {
+          w.print("if (" + doget + " != 0) ");
+        }
+      }
+      if (ft == JPrimitiveType.BOOLEAN) {
+        w.println("setBoolean(dst, " + name + ", " + doget + ");");
+      } else if (isLong(ft) && (ft.isPrimitive() != null || f.isPrivate())) {
+        // private longs are read as text, which may be "null"
+        w.println("set(dst, " + name + ", longToJso(" + doget + "));");
+      } else if (isLong(ft)) {
+        w.println("set(dst, " + name + ", " + doget + " != null ? longToJso(" + doget + ") : null);");
+      } else if (ft.isPrimitive() != null) {
+        w.println("setNumber(dst, " + name + ", " + doget + ");");
+      } else if (isBoxedPrimitive(ft)) {
+        final String v = "v_" + f.getName();
+        w.println("final " + getQualifiedSourceName(ft) + " " + v + " = " + doget + ";");
+        if (ft.getQualifiedSourceName().equals(Boolean.class.getName())) {
+          w.println("set(dst, " + name + ", " + v + ");");
+        } else {
+          w.println("set(dst, " + name + ", " + v + " != null ? (Object) " + v + ".doubleValue() : null);");
+        }
+      } else if (isJsonString(ft)) {
+        w.println("if (" + doget + " != null) set(dst, " + name + ", " + doget + ");");
+      } else {
+        w.print("if (" + doget + " != null) set(dst, " + name + ", ");
+        if (needsTypeParameter(ft)) {
+          w.print("ser_" + f.getName() + "()");
+        } else {
+          w.print(serializerFor(ft) + ".INSTANCE");
+        }
+        w.println(".toJso(" + doget + "));");
+      }
+    }
+
+    w.outdent();
+    w.println("}");
+    w.println();
+  }
+
+  private void generateFromJson(final SourceWriter w, TreeLogger theLogger)
+      throws UnableToCompleteException {
     w.print("public ");
     w.print(getTypedQualifiedSourceName(targetType));
     w.println(" fromJson(Object in) {");
@@ -716,6 +1003,11 @@ class SerializerCreator {
     w.println("/*-{ return responseObject._type_; }-*/;");
     w.println();
 
+    // servers may send the numeric id of the type instead of its name
+    w.println("static native int typeId(JavaScriptObject responseObject)");
+    w.println("/*-{ var t = responseObject._type_; return typeof t == 'number' ? t : -1; }-*/;");
+    w.println();
+
     w.print("public " + getTypedQualifiedSourceName(targetType) + " fromJsonImpl(JavaScriptObject jso, ");
     w.print(getTypedQualifiedSourceName(targetType));
     w.println(" dst, boolean doCheckType) {");
@@ -726,17 +1018,43 @@ class SerializerCreator {
     List<JClassType> aSubTypes = getSubTypes(targetType, theLogger);
     if (aSubTypes.size() > 0 )
     {
+      final Map<Integer, JClassType> aTypeIds = new LinkedHashMap<>();
+      for (final JClassType aSubClass : aSubTypes) {
+        final JClassType aOld = aTypeIds.put(getTypeId(aSubClass), aSubClass);
+        if (aOld != null) {
+          theLogger.log(
+              TreeLogger.ERROR,
+              "Classes " + getQualifiedSourceName(aOld) + " and " + getQualifiedSourceName(aSubClass)
+                  + " have the same type id " + getTypeId(aSubClass)
+                  + "; assign one with @" + JsonTypeId.class.getSimpleName());
+          throw new UnableToCompleteException();
+        }
+      }
+
+      w.println("final int typeId = typeId(jso);");
+      w.println("if (typeId >= 0) {");
+      w.indent();
+      w.println("switch (typeId){");
+      w.indent();
+      aTypeIds.forEach((aId, aSubClass) -> {
+        w.print("case " + aId + " : dst = ");
+        writeSubTypeFromJson(w, aSubClass);
+      });
+      w.outdent();
+      w.println("}");
+      w.outdent();
+      w.println("} else if (objectType(jso) != null) {");
+      w.indent();
       w.println("switch (objectType(jso)){");
       w.indent();
       aSubTypes.forEach(aSubClass -> {
         w.print("case \"" + getQualifiedSourceName(aSubClass) + "\" : dst = ");
-        w.print(getSerializerQualifiedName(aSubClass) + ".INSTANCE.fromJsonImpl(jso, ");
-        w.print("new " + getQualifiedSourceName(aSubClass));
-        w.print("(), false);");
-        w.println("break;");
+        writeSubTypeFromJson(w, aSubClass);
       });
       w.outdent();
       w.println("}");
+      w.outdent();
+      w.println("}");
     }
     w.outdent();
     w.println("}");
@@ -748,26 +1066,7 @@ class SerializerCreator {
     }
 
     for (final JField f : sortFields(targetType)) {
-      final String doget = "jsonGet_" + f.getName() + "(jso)";
-      final String doset0, doset1;
-
-      if (f.getType().isArray() != null || needsTypeParameter(f.getType()))
-      {
-        w.println("try{");
-        w.indent();
-        writeFieldSetter(w, f);
-        w.outdent();
-        w.println("} catch(Exception anE){");
-        w.indent();
-        w.print("ser_" + f.getName() + " = ");
-        generateSerializerReference(f.getType(), w);
-        w.println(";");
-        writeFieldSetter(w, f);
-        w.outdent();
-        w.println("}");
-      } else {
-        writeFieldSetter(w, f);
-      }
+      writeFieldSetter(w, f);
     }
 
     w.println("return dst;");
@@ -776,6 +1075,24 @@ class SerializerCreator {
     w.println();
   }
 
+  private void writeSubTypeFromJson(final SourceWriter w, final JClassType aSubClass) {
+    w.print(getSerializerQualifiedName(aSubClass) + ".INSTANCE.fromJsonImpl(jso, ");
+    w.print("new " + getQualifiedSourceName(aSubClass));
+    w.print("(), false);");
+    w.println("break;");
+  }
+
+  /** Name the server's type table knows the class by, its canonical name. */
+  private static String getTypeName(final JClassType type) {
+    return type.getErasedType().getQualifiedSourceName();
+  }
+
+  /** Same id as the server's type table, see {@link JsonTypeIds}. */
+  private static int getTypeId(final JClassType type) {
+    final JsonTypeId a = type.getAnnotation(JsonTypeId.class);
+    return a != null ? a.value() : JsonTypeIds.of(type.getQualifiedSourceName());
+  }
+
   private void writeFieldSetter(final SourceWriter w, JField f)
   {
     final String doget = "jsonGet_" + f.getName() + "(jso)";
@@ -793,6 +1110,17 @@ class SerializerCreator {
       w.println("if (" + doget + " != null) {");
       w.indent();
 
+      final String reader = getArrayReader(ct);
+      if (reader != null) {
+        w.print(doset0);
+        w.print(PrimitiveArraySerializer.class.getName() + ".INSTANCE." + reader + "(" + doget + ")");
+        w.print(doset1);
+        w.println(";");
+        w.outdent();
+        w.println("}");
+        return;
+      }
+
       w.print("final ");
       w.print(getQualifiedSourceName(ct));
       w.print("[] tmp = new ");
@@ -802,7 +1130,7 @@ class SerializerCreator {
       w.print(".size(" + doget + ")");
       w.println("];");
 
-      w.println("ser_" + f.getName() + ".fromJson(" + doget + ", tmp);");
+      w.println("ser_" + f.getName() + "().fromJson(" + doget + ", tmp);");
 
       w.print(doset0);
       w.print("tmp");
@@ -843,7 +1171,7 @@ class SerializerCreator {
         {
           w.print("(" + getTypedQualifiedSourceName(f.getType()) + ")");
         }
-        w.print("ser_" + f.getName());
+        w.print("ser_" + f.getName() + "()");
       } else {
         w.print(serializerFor(f.getType()) + ".INSTANCE");
       }
@@ -853,6 +1181,360 @@ class SerializerCreator {
     }
   }
 
+  private static boolean isOverlay(final JType t) {
+    final JClassType c = t.isInterface();
+    return c != null && c.isAnnotationPresent(JsonOverlay.class);
+  }
+
+  /**
+   * Generate a {@link JsonOverlay} view: a JavaScriptObject implementing the interface, or an
+   * {@link OverlayHandle} if the other encoding already has that object, and a serializer returning
+   * the parsed JSON as the view.
+   */
+  private String createOverlay(final JClassType view, final TreeLogger logger)
+      throws UnableToCompleteException {
+    final String aQSN = getQualifiedSourceName(view);
+    final String sn = getSerializerQualifiedName(view);
+    queuedForGeneration.put(aQSN, sn);
+
+    final JClassType dto = getOverlayClass(logger, view);
+    if (compact && dto == null) {
+      logger.log(TreeLogger.ERROR, "JsonOverlay " + aQSN
+          + " must name the class it reads to be used with the compact encoding", null);
+      throw new UnableToCompleteException();
+    }
+    if (dto != null) {
+      ensureSerializer(logger, dto);
+    }
+    final Map<JMethod, String> accessors = new LinkedHashMap<>();
+    for (final JMethod m : view.getOverridableMethods()) {
+      if (!m.isAbstract()) {
+        continue;
+      }
+      if (m.getParameters().length > 0 || m.getReturnType() == JPrimitiveType.VOID) {
+        logger.log(TreeLogger.ERROR, "JsonOverlay method " + aQSN + "." + m.getName()
+            + " must take no parameters and return a value", null);
+        throw new UnableToCompleteException();
+      }
+      accessors.put(m, getOverlayPropertyName(logger, view, dto, m));
+      ensureSerializer(logger, m.getReturnType());
+    }
+
+    generatedSerializers.put(aQSN, sn);
+    targetType = view;
+    final boolean handle = isOverlayHandle(view);
+    generateOverlayType(logger, view, dto, accessors, handle);
+    final SourceWriter w = getOverlaySourceWriter(logger, view, getSerializerSimpleName(),
+        OverlaySerializer.class.getCanonicalName() + "<" + aQSN + ">", null);
+    if (w == null) {
+      return sn;
+    }
+    generateSingleton(w);
+    w.println("public " + aQSN + " fromJson(Object o) {");
+    w.indent();
+    if (handle) {
+      w.println("return o != null ? new " + getOverlaySimpleName(view)
+          + "((JavaScriptObject) o) : null;");
+    } else {
+      w.println("return o != null ? ((JavaScriptObject) o).<" + getOverlaySimpleName(view)
+          + ">cast() : null;");
+    }
+    w.outdent();
+    w.println("}");
+    if (dto != null) {
+      w.println();
+      w.println("protected JsonSerializer dtoSerializer() {");
+      w.indent();
+      w.println("return " + serializerFor(dto) + ".INSTANCE;");
+      w.outdent();
+      w.println("}");
+    }
+    w.commit(logger);
+    return sn;
+  }
+
+  private static JClassType getOverlayClass(final TreeLogger logger, final JClassType view)
+      throws UnableToCompleteException {
+    final Class<?> c;
+    try {
+      c = view.getAnnotation(JsonOverlay.class).value();
+    } catch (RuntimeException e) {
+      logger.log(TreeLogger.ERROR, "Cannot load the class read by JsonOverlay "
+          + getQualifiedSourceName(view) + "; it must be compiled on the classpath", e);
+      throw new UnableToCompleteException();
+    }
+    return c == Object.class ? null : view.getOracle().findType(c.getCanonicalName());
+  }
+
+  /**
+   * Get the JSON property an overlay method reads: the field of the class the view reads, or the
+   * method name without its get or is prefix.
+   */
+  private String getOverlayPropertyName(final TreeLogger logger, final JClassType view,
+      final JClassType dto, final JMethod m) throws UnableToCompleteException {
+    String name = m.getName();
+    if (name.length() > 3 && name.startsWith("get") && Character.isUpperCase(name.charAt(3))) {
+      name = Character.toLowerCase(name.charAt(3)) + name.substring(4);
+    } else if (name.length() > 2 && name.startsWith("is") && Character.isUpperCase(name.charAt(2))) {
+      name = Character.toLowerCase(name.charAt(2)) + name.substring(3);
+    }
+    if (dto == null || m.getReturnType() == dto) {
+      return name;
+    }
+
+    final Deque<JClassType> chain = new ArrayDeque<>();
+    for (JClassType t = dto; t != null; t = t.getSuperclass()) {
+      chain.addFirst(t);
+    }
+    int index = 0;
+    for (final JClassType t : chain) {
+      for (final JField f : sortFields(t)) {
+        final String pretty = getPrettyFieldName(f.getName());
+        if (f.getName().equals(name) || pretty.equals(name)) {
+          return compact ? Integer.toString(index, 36) : pretty;
+        }
+        index++;
+      }
+    }
+    logger.log(TreeLogger.ERROR, "JsonOverlay method " + getQualifiedSourceName(view) + "."
+        + m.getName() + " matches no field of " + getQualifiedSourceName(dto), null);
+    throw new UnableToCompleteException();
+  }
+
+  private static boolean isBoxedBooleanOrDouble(final JType t) {
+    final String qsn = t.getQualifiedSourceName();
+    return qsn.equals(Boolean.class.getName()) || qsn.equals(Double.class.getName());
+  }
+
+  private String getOverlaySimpleName(final JClassType view) {
+    return getOverlaySimpleName(view, compact);
+  }
+
+  private static String getOverlaySimpleName(final JClassType view, final boolean compact) {
+    return ProxyCreator.synthesizeTopLevelClassName(
+        view, compact ? COMPACT_OVERLAY_SUFFIX : OVERLAY_SUFFIX)[1];
+  }
+
+  /**
+   * @return true if the view of this encoding is an {@link OverlayHandle}, because the overlay of
+   *     the other encoding was generated first and took the one JavaScriptObject class GWT allows
+   *     per interface.
+   */
+  private boolean isOverlayHandle(final JClassType view) {
+    final JPackage pkg = view.getPackage();
+    final String prefix = pkg == null || pkg.getName().isEmpty() ? "" : pkg.getName() + ".";
+    final TypeOracle oracle = context.getTypeOracle();
+    final JClassType own = oracle.findType(prefix + getOverlaySimpleName(view, compact));
+    if (own != null) {
+      return !isJavaScriptObject(own);
+    }
+    final JClassType other = oracle.findType(prefix + getOverlaySimpleName(view, !compact));
+    return other != null && isJavaScriptObject(other);
+  }
+
+  private static boolean isJavaScriptObject(final JClassType t) {
+    return t.isAssignableTo(t.getOracle().findType(JavaScriptObject.class.getName()));
+  }
+
+  private SourceWriter getOverlaySourceWriter(final TreeLogger logger, final JClassType view,
+      final String simpleName, final String superclass, final String implemented) {
+    final JPackage targetPkg = view.getPackage();
+    final String pkgName = targetPkg == null ? "" : targetPkg.getName();
+    final PrintWriter pw = context.tryCreate(logger, pkgName, simpleName);
+    if (pw == null) {
+      return null;
+    }
+    final ClassSourceFileComposerFactory cf =
+        new ClassSourceFileComposerFactory(pkgName, simpleName);
+    cf.addImport(JavaScriptObject.class.getCanonicalName());
+    cf.addImport(JsonSerializer.class.getCanonicalName());
+    cf.setSuperclass(superclass);
+    if (implemented != null) {
+      cf.addImplementedInterface(implemented);
+    }
+    return cf.createSourceWriter(context, pw);
+  }
+
+  private void generateOverlayType(final TreeLogger logger, final JClassType view,
+      final JClassType dto, final Map<JMethod, String> accessors, final boolean handle)
+      throws UnableToCompleteException {
+    final String simpleName = getOverlaySimpleName(view);
+    final SourceWriter w = getOverlaySourceWriter(logger, view, simpleName,
+        handle ? OverlayHandle.class.getCanonicalName() : JavaScriptObject.class.getSimpleName(),
+        getQualifiedSourceName(view));
+    if (w == null) {
+      return;
+    }
+    if (handle) {
+      w.println("public " + simpleName + "(JavaScriptObject jso) {");
+      w.indentln("super(jso);");
+    } else {
+      w.println("protected " + simpleName + "() {");
+    }
+    w.println("}");
+    for (final Map.Entry<JMethod, String> e : accessors.entrySet()) {
+      w.println();
+      generateOverlayAccessor(logger, w, e.getKey(), e.getValue(), dto, handle);
+    }
+    w.commit(logger);
+  }
+
+  private void generateOverlayAccessor(final TreeLogger logger, final SourceWriter w,
+      final JMethod m, final String prop, final JClassType dto, final boolean handle)
+      throws UnableToCompleteException {
+    final JType rt = m.getReturnType();
+    final boolean lazy = isLazyList(logger, rt, m);
+    final String name = m.getName();
+    // a JavaScriptObject reads itself, a handle the object it holds
+    final String self = handle ? "jso" : "this";
+    final String get = (handle ? "o" : "this") + "[\"" + prop + "\"]";
+    final String decl = "public final " + rt.getParameterizedQualifiedSourceName() + " " + name + "()";
+    final String raw = "json_" + name + "(" + (handle ? "jso" : "") + ")";
+    final String rawDecl = (handle ? "private static native " : "private native ") + "%s json_"
+        + name + "(" + (handle ? "JavaScriptObject o" : "") + ")";
+
+    if (rt == dto) {
+      w.println(decl + " {");
+      w.indent();
+      w.println("return " + serializerFor(dto) + ".INSTANCE.fromJson(" + self + ");");
+      w.outdent();
+      w.println("}");
+      return;
+    }
+
+    if (rt.isPrimitive() != null && rt != JPrimitiveType.CHAR && !isLong(rt)) {
+      // omitted when zero or false in the compact encoding
+      final String def = rt == JPrimitiveType.BOOLEAN ? "false" : "0";
+      final String body = " /*-{ return " + get + " || " + def + "; }-*/;";
+      if (handle) {
+        w.println(String.format(rawDecl, rt.getSimpleSourceName()) + body);
+        w.println(decl + " {");
+        w.indentln("return " + raw + ";");
+        w.println("}");
+      } else {
+        w.println(decl.replace("final ", "final native ") + body);
+      }
+      return;
+    }
+
+    final String nativeType;
+    final String value;
+    if (rt == JPrimitiveType.CHAR) {
+      nativeType = "String";
+      value = "v == null ? \"\" : v";
+    } else if (rt == JPrimitiveType.LONG) {
+      nativeType = "String";
+      value = "\"\" + (v || 0)";
+    } else if (isLong(rt)) {
+      nativeType = "String";
+      value = "v == null ? null : \"\" + v";
+    } else if (isJsonString(rt) || isBoxedCharacter(rt)) {
+      nativeType = "String";
+      value = "v == null ? null : v";
+    } else if (isBoxedPrimitive(rt)) {
+      nativeType = getQualifiedSourceName(rt).equals(Boolean.class.getName()) ? "Boolean" : "Double";
+      value = "v == null ? null : v";
+    } else if (isOverlay(rt) || rt.isArray() != null) {
+      nativeType = "JavaScriptObject";
+      value = "v == null ? null : v";
+    } else {
+      nativeType = "Object";
+      value = "v == null ? null : v";
+    }
+    w.println(String.format(rawDecl, nativeType) + " /*-{ var v = " + get + "; return " + value
+        + "; }-*/;");
+
+    final String reader =
+        rt.isArray() != null ? getArrayReader(rt.isArray().getComponentType()) : null;
+    final boolean needsSer = reader == null && (rt.isArray() != null || needsTypeParameter(rt));
+    if (needsSer) {
+      final String serType = getSerializerType(rt);
+      w.println("private static " + serType + " ser_" + name + ";");
+      w.println("private static " + serType + " ser_" + name + "() {");
+      w.indent();
+      w.println("if (ser_" + name + " == null) {");
+      w.indent();
+      w.print("ser_" + name + " = ");
+      generateSerializerReference(rt, w, lazy);
+      w.println(";");
+      w.outdent();
+      w.println("}");
+      w.println("return ser_" + name + ";");
+      w.outdent();
+      w.println("}");
+    }
+
+    w.println(decl + " {");
+    w.indent();
+    if (rt == JPrimitiveType.CHAR) {
+      w.println("return JsonSerializer.toChar(" + raw + ");");
+    } else if (rt == JPrimitiveType.LONG) {
+      w.println("return Long.parseLong(" + raw + ");");
+    } else if (isJsonString(rt) || isBoxedBooleanOrDouble(rt)) {
+      // already the Java representation
+      w.println("return " + raw + ";");
+    } else {
+      w.println("final " + nativeType + " v = " + raw + ";");
+      final String converted;
+      if (isLong(rt)) {
+        converted = "Long.valueOf(Long.parseLong(v))";
+      } else if (isBoxedCharacter(rt)) {
+        converted = "Character.valueOf(JsonSerializer.toChar(v))";
+      } else if (isBoxedPrimitive(rt)) {
+        converted = getQualifiedSourceName(rt)
+            + ".valueOf(v." + boxedTypeToPrimitiveTypeName(rt) + "Value())";
+      } else if (reader != null) {
+        converted = PrimitiveArraySerializer.class.getName() + ".INSTANCE." + reader + "(v)";
+      } else if (rt.isArray() != null) {
+        final String ct = getQualifiedSourceName(rt.isArray().getComponentType());
+        w.println("if (v == null) {");
+        w.indent();
+        w.println("return null;");
+        w.outdent();
+        w.println("}");
+        w.println("final " + ct + "[] tmp = new " + ct + "["
+            + ObjectArraySerializer.class.getName() + ".size(v)];");
+        w.println("ser_" + name + "().fromJson(v, tmp);");
+        converted = null;
+        w.println("return tmp;");
+      } else if (needsSer) {
+        converted = (rt.isInterface() == null ? "(" + getTypedQualifiedSourceName(rt) + ") " : "")
+            + "ser_" + name + "().fromJson(v)";
+      } else {
+        converted = serializerFor(rt) + ".INSTANCE.fromJson(v)";
+      }
+      if (converted != null) {
+        w.println("return v != null ? " + converted + " : null;");
+      }
+    }
+    w.outdent();
+    w.println("}");
+  }
+
+  /**
+   * @return the {@link PrimitiveArraySerializer} method reading a JSON array, or the base64 text of
+   *     a {@link BinaryArray}, as a Java array of the component type; null if the array is read
+   *     with <code>fromJson</code>.
+   */
+  static String getArrayReader(final JType componentType) {
+    switch (componentType.getQualifiedSourceName()) {
+      case "boolean":
+      case "byte":
+      case "double":
+      case "float":
+      case "int":
+      case "long":
+      case "short":
+        return componentType.getQualifiedSourceName() + "s";
+      case "java.lang.Boolean":
+        return "boxedBooleans";
+      case "java.lang.Double":
+        return "boxedDoubles";
+      default:
+        return null;
+    }
+  }
+
   static boolean isJsonPrimitive(final JType t) {
     return t.isPrimitive() != null || isJsonString(t);
   }
@@ -936,14 +1618,49 @@ class SerializerCreator {
 
   private String getSerializerQualifiedName(final JClassType theTargetType) {
     final String[] name;
-    name = ProxyCreator.synthesizeTopLevelClassName(theTargetType, SER_SUFFIX);
+    name = ProxyCreator.synthesizeTopLevelClassName(theTargetType, getSerializerSuffix());
     String aName = name[0].length() == 0 ? name[1] : name[0] + "." + name[1];
     int anExtends = aName.indexOf(" extends ");
     return anExtends >= 0 ? aName.substring(anExtends + " extends ".length()) : aName;
   }
 
   private String getSerializerSimpleName() {
-    return ProxyCreator.synthesizeTopLevelClassName(targetType, SER_SUFFIX)[1];
+    return ProxyCreator.synthesizeTopLevelClassName(targetType, getSerializerSuffix())[1];
+  }
+
+  private String getSerializerSuffix() {
+    if (epoch) {
+      return compact ? COMPACT_EPOCH_SER_SUFFIX : EPOCH_SER_SUFFIX;
+    }
+    return compact ? COMPACT_SER_SUFFIX : SER_SUFFIX;
+  }
+
+  /** @return true if the serializers use the {@link CompactEncoding}. */
+  boolean isCompact() {
+    return compact;
+  }
+
+  /** @return true if the serializers write timestamps and dates as {@link EpochTimestamps}. */
+  boolean isEpoch() {
+    return epoch;
+  }
+
+  /**
+   * Get the JSON property name of a field of the target type.
+   *
+   * <p>In the compact encoding this is the base 36 index of the field among the serialized fields
+   * of the class and its superclasses, superclass fields first. The index is positional, so it is
+   * only stable while the DTO classes are unchanged; see {@link CompactEncoding}.
+   */
+  private String getJsonFieldName(final JField f) {
+    if (!compact) {
+      return getPrettyFieldName(f.getName());
+    }
+    int index = Arrays.asList(sortFields(targetType)).indexOf(f);
+    for (JClassType t = targetType.getSuperclass(); t != null; t = t.getSuperclass()) {
+      index += sortFields(t).length;
+    }
+    return Integer.toString(index, 36);
   }
 
   static boolean needsTypeParameter(final JType ft) {
@@ -15,6 +15,7 @@
 package com.google.gwtjsonrpc.server;
 
 import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
 import com.google.gwtjsonrpc.common.AsyncCallback;
 import com.google.gwtjsonrpc.common.CheckTokenException;
 import com.google.gwtjsonrpc.common.JsonConstants;
@@ -38,6 +39,9 @@ public class ActiveCall implements AsyncCallback<Object> {
   MethodHandle method;
   String callback;
   Object[] params;
+  String rawParams;
+  BulkBody bulkBody;
+  JsonServlet<?> paramReader;
   Object result;
   Throwable externalFailure;
   Throwable internalFailure;
@@ -169,9 +173,18 @@ public class ActiveCall implements AsyncCallback<Object> {
   /**
    * Get the actual parameter values to be supplied to the method.
    *
+   * <p>Parameters sent in a POST body are only decoded on first use, after the XSRF token has been
+   * checked.
+   *
    * @return the parameter array; never null but may be 0-length if the method takes no parameters.
+   * @throws JsonParseException the parameters do not match the method.
    */
   public Object[] getParams() {
+    if (paramReader != null) {
+      params = paramReader.readParams(this);
+      paramReader = null;
+      rawParams = null;
+    }
     return params;
   }
 
@@ -0,0 +1,166 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gwtjsonrpc.common.BinaryArray;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
+
+/**
+ * Writes a numeric array as base64 text of its little-endian bytes, see {@link BinaryArray}.
+ *
+ * <p>Reads either that text or a JSON array, the latter with the regular adapter of the type.
+ *
+ * @param <T> the array type.
+ */
+public final class BinaryArrayTypeAdapter<T> extends TypeAdapter<T> {
+  /**
+   * Get the adapter of a field annotated with {@link BinaryArray}.
+   *
+   * @param gson the Gson instance reading JSON arrays.
+   * @param type the field type.
+   * @return the adapter.
+   * @throws IllegalArgumentException the type is not supported by {@link BinaryArray}.
+   */
+  public static <T> TypeAdapter<T> of(final Gson gson, final Class<T> type) {
+    if (!isSupported(type)) {
+      throw new IllegalArgumentException(
+          BinaryArray.class.getSimpleName() + " does not support " + type.getTypeName());
+    }
+    return new BinaryArrayTypeAdapter<>(type, gson.getAdapter(type));
+  }
+
+  /** @return true if arrays of this type can be sent as base64. */
+  static boolean isSupported(final Class<?> type) {
+    return type == byte[].class
+        || type == int[].class
+        || type == long[].class
+        || type == float[].class
+        || type == double[].class;
+  }
+
+  /**
+   * Encode an array of a supported type.
+   *
+   * @param array the array; not null.
+   * @return base64 text of the little-endian bytes of the elements.
+   */
+  static String encode(final Object array) {
+    final byte[] bytes;
+    if (array instanceof byte[]) {
+      return Base64.getEncoder().encodeToString((byte[]) array);
+    } else if (array instanceof int[]) {
+      final int[] a = (int[]) array;
+      bytes = new byte[a.length * 4];
+      buffer(bytes).asIntBuffer().put(a);
+    } else if (array instanceof long[]) {
+      final long[] a = (long[]) array;
+      bytes = new byte[a.length * 8];
+      buffer(bytes).asLongBuffer().put(a);
+    } else if (array instanceof float[]) {
+      final float[] a = (float[]) array;
+      bytes = new byte[a.length * 4];
+      buffer(bytes).asFloatBuffer().put(a);
+    } else if (array instanceof double[]) {
+      final double[] a = (double[]) array;
+      bytes = new byte[a.length * 8];
+      buffer(bytes).asDoubleBuffer().put(a);
+    } else {
+      throw new IllegalArgumentException("Not a binary array: " + array.getClass().getTypeName());
+    }
+    return Base64.getEncoder().encodeToString(bytes);
+  }
+
+  /**
+   * Decode base64 text into an array of a supported type.
+   *
+   * @param text base64 text of the little-endian bytes of the elements.
+   * @param type the array type.
+   * @return the new array.
+   * @throws JsonSyntaxException the text is not base64 of a whole number of elements.
+   */
+  static Object decode(final String text, final Class<?> type) {
+    final byte[] bytes;
+    try {
+      bytes = Base64.getDecoder().decode(text);
+    } catch (IllegalArgumentException e) {
+      throw new JsonSyntaxException("Invalid base64 for " + type.getTypeName(), e);
+    }
+    if (type == byte[].class) {
+      return bytes;
+    }
+    final int size = type == long[].class || type == double[].class ? 8 : 4;
+    if (bytes.length % size != 0) {
+      throw new JsonSyntaxException(
+          bytes.length + " bytes do not hold whole elements of " + type.getTypeName());
+    }
+    final ByteBuffer b = buffer(bytes);
+    final int n = bytes.length / size;
+    if (type == int[].class) {
+      final int[] r = new int[n];
+      b.asIntBuffer().get(r);
+      return r;
+    } else if (type == long[].class) {
+      final long[] r = new long[n];
+      b.asLongBuffer().get(r);
+      return r;
+    } else if (type == float[].class) {
+      final float[] r = new float[n];
+      b.asFloatBuffer().get(r);
+      return r;
+    } else if (type == double[].class) {
+      final double[] r = new double[n];
+      b.asDoubleBuffer().get(r);
+      return r;
+    }
+    throw new IllegalArgumentException("Not a binary array: " + type.getTypeName());
+  }
+
+  private static ByteBuffer buffer(final byte[] bytes) {
+    return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private final Class<T> type;
+  private final TypeAdapter<T> plain;
+
+  private BinaryArrayTypeAdapter(final Class<T> type, final TypeAdapter<T> plain) {
+    this.type = type;
+    this.plain = plain;
+  }
+
+  @Override
+  public void write(final JsonWriter out, final T value) throws IOException {
+    if (value == null) {
+      out.nullValue();
+    } else {
+      out.value(encode(value));
+    }
+  }
+
+  @Override
+  public T read(final JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.STRING) {
+      return type.cast(decode(in.nextString(), type));
+    }
+    return plain.read(in);
+  }
+}
@@ -0,0 +1,154 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reusable char and byte arrays for formatting responses.
+ *
+ * <p>Arrays come in power of two size classes from {@link #MIN_SIZE} to {@link #MAX_SIZE} elements.
+ * Larger requests are allocated exactly and never kept; buffers growing past that size should ask
+ * for {@link #grow(int, int)} elements to keep doubling. Released arrays are kept for reuse until
+ * the pool retains <code>limit</code> bytes; any more are left to the garbage collector.
+ */
+final class BufferPool {
+  static final int MIN_SHIFT = 12;
+  static final int MAX_SHIFT = 22;
+  static final int MIN_SIZE = 1 << MIN_SHIFT;
+  static final int MAX_SIZE = 1 << MAX_SHIFT;
+
+  private final long limit;
+  private final Queue<char[]>[] chars;
+  private final Queue<byte[]>[] bytes;
+  private final AtomicLong retained = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /** @param limit most bytes to keep in released arrays; 0 to keep none. */
+  @SuppressWarnings("unchecked")
+  BufferPool(final long limit) {
+    this.limit = limit;
+    final int classes = MAX_SHIFT - MIN_SHIFT + 1;
+    chars = new Queue[classes];
+    bytes = new Queue[classes];
+    for (int i = 0; i < classes; i++) {
+      chars[i] = new ConcurrentLinkedQueue<>();
+      bytes[i] = new ConcurrentLinkedQueue<>();
+    }
+  }
+
+  /** @return size class holding arrays of at least <code>n</code> elements; -1 if too large. */
+  private static int sizeClass(final int n) {
+    if (n <= MIN_SIZE) {
+      return 0;
+    }
+    if (n > MAX_SIZE) {
+      return -1;
+    }
+    return 32 - Integer.numberOfLeadingZeros(n - 1) - MIN_SHIFT;
+  }
+
+  /**
+   * @param length current length of a growing array.
+   * @param n elements it must now hold.
+   * @return elements to take: <code>n</code> within the size classes, at least twice <code>length
+   *     </code> beyond them, so that appending stays linear.
+   */
+  static int grow(final int length, final int n) {
+    if (n <= MAX_SIZE) {
+      return n;
+    }
+    final int doubled = length > Integer.MAX_VALUE / 2 - 8 ? Integer.MAX_VALUE - 8 : 2 * length;
+    return Math.max(n, doubled);
+  }
+
+  /** @return size class of a released array; -1 if it was not taken from a pool. */
+  private static int releasedClass(final int length) {
+    final int c = sizeClass(length);
+    return c >= 0 && length == MIN_SIZE << c ? c : -1;
+  }
+
+  /** @return array of at least <code>n</code> chars. */
+  char[] takeChars(final int n) {
+    final int c = sizeClass(n);
+    if (c >= 0) {
+      final char[] a = chars[c].poll();
+      if (a != null) {
+        retained.addAndGet(-2L * a.length);
+        hits.incrementAndGet();
+        return a;
+      }
+    }
+    misses.incrementAndGet();
+    return new char[c >= 0 ? MIN_SIZE << c : n];
+  }
+
+  /** @return array of at least <code>n</code> bytes. */
+  byte[] takeBytes(final int n) {
+    final int c = sizeClass(n);
+    if (c >= 0) {
+      final byte[] a = bytes[c].poll();
+      if (a != null) {
+        retained.addAndGet(-a.length);
+        hits.incrementAndGet();
+        return a;
+      }
+    }
+    misses.incrementAndGet();
+    return new byte[c >= 0 ? MIN_SIZE << c : n];
+  }
+
+  /** Return an array obtained from {@link #takeChars(int)}. */
+  void release(final char[] a) {
+    final int c = releasedClass(a.length);
+    if (c >= 0 && retain(2L * a.length)) {
+      chars[c].offer(a);
+    }
+  }
+
+  /** Return an array obtained from {@link #takeBytes(int)}. */
+  void release(final byte[] a) {
+    final int c = releasedClass(a.length);
+    if (c >= 0 && retain(a.length)) {
+      bytes[c].offer(a);
+    }
+  }
+
+  private boolean retain(final long n) {
+    if (retained.addAndGet(n) > limit) {
+      retained.addAndGet(-n);
+      return false;
+    }
+    return true;
+  }
+
+  /** @return arrays handed out from the pool. */
+  long getHits() {
+    return hits.get();
+  }
+
+  /** @return arrays allocated because the pool had none of the size class. */
+  long getMisses() {
+    return misses.get();
+  }
+
+  /** @return bytes held by arrays waiting in the pool. */
+  long getRetainedBytes() {
+    return retained.get();
+  }
+}
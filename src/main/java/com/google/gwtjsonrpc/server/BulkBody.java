@@ -0,0 +1,220 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import com.google.gwtjsonrpc.common.JsonConstants;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Request body of a {@link com.google.gwtjsonrpc.common.BulkUpload} method, held in a temporary
+ * file.
+ *
+ * <p>The file is mapped into memory and read through {@link #reader()}, so the body never occupies
+ * the heap. Closing the body deletes the file, or a later body once the platform allows it, and
+ * frees its upload slot.
+ */
+final class BulkBody implements Closeable {
+  private static final int CHUNK = 64 * 1024;
+
+  /**
+   * Files that could not be deleted when closed, because the platform refuses to delete a file
+   * still mapped. The mapping is released only once its buffer is collected, so the delete is
+   * retried by later spools.
+   */
+  private static final Queue<File> undeleted = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Spool a body to a temporary file.
+   *
+   * @param dir directory to create the file in; null for the system default.
+   * @param head bytes of the body already read.
+   * @param rest stream of the remaining bytes.
+   * @param max largest body accepted.
+   * @param slots upload slots; one is taken by the caller and released when the body is closed.
+   * @return the body.
+   * @throws com.google.gson.JsonParseException the body is rejected, see {@link RejectedCall}.
+   * @throws IOException the body could not be read or written.
+   */
+  static BulkBody spool(
+      final File dir,
+      final ByteBuffer head,
+      final InputStream rest,
+      final int max,
+      final Semaphore slots)
+      throws IOException {
+    retryDeletes();
+    File file = null;
+    boolean spooled = false;
+    try {
+      file = File.createTempFile("jsonrpc", ".json", dir);
+      long size = head.remaining();
+      try (FileOutputStream out = new FileOutputStream(file)) {
+        out.write(head.array(), head.arrayOffset() + head.position(), head.remaining());
+        final byte[] buf = new byte[CHUNK];
+        int n;
+        while ((n = RequestBody.read(rest, buf, 0, buf.length)) >= 0) {
+          size += n;
+          if (size > max) {
+            throw RejectedCall.BODY_TOO_LARGE.error();
+          }
+          out.write(buf, 0, n);
+        }
+      }
+
+      final MappedByteBuffer data;
+      try (RandomAccessFile f = new RandomAccessFile(file, "r")) {
+        data = f.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+      }
+      final BulkBody b = new BulkBody(file, data, (int) size, slots);
+      spooled = true;
+      return b;
+    } finally {
+      if (!spooled) {
+        if (file != null) {
+          delete(file);
+        }
+        slots.release();
+      }
+    }
+  }
+
+  private static void delete(final File file) {
+    if (!file.delete() && file.exists()) {
+      undeleted.add(file);
+    }
+  }
+
+  /** Delete files left by earlier bodies, if the platform now allows it. */
+  private static void retryDeletes() {
+    for (final Iterator<File> i = undeleted.iterator(); i.hasNext(); ) {
+      final File f = i.next();
+      if (f.delete() || !f.exists()) {
+        i.remove();
+      }
+    }
+  }
+
+  private final File file;
+  private final int size;
+  private final Semaphore slots;
+  private MappedByteBuffer data;
+
+  private BulkBody(
+      final File file, final MappedByteBuffer data, final int size, final Semaphore slots) {
+    this.file = file;
+    this.data = data;
+    this.size = size;
+    this.slots = slots;
+  }
+
+  /** @return size of the body in bytes. */
+  int size() {
+    return size;
+  }
+
+  /** @return new reader decoding the body from its start. */
+  synchronized Reader reader() {
+    if (data == null) {
+      throw new IllegalStateException("Body is closed");
+    }
+    return new MappedReader(data.duplicate());
+  }
+
+  @Override
+  public synchronized void close() {
+    if (data != null) {
+      // Drop the mapping first, so the file can be deleted once no reader
+      // holds it either.
+      //
+      data = null;
+      delete(file);
+      slots.release();
+    }
+  }
+
+  /** Decodes UTF-8 from a buffer, reporting malformed input as IOException. */
+  private static final class MappedReader extends Reader {
+    private final ByteBuffer in;
+    private final CharsetDecoder decoder;
+    private final CharBuffer pair = CharBuffer.allocate(2);
+    private boolean eof;
+
+    MappedReader(final ByteBuffer in) {
+      this.in = in;
+      this.decoder =
+          Charset.forName(JsonConstants.JSON_ENC)
+              .newDecoder()
+              .onMalformedInput(CodingErrorAction.REPORT)
+              .onUnmappableCharacter(CodingErrorAction.REPORT);
+      pair.flip();
+    }
+
+    @Override
+    public int read(final char[] cbuf, final int off, final int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (pair.hasRemaining()) {
+        cbuf[off] = pair.get();
+        return 1;
+      }
+      if (eof) {
+        return -1;
+      }
+
+      final CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+      final CoderResult r = decoder.decode(in, out, true);
+      if (r.isError()) {
+        r.throwException();
+      }
+      if (r.isOverflow() && out.position() == off) {
+        // A surrogate pair does not fit in the single char asked for.
+        //
+        pair.clear();
+        decoder.decode(in, pair, true);
+        pair.flip();
+        cbuf[off] = pair.get();
+        return 1;
+      }
+      if (!in.hasRemaining()) {
+        decoder.flush(out);
+        eof = true;
+      }
+      final int n = out.position() - off;
+      return n > 0 ? n : -1;
+    }
+
+    @Override
+    public void close() {}
+  }
+}
@@ -14,6 +14,7 @@
 
 package com.google.gwtjsonrpc.server;
 
+import com.google.gson.Gson;
 import com.google.gson.InstanceCreator;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonDeserializationContext;
@@ -21,6 +22,11 @@ import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.StringReader;
 import java.lang.reflect.Type;
 
 final class CallDeserializer<CallType extends ActiveCall>
@@ -43,10 +49,87 @@ final class CallDeserializer<CallType extends ActiveCall>
       final JsonElement json, final Type typeOfT, final JsonDeserializationContext context)
       throws JsonParseException, NoSuchRemoteMethodException {
     if (!json.isJsonObject()) {
-      throw new JsonParseException("Expected object");
+      throw RejectedCall.EXPECTED_OBJECT.error();
     }
 
     final JsonObject in = json.getAsJsonObject();
+    readEnvelope(in);
+
+    final Type[] paramTypes = req.method.getParamTypes();
+    final JsonElement params = in.get("params");
+    if (params != null) {
+      if (!params.isJsonArray()) {
+        throw RejectedCall.EXPECTED_PARAMS.error();
+      }
+
+      final JsonArray paramsArray = params.getAsJsonArray();
+      if (paramsArray.size() != paramTypes.length) {
+        throw new JsonParseException(
+            "Expected " + paramTypes.length + " parameter values in params array");
+      }
+
+      final Object[] r = new Object[paramTypes.length];
+      for (int i = 0; i < r.length; i++) {
+        final JsonElement v = paramsArray.get(i);
+        if (isString(v)
+            && paramTypes[i] instanceof Class
+            && BinaryArrayTypeAdapter.isSupported((Class<?>) paramTypes[i])) {
+          r[i] = BinaryArrayTypeAdapter.decode(v.getAsString(), (Class<?>) paramTypes[i]);
+        } else if (v != null) {
+          r[i] = server.deserializeParam(v, paramTypes[i], context);
+        }
+      }
+      req.params = r;
+    } else {
+      if (paramTypes.length != 0) {
+        throw RejectedCall.EXPECTED_PARAMS.error();
+      }
+      req.params = JsonServlet.NO_PARAMS;
+    }
+
+    return req;
+  }
+
+  /**
+   * Read a request whose parameters are still raw text.
+   *
+   * <p>The parameters are only checked to be an array; {@link #readParams(Gson, Type[], String)}
+   * decodes them once the call is known to proceed.
+   */
+  void deserialize(final RequestEnvelope in) {
+    readEnvelope(in.fields);
+    if (deferParams(in.params != null, in.params != null && in.params.startsWith("["))) {
+      req.rawParams = in.params;
+    }
+  }
+
+  /**
+   * Read a bulk request, whose parameters are left in its body until the call proceeds.
+   *
+   * @param fields the envelope members other than the parameters.
+   * @param params first token of the parameters; null if the body has none.
+   */
+  void deserialize(final JsonObject fields, final JsonToken params) {
+    readEnvelope(fields);
+    deferParams(params != null, params == JsonToken.BEGIN_ARRAY);
+  }
+
+  private boolean deferParams(final boolean present, final boolean array) {
+    if (present) {
+      if (!array) {
+        throw RejectedCall.EXPECTED_PARAMS.error();
+      }
+      req.paramReader = server;
+      return true;
+    }
+    if (req.method.getParamTypes().length != 0) {
+      throw RejectedCall.EXPECTED_PARAMS.error();
+    }
+    req.params = JsonServlet.NO_PARAMS;
+    return false;
+  }
+
+  private void readEnvelope(final JsonObject in) {
     req.id = in.get("id");
 
     final JsonElement jsonrpc = in.get("jsonrpc");
@@ -57,7 +140,7 @@ final class CallDeserializer<CallType extends ActiveCall>
         req.versionName = "jsonrpc";
         req.versionValue = jsonrpc;
       } else {
-        throw new JsonParseException("Expected jsonrpc=2.0");
+        throw RejectedCall.EXPECTED_JSONRPC.error();
       }
 
     } else if (isString(version) && jsonrpc == null) {
@@ -66,15 +149,15 @@ final class CallDeserializer<CallType extends ActiveCall>
         req.versionName = "version";
         req.versionValue = version;
       } else {
-        throw new JsonParseException("Expected version=1.1");
+        throw RejectedCall.EXPECTED_VERSION.error();
       }
     } else {
-      throw new JsonParseException("Expected version=1.1 or jsonrpc=2.0");
+      throw RejectedCall.EXPECTED_ANY_VERSION.error();
     }
 
     final JsonElement method = in.get("method");
     if (!isString(method)) {
-      throw new JsonParseException("Expected method name as string");
+      throw RejectedCall.EXPECTED_METHOD.error();
     }
 
     req.method = server.lookupMethod(method.getAsString());
@@ -85,7 +168,7 @@ final class CallDeserializer<CallType extends ActiveCall>
     final JsonElement callback = in.get("callback");
     if (callback != null) {
       if (!isString(callback)) {
-        throw new JsonParseException("Expected callback as string");
+        throw RejectedCall.EXPECTED_CALLBACK.error();
       }
       req.callback = callback.getAsString();
     }
@@ -93,40 +176,63 @@ final class CallDeserializer<CallType extends ActiveCall>
     final JsonElement xsrfKey = in.get("xsrfKey");
     if (xsrfKey != null) {
       if (!isString(xsrfKey)) {
-        throw new JsonParseException("Expected xsrfKey as string");
+        throw RejectedCall.EXPECTED_XSRF_KEY.error();
       }
       req.xsrfKeyIn = xsrfKey.getAsString();
     }
+  }
 
-    final Type[] paramTypes = req.method.getParamTypes();
-    final JsonElement params = in.get("params");
-    if (params != null) {
-      if (!params.isJsonArray()) {
-        throw new JsonParseException("Expected params array");
-      }
-
-      final JsonArray paramsArray = params.getAsJsonArray();
-      if (paramsArray.size() != paramTypes.length) {
-        throw new JsonParseException(
-            "Expected " + paramTypes.length + " parameter values in params array");
-      }
+  /**
+   * Decode the raw parameters of a call.
+   *
+   * @param gson reads each parameter.
+   * @param paramTypes declared types of the parameters.
+   * @param raw JSON array holding the parameter values.
+   * @return the parameter values.
+   * @throws JsonParseException the parameters do not match the method.
+   */
+  static Object[] readParams(final Gson gson, final Type[] paramTypes, final String raw)
+      throws JsonParseException {
+    final JsonReader in = new JsonReader(new StringReader(raw));
+    in.setLenient(true);
+    return readParams(gson, paramTypes, in);
+  }
 
-      final Object[] r = new Object[paramTypes.length];
+  /**
+   * Decode the parameters of a call one at a time.
+   *
+   * @param gson reads each parameter.
+   * @param paramTypes declared types of the parameters.
+   * @param in reader positioned at the array holding the parameter values.
+   * @return the parameter values.
+   * @throws JsonParseException the parameters do not match the method.
+   */
+  static Object[] readParams(final Gson gson, final Type[] paramTypes, final JsonReader in)
+      throws JsonParseException {
+    final String count = "Expected " + paramTypes.length + " parameter values in params array";
+    final Object[] r = new Object[paramTypes.length];
+    try {
+      in.beginArray();
       for (int i = 0; i < r.length; i++) {
-        final JsonElement v = paramsArray.get(i);
-        if (v != null) {
-          r[i] = context.deserialize(v, paramTypes[i]);
+        if (!in.hasNext()) {
+          throw new JsonParseException(count);
+        }
+        if (in.peek() == JsonToken.STRING
+            && paramTypes[i] instanceof Class
+            && BinaryArrayTypeAdapter.isSupported((Class<?>) paramTypes[i])) {
+          r[i] = BinaryArrayTypeAdapter.decode(in.nextString(), (Class<?>) paramTypes[i]);
+        } else {
+          r[i] = gson.fromJson(in, paramTypes[i]);
         }
       }
-      req.params = r;
-    } else {
-      if (paramTypes.length != 0) {
-        throw new JsonParseException("Expected params array");
+      if (in.hasNext()) {
+        throw new JsonParseException(count);
       }
-      req.params = JsonServlet.NO_PARAMS;
+      in.endArray();
+    } catch (IOException | IllegalStateException | NumberFormatException e) {
+      throw new JsonSyntaxException(e);
     }
-
-    return req;
+    return r;
   }
 
   private static boolean isString(final JsonElement e) {
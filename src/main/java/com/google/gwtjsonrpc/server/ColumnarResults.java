@@ -0,0 +1,131 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.internal.$Gson$Types;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gwtjsonrpc.common.ColumnarResult;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+
+/** Writes results of methods annotated with {@link ColumnarResult}. */
+final class ColumnarResults {
+  /**
+   * Write a result by column.
+   *
+   * @param out receives the columnar form, unless the result must be written as usual.
+   * @param result the result; a List or an array.
+   * @param resultType declared type of the result.
+   * @param compact true to name the columns as in the {@link
+   *     com.google.gwtjsonrpc.common.CompactEncoding}.
+   * @param gson writes the cells.
+   * @return true if written; false if the result must be written as usual.
+   * @throws IOException the writer failed.
+   */
+  @SuppressWarnings("unchecked")
+  static boolean write(
+      final JsonWriter out,
+      final Object result,
+      final Type resultType,
+      final boolean compact,
+      final Gson gson)
+      throws IOException {
+    final Type elementType = elementType(resultType);
+    if (elementType == null) {
+      return false;
+    }
+    final Class<?> raw = $Gson$Types.getRawType(elementType);
+    if (raw.isInterface()
+        || raw.isEnum()
+        || Modifier.isAbstract(raw.getModifiers())
+        || DtoFields.isStandard(raw)) {
+      return false;
+    }
+
+    final List<?> items;
+    if (result instanceof List) {
+      items = (List<?>) result;
+    } else if (result instanceof Object[]) {
+      items = Arrays.asList((Object[]) result);
+    } else {
+      return false;
+    }
+    for (final Object o : items) {
+      if (o != null && o.getClass() != raw) {
+        return false;
+      }
+    }
+
+    final List<Field> fields = DtoFields.of(raw);
+    final TypeAdapter<Object>[] adapters = new TypeAdapter[fields.size()];
+    out.beginObject();
+    out.name("cols").beginArray();
+    for (int i = 0; i < adapters.length; i++) {
+      final Field f = fields.get(i);
+      final Type t = $Gson$Types.resolve(elementType, raw, f.getGenericType());
+      adapters[i] = (TypeAdapter<Object>) gson.getAdapter(TypeToken.get(t));
+      out.value(
+          compact ? CompactTypeAdapterFactory.alias(i) : JsonFieldNames.prettyName(f.getName()));
+    }
+    out.endArray();
+
+    out.name("rows").beginArray();
+    for (final Object o : items) {
+      if (o == null) {
+        out.nullValue();
+        continue;
+      }
+      out.beginArray();
+      for (int i = 0; i < adapters.length; i++) {
+        final Field f = fields.get(i);
+        final Object v;
+        try {
+          v = f.get(o);
+        } catch (IllegalAccessException e) {
+          throw new IllegalStateException("Cannot read " + f, e);
+        }
+        adapters[i].write(out, v);
+      }
+      out.endArray();
+    }
+    out.endArray();
+    out.endObject();
+    return true;
+  }
+
+  private static Type elementType(final Type type) {
+    if (type instanceof GenericArrayType) {
+      return ((GenericArrayType) type).getGenericComponentType();
+    }
+    if (type instanceof Class && ((Class<?>) type).isArray()) {
+      return ((Class<?>) type).getComponentType();
+    }
+    if (type instanceof ParameterizedType
+        && List.class.isAssignableFrom($Gson$Types.getRawType(type))) {
+      return ((ParameterizedType) type).getActualTypeArguments()[0];
+    }
+    return null;
+  }
+
+  private ColumnarResults() {}
+}
@@ -0,0 +1,98 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gwtjsonrpc.common.CompactEncoding;
+import java.io.IOException;
+
+/**
+ * Reads and writes DTOs and enums in the {@link CompactEncoding} of a service.
+ *
+ * <p>Properties are named by the base 36 index of the field, primitive fields holding zero or
+ * false are left out, and enums are written as their ordinal. When reading, the regular property
+ * names and enum constant names are accepted as well.
+ */
+public final class CompactTypeAdapterFactory implements TypeAdapterFactory {
+  /**
+   * Get the compact property name of a field.
+   *
+   * <p>The alias is positional: it names a different field once fields are added, removed or
+   * renamed before it, see {@link CompactEncoding}.
+   *
+   * @param index the position of the field in {@link DtoFields#of(Class)}.
+   * @return the index in base 36.
+   */
+  public static String alias(final int index) {
+    return Integer.toString(index, 36);
+  }
+
+  @Override
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public <T> TypeAdapter<T> create(final Gson gson, final TypeToken<T> type) {
+    final Class<? super T> raw = type.getRawType();
+    if (Enum.class.isAssignableFrom(raw) && raw != Enum.class) {
+      return new EnumAdapter(raw.isEnum() ? raw : raw.getSuperclass());
+    }
+    return DtoTypeAdapter.create(gson, type, true);
+  }
+
+  private static final class EnumAdapter<E extends Enum<E>> extends TypeAdapter<E> {
+    private final Class<E> type;
+    private final E[] constants;
+
+    EnumAdapter(final Class<E> type) {
+      this.type = type;
+      this.constants = type.getEnumConstants();
+    }
+
+    @Override
+    public void write(final JsonWriter out, final E value) throws IOException {
+      if (value == null) {
+        out.nullValue();
+      } else {
+        out.value(value.ordinal());
+      }
+    }
+
+    @Override
+    public E read(final JsonReader in) throws IOException {
+      final JsonToken t = in.peek();
+      if (t == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+      if (t == JsonToken.NUMBER) {
+        final int i = in.nextInt();
+        if (i < 0 || constants.length <= i) {
+          throw new JsonSyntaxException("No ordinal " + i + " in " + type.getName());
+        }
+        return constants[i];
+      }
+      final String name = in.nextString();
+      try {
+        return Enum.valueOf(type, name);
+      } catch (IllegalArgumentException e) {
+        throw new JsonSyntaxException("No constant " + name + " in " + type.getName(), e);
+      }
+    }
+  }
+}
@@ -0,0 +1,82 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import com.google.gwtjsonrpc.common.SkipSerialization;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/** Serialized fields of a DTO, selected with the same rules as the GWT client generator. */
+final class DtoFields {
+  private static final Comparator<Field> FIELD_COMP = Comparator.comparing(Field::getName);
+
+  private static final ClassValue<List<Field>> fields =
+      new ClassValue<List<Field>>() {
+        @Override
+        protected List<Field> computeValue(final Class<?> type) {
+          return find(type);
+        }
+      };
+
+  /**
+   * Get the serialized fields of a class.
+   *
+   * <p>Static, transient and final fields and those annotated with {@link SkipSerialization} are
+   * skipped. Superclass fields come first, and the fields of each class are sorted by name. The
+   * fields are accessible.
+   *
+   * @param type the DTO class.
+   * @return unmodifiable list of fields; empty for standard Java classes.
+   */
+  static List<Field> of(final Class<?> type) {
+    return fields.get(type);
+  }
+
+  /** @return true if the class belongs to the Java platform rather than the application. */
+  static boolean isStandard(final Class<?> type) {
+    final String n = type.getName();
+    return type.isPrimitive() || n.startsWith("java.") || n.startsWith("javax.");
+  }
+
+  private static List<Field> find(final Class<?> type) {
+    final List<Field> r = new ArrayList<>();
+    if (type.isArray() || type.isInterface() || isStandard(type)) {
+      return Collections.emptyList();
+    }
+    r.addAll(find(type.getSuperclass()));
+
+    final List<Field> own = new ArrayList<>();
+    for (final Field f : type.getDeclaredFields()) {
+      final int m = f.getModifiers();
+      if (f.isAnnotationPresent(SkipSerialization.class)
+          || Modifier.isStatic(m)
+          || Modifier.isTransient(m)
+          || Modifier.isFinal(m)
+          || f.isSynthetic()) {
+        continue;
+      }
+      f.setAccessible(true);
+      own.add(f);
+    }
+    Collections.sort(own, FIELD_COMP);
+    r.addAll(own);
+    return Collections.unmodifiableList(r);
+  }
+
+  private DtoFields() {}
+}
@@ -0,0 +1,232 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.internal.$Gson$Types;
+import com.google.gson.internal.bind.JsonTreeReader;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.gwtjsonrpc.common.BinaryArray;
+import com.google.gwtjsonrpc.common.PrimitiveKeyMap;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes a DTO by reflection over its {@link DtoFields}.
+ *
+ * <p>In compact mode properties are named by {@link CompactTypeAdapterFactory#alias(int)} and
+ * primitive fields holding zero or false are left out, so primitive fields missing from the input
+ * are read as zero or false rather than keeping their initial value; otherwise properties carry the
+ * field name, as with Gson's reflective adapter. Either way the names chosen by the GWT client are
+ * accepted when reading, fields annotated with {@link BinaryArray} are written as base64, and
+ * fields annotated with {@link PrimitiveKeyMap} are read into maps with unboxed keys.
+ *
+ * @param <T> the DTO type.
+ */
+final class DtoTypeAdapter<T> extends GeneratedTypeAdapter<T> {
+  /**
+   * Create the adapter of a DTO.
+   *
+   * @return the adapter; null if the type is not a concrete class with a no-argument constructor.
+   */
+  static <T> DtoTypeAdapter<T> create(
+      final Gson gson, final TypeToken<T> type, final boolean compact) {
+    final Class<? super T> raw = type.getRawType();
+    if (raw.isInterface()
+        || raw.isArray()
+        || Modifier.isAbstract(raw.getModifiers())
+        || DtoFields.isStandard(raw)
+        || Map.class.isAssignableFrom(raw)
+        || Collection.class.isAssignableFrom(raw)) {
+      return null;
+    }
+
+    final Constructor<? super T> ctor;
+    try {
+      ctor = raw.getDeclaredConstructor();
+      ctor.setAccessible(true);
+    } catch (NoSuchMethodException | SecurityException e) {
+      return null;
+    }
+    return new DtoTypeAdapter<>(gson, type, ctor, compact);
+  }
+
+  private final Constructor<? super T> ctor;
+  private final boolean compact;
+  private final Field[] fields;
+  private final String[] names;
+  private final TypeAdapter<Object>[] adapters;
+  private final Object[] zeros;
+  private final Map<String, Integer> byName;
+
+  @SuppressWarnings("unchecked")
+  private DtoTypeAdapter(
+      final Gson gson,
+      final TypeToken<T> type,
+      final Constructor<? super T> ctor,
+      final boolean compact) {
+    super(gson);
+    this.ctor = ctor;
+    this.compact = compact;
+
+    final List<Field> list = DtoFields.of(type.getRawType());
+    fields = list.toArray(new Field[list.size()]);
+    names = new String[fields.length];
+    adapters = new TypeAdapter[fields.length];
+    zeros = new Object[fields.length];
+    byName = new HashMap<>();
+    for (int i = 0; i < fields.length; i++) {
+      final Field f = fields[i];
+      names[i] = compact ? CompactTypeAdapterFactory.alias(i) : f.getName();
+      if (f.getType().isPrimitive()) {
+        zeros[i] = Array.get(Array.newInstance(f.getType(), 1), 0);
+      }
+      final Type ft = $Gson$Types.resolve(type.getType(), type.getRawType(), f.getGenericType());
+      if (f.isAnnotationPresent(BinaryArray.class)) {
+        adapters[i] = (TypeAdapter<Object>) BinaryArrayTypeAdapter.of(gson, f.getType());
+      } else if (f.isAnnotationPresent(PrimitiveKeyMap.class)) {
+        adapters[i] = (TypeAdapter<Object>) PrimitiveKeyMapTypeAdapter.of(gson, TypeToken.get(ft));
+      } else {
+        adapters[i] = (TypeAdapter<Object>) gson.getAdapter(TypeToken.get(ft));
+      }
+      byName.put(JsonFieldNames.prettyName(f.getName()), i);
+    }
+    for (int i = 0; i < fields.length; i++) {
+      byName.put(names[i], i);
+    }
+  }
+
+  @Override
+  public void writeFields(final JsonWriter out, final T value) throws IOException {
+    for (int i = 0; i < fields.length; i++) {
+      final Field f = fields[i];
+      final Object v;
+      try {
+        v = f.get(value);
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException("Cannot read " + f, e);
+      }
+      if (v == null || (compact && f.getType().isPrimitive() && isDefault(v))) {
+        continue;
+      }
+      out.name(names[i]);
+      if (f.getType().isPrimitive()) {
+        adapters[i].write(out, v);
+      } else {
+        runtimeAdapter(adapters[i], f.getType(), v).write(out, v);
+      }
+    }
+  }
+
+  @Override
+  T readFields(final JsonObject ahead, final JsonReader in) throws IOException {
+    if (!compact) {
+      return super.readFields(ahead, in);
+    }
+    final T dst = newInstance();
+    final boolean[] seen = new boolean[fields.length];
+    if (ahead != null) {
+      for (final Map.Entry<String, JsonElement> p : ahead.entrySet()) {
+        final Integer i = byName.get(p.getKey());
+        if (i != null) {
+          seen[i] = true;
+          readField(new JsonTreeReader(p.getValue()), i, dst);
+        }
+      }
+    }
+    while (in.hasNext()) {
+      final Integer i = byName.get(in.nextName());
+      if (i == null) {
+        in.skipValue();
+        continue;
+      }
+      seen[i] = true;
+      readField(in, i, dst);
+    }
+
+    // Zero and false are left out when writing; a missing primitive is
+    // one of them, not whatever the constructor put there.
+    //
+    for (int i = 0; i < fields.length; i++) {
+      if (!seen[i] && fields[i].getType().isPrimitive()) {
+        set(fields[i], dst, zeros[i]);
+      }
+    }
+    return dst;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  protected T newInstance() {
+    try {
+      return (T) ctor.newInstance();
+    } catch (InvocationTargetException e) {
+      throw rethrow(e.getCause());
+    } catch (InstantiationException | IllegalAccessException e) {
+      throw new IllegalStateException("Cannot create " + ctor.getDeclaringClass(), e);
+    }
+  }
+
+  @Override
+  protected boolean readField(final JsonReader in, final String name, final T dst)
+      throws IOException {
+    final Integer i = byName.get(name);
+    if (i == null) {
+      return false;
+    }
+    readField(in, i, dst);
+    return true;
+  }
+
+  private void readField(final JsonReader in, final int i, final T dst) throws IOException {
+    final Field f = fields[i];
+    final Object v = adapters[i].read(in);
+    if (v == null && f.getType().isPrimitive()) {
+      return;
+    }
+    set(f, dst, v);
+  }
+
+  private static void set(final Field f, final Object dst, final Object v) {
+    try {
+      f.set(dst, v);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Cannot write " + f, e);
+    }
+  }
+
+  private static boolean isDefault(final Object v) {
+    if (v instanceof Boolean) {
+      return !((Boolean) v);
+    }
+    if (v instanceof Number) {
+      return ((Number) v).doubleValue() == 0;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,63 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.gwtjsonrpc.common.EpochTimestamps;
+import java.io.IOException;
+
+/**
+ * Reads and writes a {@link java.sql.Date} as milliseconds since the epoch, see {@link
+ * EpochTimestamps}.
+ *
+ * <p>Strings in the format of {@link SqlDateDeserializer} are read too, as are strings of
+ * milliseconds.
+ */
+public class EpochDateTypeAdapter extends TypeAdapter<java.sql.Date> {
+  @Override
+  public void write(final JsonWriter out, final java.sql.Date src) throws IOException {
+    if (src == null) {
+      out.nullValue();
+    } else {
+      out.value(src.getTime());
+    }
+  }
+
+  @Override
+  public java.sql.Date read(final JsonReader in) throws IOException {
+    switch (in.peek()) {
+      case NULL:
+        in.nextNull();
+        return null;
+      case STRING:
+        final String s = in.nextString();
+        if (EpochTimestampTypeAdapter.isMillis(s)) {
+          return new java.sql.Date(Long.parseLong(s));
+        }
+        try {
+          return java.sql.Date.valueOf(s);
+        } catch (IllegalArgumentException e) {
+          throw new JsonParseException("Not a date string");
+        }
+      case NUMBER:
+        return new java.sql.Date(in.nextLong());
+      default:
+        throw new JsonParseException("Expected number for date type");
+    }
+  }
+}
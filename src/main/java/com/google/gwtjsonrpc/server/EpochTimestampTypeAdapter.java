@@ -0,0 +1,92 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gwtjsonrpc.common.EpochTimestamps;
+import com.google.gwtjsonrpc.common.JavaSqlTimestampHelper;
+import java.io.IOException;
+import java.sql.Timestamp;
+
+/**
+ * Reads and writes a {@link Timestamp} as milliseconds since the epoch, see {@link
+ * EpochTimestamps}.
+ *
+ * <p>Strings in the format of {@link SqlTimestampDeserializer} are read too, as are strings of
+ * milliseconds, which is how parameters of a GET request arrive.
+ */
+public class EpochTimestampTypeAdapter extends TypeAdapter<Timestamp> {
+  @Override
+  public void write(final JsonWriter out, final Timestamp src) throws IOException {
+    if (src == null) {
+      out.nullValue();
+    } else if (src.getNanos() % 1000000 == 0) {
+      out.value(src.getTime());
+    } else {
+      out.beginArray();
+      out.value(src.getTime());
+      out.value(src.getNanos());
+      out.endArray();
+    }
+  }
+
+  @Override
+  public Timestamp read(final JsonReader in) throws IOException {
+    switch (in.peek()) {
+      case NULL:
+        in.nextNull();
+        return null;
+      case STRING:
+        final String s = in.nextString();
+        if (isMillis(s)) {
+          return new Timestamp(Long.parseLong(s));
+        }
+        return JavaSqlTimestampHelper.parseTimestamp(s);
+      case NUMBER:
+        return new Timestamp(in.nextLong());
+      case BEGIN_ARRAY:
+        in.beginArray();
+        final Timestamp t = new Timestamp(in.nextLong());
+        final int nanos = in.nextInt();
+        if (in.peek() != JsonToken.END_ARRAY || nanos < 0 || 999999999 < nanos) {
+          throw new JsonParseException("Expected [millis, nanos] for timestamp type");
+        }
+        in.endArray();
+        t.setNanos(nanos);
+        return t;
+      default:
+        throw new JsonParseException("Expected number for timestamp type");
+    }
+  }
+
+  /** @return true if the string is an optional minus sign followed by decimal digits. */
+  static boolean isMillis(final String s) {
+    final int start = s.startsWith("-") ? 1 : 0;
+    if (s.length() == start || s.length() > start + 18) {
+      return false;
+    }
+    for (int i = start; i < s.length(); i++) {
+      final char c = s.charAt(i);
+      if (c < '0' || '9' < c) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,41 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import com.google.gwtjsonrpc.common.RemoteJsonService;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Requests reflection-free Gson TypeAdapters for the DTOs of some services.
+ *
+ * <p>Place on a server-side class, typically the servlet. When the class is compiled with the
+ * gwtjsonrpc JAR on the annotation processor path, a {@link GeneratedTypeAdapter} is written into
+ * the package of the annotated class for each DTO reachable from the listed services, keeping
+ * generated code out of the packages shared with the GWT client. {@link
+ * GeneratedTypeAdapterFactory} finds the adapters at runtime.
+ *
+ * <p>Generated adapters select and name fields with the Gson instance they are created for, so
+ * they write the same JSON as Gson's reflective adapter. A DTO the generated code cannot match,
+ * such as one whose Gson configuration serializes a field the adapter does not know, is left to
+ * reflection.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateTypeAdapters {
+  /** @return services whose parameter and result types get adapters. */
+  Class<? extends RemoteJsonService>[] value();
+}
@@ -0,0 +1,371 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.internal.Excluder;
+import com.google.gson.internal.bind.JsonTreeReader;
+import com.google.gson.internal.bind.ReflectiveTypeAdapterFactory;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Base class of the TypeAdapters generated for DTOs by {@code
+ * com.google.gwtjsonrpc.processor.TypeAdapterProcessor}.
+ *
+ * <p>Generated subclasses read and write fields directly, or through method handles resolved once
+ * when the class is initialized if the field is not accessible from the generated code. Property
+ * names and exclusions come from the Gson instance, see {@link Properties}.
+ *
+ * @param <T> the DTO type.
+ */
+public abstract class GeneratedTypeAdapter<T> extends TypeAdapter<T> {
+  protected final Gson gson;
+
+  /** Generated properties as the Gson instance names them; null if not generated. */
+  protected final Properties properties;
+
+  protected GeneratedTypeAdapter(final Gson gson) {
+    this(gson, null);
+  }
+
+  protected GeneratedTypeAdapter(final Gson gson, final Properties properties) {
+    this.gson = gson;
+    this.properties = properties;
+  }
+
+  /**
+   * Names and exclusions of the generated properties, as Gson's reflective adapter sees them.
+   *
+   * <p>Each field is named by its {@link SerializedName}, or by the Gson instance's field naming
+   * strategy, and skipped in the directions the Gson instance's exclusion rules skip it.
+   */
+  protected static final class Properties {
+    /** JSON name each property is written with. */
+    public final String[] names;
+
+    /** Whether each property is written. */
+    public final boolean[] serialized;
+
+    private final Map<String, Integer> read = new HashMap<>();
+    private boolean matchesReflection = true;
+
+    private Properties(final int n) {
+      names = new String[n];
+      serialized = new boolean[n];
+    }
+
+    /** @return index of the property read from a JSON name; -1 if it is not read. */
+    public int indexOf(final String name) {
+      final Integer i = read.get(name);
+      return i != null ? i : -1;
+    }
+  }
+
+  /**
+   * Resolve the generated properties of a DTO for a Gson instance.
+   *
+   * @param gson the Gson instance whose naming and exclusion rules apply.
+   * @param owner the DTO class.
+   * @param fields binary name of the declaring class and name of each generated field, in pairs.
+   */
+  protected static Properties properties(
+      final Gson gson, final Class<?> owner, final String... fields) {
+    final Excluder ex = gson.excluder();
+    final Properties p = new Properties(fields.length / 2);
+    final Set<Field> known = new HashSet<>();
+    final Set<String> names = new HashSet<>();
+    for (int i = 0; i < p.names.length; i++) {
+      final Field f = findField(owner, fields[2 * i], fields[2 * i + 1]);
+      known.add(f);
+      final boolean serialize = isIncluded(ex, f, true);
+      final boolean deserialize = isIncluded(ex, f, false);
+      final String[] n = names(gson, f);
+      p.names[i] = n[0];
+      p.serialized[i] = serialize;
+      if (!serialize && !deserialize) {
+        continue;
+      }
+      if (f.isAnnotationPresent(JsonAdapter.class)) {
+        p.matchesReflection = false;
+      }
+      for (final String name : n) {
+        if (!names.add(name)) {
+          // Gson refuses the class; let it say so.
+          p.matchesReflection = false;
+        }
+        if (deserialize) {
+          p.read.put(name, i);
+        }
+      }
+    }
+
+    // A field Gson would bind but the generated code does not know of,
+    // such as a transient field the configuration includes, needs
+    // reflection.
+    //
+    for (Class<?> c = owner; c != null && c != Object.class; c = c.getSuperclass()) {
+      for (final Field f : c.getDeclaredFields()) {
+        if (!known.contains(f) && (isIncluded(ex, f, true) || isIncluded(ex, f, false))) {
+          p.matchesReflection = false;
+        }
+      }
+    }
+    return p;
+  }
+
+  static boolean isIncluded(final Excluder ex, final Field f, final boolean serialize) {
+    return !ex.excludeClass(f.getType(), serialize) && !ex.excludeField(f, serialize);
+  }
+
+  private static String[] names(final Gson gson, final Field f) {
+    final SerializedName a = f.getAnnotation(SerializedName.class);
+    if (a == null) {
+      return new String[] {gson.fieldNamingStrategy().translateName(f)};
+    }
+    final String[] r = Arrays.copyOf(new String[] {a.value()}, 1 + a.alternate().length);
+    System.arraycopy(a.alternate(), 0, r, 1, a.alternate().length);
+    return r;
+  }
+
+  /** @return true if this adapter writes and reads what Gson's reflective adapter would. */
+  final boolean matchesReflection() {
+    return properties == null || properties.matchesReflection;
+  }
+
+  @Override
+  public void write(final JsonWriter out, final T value) throws IOException {
+    if (value == null) {
+      out.nullValue();
+      return;
+    }
+    out.beginObject();
+    writeFields(out, value);
+    out.endObject();
+  }
+
+  @Override
+  public T read(final JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    in.beginObject();
+    final T dst = readFields(in);
+    in.endObject();
+    return dst;
+  }
+
+  /**
+   * Read the remaining properties of an object into a new instance.
+   *
+   * @param in the reader, positioned inside an object; left before its closing brace.
+   * @return the new instance.
+   * @throws IOException the reader failed.
+   */
+  public T readFields(final JsonReader in) throws IOException {
+    return readFields(null, in);
+  }
+
+  /**
+   * Read properties already consumed from an object, then its remaining properties.
+   *
+   * @param ahead properties read ahead of the reader, such as those preceding a type property;
+   *     null if there are none.
+   * @param in the reader, positioned inside the same object; left before its closing brace.
+   * @return the new instance.
+   * @throws IOException the reader failed.
+   */
+  T readFields(final JsonObject ahead, final JsonReader in) throws IOException {
+    final T dst = newInstance();
+    if (ahead != null) {
+      for (final Map.Entry<String, JsonElement> p : ahead.entrySet()) {
+        readField(new JsonTreeReader(p.getValue()), p.getKey(), dst);
+      }
+    }
+    while (in.hasNext()) {
+      if (!readField(in, in.nextName(), dst)) {
+        in.skipValue();
+      }
+    }
+    return dst;
+  }
+
+  /**
+   * Write the properties of an object, without the enclosing braces.
+   *
+   * @param out the writer, positioned inside an object.
+   * @param value the object to write; never null.
+   * @throws IOException the writer failed.
+   */
+  public abstract void writeFields(JsonWriter out, T value) throws IOException;
+
+  /** @return a new instance to read properties into. */
+  protected abstract T newInstance();
+
+  /**
+   * Read the value of one property.
+   *
+   * @param in the reader, positioned at the property value.
+   * @param name the property name.
+   * @param dst the object being read.
+   * @return true if the value was consumed; false if the property is unknown.
+   * @throws IOException the reader failed.
+   */
+  protected abstract boolean readField(JsonReader in, String name, T dst) throws IOException;
+
+  /**
+   * Select the adapter to write a field value with.
+   *
+   * <p>Follows Gson's own rule: a value whose class differs from the declared type is written by
+   * the adapter of its runtime class, unless that adapter is reflective and the declared one is
+   * not.
+   */
+  @SuppressWarnings("unchecked")
+  protected final <F> TypeAdapter<F> runtimeAdapter(
+      final TypeAdapter<F> declared, final Class<?> declaredType, final F value) {
+    if (value.getClass() == declaredType) {
+      return declared;
+    }
+    final TypeAdapter<F> runtime = (TypeAdapter<F>) gson.getAdapter(value.getClass());
+    if (runtime instanceof ReflectiveTypeAdapterFactory.Adapter
+        && !(declared instanceof ReflectiveTypeAdapterFactory.Adapter)) {
+      return declared;
+    }
+    return runtime;
+  }
+
+  /** Consume a JSON null; returns true if there was one. */
+  protected static boolean nextNull(final JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return true;
+    }
+    return false;
+  }
+
+  /** Read a string the way Gson's own String adapter does. */
+  protected static String nextString(final JsonReader in) throws IOException {
+    final JsonToken t = in.peek();
+    if (t == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    if (t == JsonToken.BOOLEAN) {
+      return Boolean.toString(in.nextBoolean());
+    }
+    return in.nextString();
+  }
+
+  /** Read a char, which is sent as a one character string. */
+  protected static char nextChar(final JsonReader in) throws IOException {
+    final String s = in.nextString();
+    if (s.length() != 1) {
+      throw new JsonSyntaxException("Expecting character, got: " + s);
+    }
+    return s.charAt(0);
+  }
+
+  /** Write a double, refusing NaN and infinities like Gson's default configuration. */
+  protected static void writeDouble(final JsonWriter out, final double value)
+      throws IOException {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      throw new IllegalArgumentException(
+          value + " is not a valid double value as per JSON specification.");
+    }
+    out.value(value);
+  }
+
+  /** Write a float with its own shortest representation, not that of the widened double. */
+  protected static void writeFloat(final JsonWriter out, final float value) throws IOException {
+    if (Float.isNaN(value) || Float.isInfinite(value)) {
+      throw new IllegalArgumentException(
+          value + " is not a valid double value as per JSON specification.");
+    }
+    out.value(Float.valueOf(value));
+  }
+
+  /**
+   * Resolve a getter for a field the generated code cannot access directly.
+   *
+   * @param owner the DTO class; the handle accepts instances of this type.
+   * @param declaringClass binary name of the class declaring the field, owner or a superclass.
+   * @param name the field name.
+   */
+  protected static MethodHandle getter(
+      final Class<?> owner, final String declaringClass, final String name) {
+    final Field f = findField(owner, declaringClass, name);
+    try {
+      final MethodHandle h = MethodHandles.lookup().unreflectGetter(f);
+      return h.asType(h.type().changeParameterType(0, owner));
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Cannot access " + f, e);
+    }
+  }
+
+  /** Resolve a setter for a field the generated code cannot access directly. */
+  protected static MethodHandle setter(
+      final Class<?> owner, final String declaringClass, final String name) {
+    final Field f = findField(owner, declaringClass, name);
+    try {
+      final MethodHandle h = MethodHandles.lookup().unreflectSetter(f);
+      return h.asType(h.type().changeParameterType(0, owner));
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Cannot access " + f, e);
+    }
+  }
+
+  /** Rethrow an exception raised through a method handle. */
+  protected static RuntimeException rethrow(final Throwable t) {
+    if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    }
+    if (t instanceof Error) {
+      throw (Error) t;
+    }
+    throw new IllegalStateException(t);
+  }
+
+  private static Field findField(
+      final Class<?> owner, final String declaringClass, final String name) {
+    for (Class<?> c = owner; c != null; c = c.getSuperclass()) {
+      if (c.getName().equals(declaringClass)) {
+        try {
+          final Field f = c.getDeclaredField(name);
+          f.setAccessible(true);
+          return f;
+        } catch (NoSuchFieldException e) {
+          break;
+        }
+      }
+    }
+    throw new IllegalStateException("No field " + declaringClass + "." + name);
+  }
+}
@@ -0,0 +1,126 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.reflect.TypeToken;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Supplies the TypeAdapters generated at compile time for DTOs.
+ *
+ * <p>Adapters are generated into the package of the class annotated with {@link
+ * GenerateTypeAdapters}; the adapter of a class <code>a.b.Outer.Inner</code> generated for <code>
+ * c.d</code> is named <code>c.d.a_b_Outer_Inner_GsonTypeAdapter</code>, and is registered under
+ * <code>META-INF/gwtjsonrpc/adapters/a.b.Outer$Inner</code>. Classes without one, and those whose
+ * Gson configuration the adapter cannot follow, fall through to the next factory, normally Gson's
+ * reflective one. Lookups are cached per class, so the class loader is consulted only once.
+ */
+public final class GeneratedTypeAdapterFactory implements TypeAdapterFactory {
+  /** Suffix appended to the DTO class name to name its adapter. */
+  public static final String SUFFIX = "_GsonTypeAdapter";
+
+  /** Resource directory naming the adapter of each DTO. */
+  public static final String REGISTRY = "META-INF/gwtjsonrpc/adapters/";
+
+  private static final ClassValue<Optional<Constructor<?>>> adapters =
+      new ClassValue<Optional<Constructor<?>>>() {
+        @Override
+        protected Optional<Constructor<?>> computeValue(final Class<?> type) {
+          return Optional.ofNullable(findAdapter(type));
+        }
+      };
+
+  /** @return the name of the adapter generated into a package for a class. */
+  public static String adapterName(final String pkg, final String binaryName) {
+    final String simple = binaryName.replace('.', '_').replace('$', '_') + SUFFIX;
+    return pkg.isEmpty() ? simple : pkg + "." + simple;
+  }
+
+  /** @return the resource naming the adapter of a class. */
+  public static String registryName(final String binaryName) {
+    return REGISTRY + binaryName;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T> TypeAdapter<T> create(final Gson gson, final TypeToken<T> type) {
+    if (!(type.getType() instanceof Class)) {
+      // Generic DTOs are left to reflection.
+      //
+      return null;
+    }
+    final Optional<Constructor<?>> c = adapters.get(type.getRawType());
+    if (!c.isPresent()) {
+      return null;
+    }
+    try {
+      final GeneratedTypeAdapter<T> a = (GeneratedTypeAdapter<T>) c.get().newInstance(gson);
+      return a.matchesReflection() ? a : null;
+    } catch (InvocationTargetException e) {
+      throw GeneratedTypeAdapter.rethrow(e.getCause());
+    } catch (InstantiationException | IllegalAccessException e) {
+      throw new IllegalStateException("Cannot create " + c.get().getName(), e);
+    }
+  }
+
+  private static Constructor<?> findAdapter(final Class<?> type) {
+    if (type.isPrimitive()
+        || type.isArray()
+        || type.isInterface()
+        || type.getClassLoader() == null
+        || type.isAnnotationPresent(JsonAdapter.class)) {
+      return null;
+    }
+    final String name = adapterOf(type);
+    if (name == null) {
+      return null;
+    }
+    try {
+      final Class<?> a = Class.forName(name, false, type.getClassLoader());
+      if (!GeneratedTypeAdapter.class.isAssignableFrom(a)) {
+        return null;
+      }
+      return a.getConstructor(Gson.class);
+    } catch (ClassNotFoundException | NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  private static String adapterOf(final Class<?> type) {
+    final URL u = type.getClassLoader().getResource(registryName(type.getName()));
+    if (u == null) {
+      return null;
+    }
+    try (InputStream in = u.openStream();
+        BufferedReader r =
+            new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      final String name = r.readLine();
+      return name != null && !name.trim().isEmpty() ? name.trim() : null;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,286 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map from <code>int</code> keys, stored unboxed in an open addressing table with linear probing.
+ *
+ * <p>Each entry takes an <code>int</code> and a reference instead of a HashMap node and a boxed
+ * key. Fields annotated with {@link com.google.gwtjsonrpc.common.PrimitiveKeyMap} are read into
+ * this class. Iteration order is unspecified, null values are permitted, and iterators do not
+ * support removal.
+ *
+ * @param <V> type of the values.
+ */
+public final class IntKeyMap<V> extends AbstractMap<Integer, V> {
+  private static final int MIN_CAPACITY = 8;
+
+  /** Slot keys; 0 marks a free slot, the key 0 lives in {@link #zeroValue}. */
+  private int[] keys;
+
+  private Object[] values;
+  private boolean hasZero;
+  private Object zeroValue;
+  private int size;
+  private int mask;
+  private int limit;
+  private Set<Map.Entry<Integer, V>> entrySet;
+
+  public IntKeyMap() {
+    this(0);
+  }
+
+  /** @param expected number of entries the map holds without growing. */
+  public IntKeyMap(final int expected) {
+    allocate(capacityFor(expected));
+  }
+
+  private static int capacityFor(final int expected) {
+    int c = MIN_CAPACITY;
+    while (c * 3 / 4 < expected) {
+      c <<= 1;
+    }
+    return c;
+  }
+
+  private void allocate(final int capacity) {
+    keys = new int[capacity];
+    values = new Object[capacity];
+    mask = capacity - 1;
+    limit = capacity * 3 / 4;
+  }
+
+  private static int hash(final int k) {
+    final int h = k * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /** @return the slot holding the key, or -1. The key must not be 0. */
+  private int find(final int k) {
+    for (int i = hash(k) & mask; ; i = (i + 1) & mask) {
+      final int c = keys[i];
+      if (c == k) {
+        return i;
+      } else if (c == 0) {
+        return -1;
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  public boolean containsKey(final int k) {
+    return k == 0 ? hasZero : find(k) >= 0;
+  }
+
+  @Override
+  public boolean containsKey(final Object k) {
+    return k instanceof Integer && containsKey(((Integer) k).intValue());
+  }
+
+  @SuppressWarnings("unchecked")
+  public V get(final int k) {
+    if (k == 0) {
+      return (V) zeroValue;
+    }
+    final int i = find(k);
+    return i >= 0 ? (V) values[i] : null;
+  }
+
+  @Override
+  public V get(final Object k) {
+    return k instanceof Integer ? get(((Integer) k).intValue()) : null;
+  }
+
+  @SuppressWarnings("unchecked")
+  public V put(final int k, final V v) {
+    if (k == 0) {
+      final V old = (V) zeroValue;
+      if (!hasZero) {
+        hasZero = true;
+        size++;
+      }
+      zeroValue = v;
+      return old;
+    }
+    int i = hash(k) & mask;
+    for (; keys[i] != 0; i = (i + 1) & mask) {
+      if (keys[i] == k) {
+        final V old = (V) values[i];
+        values[i] = v;
+        return old;
+      }
+    }
+    keys[i] = k;
+    values[i] = v;
+    if (++size > limit) {
+      rehash(keys.length << 1);
+    }
+    return null;
+  }
+
+  @Override
+  public V put(final Integer k, final V v) {
+    return put(k.intValue(), v);
+  }
+
+  @SuppressWarnings("unchecked")
+  public V remove(final int k) {
+    if (k == 0) {
+      final V old = (V) zeroValue;
+      if (hasZero) {
+        hasZero = false;
+        zeroValue = null;
+        size--;
+      }
+      return old;
+    }
+    int i = find(k);
+    if (i < 0) {
+      return null;
+    }
+    final V old = (V) values[i];
+    size--;
+
+    // shift back entries whose probe sequence passes the freed slot
+    for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+      final int home = hash(keys[j]) & mask;
+      if (i <= j ? (home <= i || j < home) : (home <= i && j < home)) {
+        keys[i] = keys[j];
+        values[i] = values[j];
+        i = j;
+      }
+    }
+    keys[i] = 0;
+    values[i] = null;
+    return old;
+  }
+
+  @Override
+  public V remove(final Object k) {
+    return k instanceof Integer ? remove(((Integer) k).intValue()) : null;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(keys, 0);
+    Arrays.fill(values, null);
+    hasZero = false;
+    zeroValue = null;
+    size = 0;
+  }
+
+  private void rehash(final int capacity) {
+    final int[] oldKeys = keys;
+    final Object[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldKeys.length; i++) {
+      final int k = oldKeys[i];
+      if (k != 0) {
+        int j = hash(k) & mask;
+        while (keys[j] != 0) {
+          j = (j + 1) & mask;
+        }
+        keys[j] = k;
+        values[j] = oldValues[i];
+      }
+    }
+  }
+
+  /**
+   * @return the first occupied slot after <code>slot</code>, or -1; start with -1. The key 0 is in
+   *     the slot past the end of the table.
+   */
+  int nextSlot(int slot) {
+    while (++slot < keys.length) {
+      if (keys[slot] != 0) {
+        return slot;
+      }
+    }
+    return slot == keys.length && hasZero ? slot : -1;
+  }
+
+  int keyAt(final int slot) {
+    return slot == keys.length ? 0 : keys[slot];
+  }
+
+  @SuppressWarnings("unchecked")
+  V valueAt(final int slot) {
+    return (V) (slot == keys.length ? zeroValue : values[slot]);
+  }
+
+  private void setValueAt(final int slot, final V v) {
+    if (slot == keys.length) {
+      zeroValue = v;
+    } else {
+      values[slot] = v;
+    }
+  }
+
+  @Override
+  public Set<Map.Entry<Integer, V>> entrySet() {
+    if (entrySet == null) {
+      entrySet =
+          new AbstractSet<Map.Entry<Integer, V>>() {
+            @Override
+            public int size() {
+              return size;
+            }
+
+            @Override
+            public Iterator<Map.Entry<Integer, V>> iterator() {
+              return new Iterator<Map.Entry<Integer, V>>() {
+                private int next = nextSlot(-1);
+
+                @Override
+                public boolean hasNext() {
+                  return next >= 0;
+                }
+
+                @Override
+                public Map.Entry<Integer, V> next() {
+                  if (next < 0) {
+                    throw new NoSuchElementException();
+                  }
+                  final int slot = next;
+                  next = nextSlot(slot);
+                  return new SimpleEntry<Integer, V>(keyAt(slot), valueAt(slot)) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    public V setValue(final V v) {
+                      setValueAt(slot, v);
+                      return super.setValue(v);
+                    }
+                  };
+                }
+              };
+            }
+          };
+    }
+    return entrySet;
+  }
+}
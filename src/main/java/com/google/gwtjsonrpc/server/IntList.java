@@ -0,0 +1,111 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A list of Integers stored as an <code>int[]</code>, without a boxed Integer per element.
+ *
+ * <p>Read by {@link PrimitiveArrayTypeAdapterFactory} for <code>List&lt;Integer&gt;</code> values
+ * when compact lists are enabled. Null elements are not permitted.
+ */
+public final class IntList extends AbstractList<Integer> implements RandomAccess {
+  private int[] elements;
+  private int size;
+
+  public IntList() {
+    this(16);
+  }
+
+  /** @param capacity number of elements the list holds without growing. */
+  public IntList(final int capacity) {
+    elements = new int[capacity];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /** @return the element at an index, unboxed. */
+  public int getInt(final int index) {
+    check(index, size);
+    return elements[index];
+  }
+
+  /** Append an element without boxing it. */
+  public void addInt(final int v) {
+    if (size == elements.length) {
+      elements = Arrays.copyOf(elements, Math.max(16, size * 2));
+    }
+    elements[size++] = v;
+  }
+
+  /** @return a copy of the elements. */
+  public int[] toIntArray() {
+    return Arrays.copyOf(elements, size);
+  }
+
+  @Override
+  public Integer get(final int index) {
+    return getInt(index);
+  }
+
+  @Override
+  public Integer set(final int index, final Integer v) {
+    check(index, size);
+    final int old = elements[index];
+    elements[index] = v;
+    return old;
+  }
+
+  @Override
+  public void add(final int index, final Integer v) {
+    check(index, size + 1);
+    final int e = v;
+    if (size == elements.length) {
+      elements = Arrays.copyOf(elements, Math.max(16, size * 2));
+    }
+    System.arraycopy(elements, index, elements, index + 1, size - index);
+    elements[index] = e;
+    size++;
+    modCount++;
+  }
+
+  @Override
+  public Integer remove(final int index) {
+    check(index, size);
+    final int old = elements[index];
+    System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+    size--;
+    modCount++;
+    return old;
+  }
+
+  @Override
+  public void clear() {
+    size = 0;
+    modCount++;
+  }
+
+  private static void check(final int index, final int limit) {
+    if (index < 0 || index >= limit) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + limit);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import com.google.gson.FieldNamingStrategy;
+
+/** JSON property names of DTO fields, as chosen by the GWT client generator. */
+public final class JsonFieldNames {
+  /**
+   * Names fields with {@link #prettyName(String)}, for services that set it on their GsonBuilder so
+   * the server writes what the client reads.
+   */
+  public static final FieldNamingStrategy CLIENT_NAMES = f -> prettyName(f.getName());
+
+  /**
+   * Get the JSON property name of a field.
+   *
+   * <p>Fields named with the "my" prefix, such as <code>myName</code>, are written without it, as
+   * <code>name</code>. All other names are used as-is.
+   *
+   * @param fieldName the Java field name.
+   * @return the property name used on the wire.
+   */
+  public static String prettyName(final String fieldName) {
+    if (fieldName.length() < 3
+        || !fieldName.startsWith("my")
+        || fieldName.charAt(2) < 'A'
+        || 'Z' < fieldName.charAt(2)) {
+      return fieldName;
+    }
+    final char c = fieldName.charAt(2);
+    return fieldName.replace("my" + c, String.valueOf(Character.toLowerCase(c)));
+  }
+
+  private JsonFieldNames() {}
+}
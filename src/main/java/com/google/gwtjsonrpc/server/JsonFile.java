@@ -0,0 +1,53 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import java.io.File;
+
+/**
+ * A result whose JSON encoding is already stored in a file.
+ *
+ * <p>Services returning large pre-generated documents, such as exports or cached reports, may
+ * complete the current call with a <code>JsonFile</code> in place of a value of the declared result
+ * type:
+ *
+ * <pre>
+ * JsonServlet.getCurrentCall().onSuccess(new JsonFile(report));
+ * </pre>
+ *
+ * <p>The servlet copies the file into the response without parsing or re-encoding it, so it must
+ * hold a single UTF-8 JSON value in the form the client decodes for the declared result type. If
+ * {@link JsonServlet#sendGzipFiles()} is enabled and a sibling file with a <code>.gz</code> suffix
+ * exists and is not older than the file, it is sent instead to clients accepting gzip.
+ */
+public final class JsonFile {
+  private final File file;
+
+  /** @param file file holding the JSON value of the result. */
+  public JsonFile(final File file) {
+    this.file = file;
+  }
+
+  /** @return file holding the JSON value of the result. */
+  public File getFile() {
+    return file;
+  }
+
+  /** @return gzip compressed copy of the file; null if there is none or it is out of date. */
+  File getGzipFile() {
+    final File gz = new File(file.getPath() + ".gz");
+    return gz.isFile() && gz.lastModified() >= file.lastModified() ? gz : null;
+  }
+}
@@ -0,0 +1,162 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.internal.Streams;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gwtjsonrpc.common.JsonOverlay;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Reads and writes {@link JsonOverlay} views as the class they read.
+ *
+ * <p>A view parameter is read as an instance of the class named by {@link JsonOverlay#value()},
+ * which must implement the view. A view that names no class is read like the client reads it: as
+ * a proxy answering each method from the property named after it, converted on every call. Views
+ * are written as their runtime class, or as the JSON a proxy was read from.
+ */
+public final class JsonOverlayTypeAdapterFactory implements TypeAdapterFactory {
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Override
+  public <T> TypeAdapter<T> create(final Gson gson, final TypeToken<T> type) {
+    final Class<? super T> raw = type.getRawType();
+    if (!raw.isInterface()) {
+      return null;
+    }
+    final JsonOverlay overlay = raw.getAnnotation(JsonOverlay.class);
+    if (overlay == null) {
+      return null;
+    }
+    if (overlay.value() == Object.class) {
+      return (TypeAdapter<T>) new ViewAdapter(gson, raw);
+    }
+    if (!raw.isAssignableFrom(overlay.value())) {
+      throw new IllegalArgumentException(
+          overlay.value().getName() + " does not implement JsonOverlay " + raw.getName());
+    }
+    final TypeAdapter<T> dto = (TypeAdapter<T>) gson.getAdapter(overlay.value());
+    return new TypeAdapter<T>() {
+      @Override
+      public void write(final JsonWriter out, final T value) throws IOException {
+        if (value == null) {
+          out.nullValue();
+        } else {
+          ((TypeAdapter) gson.getAdapter(value.getClass())).write(out, value);
+        }
+      }
+
+      @Override
+      public T read(final JsonReader in) throws IOException {
+        return dto.read(in);
+      }
+    };
+  }
+
+  /** Reads a view that names no class as a proxy over the JSON object. */
+  private static final class ViewAdapter extends TypeAdapter<Object> {
+    private final Gson gson;
+    private final Class<?> view;
+
+    ViewAdapter(final Gson gson, final Class<?> view) {
+      this.gson = gson;
+      this.view = view;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Override
+    public void write(final JsonWriter out, final Object value) throws IOException {
+      if (value == null) {
+        out.nullValue();
+      } else if (Proxy.isProxyClass(value.getClass())
+          && Proxy.getInvocationHandler(value) instanceof View) {
+        Streams.write(((View) Proxy.getInvocationHandler(value)).json, out);
+      } else {
+        ((TypeAdapter) gson.getAdapter(value.getClass())).write(out, value);
+      }
+    }
+
+    @Override
+    public Object read(final JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+      final JsonElement json = Streams.parse(in);
+      if (!json.isJsonObject()) {
+        throw new JsonParseException("Expected an object for JsonOverlay " + view.getName());
+      }
+      return Proxy.newProxyInstance(
+          view.getClassLoader(), new Class<?>[] {view}, new View(gson, json.getAsJsonObject()));
+    }
+  }
+
+  private static final class View implements InvocationHandler {
+    final Gson gson;
+    final JsonObject json;
+
+    View(final Gson gson, final JsonObject json) {
+      this.gson = gson;
+      this.json = json;
+    }
+
+    @Override
+    public Object invoke(final Object proxy, final Method m, final Object[] args) {
+      if (m.getDeclaringClass() == Object.class) {
+        switch (m.getName()) {
+          case "equals":
+            return proxy == args[0];
+          case "hashCode":
+            return System.identityHashCode(proxy);
+          default:
+            return json.toString();
+        }
+      }
+      if (args != null && args.length > 0) {
+        throw new UnsupportedOperationException("JsonOverlay method with parameters: " + m);
+      }
+      final JsonElement v = json.get(propertyName(m.getName()));
+      if (v == null || v.isJsonNull()) {
+        final Class<?> r = m.getReturnType();
+        return r.isPrimitive() && r != void.class ? Array.get(Array.newInstance(r, 1), 0) : null;
+      }
+      return gson.fromJson(v, m.getGenericReturnType());
+    }
+  }
+
+  /** @return the property a view method reads: its name without a get or is prefix. */
+  static String propertyName(final String method) {
+    if (method.length() > 3
+        && method.startsWith("get")
+        && Character.isUpperCase(method.charAt(3))) {
+      return Character.toLowerCase(method.charAt(3)) + method.substring(4);
+    }
+    if (method.length() > 2 && method.startsWith("is") && Character.isUpperCase(method.charAt(2))) {
+      return Character.toLowerCase(method.charAt(2)) + method.substring(3);
+    }
+    return method;
+  }
+}
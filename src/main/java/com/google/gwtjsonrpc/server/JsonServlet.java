@@ -15,39 +15,65 @@
 package com.google.gwtjsonrpc.server;
 
 import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+import static javax.servlet.http.HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
 import static javax.servlet.http.HttpServletResponse.SC_NOT_FOUND;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.InstanceCreator;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
 import com.google.gson.internal.ConstructorConstructor;
+import com.google.gson.internal.bind.TypeAdapters;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.google.gwtjsonrpc.common.AsyncCallback;
+import com.google.gwtjsonrpc.common.BulkUpload;
+import com.google.gwtjsonrpc.common.CompactEncoding;
+import com.google.gwtjsonrpc.common.EpochTimestamps;
 import com.google.gwtjsonrpc.common.JsonConstants;
 import com.google.gwtjsonrpc.common.RemoteJsonService;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.regex.Pattern;
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -71,6 +97,20 @@ import org.apache.commons.codec.binary.Base64;
  *
  * <p>When supported by the browser/client, the "gzip" encoding is used to compress the resulting
  * JSON, reducing transfer time for the response data.
+ * Requests may likewise be sent chunked, and compressed with the "gzip" or "deflate" encoding.
+ *
+ * <p>If {@link #createServiceExecutor()} supplies an executor the service method is invoked on one
+ * of its threads, and the container thread is released through asynchronous request processing.
+ *
+ * <p>Services may resolve their type adapters and replay synthetic calls during {@link
+ * #init(ServletConfig)} to avoid slow first calls after a deploy, see {@link #warmUpCalls()}.
+ *
+ * <p>Methods annotated {@link BulkUpload} accept requests larger than {@link #maxRequestSize()}.
+ * Such a request is spooled to a temporary file and its parameters are read from a memory mapping
+ * of that file, see {@link #maxBulkUploads()}.
+ *
+ * <p>Large results already encoded on disk may be returned as a {@link JsonFile}, which is copied
+ * into the response without passing through Gson.
  */
 @SuppressWarnings("serial")
 public abstract class JsonServlet<CallType extends ActiveCall> extends HttpServlet {
@@ -89,7 +129,19 @@ public abstract class JsonServlet<CallType extends ActiveCall> extends HttpServl
     return (CallType) perThreadCall.get();
   }
 
-  /** Create a default GsonBuilder with some extra types defined. */
+  /**
+   * Create a default GsonBuilder with some extra types defined.
+   *
+   * <p>DTOs with an adapter generated by the annotation processor are read and written by that
+   * adapter instead of by reflection, as are other DTOs with {@link
+   * com.google.gwtjsonrpc.common.BinaryArray} fields by {@link BinaryArrayTypeAdapterFactory} and
+   * with {@link com.google.gwtjsonrpc.common.PrimitiveKeyMap} fields by {@link
+   * PrimitiveKeyMapTypeAdapterFactory}. {@link com.google.gwtjsonrpc.common.JsonOverlay} views are
+   * read as the class they read. Primitive arrays are read and written without boxing by {@link
+   * PrimitiveArrayTypeAdapterFactory}; services may register <code>new
+   * PrimitiveArrayTypeAdapterFactory(true)</code> in {@link #createGsonBuilder()} to also read
+   * <code>List&lt;Integer&gt;</code> and <code>List&lt;Long&gt;</code> compactly.
+   */
   public static GsonBuilder defaultGsonBuilder() {
     ConstructorConstructor constructorConstructor = new ConstructorConstructor(new HashMap<>());
     final GsonBuilder gb = new GsonBuilder()
@@ -102,7 +154,12 @@ public abstract class JsonServlet<CallType extends ActiveCall> extends HttpServl
                       }
                     })
             .setDateFormat(2, 2)
+            .registerTypeAdapterFactory(new PrimitiveArrayTypeAdapterFactory())
+            .registerTypeAdapterFactory(new BinaryArrayTypeAdapterFactory())
+            .registerTypeAdapterFactory(new PrimitiveKeyMapTypeAdapterFactory())
+            .registerTypeAdapterFactory(new GeneratedTypeAdapterFactory())
             .registerTypeAdapterFactory(new MBMapTypeAdapterFactory(constructorConstructor))
+            .registerTypeAdapterFactory(new JsonOverlayTypeAdapterFactory())
             .registerTypeAdapter(java.sql.Date.class, new JavaDateDeserializer())
             .registerTypeAdapter(Date.class, new JavaDateDeserializer())
             .registerTypeAdapter(java.sql.Timestamp.class, new SqlTimestampDeserializer());
@@ -112,8 +169,23 @@ public abstract class JsonServlet<CallType extends ActiveCall> extends HttpServl
   static final Object[] NO_PARAMS = {};
   private static final String ENC = "UTF-8";
 
+  /** Stands in for a {@link JsonFile} result while the response around it is formatted. */
+  private static final String FILE_RESULT = "\u0000JsonFile\u0000";
+
+  private static final String FILE_RESULT_JSON = "\"\\u0000JsonFile\\u0000\"";
+
   private Map<String, MethodHandle> myMethods;
   private SignedToken xsrf;
+  private Executor executor;
+  private PolymorphicTypeAdapterFactory polymorphicTypes;
+  private CompactTypeAdapterFactory compactTypes;
+  private boolean epochTimestamps;
+  private Gson gson;
+  private boolean fastRejections;
+  private BufferPool responseBuffers;
+  private int bulkUploadSize = -1;
+  private Semaphore bulkUploads;
+  private final AtomicLongArray rejected = new AtomicLongArray(RejectReason.values().length);
 
   @Override
   public void init(final ServletConfig config) throws ServletException {
@@ -136,6 +208,49 @@ public abstract class JsonServlet<CallType extends ActiveCall> extends HttpServl
     } catch (XsrfException e) {
       throw new ServletException("Cannot initialize XSRF", e);
     }
+
+    final List<Type> types = new ArrayList<>();
+    for (final MethodHandle m : myMethods.values()) {
+      types.addAll(Arrays.asList(m.getParamTypes()));
+      types.add(m.getResultType());
+    }
+    types.addAll(polymorphicSubtypes());
+    try {
+      polymorphicTypes = PolymorphicTypeAdapterFactory.create(types, numericTypeIds());
+    } catch (IllegalArgumentException e) {
+      throw new ServletException("Cannot initialize type table", e);
+    }
+
+    if (findInterface(impl.getClass()).isAnnotationPresent(CompactEncoding.class)) {
+      compactTypes = new CompactTypeAdapterFactory();
+    }
+    epochTimestamps = findInterface(impl.getClass()).isAnnotationPresent(EpochTimestamps.class);
+
+    for (final MethodHandle m : myMethods.values()) {
+      bulkUploadSize = Math.max(bulkUploadSize, m.getBulkUploadSize());
+    }
+    if (bulkUploadSize >= 0) {
+      bulkUploads = new Semaphore(maxBulkUploads());
+    }
+
+    executor = createServiceExecutor();
+    responseBuffers = new BufferPool(responseBufferPoolSize());
+    fastRejections = checkRejections();
+
+    final int calls = warmUpCalls();
+    if (warmUpAdapters() || calls > 0) {
+      gson = createGsonBuilder().create();
+      warmUp(calls);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    if (executor instanceof ExecutorService) {
+      ((ExecutorService) executor).shutdown();
+    }
+    executor = null;
+    super.destroy();
   }
 
   /**
@@ -163,9 +278,134 @@ public abstract class JsonServlet<CallType extends ActiveCall> extends HttpServl
     return new SignedToken(4 * 60 * 60 /* seconds */);
   }
 
-  /** Create a GsonBuilder to parse a request or return a response. */
+  /**
+   * Create the executor that invokes service methods.
+   *
+   * <p>By default this method returns null and each call is invoked on the container thread that
+   * received it. Services whose methods block on I/O may return {@link
+   * ServiceExecutors#newVirtualThreadPerTaskExecutor()} to run each call on its own virtual thread
+   * instead; on JVMs without virtual threads that method returns null, keeping the default.
+   *
+   * <p>{@link #preInvoke(ActiveCall)}, the service method and formatting of the response all run on
+   * the executor's thread, with {@link #getCurrentCall()} returning the call. Requests whose
+   * servlet mapping does not support asynchronous processing are still handled synchronously. If
+   * the executor is an {@link ExecutorService} it is shut down when the servlet is destroyed.
+   *
+   * @return executor for service calls; null to invoke on the container thread.
+   */
+  protected Executor createServiceExecutor() {
+    return null;
+  }
+
+  /**
+   * Get the number of calls rejected before their service method was invoked.
+   *
+   * <p>Malformed requests, unknown methods and invalid XSRF tokens are answered from preallocated
+   * failures, so watching these counts is cheap even under abusive traffic.
+   *
+   * @param reason why the calls were rejected.
+   * @return calls rejected for <code>reason</code> since the servlet was created.
+   */
+  public long getRejectedCount(final RejectReason reason) {
+    return rejected.get(reason.ordinal());
+  }
+
+  /**
+   * Get the number of bytes kept in released response buffers for reuse.
+   *
+   * <p>Responses are formatted, encoded and compressed in char and byte arrays borrowed from a pool
+   * shared by all calls, so large results do not allocate fresh arrays on every call. Arrays up to
+   * 4 Mi elements are pooled, in power of two sizes; larger ones are always allocated.
+   *
+   * @return bytes to retain; 16 MB by default, 0 to keep no buffers.
+   */
+  protected long responseBufferPoolSize() {
+    return 16 * 1024 * 1024;
+  }
+
+  /** @return response buffers reused from the pool since the servlet was initialized. */
+  public long getResponseBufferHits() {
+    return responseBuffers.getHits();
+  }
+
+  /** @return response buffers allocated because the pool had none of the size needed. */
+  public long getResponseBufferMisses() {
+    return responseBuffers.getMisses();
+  }
+
+  /** @return bytes currently held by released response buffers. */
+  public long getResponseBufferRetainedBytes() {
+    return responseBuffers.getRetainedBytes();
+  }
+
+  /**
+   * Resolve the type adapters of every parameter and result type while the servlet initializes.
+   *
+   * <p>When enabled the Gson created at initialization is kept, and reads the parameters and
+   * writes the result of every call, so the first calls after a deploy do not pay for building
+   * adapters. {@link #createGsonBuilder()} must then not depend on the current call.
+   *
+   * @return true to resolve adapters ahead of time; false by default.
+   */
+  protected boolean warmUpAdapters() {
+    return false;
+  }
+
+  /**
+   * Get the number of synthetic calls to replay on each method while the servlet initializes.
+   *
+   * <p>Each synthetic call parses a request built from sample parameter values and formats a
+   * response holding a sample result, without invoking the service method. Replay stops early once
+   * the JIT compiler has been idle for a hundred rounds. Progress and duration are written to the
+   * servlet log. A positive count implies {@link #warmUpAdapters()}.
+   *
+   * @return synthetic calls per method; 0 by default.
+   */
+  protected int warmUpCalls() {
+    return 0;
+  }
+
+  /**
+   * Create a GsonBuilder to parse a request or return a response.
+   *
+   * <p>The default builder also writes and reads the concrete class of values whose declared type
+   * has subclasses, see {@link PolymorphicTypeAdapterFactory}, and uses the {@link
+   * CompactEncoding} and {@link EpochTimestamps} if the service interface asks for them. Overrides
+   * should start from <code>super.createGsonBuilder()</code> to keep this.
+   */
   protected GsonBuilder createGsonBuilder() {
-    return defaultGsonBuilder();
+    final GsonBuilder gb = defaultGsonBuilder();
+    if (epochTimestamps) {
+      gb.registerTypeAdapter(java.sql.Timestamp.class, new EpochTimestampTypeAdapter());
+      gb.registerTypeAdapter(java.sql.Date.class, new EpochDateTypeAdapter());
+    }
+    if (compactTypes != null) {
+      gb.registerTypeAdapterFactory(compactTypes);
+    }
+    if (polymorphicTypes != null) {
+      gb.registerTypeAdapterFactory(polymorphicTypes);
+    }
+    return gb;
+  }
+
+  /**
+   * Get classes to add to the type table, beyond those reachable from method signatures.
+   *
+   * <p>Subclasses only ever referenced through a base class or interface must be listed here for
+   * the server to accept them in requests, and to send their id instead of their name.
+   *
+   * @return additional classes; empty by default.
+   */
+  protected Collection<Class<?>> polymorphicSubtypes() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * @return true to identify the concrete class of polymorphic values by its numeric id rather
+   *     than by its name. Generated clients accept both forms.
+   */
+  protected boolean numericTypeIds() {
+    return false;
   }
 
   /**
@@ -206,7 +446,10 @@ public abstract class JsonServlet<CallType extends ActiveCall> extends HttpServl
     return (CallType) new ActiveCall(req, resp);
   }
 
-  /** @return maximum size of a JSON request, in bytes */
+  /**
+   * @return maximum size of a JSON request, in bytes. Compressed requests are limited both before
+   *     and after decompression.
+   */
   protected int maxRequestSize() {
     // Our default limit of 1 MB should be sufficient for nearly any
     // application. It takes a long time to format this on the client
@@ -215,6 +458,42 @@ public abstract class JsonServlet<CallType extends ActiveCall> extends HttpServl
     return 1 * 1024 * 1024;
   }
 
+  /**
+   * Get the number of {@link BulkUpload} requests read and invoked at the same time.
+   *
+   * <p>A bulk request arriving while this many others are in progress is rejected, rather than
+   * holding another large body on disk and its decoded parameters in memory.
+   *
+   * @return concurrent bulk requests allowed; 1 by default.
+   */
+  protected int maxBulkUploads() {
+    return 1;
+  }
+
+  /**
+   * Get the directory {@link BulkUpload} request bodies are spooled to.
+   *
+   * @return the servlet context's temporary directory by default; null to use the system default.
+   */
+  protected File bulkUploadDirectory() {
+    final Object dir = getServletContext().getAttribute(ServletContext.TEMPDIR);
+    return dir instanceof File ? (File) dir : null;
+  }
+
+  /**
+   * Send the <code>.gz</code> sibling of a {@link JsonFile} result to clients accepting gzip.
+   *
+   * <p>The envelope around the file is compressed apart from it, so the response body is three
+   * concatenated gzip members. RFC 1952 allows this, but some HTTP clients, likely including
+   * browsers, decode only the first member and see a truncated response. Enable this only when
+   * every client is known to read them all.
+   *
+   * @return true to send precompressed files; false by default.
+   */
+  protected boolean sendGzipFiles() {
+    return false;
+  }
+
   /**
    * Invoked just before the service method is invoked.
    *
@@ -255,27 +534,189 @@ public abstract class JsonServlet<CallType extends ActiveCall> extends HttpServl
       }
 
       perThreadCall.set(call);
-      doService(call);
-
-      if (call.internalFailure != null) {
-        // Hide internal errors from the client.
-        //
-        final String msg = "Error in " + call.method.getName();
-        getServletContext().log(msg, call.internalFailure);
-        call.onFailure(new Exception("Internal Server Error"));
+      boolean async = false;
+      try {
+        if (doService(call)) {
+          async = invokeAsync(call);
+          if (async) {
+            return;
+          }
+          invoke(call);
+        }
+        writeResult(call);
+      } finally {
+        if (!async) {
+          release(call);
+        }
+      }
+    } finally {
+      perThreadCall.set(null);
+    }
+  }
+
+  private static void release(final ActiveCall call) {
+    final BulkBody body = call.bulkBody;
+    if (body != null) {
+      call.bulkBody = null;
+      body.close();
+    }
+  }
+
+  private void invoke(final CallType call) {
+    final Object[] params;
+    try {
+      preInvoke(call);
+      if (call.isComplete()) {
+        return;
+      }
+      params = call.getParams();
+    } catch (JsonParseException err) {
+      rejected.incrementAndGet(RejectReason.MALFORMED.ordinal());
+      call.httpResponse.setStatus(SC_BAD_REQUEST);
+      call.onFailure(new Exception("Error parsing request", err));
+      return;
+    }
+    call.method.invoke(params, call);
+  }
+
+  private boolean invokeAsync(final CallType call) {
+    final Executor e = executor;
+    if (e == null || !call.httpRequest.isAsyncSupported()) {
+      return false;
+    }
+
+    // The service method decides how long the call takes, just as it
+    // does when invoked on the container thread.
+    //
+    final AsyncContext ctx = call.httpRequest.startAsync(call.httpRequest, call.httpResponse);
+    ctx.setTimeout(0);
+    final Runnable task =
+        new Runnable() {
+          @Override
+          public void run() {
+            perThreadCall.set(call);
+            try {
+              invoke(call);
+              writeResult(call);
+            } catch (IOException | RuntimeException err) {
+              // The container answers 500 when the synchronous path throws;
+              // nothing will do that for us once the request is async.
+              //
+              getServletContext().log("Error completing " + call.method.getName(), err);
+              writeInternalError(call);
+            } finally {
+              release(call);
+              perThreadCall.remove();
+              ctx.complete();
+            }
+          }
+        };
+    try {
+      e.execute(task);
+    } catch (RejectedExecutionException err) {
+      // The executor is shutting down; finish the call on this thread.
+      //
+      task.run();
+    }
+    return true;
+  }
+
+  private void writeInternalError(final CallType call) {
+    final HttpServletResponse res = call.httpResponse;
+    if (res.isCommitted()) {
+      return;
+    }
+
+    String out;
+    try {
+      call.onFailure(new Exception("Internal Server Error"));
+      out = formatResult(call);
+    } catch (IOException | RuntimeException err) {
+      out = "{\"error\":{\"name\":\"JSONRPCError\",\"code\":999,"
+          + "\"message\":\"Internal Server Error\"}}";
+    }
+    try {
+      final byte[] data = out.getBytes(ENC);
+      res.reset();
+      call.noCache();
+      res.setStatus(SC_INTERNAL_SERVER_ERROR);
+      res.setContentType("application/json; charset=utf-8");
+      res.setContentLength(data.length);
+      res.getOutputStream().write(data);
+    } catch (IOException | RuntimeException err) {
+      getServletContext().log("Cannot send error for " + call.method.getName(), err);
+    }
+  }
+
+  private void writeResult(final CallType call) throws IOException {
+    if (fastRejections && call.externalFailure instanceof RejectedCall) {
+      final byte[] out = ((RejectedCall) call.externalFailure).response(call);
+      if (out != null) {
+        RPCServletUtils.writeResponse(getServletContext(), call.httpResponse, out, false);
+        return;
       }
+    }
+
+    if (call.result instanceof JsonFile && writeFile(call, (JsonFile) call.result)) {
+      return;
+    }
+
+    if (call.internalFailure != null) {
+      // Hide internal errors from the client.
+      //
+      final String msg = "Error in " + call.method.getName();
+      getServletContext().log(msg, call.internalFailure);
+      call.onFailure(new Exception("Internal Server Error"));
+    }
 
+    final ResponseBuffer out = new ResponseBuffer(responseBuffers);
+    try {
+      formatResult(call, out);
+      final boolean gzip =
+          call.callback == null
+              && out.length() > 256
+              && RPCServletUtils.acceptsGzipEncoding(call.httpRequest);
+      RPCServletUtils.writeResponse(
+          getServletContext(), call.httpResponse, out.encode(gzip), gzip);
+    } finally {
+      out.release();
+    }
+  }
+
+  /** @return true if the file was written; false if it could not be opened. */
+  private boolean writeFile(final CallType call, final JsonFile json) throws IOException {
+    final File gz =
+        call.callback == null
+                && sendGzipFiles()
+                && RPCServletUtils.acceptsGzipEncoding(call.httpRequest)
+            ? json.getGzipFile()
+            : null;
+    final FileChannel body;
+    try {
+      body = FileChannel.open((gz != null ? gz : json.getFile()).toPath(), StandardOpenOption.READ);
+    } catch (IOException e) {
+      call.onInternalFailure(e);
+      return false;
+    }
+
+    try (FileChannel in = body) {
+      // The result is always the last member of the response, so the
+      // placeholder is found even if the client chose a devious id.
+      //
       final String out = formatResult(call);
+      final int at = out.lastIndexOf(FILE_RESULT_JSON);
+      if (at < 0) {
+        throw new IllegalStateException("No JsonFile placeholder in formatted response");
+      }
       RPCServletUtils.writeResponse(
           getServletContext(),
           call.httpResponse,
-          out,
-          call.callback == null
-              && out.length() > 256
-              && RPCServletUtils.acceptsGzipEncoding(call.httpRequest));
-    } finally {
-      perThreadCall.set(null);
+          out.substring(0, at).getBytes(ENC),
+          in,
+          out.substring(at + FILE_RESULT_JSON.length()).getBytes(ENC),
+          gz != null);
     }
+    return true;
   }
 
   private boolean acceptJSON(final CallType call) {
@@ -314,7 +755,8 @@ public abstract class JsonServlet<CallType extends ActiveCall> extends HttpServl
     return false;
   }
 
-  private void doService(final CallType call) throws IOException {
+  /** @return true if the call was accepted and the service method should be invoked. */
+  private boolean doService(final CallType call) throws IOException {
     try {
       try {
         if ("GET".equals(call.httpRequest.getMethod())) {
@@ -325,8 +767,7 @@ public abstract class JsonServlet<CallType extends ActiveCall> extends HttpServl
             // somehow managed to populate the XSRF token this is a very
             // insecure request against what must be a secure service method.
             //
-            call.onFailure(new Exception(JsonConstants.ERROR_INVALID_XSRF));
-            return;
+            return reject(call, RejectedCall.INVALID_XSRF);
           }
 
         } else if ("POST".equals(call.httpRequest.getMethod())) {
@@ -334,8 +775,7 @@ public abstract class JsonServlet<CallType extends ActiveCall> extends HttpServl
 
         } else {
           call.httpResponse.setStatus(SC_BAD_REQUEST);
-          call.onFailure(new Exception("Unsupported HTTP method"));
-          return;
+          return reject(call, RejectedCall.HTTP_METHOD);
         }
       } catch (JsonParseException err) {
         if (err.getCause() instanceof NoSuchRemoteMethodException) {
@@ -344,19 +784,21 @@ public abstract class JsonServlet<CallType extends ActiveCall> extends HttpServl
           throw (NoSuchRemoteMethodException) err.getCause();
         }
         call.httpResponse.setStatus(SC_BAD_REQUEST);
+        if (err instanceof RejectedCall.ParseError) {
+          return reject(call, ((RejectedCall.ParseError) err).rejection);
+        }
+        rejected.incrementAndGet(RejectReason.MALFORMED.ordinal());
         call.onFailure(new Exception("Error parsing request", err));
-        return;
+        return false;
       }
     } catch (NoSuchRemoteMethodException err) {
       call.httpResponse.setStatus(SC_NOT_FOUND);
-      call.onFailure(new Exception("No such service method"));
-      return;
+      return reject(call, RejectedCall.NO_SUCH_METHOD);
     }
 
     if (call.callback != null && !SAFE_CALLBACK.matcher(call.callback).matches()) {
       call.httpResponse.setStatus(SC_BAD_REQUEST);
-      call.onFailure(new Exception("Unsafe name in 'callback' property"));
-      return;
+      return reject(call, RejectedCall.UNSAFE_CALLBACK);
     }
 
     try {
@@ -365,14 +807,17 @@ public abstract class JsonServlet<CallType extends ActiveCall> extends HttpServl
       getServletContext().log("Unexpected XSRF validation error", e);
       call.xsrfValid = false;
     }
-    if (!call.method.allowCrossSiteRequest() && !call.requireXsrfValid()) {
-      return;
+    if (!call.method.allowCrossSiteRequest() && !call.isXsrfValid()) {
+      return reject(call, RejectedCall.INVALID_XSRF);
     }
 
-    preInvoke(call);
-    if (!call.isComplete()) {
-      call.method.invoke(call.params, call);
-    }
+    return true;
+  }
+
+  private boolean reject(final CallType call, final RejectedCall r) {
+    rejected.incrementAndGet(r.reason.ordinal());
+    call.onFailure(r);
+    return false;
   }
 
   private void parseGetRequest(final CallType call) {
@@ -405,7 +850,7 @@ public abstract class JsonServlet<CallType extends ActiveCall> extends HttpServl
 
     } else {
       /* JSON-RPC 1.1 */
-      final Gson gs = createGsonBuilder().create();
+      final Gson gs = gson != null ? gson : createGsonBuilder().create();
 
       call.method = lookupMethod(req.getParameter("method"));
       if (call.method == null) {
@@ -458,46 +903,43 @@ public abstract class JsonServlet<CallType extends ActiveCall> extends HttpServl
 
   private String readBody(final ActiveCall call) throws IOException {
     if (!isBodyJson(call)) {
-      throw new JsonParseException("Invalid Request Content-Type");
+      throw RejectedCall.CONTENT_TYPE.error();
     }
     if (!isBodyUTF8(call)) {
-      throw new JsonParseException("Invalid Request Character-Encoding");
+      throw RejectedCall.CHARACTER_ENCODING.error();
     }
 
     final int len = call.httpRequest.getContentLength();
-    if (len < 0) {
-      throw new JsonParseException("Invalid Request Content-Length");
-    }
     if (len == 0) {
-      throw new JsonParseException("Invalid Request POST Body Required");
+      throw RejectedCall.BODY_REQUIRED.error();
     }
-    if (len > maxRequestSize()) {
-      throw new JsonParseException("Invalid Request POST Body Too Large");
+    final int max = maxRequestSize();
+    if (len > Math.max(max, bulkUploadSize)) {
+      throw RejectedCall.BODY_TOO_LARGE.error();
     }
 
     final InputStream in = call.httpRequest.getInputStream();
     if (in == null) {
-      throw new JsonParseException("Invalid Request POST Body Required");
+      throw RejectedCall.BODY_REQUIRED.error();
     }
 
     try {
-      final byte[] body = new byte[len];
-      int off = 0;
-      while (off < len) {
-        final int n = in.read(body, off, len - off);
-        if (n <= 0) {
-          throw new JsonParseException("Invalid Request Incomplete Body");
-        }
-        off += n;
+      final InputStream body =
+          RequestBody.decode(in, call.httpRequest.getHeader("Content-Encoding"));
+      final ByteBuffer head =
+          RequestBody.read(body, body == in ? len : -1, max, bulkUploadSize > max);
+      if (head.remaining() > max) {
+        call.bulkBody = spool(head, body);
+        return null;
       }
 
       final CharsetDecoder d = Charset.forName(JsonConstants.JSON_ENC).newDecoder();
       d.onMalformedInput(CodingErrorAction.REPORT);
       d.onUnmappableCharacter(CodingErrorAction.REPORT);
       try {
-        return d.decode(ByteBuffer.wrap(body)).toString();
+        return d.decode(head).toString();
       } catch (CharacterCodingException e) {
-        throw new JsonParseException("Invalid Request Not UTF-8", e);
+        throw RejectedCall.NOT_UTF8.error();
       }
     } finally {
       in.close();
@@ -507,83 +949,358 @@ public abstract class JsonServlet<CallType extends ActiveCall> extends HttpServl
   private void parsePostRequest(final CallType call)
       throws UnsupportedEncodingException, IOException {
     try {
-      final GsonBuilder gb = createGsonBuilder();
-      gb.registerTypeAdapter(ActiveCall.class, new CallDeserializer<>(call, this));
-      gb.create().fromJson(readBody(call), ActiveCall.class);
+      final String body = readBody(call);
+      if (call.bulkBody != null) {
+        parseBulk(call);
+      } else {
+        parseBody(call, body);
+      }
     } catch (JsonParseException err) {
       call.method = null;
       call.params = null;
+      call.rawParams = null;
+      call.paramReader = null;
       throw err;
     }
   }
 
-  private String formatResult(final ActiveCall call)
-      throws UnsupportedEncodingException, IOException {
+  private BulkBody spool(final ByteBuffer head, final InputStream rest) throws IOException {
+    // Only the start of the body is in memory. The method must be named
+    // before the parameters for us to know whether it takes bulk uploads.
+    //
+    final String start =
+        new String(
+            head.array(),
+            head.arrayOffset() + head.position(),
+            Math.min(head.remaining(), 64 * 1024),
+            StandardCharsets.UTF_8);
+    final String name = RequestEnvelope.peekMethod(start);
+    final MethodHandle m = name != null ? lookupMethod(name) : null;
+    if (m == null || head.remaining() > m.getBulkUploadSize()) {
+      throw RejectedCall.BODY_TOO_LARGE.error();
+    }
+    if (!bulkUploads.tryAcquire()) {
+      throw RejectedCall.BULK_UPLOADS.error();
+    }
+    return BulkBody.spool(bulkUploadDirectory(), head, rest, m.getBulkUploadSize(), bulkUploads);
+  }
+
+  private void parseBulk(final CallType call) {
+    // Read everything but the parameters, which are decoded from a second
+    // pass over the mapping once XSRF and preInvoke have accepted the call.
+    //
+    final JsonObject fields = new JsonObject();
+    JsonToken params = null;
+    try (Reader r = call.bulkBody.reader()) {
+      final JsonReader in = new JsonReader(r);
+      in.setLenient(true);
+      in.beginObject();
+      while (in.hasNext()) {
+        final String name = in.nextName();
+        if ("params".equals(name) && params == null) {
+          params = in.peek();
+          in.skipValue();
+        } else if ("params".equals(name)) {
+          in.skipValue();
+        } else {
+          fields.add(name, TypeAdapters.JSON_ELEMENT.read(in));
+        }
+      }
+      in.endObject();
+      if (in.peek() != JsonToken.END_DOCUMENT) {
+        throw new JsonSyntaxException("JSON document was not fully consumed.");
+      }
+    } catch (CharacterCodingException e) {
+      throw RejectedCall.NOT_UTF8.error();
+    } catch (IOException | IllegalStateException | NumberFormatException e) {
+      throw new JsonSyntaxException(e);
+    }
+    new CallDeserializer<>(call, this).deserialize(fields, params);
+  }
+
+  private void parseBody(final CallType call, final String body) {
+    final RequestEnvelope envelope = RequestEnvelope.scan(body);
+    if (envelope != null) {
+      // Leave the parameters as text until the call is known to proceed.
+      //
+      new CallDeserializer<>(call, this).deserialize(envelope);
+      return;
+    }
+    if (!RequestEnvelope.isObject(body)) {
+      throw RejectedCall.EXPECTED_OBJECT.error();
+    }
+
     final GsonBuilder gb = createGsonBuilder();
-    gb.registerTypeAdapter(
-        call.getClass(),
-        new JsonSerializer<ActiveCall>() {
-          @Override
-          public JsonElement serialize(
-              final ActiveCall src, final Type typeOfSrc, final JsonSerializationContext context) {
-            if (call.callback != null) {
-              if (src.externalFailure != null) {
-                return JsonNull.INSTANCE;
-              }
-              return context.serialize(src.result);
-            }
+    gb.registerTypeAdapter(ActiveCall.class, new CallDeserializer<>(call, this));
+    gb.create().fromJson(body, ActiveCall.class);
+  }
 
-            final JsonObject r = new JsonObject();
-            if (src.versionName != null) {
-              r.add(src.versionName, src.versionValue);
-            }
-            if (src.id != null) {
-              r.add("id", src.id);
-            }
-            if (src.xsrfKeyOut != null) {
-              r.addProperty("xsrfKey", src.xsrfKeyOut);
-            }
-            if (src.externalFailure != null) {
-              final JsonObject error = new JsonObject();
-              final String aMessage = src.externalFailure.getMessage();
-              final String aCause = src.externalFailure.getCause() != null ? src.externalFailure.getCause().getMessage() : null;
-              if ("jsonrpc".equals(src.versionName)) {
-                final int code = to2_0ErrorCode(src);
-
-                error.addProperty("code", code);
-                error.addProperty("message", aMessage);
-                if (aCause != null && !aCause.isEmpty())
-                {
-                  error.addProperty("cause", aCause);
-                }
-              } else {
-                error.addProperty("name", "JSONRPCError");
-                error.addProperty("code", 999);
-                error.addProperty("message", aMessage);
-                if (aCause != null && !aCause.isEmpty())
-                {
-                  error.addProperty("cause", aCause);
-                }
-              }
-              r.add("error", error);
-            } else {
-              r.add("result", context.serialize(src.result));
-            }
-            return r;
-          }
-        });
+  Object[] readParams(final ActiveCall call) {
+    final Gson g = gson != null ? gson : createGsonBuilder().create();
+    final Type[] types = call.method.getParamTypes();
+    if (call.bulkBody == null) {
+      return CallDeserializer.readParams(g, types, call.rawParams);
+    }
+
+    try (Reader r = call.bulkBody.reader()) {
+      final JsonReader in = new JsonReader(r);
+      in.setLenient(true);
+      in.beginObject();
+      while (!"params".equals(in.nextName())) {
+        in.skipValue();
+      }
+      return CallDeserializer.readParams(g, types, in);
+    } catch (IOException | IllegalStateException e) {
+      throw new JsonSyntaxException(e);
+    }
+  }
 
+  Object deserializeParam(
+      final JsonElement v, final Type type, final JsonDeserializationContext context) {
+    final Gson g = gson;
+    return g != null ? g.fromJson(v, type) : context.deserialize(v, type);
+  }
+
+  private String formatResult(final ActiveCall call) throws IOException {
     final StringWriter o = new StringWriter();
+    formatResult(call, o);
+    return o.toString();
+  }
+
+  private void formatResult(final ActiveCall call, final Writer o) throws IOException {
+    final Gson g = gson != null ? gson : createGsonBuilder().create();
     if (call.callback != null) {
       o.write(call.callback);
       o.write("(");
     }
-    gb.create().toJson(call, o);
+    final JsonWriter w = g.newJsonWriter(o);
+    w.setLenient(true);
+    w.setHtmlSafe(g.htmlSafe());
+    if (call.callback == null) {
+      writeEnvelope(g, call, w);
+    } else if (call.externalFailure != null) {
+      w.nullValue();
+    } else {
+      writeResult(g, call, w);
+    }
+    w.flush();
     if (call.callback != null) {
       o.write(");");
     }
-    o.close();
-    return o.toString();
+  }
+
+  private void writeEnvelope(final Gson g, final ActiveCall call, final JsonWriter w)
+      throws IOException {
+    w.beginObject();
+    if (call.versionName != null) {
+      w.name(call.versionName);
+      TypeAdapters.JSON_ELEMENT.write(w, call.versionValue);
+    }
+    if (call.id != null) {
+      w.name("id");
+      TypeAdapters.JSON_ELEMENT.write(w, call.id);
+    }
+    if (call.xsrfKeyOut != null) {
+      w.name("xsrfKey").value(call.xsrfKeyOut);
+    }
+    if (call.externalFailure != null) {
+      final String aMessage = call.externalFailure.getMessage();
+      final String aCause =
+          call.externalFailure.getCause() != null
+              ? call.externalFailure.getCause().getMessage()
+              : null;
+      w.name("error").beginObject();
+      if ("jsonrpc".equals(call.versionName)) {
+        w.name("code").value(to2_0ErrorCode(call));
+      } else {
+        w.name("name").value("JSONRPCError");
+        w.name("code").value(999);
+      }
+      w.name("message").value(aMessage);
+      if (aCause != null && !aCause.isEmpty()) {
+        w.name("cause").value(aCause);
+      }
+      w.endObject();
+    } else {
+      w.name("result");
+      writeResult(g, call, w);
+    }
+    w.endObject();
+  }
+
+  /**
+   * Write the result through the adapter of its declared type, which the warm-up resolved, unless
+   * that is a plain class the result only extends or implements.
+   */
+  @SuppressWarnings("unchecked")
+  private void writeResult(final Gson g, final ActiveCall call, final JsonWriter w)
+      throws IOException {
+    final Object result = call.result;
+    if (result == null) {
+      w.nullValue();
+      return;
+    }
+    if (result instanceof JsonFile) {
+      w.value(FILE_RESULT);
+      return;
+    }
+    if (call.method != null
+        && call.method.isColumnarResult()
+        && ColumnarResults.write(
+            w, result, call.method.getResultType(), compactTypes != null, g)) {
+      return;
+    }
+    if (call.method != null && call.method.isBinaryResult()) {
+      w.value(BinaryArrayTypeAdapter.encode(result));
+      return;
+    }
+    final Type declared = call.method != null ? call.method.getResultType() : Object.class;
+    final Type type =
+        declared instanceof Class && declared != result.getClass() ? result.getClass() : declared;
+    ((TypeAdapter<Object>) g.getAdapter(TypeToken.get(type))).write(w, result);
+  }
+
+  /**
+   * @return true if rejections can be answered with preformatted responses, that is if {@link
+   *     #createGsonBuilder()} formats them the way the default configuration does.
+   */
+  private boolean checkRejections() {
+    final ActiveCall bare = new ActiveCall(null, null);
+    bare.onFailure(RejectedCall.CONTENT_TYPE);
+    final ActiveCall v11 = new ActiveCall(null, null);
+    v11.versionName = "version";
+    v11.versionValue = new JsonPrimitive("1.1");
+    v11.id = new JsonPrimitive("<1>");
+    v11.onFailure(RejectedCall.UNSAFE_CALLBACK);
+    final ActiveCall v20 = new ActiveCall(null, null);
+    v20.versionName = "jsonrpc";
+    v20.versionValue = new JsonPrimitive("2.0");
+    v20.id = new JsonPrimitive(1);
+    v20.onFailure(RejectedCall.EXPECTED_PARAMS);
+    try {
+      for (final ActiveCall c : new ActiveCall[] {bare, v11, v20}) {
+        final byte[] fast = ((RejectedCall) c.externalFailure).response(c);
+        if (!Arrays.equals(fast, formatResult(c).getBytes(ENC))) {
+          return false;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      return false;
+    }
+    return true;
+  }
+
+  private void warmUp(final int calls) {
+    final ServletContext log = getServletContext();
+    final long start = System.nanoTime();
+
+    final Set<Type> types = new LinkedHashSet<>();
+    for (final MethodHandle m : myMethods.values()) {
+      types.addAll(Arrays.asList(m.getParamTypes()));
+      types.add(m.getResultType());
+    }
+    if (polymorphicTypes != null) {
+      // Results declared as a base class are written through the adapter of their own class.
+      //
+      types.addAll(polymorphicTypes.getTypes());
+    }
+    int resolved = 0;
+    for (final Type t : types) {
+      try {
+        gson.getAdapter(TypeToken.get(t));
+        resolved++;
+      } catch (RuntimeException err) {
+        log.log("Cannot resolve adapter for " + t.getTypeName(), err);
+      }
+    }
+    log.log(
+        "Resolved " + resolved + " of " + types.size() + " adapters in "
+            + millisSince(start) + " ms");
+    if (calls <= 0) {
+      return;
+    }
+
+    final SampleValues samples = new SampleValues();
+    final Map<MethodHandle, Object[]> params = new HashMap<>();
+    for (final MethodHandle m : myMethods.values()) {
+      final Type[] p = m.getParamTypes();
+      final Object[] v = new Object[p.length];
+      for (int i = 0; i < v.length; i++) {
+        v[i] = samples.create(p[i]);
+      }
+      params.put(m, v);
+    }
+    final Map<MethodHandle, Object> results = new HashMap<>();
+    for (final MethodHandle m : myMethods.values()) {
+      results.put(m, samples.create(m.getResultType()));
+    }
+
+    final CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+    long compiled = compilationTime(jit);
+    int round = 0;
+    while (round < calls && !params.isEmpty()) {
+      round++;
+      for (final Iterator<Map.Entry<MethodHandle, Object[]>> i = params.entrySet().iterator();
+          i.hasNext(); ) {
+        final Map.Entry<MethodHandle, Object[]> e = i.next();
+        try {
+          replay(e.getKey(), e.getValue(), results.get(e.getKey()));
+        } catch (IOException | RuntimeException err) {
+          log.log("Cannot warm up " + e.getKey().getName(), err);
+          i.remove();
+        }
+      }
+      if (round % 100 == 0) {
+        log.log("Warm-up round " + round + " of " + calls + ", " + millisSince(start) + " ms");
+        final long t = compilationTime(jit);
+        if (t >= 0 && t == compiled) {
+          break;
+        }
+        compiled = t;
+      }
+    }
+    log.log(
+        "Warmed up "
+            + params.size()
+            + " of "
+            + myMethods.size()
+            + " methods with "
+            + round
+            + " synthetic calls each in "
+            + millisSince(start)
+            + " ms");
+  }
+
+  @SuppressWarnings("unchecked")
+  private void replay(final MethodHandle m, final Object[] params, final Object result)
+      throws IOException {
+    final Type[] types = m.getParamTypes();
+    final JsonArray p = new JsonArray();
+    for (int i = 0; i < types.length; i++) {
+      p.add(gson.toJsonTree(params[i], types[i]));
+    }
+    final JsonObject req = new JsonObject();
+    req.addProperty("jsonrpc", "2.0");
+    req.addProperty("method", m.getName());
+    req.add("params", p);
+    req.addProperty("id", 1);
+
+    final CallType call = (CallType) new ActiveCall(null, null);
+    parseBody(call, req.toString());
+    call.getParams();
+    call.result = result;
+    formatResult(call);
+  }
+
+  private static long compilationTime(final CompilationMXBean jit) {
+    if (jit == null || !jit.isCompilationTimeMonitoringSupported()) {
+      return -1;
+    }
+    return jit.getTotalCompilationTime();
+  }
+
+  private static long millisSince(final long start) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
   }
 
   private int to2_0ErrorCode(final ActiveCall src) {
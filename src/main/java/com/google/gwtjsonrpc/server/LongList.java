@@ -0,0 +1,111 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A list of Longs stored as an <code>long[]</code>, without a boxed Long per element.
+ *
+ * <p>Read by {@link PrimitiveArrayTypeAdapterFactory} for <code>List&lt;Long&gt;</code> values
+ * when compact lists are enabled. Null elements are not permitted.
+ */
+public final class LongList extends AbstractList<Long> implements RandomAccess {
+  private long[] elements;
+  private int size;
+
+  public LongList() {
+    this(16);
+  }
+
+  /** @param capacity number of elements the list holds without growing. */
+  public LongList(final int capacity) {
+    elements = new long[capacity];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /** @return the element at an index, unboxed. */
+  public long getLong(final int index) {
+    check(index, size);
+    return elements[index];
+  }
+
+  /** Append an element without boxing it. */
+  public void addLong(final long v) {
+    if (size == elements.length) {
+      elements = Arrays.copyOf(elements, Math.max(16, size * 2));
+    }
+    elements[size++] = v;
+  }
+
+  /** @return a copy of the elements. */
+  public long[] toLongArray() {
+    return Arrays.copyOf(elements, size);
+  }
+
+  @Override
+  public Long get(final int index) {
+    return getLong(index);
+  }
+
+  @Override
+  public Long set(final int index, final Long v) {
+    check(index, size);
+    final long old = elements[index];
+    elements[index] = v;
+    return old;
+  }
+
+  @Override
+  public void add(final int index, final Long v) {
+    check(index, size + 1);
+    final long e = v;
+    if (size == elements.length) {
+      elements = Arrays.copyOf(elements, Math.max(16, size * 2));
+    }
+    System.arraycopy(elements, index, elements, index + 1, size - index);
+    elements[index] = e;
+    size++;
+    modCount++;
+  }
+
+  @Override
+  public Long remove(final int index) {
+    check(index, size);
+    final long old = elements[index];
+    System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+    size--;
+    modCount++;
+    return old;
+  }
+
+  @Override
+  public void clear() {
+    size = 0;
+    modCount++;
+  }
+
+  private static void check(final int index, final int limit) {
+    if (index < 0 || index >= limit) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + limit);
+    }
+  }
+}
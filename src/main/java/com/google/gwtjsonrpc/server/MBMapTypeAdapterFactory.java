@@ -1,7 +1,6 @@
 package com.google.gwtjsonrpc.server;
 
 import com.google.gson.Gson;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.TypeAdapter;
@@ -10,7 +9,7 @@ import com.google.gson.internal.$Gson$Types;
 import com.google.gson.internal.ConstructorConstructor;
 import com.google.gson.internal.JsonReaderInternalAccess;
 import com.google.gson.internal.ObjectConstructor;
-import com.google.gson.internal.Streams;
+import com.google.gson.internal.Primitives;
 import com.google.gson.internal.bind.MapTypeAdapterFactory;
 import com.google.gson.internal.bind.ReflectiveTypeAdapterFactory;
 import com.google.gson.internal.bind.TypeAdapters;
@@ -20,10 +19,12 @@ import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -48,6 +49,10 @@ public class MBMapTypeAdapterFactory implements TypeAdapterFactory {
 
 		Class<?> rawTypeOfSrc = $Gson$Types.getRawType(type);
 		Type[] keyAndValueTypes = $Gson$Types.getMapKeyAndValueTypes(type, rawTypeOfSrc);
+		if (keyAndValueTypes[0] == Integer.class || keyAndValueTypes[0] == Long.class) {
+			TypeAdapter<?> result = new PrimitiveKeyMapTypeAdapter(gson, keyAndValueTypes[0] == Long.class, keyAndValueTypes[1], (ObjectConstructor) constructorConstructor.get(typeToken));
+			return (TypeAdapter<T>) result;
+		}
 		TypeAdapter<?> keyAdapter = getKeyAdapter(gson, keyAndValueTypes[0]);
 		TypeAdapter<?> valueAdapter = gson.getAdapter(TypeToken.get(keyAndValueTypes[1]));
 		ObjectConstructor<T> constructor = constructorConstructor.get(typeToken);
@@ -64,18 +69,24 @@ public class MBMapTypeAdapterFactory implements TypeAdapterFactory {
 		return (keyType == boolean.class || keyType == Boolean.class) ? TypeAdapters.BOOLEAN_AS_STRING : context.getAdapter(TypeToken.get(keyType));
 	}
 
+	/**
+	 * Writes maps whose keys are all written as JSON primitives as an object, and others as
+	 * <code>{"keys":[...],"values":[...]}</code>, streaming both forms without building trees.
+	 */
 	private final class Adapter<K, V> extends TypeAdapter<Map<K, V>> {
 		private final TypeAdapter<K> keyTypeAdapter;
 		private final TypeAdapter<V> valueTypeAdapter;
-		private final Type myKeyType;
-		private final Type myValueType;
 		private final ObjectConstructor<? extends Map<K, V>> constructor;
+		/** Keys read and written as the property name itself. */
+		private final boolean myStringKeys;
+		/** Keys never written as the "keys" array, so the first name is always a key. */
+		private final boolean myPrimitiveKeys;
 
 		public Adapter(Gson context, Type keyType, TypeAdapter<K> keyTypeAdapter, Type valueType, TypeAdapter<V> valueTypeAdapter, ObjectConstructor<? extends Map<K, V>> constructor) {
 			this.keyTypeAdapter = new CustomTypeAdapterRuntimeTypeWrapper<K>(context, keyTypeAdapter, keyType);
 			this.valueTypeAdapter = new CustomTypeAdapterRuntimeTypeWrapper<V>(context, valueTypeAdapter, valueType);
-			myKeyType = keyType;
-			myValueType = valueType;
+			myStringKeys = keyType == String.class;
+			myPrimitiveKeys = Primitives.isPrimitive(keyType) || Primitives.isWrapperType(keyType);
 			this.constructor = constructor;
 		}
 
@@ -84,56 +95,73 @@ public class MBMapTypeAdapterFactory implements TypeAdapterFactory {
 			if (peek == JsonToken.NULL) {
 				in.nextNull();
 				return null;
-			} else {
-				Map<K, V> map = (Map)this.constructor.construct();
-				Object replaced;
-				in.beginObject();
-				if (in.peek() == JsonToken.END_OBJECT)
-				{
-					in.endObject();
-					return map;
+			}
+			in.beginObject();
+			if (in.peek() == JsonToken.END_OBJECT) {
+				in.endObject();
+				return this.constructor.construct();
+			}
+			Map<K, V> map;
+			String aFirstKey = myPrimitiveKeys ? null : in.nextName();
+			if ("keys".equals(aFirstKey)) {
+				in.beginArray();
+				List<K> aKeys = new ArrayList<>();
+				while (in.hasNext()) {
+					aKeys.add(this.keyTypeAdapter.read(in));
 				}
-				String aFirstKey = in.nextName();
-				if (aFirstKey.equals("keys")) {
-					in.beginArray();
-					List<K> aKeys = new ArrayList<>();
-					List<V> aValues = new ArrayList<>();
-					while(in.hasNext()) {
-						aKeys.add(this.keyTypeAdapter.read(in));
-					}
-					in.endArray();
-					in.nextName(); //"values" name
-					in.beginArray(); // "values" array
-					while(in.hasNext()) {
-						aValues.add(this.valueTypeAdapter.read(in));
+				in.endArray();
+				map = presized(this.constructor.construct(), aKeys.size());
+				in.nextName(); //"values" name
+				in.beginArray(); // "values" array
+				int i = 0;
+				while (in.hasNext()) {
+					if (i == aKeys.size()) {
+						throw new JsonSyntaxException("more values than keys");
 					}
-					in.endArray();
-					for(int i = 0; i < aKeys.size(); i++)
-					{
-						map.put(aKeys.get(i), aValues.get(i));
+					map.put(aKeys.get(i++), this.valueTypeAdapter.read(in));
+				}
+				in.endArray();
+				if (i != aKeys.size()) {
+					throw new JsonSyntaxException("more keys than values");
+				}
+			} else {
+				map = this.constructor.construct();
+				K key = aFirstKey == null ? nextKey(in) : firstKey(aFirstKey);
+				for (;;) {
+					V value = this.valueTypeAdapter.read(in);
+					if (map.put(key, value) != null) {
+						throw new JsonSyntaxException("duplicate key: " + key);
 					}
-				} else {
-					boolean aFirstOnly = true;
-					while(in.hasNext()) {
-						K key;
-						if (aFirstOnly) {
-							key = this.keyTypeAdapter.fromJsonTree(new JsonPrimitive(aFirstKey));
-							aFirstOnly = false;
-						} else {
-							JsonReaderInternalAccess.INSTANCE.promoteNameToValue(in);
-							key = this.keyTypeAdapter.read(in);
-						}
-						V value = this.valueTypeAdapter.read(in);
-						replaced = map.put(key, value);
-						if (replaced != null) {
-							throw new JsonSyntaxException("duplicate key: " + key);
-						}
+					if (!in.hasNext()) {
+						break;
 					}
+					key = nextKey(in);
 				}
-				in.endObject();
+			}
+			in.endObject();
+			return map;
+		}
 
-				return map;
+		/**
+		 * Convert the first property name of a map whose keys may also be written as the "keys"
+		 * array. The name has already been consumed to tell the two forms apart, so enum and object
+		 * keys are read back from it as a JSON string; primitive keys never get here.
+		 */
+		@SuppressWarnings("unchecked")
+		private K firstKey(String name) {
+			if (myStringKeys) {
+				return (K) name;
 			}
+			return this.keyTypeAdapter.fromJsonTree(new JsonPrimitive(name));
+		}
+
+		@SuppressWarnings("unchecked")
+		private K nextKey(JsonReader in) throws IOException {
+			if (myStringKeys) {
+				return (K) in.nextName();
+			}
+			JsonReaderInternalAccess.INSTANCE.promoteNameToValue(in);
+			return this.keyTypeAdapter.read(in);
 		}
 
 		public void write(JsonWriter out, Map<K, V> map) throws IOException {
@@ -141,64 +169,190 @@ public class MBMapTypeAdapterFactory implements TypeAdapterFactory {
 				out.nullValue();
 				return;
 			}
+			KeyWriter names = new KeyWriter();
 			boolean hasComplexKeys = false;
-			List<JsonElement> keys = new ArrayList(map.size());
-			List<V> values = new ArrayList(map.size());
-			JsonElement keyElementx;
-			for(Iterator var6 = map.entrySet().iterator(); var6.hasNext(); hasComplexKeys |= keyElementx.isJsonArray() || keyElementx.isJsonObject()) {
-				Map.Entry<K, V> entry = (Map.Entry)var6.next();
-				keyElementx = this.keyTypeAdapter.toJsonTree(entry.getKey());
-				hasComplexKeys = hasComplexKeys ? hasComplexKeys : entry.getKey().getClass().isEnum();
-				keys.add(keyElementx);
-				values.add(entry.getValue());
+			for (K key : map.keySet()) {
+				if (keyName(names, key) == null) {
+					hasComplexKeys = true;
+					break;
+				}
 			}
-			int i;
+			out.beginObject();
 			if (hasComplexKeys) {
-				out.beginObject();
 				out.name("keys");
 				out.beginArray();
-				for(i = 0; i < keys.size(); ++i) {
-					Streams.write((JsonElement)keys.get(i), out);
+				boolean serializeNulls = out.getSerializeNulls();
+				out.setSerializeNulls(true);
+				try {
+					for (K key : map.keySet()) {
+						this.keyTypeAdapter.write(out, key);
+					}
+				} finally {
+					out.setSerializeNulls(serializeNulls);
 				}
 				out.endArray();
 				out.name("values");
 				out.beginArray();
-				for(i = 0; i < keys.size(); ++i) {
-					this.valueTypeAdapter.write(out, values.get(i));
+				for (V value : map.values()) {
+					this.valueTypeAdapter.write(out, value);
 				}
 				out.endArray();
-				out.endObject();
 			} else {
-				out.beginObject();
-				for(i = 0; i < keys.size(); ++i) {
-					JsonElement keyElement = (JsonElement)keys.get(i);
-					out.name(this.keyToString(keyElement));
-					this.valueTypeAdapter.write(out, values.get(i));
+				for (Map.Entry<K, V> entry : map.entrySet()) {
+					out.name(keyName(names, entry.getKey()));
+					this.valueTypeAdapter.write(out, entry.getValue());
 				}
-				out.endObject();
 			}
+			out.endObject();
 		}
-		private String keyToString(JsonElement keyElement) {
-			if (keyElement.isJsonPrimitive()) {
-				JsonPrimitive primitive = keyElement.getAsJsonPrimitive();
-				if (primitive.isNumber()) {
-					return String.valueOf(primitive.getAsNumber());
-				} else if (primitive.isBoolean()) {
-					return Boolean.toString(primitive.getAsBoolean());
-				} else if (primitive.isString()) {
-					return primitive.getAsString();
-				} else {
-					throw new AssertionError();
-				}
-			} else if (keyElement.isJsonNull()) {
+
+		/**
+		 * @return the property name for a key written as a JSON primitive; null if the key is an enum
+		 *     constant or is written as an array or object.
+		 */
+		private String keyName(KeyWriter names, K key) throws IOException {
+			if (key instanceof String && myStringKeys) {
+				return (String) key;
+			} else if (key == null) {
 				return "null";
-			} else {
+			} else if (key.getClass().isEnum()) {
+				return null;
+			}
+			names.name = null;
+			this.keyTypeAdapter.write(names, key);
+			return names.name;
+		}
+	}
+
+	/** Replaces an empty HashMap by one large enough to hold the entries without rehashing. */
+	@SuppressWarnings("unchecked")
+	private static <K, V> Map<K, V> presized(Map<K, V> map, int size) {
+		int capacity = size < 3 ? 4 : (int) (size / 0.75f) + 1;
+		if (map.getClass() == LinkedHashMap.class) {
+			return new LinkedHashMap<>(capacity);
+		} else if (map.getClass() == HashMap.class) {
+			return new HashMap<>(capacity);
+		}
+		return map;
+	}
+
+	/**
+	 * Records the property name a key adapter writes as a single JSON primitive, instead of
+	 * building a JsonElement for each key. Anything else leaves the name null.
+	 */
+	private static final class KeyWriter extends JsonWriter {
+		private static final Writer UNWRITABLE = new Writer() {
+			@Override
+			public void write(char[] buffer, int offset, int counter) {
 				throw new AssertionError();
 			}
+
+			@Override
+			public void flush() {
+				throw new AssertionError();
+			}
+
+			@Override
+			public void close() {
+				throw new AssertionError();
+			}
+		};
+
+		String name;
+		private boolean nested;
+
+		KeyWriter() {
+			super(UNWRITABLE);
+		}
+
+		private JsonWriter primitive(String value) {
+			if (!nested) {
+				name = value;
+			}
+			return this;
+		}
+
+		@Override
+		public JsonWriter beginArray() {
+			nested = true;
+			name = null;
+			return this;
+		}
+
+		@Override
+		public JsonWriter endArray() {
+			return this;
+		}
+
+		@Override
+		public JsonWriter beginObject() {
+			nested = true;
+			name = null;
+			return this;
+		}
+
+		@Override
+		public JsonWriter endObject() {
+			return this;
+		}
+
+		@Override
+		public JsonWriter name(String name) {
+			return this;
+		}
+
+		@Override
+		public JsonWriter value(String value) {
+			return primitive(value == null ? "null" : value);
+		}
+
+		@Override
+		public JsonWriter jsonValue(String value) {
+			nested = true;
+			name = null;
+			return this;
+		}
+
+		@Override
+		public JsonWriter nullValue() {
+			return primitive("null");
+		}
+
+		@Override
+		public JsonWriter value(boolean value) {
+			return primitive(Boolean.toString(value));
+		}
+
+		@Override
+		public JsonWriter value(Boolean value) {
+			return primitive(String.valueOf(value));
+		}
+
+		@Override
+		public JsonWriter value(double value) {
+			return primitive(Double.toString(value));
+		}
+
+		@Override
+		public JsonWriter value(long value) {
+			return primitive(Long.toString(value));
+		}
+
+		@Override
+		public JsonWriter value(Number value) {
+			return primitive(String.valueOf(value));
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
 		}
 	}
 
-	private class CustomTypeAdapterRuntimeTypeWrapper<T> extends TypeAdapter<T> {
+	static class CustomTypeAdapterRuntimeTypeWrapper<T> extends TypeAdapter<T> {
 		private final Gson context;
 		private final TypeAdapter<T> delegate;
 		private final Type type;
@@ -29,6 +29,14 @@ import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Reads and writes maps as an object for String keys, otherwise as an array alternating keys and
+ * values.
+ *
+ * @deprecated builds a JsonElement for every map; use {@link StreamingMapTypeAdapterFactory}, which
+ *     reads and writes the same format.
+ */
+@Deprecated
 public class MapDeserializer
     implements JsonDeserializer<Map<Object, Object>>,
         JsonSerializer<Map<Object, Object>>,
@@ -15,10 +15,14 @@
 package com.google.gwtjsonrpc.server;
 
 import com.google.gwtjsonrpc.common.AllowCrossSiteRequest;
+import com.google.gwtjsonrpc.common.BinaryArray;
+import com.google.gwtjsonrpc.common.BulkUpload;
+import com.google.gwtjsonrpc.common.ColumnarResult;
 import com.google.gwtjsonrpc.common.RemoteJsonService;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 
 /** Pairing of a specific {@link RemoteJsonService} implementation and method. */
@@ -26,7 +30,11 @@ public class MethodHandle {
   private final RemoteJsonService imp;
   private final Method method;
   private final Type[] parameterTypes;
+  private final Type resultType;
   private final boolean allowXsrf;
+  private final boolean columnarResult;
+  private final boolean binaryResult;
+  private final int bulkUploadSize;
 
   /**
    * Create a new handle for a specific service implementation and method.
@@ -40,10 +48,24 @@ public class MethodHandle {
     this.imp = imp;
     this.method = method;
     this.allowXsrf = method.getAnnotation(AllowCrossSiteRequest.class) != null;
+    this.columnarResult = method.getAnnotation(ColumnarResult.class) != null;
+    final BulkUpload bulk = method.getAnnotation(BulkUpload.class);
+    this.bulkUploadSize = bulk != null ? bulk.maxSize() : -1;
 
     final Type[] args = method.getGenericParameterTypes();
     parameterTypes = new Type[args.length - 1];
     System.arraycopy(args, 0, parameterTypes, 0, parameterTypes.length);
+
+    final Type cb = args[args.length - 1];
+    if (cb instanceof ParameterizedType) {
+      resultType = ((ParameterizedType) cb).getActualTypeArguments()[0];
+    } else {
+      resultType = Object.class;
+    }
+    binaryResult =
+        method.getAnnotation(BinaryArray.class) != null
+            && resultType instanceof Class
+            && BinaryArrayTypeAdapter.isSupported((Class<?>) resultType);
   }
 
   /** @return unique name of the method within the service. */
@@ -61,11 +83,34 @@ public class MethodHandle {
     return parameterTypes;
   }
 
+  /** @return type the method passes to its AsyncCallback; Object if not declared. */
+  public Type getResultType() {
+    return resultType;
+  }
+
   /** @return true if the method can be called cross-site. */
   public boolean allowCrossSiteRequest() {
     return allowXsrf;
   }
 
+  /** @return true if the result should be sent by column, see {@link ColumnarResult}. */
+  public boolean isColumnarResult() {
+    return columnarResult;
+  }
+
+  /** @return true if the array result should be sent as base64, see {@link BinaryArray}. */
+  public boolean isBinaryResult() {
+    return binaryResult;
+  }
+
+  /**
+   * @return largest request body accepted for the method, see {@link BulkUpload}; -1 if the
+   *     servlet's usual limit applies.
+   */
+  public int getBulkUploadSize() {
+    return bulkUploadSize;
+  }
+
   /**
    * Invoke this method with the specified arguments, updating the callback.
    *
@@ -16,4 +16,8 @@ package com.google.gwtjsonrpc.server;
 
 /** Indicates the requested method is not known. */
 @SuppressWarnings("serial")
-class NoSuchRemoteMethodException extends RuntimeException {}
+class NoSuchRemoteMethodException extends RuntimeException {
+  NoSuchRemoteMethodException() {
+    super(null, null, false, false);
+  }
+}
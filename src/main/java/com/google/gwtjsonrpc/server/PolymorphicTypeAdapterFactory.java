@@ -0,0 +1,412 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.internal.Streams;
+import com.google.gson.internal.bind.ReflectiveTypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gwtjsonrpc.common.JsonConstants;
+import com.google.gwtjsonrpc.common.JsonTypeId;
+import com.google.gwtjsonrpc.common.JsonTypeIds;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes and reads the {@link JsonConstants#TYPE_PROPERTY} of objects whose declared type has
+ * subclasses, matching the generated GWT client serializers.
+ *
+ * <p>The classes are collected once, from the types reachable through service method signatures
+ * and any extra classes supplied by the servlet. Classes with subclasses among them, and those
+ * subclasses, get an adapter that writes the concrete class first and, when reading, instantiates
+ * only classes from that table. The table is immutable and shared by all requests.
+ *
+ * <p>The concrete class is sent by its qualified source name, or by its numeric id (see {@link
+ * JsonTypeId}) if the table was built with numeric ids. Both forms are accepted when reading; an id
+ * is looked up among the classes the declared type admits, so unrelated hierarchies may share ids.
+ */
+public final class PolymorphicTypeAdapterFactory implements TypeAdapterFactory {
+  /**
+   * Build the type table.
+   *
+   * @param roots types to start from, such as service parameter and result types.
+   * @param numericIds true to write numeric ids instead of class names.
+   * @return the factory; null if none of the reachable classes has a subclass among them.
+   * @throws IllegalArgumentException numeric ids are enabled and two concrete classes sharing a
+   *     base class have the same id.
+   */
+  public static PolymorphicTypeAdapterFactory create(
+      final Collection<? extends Type> roots, final boolean numericIds) {
+    final Set<Class<?>> all = new LinkedHashSet<>();
+    for (final Type t : roots) {
+      collect(t, all);
+    }
+
+    final Map<Class<?>, Entry> byClass = new HashMap<>();
+    final Set<Class<?>> bases = new LinkedHashSet<>();
+    for (final Class<?> base : all) {
+      for (final Class<?> sub : all) {
+        if (sub != base && base.isAssignableFrom(sub)) {
+          bases.add(base);
+          byClass.put(base, new Entry(base));
+          byClass.put(sub, new Entry(sub));
+        }
+      }
+    }
+    if (bases.isEmpty()) {
+      return null;
+    }
+
+    final Map<String, Entry> byName = new HashMap<>();
+    for (final Entry e : byClass.values()) {
+      byName.put(e.name, e);
+    }
+
+    // Ids need only be unique among the classes a declared type admits,
+    // so unrelated hierarchies may reuse them.
+    //
+    final Map<Class<?>, Map<Integer, Entry>> byId = new HashMap<>();
+    for (final Class<?> declared : byClass.keySet()) {
+      final Map<Integer, Entry> ids = new HashMap<>();
+      for (final Entry e : byClass.values()) {
+        if (!declared.isAssignableFrom(e.type) || !e.concrete) {
+          continue;
+        }
+        final Entry old = ids.put(e.id, e);
+        if (old != null && numericIds) {
+          throw new IllegalArgumentException(
+              "Classes "
+                  + old.name
+                  + " and "
+                  + e.name
+                  + " have the same type id "
+                  + e.id
+                  + "; assign one with @"
+                  + JsonTypeId.class.getSimpleName());
+        } else if (old != null) {
+          // Names are written; an ambiguous id is refused when read.
+          //
+          ids.put(e.id, null);
+        }
+      }
+      byId.put(declared, Collections.unmodifiableMap(ids));
+    }
+    return new PolymorphicTypeAdapterFactory(bases, byClass, byName, byId, numericIds);
+  }
+
+  private static void collect(final Type type, final Set<Class<?>> all) {
+    if (type instanceof ParameterizedType) {
+      collect(((ParameterizedType) type).getRawType(), all);
+      for (final Type a : ((ParameterizedType) type).getActualTypeArguments()) {
+        collect(a, all);
+      }
+    } else if (type instanceof GenericArrayType) {
+      collect(((GenericArrayType) type).getGenericComponentType(), all);
+    } else if (type instanceof WildcardType) {
+      for (final Type b : ((WildcardType) type).getUpperBounds()) {
+        collect(b, all);
+      }
+    } else if (type instanceof Class) {
+      final Class<?> c = (Class<?>) type;
+      if (c.isArray()) {
+        collect(c.getComponentType(), all);
+      } else if (!c.isEnum() && !DtoFields.isStandard(c) && all.add(c)) {
+        for (final Field f : DtoFields.of(c)) {
+          collect(f.getGenericType(), all);
+        }
+      }
+    }
+  }
+
+  private static final class Entry {
+    final Class<?> type;
+    final String name;
+    final int id;
+    final boolean concrete;
+
+    Entry(final Class<?> type) {
+      this.type = type;
+      this.name = type.getCanonicalName() != null ? type.getCanonicalName() : type.getName();
+      final JsonTypeId a = type.getAnnotation(JsonTypeId.class);
+      this.id = a != null ? a.value() : JsonTypeIds.of(name);
+      this.concrete = isConcrete(type);
+    }
+  }
+
+  private final Set<Class<?>> bases;
+  private final Map<Class<?>, Entry> byClass;
+  private final Map<String, Entry> byName;
+  private final Map<Class<?>, Map<Integer, Entry>> byId;
+  private final Set<Integer> allIds = new HashSet<>();
+  private final boolean numericIds;
+
+  private PolymorphicTypeAdapterFactory(
+      final Set<Class<?>> bases,
+      final Map<Class<?>, Entry> byClass,
+      final Map<String, Entry> byName,
+      final Map<Class<?>, Map<Integer, Entry>> byId,
+      final boolean numericIds) {
+    this.bases = Collections.unmodifiableSet(bases);
+    this.byClass = Collections.unmodifiableMap(byClass);
+    this.byName = Collections.unmodifiableMap(byName);
+    this.byId = Collections.unmodifiableMap(byId);
+    this.numericIds = numericIds;
+    for (final Entry e : byClass.values()) {
+      if (e.concrete) {
+        allIds.add(e.id);
+      }
+    }
+  }
+
+  /** @return the classes that have subclasses, and are therefore written with their type. */
+  public Set<Class<?>> getBaseTypes() {
+    return bases;
+  }
+
+  /** @return the classes that have subclasses, and those subclasses. */
+  public Set<Class<?>> getTypes() {
+    return byClass.keySet();
+  }
+
+  @Override
+  public <T> TypeAdapter<T> create(final Gson gson, final TypeToken<T> type) {
+    // Subclasses are claimed too: Gson writes a value through the adapter
+    // of its runtime class whenever that adapter is not reflective.
+    //
+    if (!byClass.containsKey(type.getRawType())) {
+      return null;
+    }
+    return new Adapter<>(gson, type.getRawType());
+  }
+
+  private final class Adapter<T> extends TypeAdapter<T> {
+    private final Gson gson;
+    private final Class<? super T> declared;
+    private final Map<Integer, Entry> ids;
+    private final Map<Class<?>, TypeAdapter<?>> delegates = new ConcurrentHashMap<>();
+
+    Adapter(final Gson gson, final Class<? super T> declared) {
+      this.gson = gson;
+      this.declared = declared;
+      this.ids = byId.get(declared);
+    }
+
+    @SuppressWarnings("unchecked")
+    private TypeAdapter<Object> delegate(final Class<?> type) {
+      TypeAdapter<?> a = delegates.get(type);
+      if (a == null) {
+        a = gson.getDelegateAdapter(PolymorphicTypeAdapterFactory.this, TypeToken.get(type));
+        if (a instanceof ReflectiveTypeAdapterFactory.Adapter) {
+          // Gson's adapter only writes and reads whole objects; bind the
+          // same fields ourselves to stream them next to the type.
+          //
+          final TypeAdapter<?> fields =
+              ReflectiveFieldsTypeAdapter.create(gson, TypeToken.get(type));
+          if (fields != null) {
+            a = fields;
+          }
+        }
+        delegates.put(type, a);
+      }
+      return (TypeAdapter<Object>) a;
+    }
+
+    @Override
+    public void write(final JsonWriter out, final T value) throws IOException {
+      if (value == null) {
+        out.nullValue();
+        return;
+      }
+
+      final Class<?> type = value.getClass();
+      final TypeAdapter<Object> d = delegate(type);
+      final Entry e = byClass.get(type);
+      if (d instanceof GeneratedTypeAdapter) {
+        out.beginObject();
+        writeType(out, type, e);
+        ((GeneratedTypeAdapter<Object>) d).writeFields(out, value);
+        out.endObject();
+        return;
+      }
+
+      // A custom adapter; copy what it writes, adding the type to an object.
+      //
+      final JsonElement tree = d.toJsonTree(value);
+      if (!tree.isJsonObject()) {
+        Streams.write(tree, out);
+        return;
+      }
+      out.beginObject();
+      writeType(out, type, e);
+      for (final Map.Entry<String, JsonElement> p : tree.getAsJsonObject().entrySet()) {
+        out.name(p.getKey());
+        Streams.write(p.getValue(), out);
+      }
+      out.endObject();
+    }
+
+    private void writeType(final JsonWriter out, final Class<?> type, final Entry e)
+        throws IOException {
+      out.name(JsonConstants.TYPE_PROPERTY);
+      if (e == null) {
+        out.value(type.getCanonicalName() != null ? type.getCanonicalName() : type.getName());
+      } else if (numericIds) {
+        out.value(e.id);
+      } else {
+        out.value(e.name);
+      }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T read(final JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+      if (in.peek() != JsonToken.BEGIN_OBJECT) {
+        return (T) delegate(declared).read(in);
+      }
+
+      // The type normally leads, as we write it. Parse only the members
+      // some other writer put before it, and stream the rest.
+      //
+      in.beginObject();
+      JsonObject ahead = null;
+      Class<?> type = declared;
+      while (in.hasNext()) {
+        final String name = in.nextName();
+        if (JsonConstants.TYPE_PROPERTY.equals(name)) {
+          type = readType(in);
+          break;
+        }
+        if (ahead == null) {
+          ahead = new JsonObject();
+        }
+        ahead.add(name, Streams.parse(in));
+      }
+
+      final TypeAdapter<Object> d = delegate(type);
+      if (d instanceof GeneratedTypeAdapter) {
+        final Object r = ((GeneratedTypeAdapter<Object>) d).readFields(ahead, in);
+        in.endObject();
+        return (T) r;
+      }
+      final JsonObject obj = ahead != null ? ahead : new JsonObject();
+      while (in.hasNext()) {
+        obj.add(in.nextName(), Streams.parse(in));
+      }
+      in.endObject();
+      return (T) d.fromJsonTree(obj);
+    }
+
+    private Class<?> readType(final JsonReader in) throws IOException {
+      switch (in.peek()) {
+        case NULL:
+          in.nextNull();
+          return declared;
+        case NUMBER:
+          return lookup(in.nextInt());
+        case STRING:
+          return lookup(in.nextString());
+        default:
+          throw new JsonParseException("Invalid " + JsonConstants.TYPE_PROPERTY);
+      }
+    }
+
+    private Class<?> lookup(final int id) {
+      final Entry e = ids.get(id);
+      if (e != null) {
+        return e.type;
+      }
+      if (ids.containsKey(id) || allIds.contains(id) || !isConcrete(declared)) {
+        throw unknown(Integer.toString(id));
+      }
+      // An id from a newer client, of a class this server does not know.
+      //
+      return declared;
+    }
+
+    private Class<?> lookup(final String name) {
+      final Entry e = byName.get(name);
+      if (e != null) {
+        if (!e.concrete || !declared.isAssignableFrom(e.type)) {
+          throw unknown(name);
+        }
+        return e.type;
+      }
+
+      // A class the client knows but the server's signatures do not reach:
+      // read it as its nearest known superclass, or the declared type.
+      //
+      for (Class<?> c = load(name); c != null; c = c.getSuperclass()) {
+        final Entry known = byClass.get(c);
+        if (known != null && known.concrete && declared.isAssignableFrom(c)) {
+          return c;
+        }
+      }
+      if (!isConcrete(declared)) {
+        throw unknown(name);
+      }
+      return declared;
+    }
+
+    /** @return the class of a qualified source name; null if there is none. */
+    private Class<?> load(final String name) {
+      final ClassLoader loader = declared.getClassLoader();
+      final StringBuilder n = new StringBuilder(name);
+      for (int dot = n.length(); dot > 0; dot = n.lastIndexOf(".", dot - 1)) {
+        if (dot < n.length()) {
+          n.setCharAt(dot, '$');
+        }
+        try {
+          return Class.forName(n.toString(), false, loader);
+        } catch (ClassNotFoundException | LinkageError | SecurityException err) {
+          // Try it as a nested class.
+        }
+      }
+      return null;
+    }
+
+    private JsonParseException unknown(final String tag) {
+      return new JsonParseException(
+          "Unknown " + JsonConstants.TYPE_PROPERTY + " " + tag + " for " + declared.getName());
+    }
+  }
+
+  private static boolean isConcrete(final Class<?> type) {
+    return !type.isInterface() && !Modifier.isAbstract(type.getModifiers());
+  }
+}
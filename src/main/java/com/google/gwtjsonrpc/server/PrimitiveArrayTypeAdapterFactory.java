@@ -0,0 +1,456 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.internal.bind.TypeAdapters;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads and writes <code>byte[]</code>, <code>short[]</code>, <code>int[]</code>, <code>long[]
+ * </code>, <code>float[]</code> and <code>double[]</code> as JSON arrays without boxing each
+ * element, as Gson's array adapter does.
+ *
+ * <p>Arrays are read into a growing primitive buffer. A base64 string, as written for {@link
+ * com.google.gwtjsonrpc.common.BinaryArray}, is read too. Integral arrays are only handled while
+ * Gson's own adapters are in place for their elements, so a long serialization policy or a
+ * registered element adapter still applies.
+ *
+ * <p>Optionally <code>List&lt;Integer&gt;</code> and <code>List&lt;Long&gt;</code> are read into an
+ * {@link IntList} or {@link LongList}. Lists with null elements are read into an ArrayList instead.
+ */
+public final class PrimitiveArrayTypeAdapterFactory implements TypeAdapterFactory {
+  private final boolean compactLists;
+
+  public PrimitiveArrayTypeAdapterFactory() {
+    this(false);
+  }
+
+  /**
+   * @param compactLists true to also read <code>List&lt;Integer&gt;</code> and <code>
+   *     List&lt;Long&gt;</code> into an {@link IntList} or {@link LongList}.
+   */
+  public PrimitiveArrayTypeAdapterFactory(final boolean compactLists) {
+    this.compactLists = compactLists;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> TypeAdapter<T> create(final Gson gson, final TypeToken<T> type) {
+    final Class<?> raw = type.getRawType();
+    final TypeAdapter<?> r;
+    if (raw == int[].class && isGson(gson.getAdapter(int.class), TypeAdapters.INTEGER)) {
+      r = new IntArrayAdapter();
+    } else if (raw == long[].class && isGson(gson.getAdapter(long.class), TypeAdapters.LONG)) {
+      r = new LongArrayAdapter();
+    } else if (raw == double[].class) {
+      r = new DoubleArrayAdapter(gson.getAdapter(double.class));
+    } else if (raw == float[].class) {
+      r = new FloatArrayAdapter(gson.getAdapter(float.class));
+    } else if (raw == byte[].class && isGson(gson.getAdapter(byte.class), TypeAdapters.BYTE)) {
+      r = new ByteArrayAdapter();
+    } else if (raw == short[].class && isGson(gson.getAdapter(short.class), TypeAdapters.SHORT)) {
+      r = new ShortArrayAdapter();
+    } else if (compactLists && raw == List.class && type.getType() instanceof ParameterizedType) {
+      final Type e = ((ParameterizedType) type.getType()).getActualTypeArguments()[0];
+      if (e == Integer.class && isGson(gson.getAdapter(Integer.class), TypeAdapters.INTEGER)) {
+        r = new IntListAdapter();
+      } else if (e == Long.class && isGson(gson.getAdapter(Long.class), TypeAdapters.LONG)) {
+        r = new LongListAdapter();
+      } else {
+        return null;
+      }
+    } else {
+      return null;
+    }
+    return (TypeAdapter<T>) r;
+  }
+
+  /** @return true if the adapter Gson chose for the elements is its own default one. */
+  private static boolean isGson(final TypeAdapter<?> element, final TypeAdapter<?> standard) {
+    return element == standard;
+  }
+
+  /** @return the buffer, grown if it holds <code>n</code> elements. */
+  private static int[] grow(final int[] b, final int n) {
+    return n < b.length ? b : Arrays.copyOf(b, n * 2);
+  }
+
+  private static long[] grow(final long[] b, final int n) {
+    return n < b.length ? b : Arrays.copyOf(b, n * 2);
+  }
+
+  private static double[] grow(final double[] b, final int n) {
+    return n < b.length ? b : Arrays.copyOf(b, n * 2);
+  }
+
+  /**
+   * Start reading an array.
+   *
+   * @return true if a JSON array follows; false if the value was null.
+   */
+  private static boolean begin(final JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return false;
+    }
+    in.beginArray();
+    return true;
+  }
+
+  private static int nextInt(final JsonReader in) throws IOException {
+    try {
+      return in.nextInt();
+    } catch (NumberFormatException e) {
+      throw new JsonSyntaxException(e);
+    }
+  }
+
+  private static long nextLong(final JsonReader in) throws IOException {
+    try {
+      return in.nextLong();
+    } catch (NumberFormatException e) {
+      throw new JsonSyntaxException(e);
+    }
+  }
+
+  private static int[] readInts(final JsonReader in) throws IOException {
+    int[] b = new int[16];
+    int n = 0;
+    while (in.hasNext()) {
+      b = grow(b, n);
+      b[n++] = nextInt(in);
+    }
+    in.endArray();
+    return Arrays.copyOf(b, n);
+  }
+
+  private static final class IntArrayAdapter extends TypeAdapter<int[]> {
+    @Override
+    public void write(final JsonWriter out, final int[] v) throws IOException {
+      if (v == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginArray();
+      for (final int e : v) {
+        out.value(e);
+      }
+      out.endArray();
+    }
+
+    @Override
+    public int[] read(final JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.STRING) {
+        return (int[]) BinaryArrayTypeAdapter.decode(in.nextString(), int[].class);
+      }
+      return begin(in) ? readInts(in) : null;
+    }
+  }
+
+  private static final class ShortArrayAdapter extends TypeAdapter<short[]> {
+    @Override
+    public void write(final JsonWriter out, final short[] v) throws IOException {
+      if (v == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginArray();
+      for (final short e : v) {
+        out.value(e);
+      }
+      out.endArray();
+    }
+
+    @Override
+    public short[] read(final JsonReader in) throws IOException {
+      if (!begin(in)) {
+        return null;
+      }
+      final int[] b = readInts(in);
+      final short[] r = new short[b.length];
+      for (int i = 0; i < b.length; i++) {
+        r[i] = (short) b[i];
+      }
+      return r;
+    }
+  }
+
+  private static final class ByteArrayAdapter extends TypeAdapter<byte[]> {
+    @Override
+    public void write(final JsonWriter out, final byte[] v) throws IOException {
+      if (v == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginArray();
+      for (final byte e : v) {
+        out.value(e);
+      }
+      out.endArray();
+    }
+
+    @Override
+    public byte[] read(final JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.STRING) {
+        return (byte[]) BinaryArrayTypeAdapter.decode(in.nextString(), byte[].class);
+      }
+      if (!begin(in)) {
+        return null;
+      }
+      final int[] b = readInts(in);
+      final byte[] r = new byte[b.length];
+      for (int i = 0; i < b.length; i++) {
+        r[i] = (byte) b[i];
+      }
+      return r;
+    }
+  }
+
+  private static final class LongArrayAdapter extends TypeAdapter<long[]> {
+    @Override
+    public void write(final JsonWriter out, final long[] v) throws IOException {
+      if (v == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginArray();
+      for (final long e : v) {
+        out.value(e);
+      }
+      out.endArray();
+    }
+
+    @Override
+    public long[] read(final JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.STRING) {
+        return (long[]) BinaryArrayTypeAdapter.decode(in.nextString(), long[].class);
+      }
+      if (!begin(in)) {
+        return null;
+      }
+      long[] b = new long[16];
+      int n = 0;
+      while (in.hasNext()) {
+        b = grow(b, n);
+        b[n++] = nextLong(in);
+      }
+      in.endArray();
+      return Arrays.copyOf(b, n);
+    }
+  }
+
+  /**
+   * Writes NaN and infinite elements through Gson's element adapter, which rejects them unless
+   * special floating point values are enabled.
+   */
+  private static final class DoubleArrayAdapter extends TypeAdapter<double[]> {
+    private final TypeAdapter<Double> element;
+
+    DoubleArrayAdapter(final TypeAdapter<Double> element) {
+      this.element = element;
+    }
+
+    @Override
+    public void write(final JsonWriter out, final double[] v) throws IOException {
+      if (v == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginArray();
+      for (final double e : v) {
+        if (Double.isNaN(e) || Double.isInfinite(e)) {
+          element.write(out, e);
+        } else {
+          out.value(e);
+        }
+      }
+      out.endArray();
+    }
+
+    @Override
+    public double[] read(final JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.STRING) {
+        return (double[]) BinaryArrayTypeAdapter.decode(in.nextString(), double[].class);
+      }
+      if (!begin(in)) {
+        return null;
+      }
+      double[] b = new double[16];
+      int n = 0;
+      while (in.hasNext()) {
+        b = grow(b, n);
+        b[n++] = in.nextDouble();
+      }
+      in.endArray();
+      return Arrays.copyOf(b, n);
+    }
+  }
+
+  /**
+   * Elements are written through Gson's element adapter, as a float widened to a double would not
+   * print as the shortest decimal of the float.
+   */
+  private static final class FloatArrayAdapter extends TypeAdapter<float[]> {
+    private final TypeAdapter<Float> element;
+
+    FloatArrayAdapter(final TypeAdapter<Float> element) {
+      this.element = element;
+    }
+
+    @Override
+    public void write(final JsonWriter out, final float[] v) throws IOException {
+      if (v == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginArray();
+      for (final float e : v) {
+        element.write(out, e);
+      }
+      out.endArray();
+    }
+
+    @Override
+    public float[] read(final JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.STRING) {
+        return (float[]) BinaryArrayTypeAdapter.decode(in.nextString(), float[].class);
+      }
+      if (!begin(in)) {
+        return null;
+      }
+      double[] b = new double[16];
+      int n = 0;
+      while (in.hasNext()) {
+        b = grow(b, n);
+        b[n++] = in.nextDouble();
+      }
+      in.endArray();
+      final float[] r = new float[n];
+      for (int i = 0; i < n; i++) {
+        r[i] = (float) b[i];
+      }
+      return r;
+    }
+  }
+
+  private static final class IntListAdapter extends TypeAdapter<List<Integer>> {
+    @Override
+    public void write(final JsonWriter out, final List<Integer> v) throws IOException {
+      if (v == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginArray();
+      if (v instanceof IntList) {
+        final IntList l = (IntList) v;
+        for (int i = 0; i < l.size(); i++) {
+          out.value(l.getInt(i));
+        }
+      } else {
+        for (final Integer e : v) {
+          out.value(e);
+        }
+      }
+      out.endArray();
+    }
+
+    @Override
+    public List<Integer> read(final JsonReader in) throws IOException {
+      if (!begin(in)) {
+        return null;
+      }
+      final IntList r = new IntList();
+      while (in.hasNext()) {
+        if (in.peek() == JsonToken.NULL) {
+          final List<Integer> boxed = new ArrayList<>(r);
+          while (in.hasNext()) {
+            if (in.peek() == JsonToken.NULL) {
+              in.nextNull();
+              boxed.add(null);
+            } else {
+              boxed.add(nextInt(in));
+            }
+          }
+          in.endArray();
+          return boxed;
+        }
+        r.addInt(nextInt(in));
+      }
+      in.endArray();
+      return r;
+    }
+  }
+
+  private static final class LongListAdapter extends TypeAdapter<List<Long>> {
+    @Override
+    public void write(final JsonWriter out, final List<Long> v) throws IOException {
+      if (v == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginArray();
+      if (v instanceof LongList) {
+        final LongList l = (LongList) v;
+        for (int i = 0; i < l.size(); i++) {
+          out.value(l.getLong(i));
+        }
+      } else {
+        for (final Long e : v) {
+          out.value(e);
+        }
+      }
+      out.endArray();
+    }
+
+    @Override
+    public List<Long> read(final JsonReader in) throws IOException {
+      if (!begin(in)) {
+        return null;
+      }
+      final LongList r = new LongList();
+      while (in.hasNext()) {
+        if (in.peek() == JsonToken.NULL) {
+          final List<Long> boxed = new ArrayList<>(r);
+          while (in.hasNext()) {
+            if (in.peek() == JsonToken.NULL) {
+              in.nextNull();
+              boxed.add(null);
+            } else {
+              boxed.add(nextLong(in));
+            }
+          }
+          in.endArray();
+          return boxed;
+        }
+        r.addLong(nextLong(in));
+      }
+      in.endArray();
+      return r;
+    }
+  }
+}
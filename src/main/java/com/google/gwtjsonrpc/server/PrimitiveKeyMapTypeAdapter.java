@@ -0,0 +1,203 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.internal.$Gson$Types;
+import com.google.gson.internal.ObjectConstructor;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gwtjsonrpc.common.PrimitiveKeyMap;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Reads and writes a map with Integer or Long keys as an object named by the decimal keys,
+ * formatting and parsing the names directly rather than through the key's TypeAdapter.
+ *
+ * <p>The <code>{"keys":[...],"values":[...]}</code> form sent by the GWT client's
+ * ObjectMapSerializer is read too. Maps are created by the map type's constructor, or are an
+ * {@link IntKeyMap} or {@link LongKeyMap} for fields annotated with {@link PrimitiveKeyMap}; the
+ * entries of those are written without boxing their keys.
+ */
+public final class PrimitiveKeyMapTypeAdapter extends TypeAdapter<Map<Object, Object>> {
+  /**
+   * Get the adapter of a field annotated with {@link PrimitiveKeyMap}.
+   *
+   * @param gson the Gson instance providing the value adapter.
+   * @param type the field type, a Map with Integer or Long keys that IntKeyMap or LongKeyMap can be
+   *     assigned to.
+   * @return the adapter.
+   * @throws IllegalArgumentException the type is not supported.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> TypeAdapter<T> of(final Gson gson, final TypeToken<T> type) {
+    final Class<?> raw = type.getRawType();
+    if (Map.class.isAssignableFrom(raw)) {
+      final Type[] kv = $Gson$Types.getMapKeyAndValueTypes(type.getType(), raw);
+      if (kv[0] == Integer.class && raw.isAssignableFrom(IntKeyMap.class)) {
+        return (TypeAdapter<T>) new PrimitiveKeyMapTypeAdapter(gson, false, kv[1], null);
+      } else if (kv[0] == Long.class && raw.isAssignableFrom(LongKeyMap.class)) {
+        return (TypeAdapter<T>) new PrimitiveKeyMapTypeAdapter(gson, true, kv[1], null);
+      }
+    }
+    throw new IllegalArgumentException(
+        PrimitiveKeyMap.class.getSimpleName() + " does not support " + type);
+  }
+
+  private final boolean longKeys;
+  private final TypeAdapter<Object> values;
+  private final ObjectConstructor<? extends Map<Object, Object>> constructor;
+
+  /**
+   * @param longKeys true for Long keys, false for Integer keys.
+   * @param constructor creates the maps read; null for IntKeyMap or LongKeyMap.
+   */
+  @SuppressWarnings("unchecked")
+  PrimitiveKeyMapTypeAdapter(
+      final Gson gson,
+      final boolean longKeys,
+      final Type valueType,
+      final ObjectConstructor<? extends Map<Object, Object>> constructor) {
+    this.longKeys = longKeys;
+    this.values =
+        new MBMapTypeAdapterFactory.CustomTypeAdapterRuntimeTypeWrapper<>(
+            gson, (TypeAdapter<Object>) gson.getAdapter(TypeToken.get(valueType)), valueType);
+    this.constructor = constructor;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void write(final JsonWriter out, final Map<Object, Object> map) throws IOException {
+    if (map == null) {
+      out.nullValue();
+      return;
+    }
+    out.beginObject();
+    if (map instanceof IntKeyMap) {
+      final IntKeyMap<Object> m = (IntKeyMap<Object>) (Map<?, ?>) map;
+      for (int s = m.nextSlot(-1); s >= 0; s = m.nextSlot(s)) {
+        out.name(Integer.toString(m.keyAt(s)));
+        values.write(out, m.valueAt(s));
+      }
+    } else if (map instanceof LongKeyMap) {
+      final LongKeyMap<Object> m = (LongKeyMap<Object>) (Map<?, ?>) map;
+      for (int s = m.nextSlot(-1); s >= 0; s = m.nextSlot(s)) {
+        out.name(Long.toString(m.keyAt(s)));
+        values.write(out, m.valueAt(s));
+      }
+    } else {
+      for (final Map.Entry<Object, Object> e : map.entrySet()) {
+        out.name(String.valueOf(e.getKey()));
+        values.write(out, e.getValue());
+      }
+    }
+    out.endObject();
+  }
+
+  @Override
+  public Map<Object, Object> read(final JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    in.beginObject();
+    if (!in.hasNext()) {
+      in.endObject();
+      return newMap(0);
+    }
+    String name = in.nextName();
+    final Map<Object, Object> map;
+    if (name.equals("keys")) {
+      long[] keys = new long[16];
+      int n = 0;
+      in.beginArray();
+      while (in.hasNext()) {
+        if (n == keys.length) {
+          keys = Arrays.copyOf(keys, n * 2);
+        }
+        keys[n++] = longKeys ? in.nextLong() : in.nextInt();
+      }
+      in.endArray();
+      map = newMap(n);
+      in.nextName(); // "values"
+      in.beginArray();
+      int i = 0;
+      while (in.hasNext()) {
+        if (i == n) {
+          throw new JsonSyntaxException("more values than keys");
+        }
+        put(map, keys[i++], values.read(in));
+      }
+      in.endArray();
+      if (i != n) {
+        throw new JsonSyntaxException("more keys than values");
+      }
+    } else {
+      map = newMap(0);
+      for (; ; ) {
+        final long key = parse(name);
+        if (put(map, key, values.read(in)) != null) {
+          throw new JsonSyntaxException("duplicate key: " + key);
+        }
+        if (!in.hasNext()) {
+          break;
+        }
+        name = in.nextName();
+      }
+    }
+    in.endObject();
+    return map;
+  }
+
+  private long parse(final String name) {
+    try {
+      return longKeys ? Long.parseLong(name) : Integer.parseInt(name);
+    } catch (NumberFormatException e) {
+      throw new JsonSyntaxException("Expected " + (longKeys ? "long" : "int") + " key: " + name);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<Object, Object> newMap(final int expected) {
+    if (constructor != null) {
+      return constructor.construct();
+    }
+    final Map<?, ?> m = longKeys ? new LongKeyMap<>(expected) : new IntKeyMap<>(expected);
+    return (Map<Object, Object>) m;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object put(final Map<Object, Object> map, final long key, final Object value) {
+    if (constructor != null) {
+      final Object k;
+      if (longKeys) {
+        k = Long.valueOf(key);
+      } else {
+        k = Integer.valueOf((int) key);
+      }
+      return map.put(k, value);
+    } else if (longKeys) {
+      return ((LongKeyMap<Object>) (Map<?, ?>) map).put(key, value);
+    }
+    return ((IntKeyMap<Object>) (Map<?, ?>) map).put((int) key, value);
+  }
+}
@@ -0,0 +1,52 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gwtjsonrpc.common.PrimitiveKeyMap;
+import java.lang.reflect.Field;
+
+/**
+ * Reads and writes DTOs having fields annotated with {@link PrimitiveKeyMap}, which Gson's
+ * reflective adapter would read into boxed-key maps.
+ *
+ * <p>DTOs with an adapter generated by the annotation processor, or read in a compact encoding, are
+ * handled by those adapters, which honour the annotation themselves.
+ */
+public final class PrimitiveKeyMapTypeAdapterFactory implements TypeAdapterFactory {
+  private static final ClassValue<Boolean> annotated =
+      new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(final Class<?> type) {
+          for (final Field f : DtoFields.of(type)) {
+            if (f.isAnnotationPresent(PrimitiveKeyMap.class)) {
+              return true;
+            }
+          }
+          return false;
+        }
+      };
+
+  @Override
+  public <T> TypeAdapter<T> create(final Gson gson, final TypeToken<T> type) {
+    if (!annotated.get(type.getRawType())) {
+      return null;
+    }
+    return DtoTypeAdapter.create(gson, type, false);
+  }
+}
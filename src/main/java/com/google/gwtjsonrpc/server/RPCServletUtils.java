@@ -15,7 +15,13 @@
 package com.google.gwtjsonrpc.server;
 
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.zip.GZIPOutputStream;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
@@ -31,7 +37,12 @@ public class RPCServletUtils {
   public static void writeResponse(
       ServletContext ctx, HttpServletResponse res, String responseContent, boolean encodeWithGzip)
       throws IOException {
-    byte[] data = responseContent.getBytes("UTF-8");
+    writeResponse(ctx, res, responseContent.getBytes("UTF-8"), encodeWithGzip);
+  }
+
+  public static void writeResponse(
+      ServletContext ctx, HttpServletResponse res, byte[] data, boolean encodeWithGzip)
+      throws IOException {
     if (encodeWithGzip) {
       ByteArrayOutputStream buf = new ByteArrayOutputStream(data.length);
       GZIPOutputStream gz = new GZIPOutputStream(buf);
@@ -50,11 +61,88 @@ public class RPCServletUtils {
       }
     }
 
-    res.setContentLength(data.length);
+    write(res, data, 0, data.length);
+  }
+
+  /**
+   * Write a response already encoded, and compressed if asked for.
+   *
+   * @param data bytes of the response, from its position to its limit; must be backed by an array.
+   * @param gzipped the data is gzip compressed.
+   */
+  public static void writeResponse(
+      ServletContext ctx, HttpServletResponse res, ByteBuffer data, boolean gzipped)
+      throws IOException {
+    if (gzipped) {
+      res.setHeader("Content-Encoding", "gzip");
+    }
+    write(res, data.array(), data.arrayOffset() + data.position(), data.remaining());
+  }
+
+  private static void write(HttpServletResponse res, byte[] data, int off, int len)
+      throws IOException {
+    res.setContentLength(len);
     res.setContentType("application/json; charset=utf-8");
     res.setStatus(HttpServletResponse.SC_OK);
     res.setHeader("Content-Disposition", "attachment");
-    res.getOutputStream().write(data);
+    res.getOutputStream().write(data, off, len);
+  }
+
+  /**
+   * Write a response whose body is copied from a file, between a head and a tail.
+   *
+   * <p>The file is transferred with {@link FileChannel#transferTo(long, long,
+   * WritableByteChannel)}, directly into the container's channel when its output stream exposes
+   * one, so its contents are never copied onto the heap.
+   *
+   * @param head bytes to write before the file.
+   * @param body open file to write.
+   * @param tail bytes to write after the file.
+   * @param gzipped the file is gzip compressed; head and tail are then compressed separately, and
+   *     the body is three concatenated gzip members. RFC 1952 allows this and {@link
+   *     java.util.zip.GZIPInputStream} decodes it, but a client stopping after the first member
+   *     sees only the head.
+   */
+  public static void writeResponse(
+      ServletContext ctx,
+      HttpServletResponse res,
+      byte[] head,
+      FileChannel body,
+      byte[] tail,
+      boolean gzipped)
+      throws IOException {
+    if (gzipped) {
+      head = gzip(head);
+      tail = gzip(tail);
+      res.setHeader("Content-Encoding", "gzip");
+    }
+
+    final long size = body.size();
+    res.setContentLengthLong(head.length + size + tail.length);
+    res.setContentType("application/json; charset=utf-8");
+    res.setStatus(HttpServletResponse.SC_OK);
+    res.setHeader("Content-Disposition", "attachment");
+
+    final OutputStream out = res.getOutputStream();
+    out.write(head);
+    final WritableByteChannel ch =
+        out instanceof WritableByteChannel ? (WritableByteChannel) out : Channels.newChannel(out);
+    for (long pos = 0; pos < size; ) {
+      final long n = body.transferTo(pos, size - pos, ch);
+      if (n <= 0) {
+        throw new EOFException("File truncated while writing response");
+      }
+      pos += n;
+    }
+    out.write(tail);
+  }
+
+  private static byte[] gzip(byte[] data) throws IOException {
+    ByteArrayOutputStream buf = new ByteArrayOutputStream(data.length / 2 + 32);
+    try (GZIPOutputStream gz = new GZIPOutputStream(buf)) {
+      gz.write(data);
+    }
+    return buf.toByteArray();
   }
 
   private RPCServletUtils() {}
@@ -0,0 +1,190 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.internal.$Gson$Types;
+import com.google.gson.internal.Excluder;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes a DTO by reflection as Gson's reflective adapter would, through the field
+ * methods of {@link GeneratedTypeAdapter}.
+ *
+ * <p>{@link PolymorphicTypeAdapterFactory} uses it in place of Gson's adapter to stream an object
+ * with its type property, which Gson's adapter cannot write or read inside an object it did not
+ * open. Fields are bound in Gson's order, named and excluded by the Gson instance, see {@link
+ * GeneratedTypeAdapter.Properties}.
+ *
+ * @param <T> the DTO type.
+ */
+final class ReflectiveFieldsTypeAdapter<T> extends GeneratedTypeAdapter<T> {
+  /**
+   * Create the adapter of a DTO.
+   *
+   * @return the adapter; null if the type is not a concrete class with a no-argument constructor,
+   *     or Gson's adapter would bind it differently, such as through a {@link
+   *     com.google.gson.annotations.JsonAdapter} field.
+   */
+  static <T> ReflectiveFieldsTypeAdapter<T> create(final Gson gson, final TypeToken<T> type) {
+    final Class<? super T> raw = type.getRawType();
+    if (raw.isInterface()
+        || raw.isArray()
+        || raw.isPrimitive()
+        || Modifier.isAbstract(raw.getModifiers())) {
+      return null;
+    }
+
+    final Constructor<? super T> ctor;
+    try {
+      ctor = raw.getDeclaredConstructor();
+      ctor.setAccessible(true);
+    } catch (NoSuchMethodException | SecurityException e) {
+      return null;
+    }
+
+    // Gson binds the fields of the class before those of its superclasses.
+    //
+    final Excluder ex = gson.excluder();
+    final List<Field> fields = new ArrayList<>();
+    final List<String> pairs = new ArrayList<>();
+    for (Class<?> c = raw; c != null && c != Object.class; c = c.getSuperclass()) {
+      for (final Field f : c.getDeclaredFields()) {
+        if (isIncluded(ex, f, true) || isIncluded(ex, f, false)) {
+          try {
+            f.setAccessible(true);
+          } catch (SecurityException e) {
+            return null;
+          }
+          fields.add(f);
+          pairs.add(c.getName());
+          pairs.add(f.getName());
+        }
+      }
+    }
+    final ReflectiveFieldsTypeAdapter<T> a =
+        new ReflectiveFieldsTypeAdapter<>(
+            gson,
+            type,
+            properties(gson, raw, pairs.toArray(new String[pairs.size()])),
+            ctor,
+            fields);
+    return a.matchesReflection() ? a : null;
+  }
+
+  private final Constructor<? super T> ctor;
+  private final Field[] fields;
+  private final TypeAdapter<Object>[] adapters;
+
+  /** Declared class of each field; null for a type variable, always written by runtime class. */
+  private final Class<?>[] runtimeCheck;
+
+  /** Whether each field is written by the adapter of its value's class when that is more apt. */
+  private final boolean[] byRuntimeType;
+
+  @SuppressWarnings("unchecked")
+  private ReflectiveFieldsTypeAdapter(
+      final Gson gson,
+      final TypeToken<T> type,
+      final Properties properties,
+      final Constructor<? super T> ctor,
+      final List<Field> list) {
+    super(gson, properties);
+    this.ctor = ctor;
+    fields = list.toArray(new Field[list.size()]);
+    adapters = new TypeAdapter[fields.length];
+    runtimeCheck = new Class<?>[fields.length];
+    byRuntimeType = new boolean[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      final Type ft =
+          $Gson$Types.resolve(type.getType(), type.getRawType(), fields[i].getGenericType());
+      adapters[i] = (TypeAdapter<Object>) gson.getAdapter(TypeToken.get(ft));
+
+      // As Gson's TypeAdapterRuntimeTypeWrapper: only values of a plain
+      // class or type variable may be written by their own class.
+      //
+      byRuntimeType[i] = ft instanceof Class || ft instanceof TypeVariable;
+      runtimeCheck[i] = ft instanceof Class ? (Class<?>) ft : null;
+    }
+  }
+
+  @Override
+  public void writeFields(final JsonWriter out, final T value) throws IOException {
+    for (int i = 0; i < fields.length; i++) {
+      if (!properties.serialized[i]) {
+        continue;
+      }
+      final Object v;
+      try {
+        v = fields[i].get(value);
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException("Cannot read " + fields[i], e);
+      }
+      if (v == value) {
+        // Gson skips a field referring to its own object, such as Throwable.cause.
+        //
+        continue;
+      }
+      out.name(properties.names[i]);
+      if (v != null && byRuntimeType[i]) {
+        runtimeAdapter(adapters[i], runtimeCheck[i], v).write(out, v);
+      } else {
+        adapters[i].write(out, v);
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  protected T newInstance() {
+    try {
+      return (T) ctor.newInstance();
+    } catch (InvocationTargetException e) {
+      throw rethrow(e.getCause());
+    } catch (InstantiationException | IllegalAccessException e) {
+      throw new IllegalStateException("Cannot create " + ctor.getDeclaringClass(), e);
+    }
+  }
+
+  @Override
+  protected boolean readField(final JsonReader in, final String name, final T dst)
+      throws IOException {
+    final int i = properties.indexOf(name);
+    if (i < 0) {
+      return false;
+    }
+    final Field f = fields[i];
+    final Object v = adapters[i].read(in);
+    if (v != null || !f.getType().isPrimitive()) {
+      try {
+        f.set(dst, v);
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException("Cannot write " + f, e);
+      }
+    }
+    return true;
+  }
+}
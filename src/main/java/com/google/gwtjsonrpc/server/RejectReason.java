@@ -0,0 +1,64 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+/**
+ * Reasons a call is rejected before its service method is invoked.
+ *
+ * @see JsonServlet#getRejectedCount(RejectReason)
+ */
+public enum RejectReason {
+  /** The request body is not declared as JSON. */
+  CONTENT_TYPE,
+
+  /** The request body is not declared as UTF-8. */
+  CHARACTER_ENCODING,
+
+  /** The request body uses an unknown Content-Encoding, or does not decompress. */
+  CONTENT_ENCODING,
+
+  /** The request has no body. */
+  BODY_REQUIRED,
+
+  /**
+   * The request body, once decompressed, is larger than {@link JsonServlet#maxRequestSize()}, or
+   * than the {@link com.google.gwtjsonrpc.common.BulkUpload} limit of the method it calls.
+   */
+  BODY_TOO_LARGE,
+
+  /** The request is a bulk upload while {@link JsonServlet#maxBulkUploads()} others are running. */
+  BULK_UPLOADS,
+
+  /** The request body ended before its Content-Length. */
+  INCOMPLETE_BODY,
+
+  /** The request body is not valid UTF-8. */
+  NOT_UTF8,
+
+  /** The request is not a well formed JSON-RPC call. */
+  MALFORMED,
+
+  /** The request names a method the service does not declare. */
+  NO_SUCH_METHOD,
+
+  /** The JSONP callback name is not safe to return. */
+  UNSAFE_CALLBACK,
+
+  /** The request is neither a GET nor a POST. */
+  HTTP_METHOD,
+
+  /** The XSRF token is missing or invalid. */
+  INVALID_XSRF
+}
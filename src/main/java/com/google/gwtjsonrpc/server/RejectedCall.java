@@ -0,0 +1,173 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.internal.bind.TypeAdapters;
+import com.google.gson.stream.JsonWriter;
+import com.google.gwtjsonrpc.common.JsonConstants;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Preallocated failure of a call rejected before its service method is invoked.
+ *
+ * <p>Malformed and abusive traffic is rejected often, so these failures carry no stack trace and
+ * their error member is serialized once. {@link #response(ActiveCall)} then assembles the reply
+ * without building a Gson instance.
+ */
+@SuppressWarnings("serial")
+final class RejectedCall extends Exception {
+  static final RejectedCall CONTENT_TYPE =
+      parse(RejectReason.CONTENT_TYPE, "Invalid Request Content-Type");
+  static final RejectedCall CHARACTER_ENCODING =
+      parse(RejectReason.CHARACTER_ENCODING, "Invalid Request Character-Encoding");
+  static final RejectedCall CONTENT_ENCODING =
+      parse(RejectReason.CONTENT_ENCODING, "Invalid Request Content-Encoding");
+  static final RejectedCall CORRUPT_BODY =
+      parse(RejectReason.CONTENT_ENCODING, "Invalid Request Compressed Body");
+  static final RejectedCall BODY_REQUIRED =
+      parse(RejectReason.BODY_REQUIRED, "Invalid Request POST Body Required");
+  static final RejectedCall BODY_TOO_LARGE =
+      parse(RejectReason.BODY_TOO_LARGE, "Invalid Request POST Body Too Large");
+  static final RejectedCall BULK_UPLOADS =
+      parse(RejectReason.BULK_UPLOADS, "Invalid Request Too Many Bulk Uploads");
+  static final RejectedCall INCOMPLETE_BODY =
+      parse(RejectReason.INCOMPLETE_BODY, "Invalid Request Incomplete Body");
+  static final RejectedCall NOT_UTF8 = parse(RejectReason.NOT_UTF8, "Invalid Request Not UTF-8");
+  static final RejectedCall EXPECTED_OBJECT = parse(RejectReason.MALFORMED, "Expected object");
+  static final RejectedCall EXPECTED_PARAMS =
+      parse(RejectReason.MALFORMED, "Expected params array");
+  static final RejectedCall EXPECTED_JSONRPC =
+      parse(RejectReason.MALFORMED, "Expected jsonrpc=2.0");
+  static final RejectedCall EXPECTED_VERSION =
+      parse(RejectReason.MALFORMED, "Expected version=1.1");
+  static final RejectedCall EXPECTED_ANY_VERSION =
+      parse(RejectReason.MALFORMED, "Expected version=1.1 or jsonrpc=2.0");
+  static final RejectedCall EXPECTED_METHOD =
+      parse(RejectReason.MALFORMED, "Expected method name as string");
+  static final RejectedCall EXPECTED_CALLBACK =
+      parse(RejectReason.MALFORMED, "Expected callback as string");
+  static final RejectedCall EXPECTED_XSRF_KEY =
+      parse(RejectReason.MALFORMED, "Expected xsrfKey as string");
+  static final RejectedCall NO_SUCH_METHOD =
+      new RejectedCall(RejectReason.NO_SUCH_METHOD, "No such service method", null);
+  static final RejectedCall UNSAFE_CALLBACK =
+      new RejectedCall(RejectReason.UNSAFE_CALLBACK, "Unsafe name in 'callback' property", null);
+  static final RejectedCall HTTP_METHOD =
+      new RejectedCall(RejectReason.HTTP_METHOD, "Unsupported HTTP method", null);
+  static final RejectedCall INVALID_XSRF =
+      new RejectedCall(RejectReason.INVALID_XSRF, JsonConstants.ERROR_INVALID_XSRF, null);
+
+  /** Request parse error standing for a {@link RejectedCall}. */
+  static final class ParseError extends JsonParseException {
+    RejectedCall rejection;
+
+    private ParseError(final String message) {
+      super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+
+  private static RejectedCall parse(final RejectReason reason, final String message) {
+    final ParseError e = new ParseError(message);
+    e.rejection = new RejectedCall(reason, "Error parsing request", e);
+    return e.rejection;
+  }
+
+  final RejectReason reason;
+  private final String error11;
+  private final String error20;
+  private final byte[] bare;
+
+  private RejectedCall(final RejectReason reason, final String message, final ParseError cause) {
+    super(message, cause, false, false);
+    this.reason = reason;
+
+    // Same members, in the same order, as JsonServlet.formatResult.
+    //
+    final JsonObject e11 = new JsonObject();
+    e11.addProperty("name", "JSONRPCError");
+    e11.addProperty("code", 999);
+    e11.addProperty("message", message);
+    final JsonObject e20 = new JsonObject();
+    e20.addProperty("code", -32603 /* Internal error. */);
+    e20.addProperty("message", message);
+    if (cause != null) {
+      e11.addProperty("cause", cause.getMessage());
+      e20.addProperty("cause", cause.getMessage());
+    }
+    error11 = json(e11);
+    error20 = json(e20);
+    bare = ("{\"error\":" + error11 + "}").getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** @return the parse error to throw while reading the request. */
+  JsonParseException error() {
+    return (JsonParseException) getCause();
+  }
+
+  /**
+   * Format the response to a call that failed with this rejection.
+   *
+   * @param call the rejected call.
+   * @return UTF-8 JSON response; null if the call needs the full formatter.
+   */
+  byte[] response(final ActiveCall call) {
+    if (call.callback != null || call.xsrfKeyOut != null) {
+      return null;
+    }
+    final boolean hasId = call.id != null && !call.id.isJsonNull();
+    if (call.versionName == null && !hasId) {
+      return bare;
+    }
+
+    final StringBuilder r = new StringBuilder("{");
+    if (call.versionName != null) {
+      r.append('"').append(call.versionName).append("\":");
+      r.append(json(call.versionValue)).append(',');
+    }
+    if (hasId) {
+      r.append("\"id\":").append(json(call.id)).append(',');
+    }
+    r.append("\"error\":");
+    r.append("jsonrpc".equals(call.versionName) ? error20 : error11);
+    r.append('}');
+    return r.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** Write a tree the way the default Gson configuration does. */
+  private static String json(final JsonElement e) {
+    final StringWriter s = new StringWriter();
+    final JsonWriter w = new JsonWriter(s);
+    w.setLenient(true);
+    w.setHtmlSafe(true);
+    w.setSerializeNulls(false);
+    try {
+      TypeAdapters.JSON_ELEMENT.write(w, e);
+    } catch (IOException err) {
+      throw new JsonIOException(err);
+    }
+    return s.toString();
+  }
+}
@@ -0,0 +1,152 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Reads a request body, decompressing it if needed.
+ *
+ * <p>Bodies without a Content-Length, such as chunked ones, are read to their end. The size limit
+ * applies to the bytes after decompression and is checked as they are read, so a small compressed
+ * body cannot expand into a large buffer.
+ */
+final class RequestBody {
+  private static final int CHUNK = 8192;
+
+  /**
+   * Decompress a body.
+   *
+   * @param in the request's input stream.
+   * @param encoding declared Content-Encoding; null if none.
+   * @return stream of the body's bytes; <code>in</code> itself if the body is not compressed.
+   * @throws com.google.gson.JsonParseException the encoding is rejected, see {@link RejectedCall}.
+   * @throws IOException the body could not be read.
+   */
+  static InputStream decode(final InputStream in, final String encoding) throws IOException {
+    if (encoding == null || encoding.isEmpty() || "identity".equalsIgnoreCase(encoding)) {
+      return in;
+    }
+    try {
+      if ("gzip".equalsIgnoreCase(encoding) || "x-gzip".equalsIgnoreCase(encoding)) {
+        return new GZIPInputStream(in, CHUNK);
+      } else if ("deflate".equalsIgnoreCase(encoding)) {
+        return inflate(in);
+      }
+    } catch (EOFException e) {
+      throw RejectedCall.INCOMPLETE_BODY.error();
+    } catch (ZipException e) {
+      throw RejectedCall.CORRUPT_BODY.error();
+    }
+    throw RejectedCall.CONTENT_ENCODING.error();
+  }
+
+  /** Inflate zlib data as HTTP specifies, or raw deflate data as some clients send instead. */
+  private static InputStream inflate(final InputStream in) throws IOException {
+    final PushbackInputStream p = new PushbackInputStream(in, 2);
+    final int cmf = p.read();
+    final int flg = cmf < 0 ? -1 : p.read();
+    if (flg >= 0) {
+      p.unread(flg);
+    }
+    if (cmf >= 0) {
+      p.unread(cmf);
+    }
+    final boolean zlib = flg >= 0 && (cmf & 0x0f) == 8 && ((cmf << 8) | flg) % 31 == 0;
+    return new InflaterInputStream(p, new Inflater(!zlib), CHUNK);
+  }
+
+  /**
+   * Read a body.
+   *
+   * @param in stream of the body's bytes, see {@link #decode(InputStream, String)}.
+   * @param length declared Content-Length of an uncompressed body; -1 if unknown.
+   * @param max largest body accepted.
+   * @param overflow if true a larger body is not rejected; its first <code>max + 1</code> bytes
+   *     are returned instead, leaving the rest in <code>in</code>.
+   * @return the body, positioned at its start.
+   * @throws com.google.gson.JsonParseException the body is rejected, see {@link RejectedCall}.
+   * @throws IOException the body could not be read.
+   */
+  static ByteBuffer read(
+      final InputStream in, final int length, final int max, final boolean overflow)
+      throws IOException {
+    if (0 <= length && length <= max) {
+      return readFully(in, length);
+    }
+
+    // Never grow past one byte more than the limit.
+    //
+    final long cap = Math.min(max + 1L, Integer.MAX_VALUE - 8);
+    byte[] body = new byte[(int) Math.min(CHUNK, cap)];
+    int len = 0;
+    for (; ; ) {
+      if (len == body.length) {
+        body = Arrays.copyOf(body, (int) Math.min(2L * body.length, cap));
+      }
+      final int n = read(in, body, len, body.length - len);
+      if (n < 0) {
+        break;
+      }
+      len += n;
+      if (len > max) {
+        if (overflow) {
+          break;
+        }
+        throw RejectedCall.BODY_TOO_LARGE.error();
+      }
+    }
+    if (len == 0) {
+      throw RejectedCall.BODY_REQUIRED.error();
+    }
+    return ByteBuffer.wrap(body, 0, len);
+  }
+
+  private static ByteBuffer readFully(final InputStream in, final int length) throws IOException {
+    final byte[] body = new byte[length];
+    int off = 0;
+    while (off < length) {
+      final int n = read(in, body, off, length - off);
+      if (n <= 0) {
+        throw RejectedCall.INCOMPLETE_BODY.error();
+      }
+      off += n;
+    }
+    return ByteBuffer.wrap(body);
+  }
+
+  /** Read from a body, rejecting it if its compressed data is cut short or corrupt. */
+  static int read(final InputStream in, final byte[] b, final int off, final int len)
+      throws IOException {
+    try {
+      return in.read(b, off, len);
+    } catch (EOFException e) {
+      throw RejectedCall.INCOMPLETE_BODY.error();
+    } catch (ZipException e) {
+      throw RejectedCall.CORRUPT_BODY.error();
+    }
+  }
+
+  private RequestBody() {}
+}
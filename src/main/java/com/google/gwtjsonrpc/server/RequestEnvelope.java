@@ -0,0 +1,247 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * Splits a JSON-RPC request body into its envelope and the raw text of its parameters.
+ *
+ * <p>Only the small envelope members are parsed; the <code>params</code> value is located by
+ * matching brackets and kept as text, so a call rejected before it is invoked never pays for
+ * reading its parameters. Bodies the scanner does not understand are left to the full parser,
+ * which also reports their errors.
+ */
+final class RequestEnvelope {
+  final JsonObject fields;
+  final String params;
+
+  private RequestEnvelope(final JsonObject fields, final String params) {
+    this.fields = fields;
+    this.params = params;
+  }
+
+  /**
+   * Scan a request body.
+   *
+   * @param body the complete request body.
+   * @return the envelope; null if the body is not a plain JSON object.
+   */
+  static RequestEnvelope scan(final String body) {
+    final JsonParser parser = new JsonParser();
+    final JsonObject fields = new JsonObject();
+    String params = null;
+
+    int p = skipSpace(body, start(body));
+    if (p >= body.length() || body.charAt(p) != '{') {
+      return null;
+    }
+    p = skipSpace(body, p + 1);
+    if (p < body.length() && body.charAt(p) == '}') {
+      p++;
+    } else {
+      for (; ; ) {
+        if (p >= body.length() || body.charAt(p) != '"') {
+          return null;
+        }
+        final int keyEnd = stringEnd(body, p);
+        if (keyEnd < 0) {
+          return null;
+        }
+        final String key = name(parser, body, p, keyEnd);
+        if (key == null) {
+          return null;
+        }
+
+        p = skipSpace(body, keyEnd);
+        if (p >= body.length() || body.charAt(p) != ':') {
+          return null;
+        }
+        final int start = skipSpace(body, p + 1);
+        final int end = valueEnd(body, start);
+        if (end < 0) {
+          return null;
+        }
+        if ("params".equals(key)) {
+          params = body.substring(start, end);
+        } else {
+          try {
+            fields.add(key, parser.parse(body.substring(start, end)));
+          } catch (JsonParseException e) {
+            return null;
+          }
+        }
+
+        p = skipSpace(body, end);
+        if (p >= body.length()) {
+          return null;
+        }
+        final char c = body.charAt(p++);
+        if (c == '}') {
+          break;
+        } else if (c != ',') {
+          return null;
+        }
+        p = skipSpace(body, p);
+      }
+    }
+    if (skipSpace(body, p) != body.length()) {
+      return null;
+    }
+    return new RequestEnvelope(fields, params);
+  }
+
+  /**
+   * Find the method a request calls from the start of its body.
+   *
+   * @param head the first part of a body, possibly cut short anywhere.
+   * @return the method name, if it precedes the parameters; null otherwise.
+   */
+  static String peekMethod(final String head) {
+    int p = skipSpace(head, start(head));
+    if (p >= head.length() || head.charAt(p) != '{') {
+      return null;
+    }
+    p = skipSpace(head, p + 1);
+    while (p < head.length() && head.charAt(p) == '"') {
+      final int keyEnd = stringEnd(head, p);
+      if (keyEnd < 0) {
+        return null;
+      }
+      final String key = name(new JsonParser(), head, p, keyEnd);
+      if (key == null || "params".equals(key)) {
+        return null;
+      }
+
+      p = skipSpace(head, keyEnd);
+      if (p >= head.length() || head.charAt(p) != ':') {
+        return null;
+      }
+      final int start = skipSpace(head, p + 1);
+      final int end = valueEnd(head, start);
+      if (end < 0 || end == head.length()) {
+        return null;
+      }
+      if ("method".equals(key)) {
+        try {
+          final JsonElement m = new JsonParser().parse(head.substring(start, end));
+          return m.isJsonPrimitive() ? m.getAsString() : null;
+        } catch (JsonParseException e) {
+          return null;
+        }
+      }
+
+      p = skipSpace(head, end);
+      if (p >= head.length() || head.charAt(p) != ',') {
+        return null;
+      }
+      p = skipSpace(head, p + 1);
+    }
+    return null;
+  }
+
+  /** @return true if the body may hold a JSON object; false if no parser would read one. */
+  static boolean isObject(final String body) {
+    final int p = skipSpace(body, start(body));
+    return p < body.length() && body.charAt(p) == '{';
+  }
+
+  /** @return index of the first character after a byte order mark, as JsonReader skips it. */
+  private static int start(final String body) {
+    return body.startsWith("\ufeff") ? 1 : 0;
+  }
+
+  private static String name(
+      final JsonParser parser, final String body, final int start, final int end) {
+    final String s = body.substring(start, end);
+    if (s.indexOf('\\') < 0) {
+      return s.substring(1, s.length() - 1);
+    }
+    try {
+      return parser.parse(s).getAsString();
+    } catch (JsonParseException e) {
+      return null;
+    }
+  }
+
+  private static int skipSpace(final String s, int p) {
+    while (p < s.length()) {
+      final char c = s.charAt(p);
+      if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+        break;
+      }
+      p++;
+    }
+    return p;
+  }
+
+  /** @return index just past the string starting at <code>p</code>; -1 if unterminated. */
+  private static int stringEnd(final String s, int p) {
+    for (p++; p < s.length(); p++) {
+      final char c = s.charAt(p);
+      if (c == '\\') {
+        p++;
+      } else if (c == '"') {
+        return p + 1;
+      }
+    }
+    return -1;
+  }
+
+  /** @return index just past the value starting at <code>p</code>; -1 if malformed. */
+  static int valueEnd(final String s, int p) {
+    if (p >= s.length()) {
+      return -1;
+    }
+    final char first = s.charAt(p);
+    if (first == '"') {
+      return stringEnd(s, p);
+    }
+    if (first == '[' || first == '{') {
+      int depth = 0;
+      while (p < s.length()) {
+        final char c = s.charAt(p);
+        if (c == '"') {
+          p = stringEnd(s, p);
+          if (p < 0) {
+            return -1;
+          }
+          continue;
+        }
+        if (c == '[' || c == '{') {
+          depth++;
+        } else if (c == ']' || c == '}') {
+          if (--depth == 0) {
+            return p + 1;
+          }
+        }
+        p++;
+      }
+      return -1;
+    }
+    final int start = p;
+    while (p < s.length()) {
+      final char c = s.charAt(p);
+      if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+        break;
+      }
+      p++;
+    }
+    return p > start ? p : -1;
+  }
+}
@@ -0,0 +1,166 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response formatted into arrays borrowed from a {@link BufferPool}.
+ *
+ * <p>The response is written as chars, then encoded to UTF-8 and optionally compressed, each step
+ * into another borrowed array. {@link #release()} must be called once the encoded bytes have been
+ * written out.
+ */
+final class ResponseBuffer extends Writer {
+  private final BufferPool pool;
+  private char[] chars;
+  private int length;
+  private final Bytes encoded = new Bytes();
+  private final Bytes compressed = new Bytes();
+
+  ResponseBuffer(final BufferPool pool) {
+    this.pool = pool;
+    chars = pool.takeChars(BufferPool.MIN_SIZE);
+  }
+
+  /** @return number of chars written. */
+  int length() {
+    return length;
+  }
+
+  private void ensure(final int n) {
+    if (n > chars.length) {
+      final char[] c = pool.takeChars(BufferPool.grow(chars.length, n));
+      System.arraycopy(chars, 0, c, 0, length);
+      pool.release(chars);
+      chars = c;
+    }
+  }
+
+  @Override
+  public void write(final int c) {
+    ensure(length + 1);
+    chars[length++] = (char) c;
+  }
+
+  @Override
+  public void write(final char[] cbuf, final int off, final int len) {
+    ensure(length + len);
+    System.arraycopy(cbuf, off, chars, length, len);
+    length += len;
+  }
+
+  @Override
+  public void write(final String str, final int off, final int len) {
+    ensure(length + len);
+    str.getChars(off, off + len, chars, length);
+    length += len;
+  }
+
+  @Override
+  public void flush() {}
+
+  @Override
+  public void close() {}
+
+  /**
+   * Encode the response as UTF-8.
+   *
+   * @param gzip compress the encoded response.
+   * @return the bytes to send; valid until {@link #release()}.
+   */
+  ByteBuffer encode(final boolean gzip) throws IOException {
+    // Lone surrogates are replaced, just as String.getBytes would.
+    //
+    final CharsetEncoder enc = StandardCharsets.UTF_8.newEncoder();
+    enc.onMalformedInput(CodingErrorAction.REPLACE);
+    enc.onUnmappableCharacter(CodingErrorAction.REPLACE);
+    final CharBuffer in = CharBuffer.wrap(chars, 0, length);
+    encoded.ensure(length + 16);
+    ByteBuffer out = ByteBuffer.wrap(encoded.buf);
+    while (enc.encode(in, out, true).isOverflow()) {
+      encoded.count = out.position();
+      encoded.ensure(encoded.buf.length + 1);
+      out = ByteBuffer.wrap(encoded.buf, encoded.count, encoded.buf.length - encoded.count);
+    }
+    enc.flush(out);
+    encoded.count = out.position();
+
+    if (!gzip) {
+      return ByteBuffer.wrap(encoded.buf, 0, encoded.count);
+    }
+    compressed.ensure(encoded.count / 4 + 64);
+    try (GZIPOutputStream gz = new GZIPOutputStream(compressed)) {
+      gz.write(encoded.buf, 0, encoded.count);
+    }
+    return ByteBuffer.wrap(compressed.buf, 0, compressed.count);
+  }
+
+  /** Return all borrowed arrays to the pool. */
+  void release() {
+    if (chars != null) {
+      pool.release(chars);
+      chars = null;
+    }
+    encoded.release();
+    compressed.release();
+  }
+
+  /** Byte sink growing through the pool. */
+  private final class Bytes extends OutputStream {
+    byte[] buf;
+    int count;
+
+    void ensure(final int n) {
+      if (buf == null) {
+        buf = pool.takeBytes(n);
+      } else if (n > buf.length) {
+        final byte[] b = pool.takeBytes(BufferPool.grow(buf.length, n));
+        System.arraycopy(buf, 0, b, 0, count);
+        pool.release(buf);
+        buf = b;
+      }
+    }
+
+    @Override
+    public void write(final int b) {
+      ensure(count + 1);
+      buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+      ensure(count + len);
+      System.arraycopy(b, off, buf, count, len);
+      count += len;
+    }
+
+    void release() {
+      if (buf != null) {
+        pool.release(buf);
+        buf = null;
+        count = 0;
+      }
+    }
+  }
+}
@@ -0,0 +1,100 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import com.google.gson.internal.ConstructorConstructor;
+import com.google.gson.internal.Primitives;
+import com.google.gson.reflect.TypeToken;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds throw-away instances of parameter and result types for warm-up.
+ *
+ * <p>Primitives and their wrappers get a zero value, strings are empty, enums take their first
+ * constant and arrays hold one sample element. Other classes are constructed the way Gson would
+ * construct them before reading their fields, leaving every field at its default.
+ */
+final class SampleValues {
+  private static final int MAX_DEPTH = 4;
+  private static final Map<Class<?>, Object> ZERO;
+
+  static {
+    ZERO = new HashMap<>();
+    ZERO.put(Boolean.class, Boolean.FALSE);
+    ZERO.put(Character.class, 'a');
+    ZERO.put(Byte.class, (byte) 0);
+    ZERO.put(Short.class, (short) 0);
+    ZERO.put(Integer.class, 0);
+    ZERO.put(Long.class, 0L);
+    ZERO.put(Float.class, 0f);
+    ZERO.put(Double.class, 0d);
+    ZERO.put(String.class, "");
+  }
+
+  private final ConstructorConstructor constructors =
+      new ConstructorConstructor(new HashMap<>());
+
+  /**
+   * Create a sample value.
+   *
+   * @param type declared type of the value.
+   * @return a new instance assignable to <code>type</code>; null if none can be made.
+   */
+  Object create(final Type type) {
+    return create(type, 0);
+  }
+
+  private Object create(final Type type, final int depth) {
+    final Class<?> raw = TypeToken.get(type).getRawType();
+    final Object zero = ZERO.get(Primitives.wrap(raw));
+    if (zero != null) {
+      return zero;
+    }
+    if (raw.isEnum()) {
+      final Object[] c = raw.getEnumConstants();
+      return c.length > 0 ? c[0] : null;
+    }
+    if (raw.isArray()) {
+      final Type component =
+          type instanceof GenericArrayType
+              ? ((GenericArrayType) type).getGenericComponentType()
+              : raw.getComponentType();
+      final Object a = Array.newInstance(raw.getComponentType(), 1);
+      if (!raw.getComponentType().isPrimitive() && depth < MAX_DEPTH) {
+        Array.set(a, 0, create(component, depth + 1));
+      }
+      return a;
+    }
+    if (raw == Object.class || raw.isInterface() || Modifier.isAbstract(raw.getModifiers())) {
+      // Gson supplies implementations for collection and map types;
+      // anything else has no class to construct.
+      //
+      if (!java.util.Collection.class.isAssignableFrom(raw)
+          && !java.util.Map.class.isAssignableFrom(raw)) {
+        return null;
+      }
+    }
+    try {
+      return constructors.get(TypeToken.get(type)).construct();
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Executors suitable for {@link JsonServlet#createServiceExecutor()}.
+ *
+ * <p>This is the implementation used on JVMs without virtual threads. The JAR is built as a
+ * multi-release JAR, and on Java 21 or later the class in <code>META-INF/versions/21</code>
+ * replaces this one.
+ */
+public final class ServiceExecutors {
+  /** @return true if {@link #newVirtualThreadPerTaskExecutor()} returns an executor. */
+  public static boolean isVirtualThreadSupported() {
+    return false;
+  }
+
+  /**
+   * Create an executor that starts a new virtual thread for each call.
+   *
+   * @return the executor; null if the running JVM does not support virtual threads, in which case
+   *     calls are invoked on the container thread as before.
+   */
+  public static ExecutorService newVirtualThreadPerTaskExecutor() {
+    return null;
+  }
+
+  private ServiceExecutors() {}
+}
@@ -14,45 +14,37 @@
 
 package com.google.gwtjsonrpc.server;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonNull;
 import com.google.gson.JsonParseException;
-import com.google.gson.JsonPrimitive;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
-import java.lang.reflect.Type;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
 
-public class SqlDateDeserializer
-    implements JsonDeserializer<java.sql.Date>, JsonSerializer<java.sql.Date> {
+public class SqlDateDeserializer extends TypeAdapter<java.sql.Date> {
   @Override
-  public java.sql.Date deserialize(
-      final JsonElement json, final Type typeOfT, final JsonDeserializationContext context)
-      throws JsonParseException {
-    if (json.isJsonNull()) {
-      return null;
+  public void write(final JsonWriter out, final java.sql.Date src) throws IOException {
+    if (src == null) {
+      out.nullValue();
+    } else {
+      out.value(src.toString());
     }
-    if (!json.isJsonPrimitive()) {
-      throw new JsonParseException("Expected string for date type");
+  }
+
+  @Override
+  public java.sql.Date read(final JsonReader in) throws IOException {
+    final JsonToken t = in.peek();
+    if (t == JsonToken.NULL) {
+      in.nextNull();
+      return null;
     }
-    final JsonPrimitive p = (JsonPrimitive) json;
-    if (!p.isString()) {
+    if (t != JsonToken.STRING) {
       throw new JsonParseException("Expected string for date type");
     }
     try {
-      return java.sql.Date.valueOf(p.getAsString());
+      return java.sql.Date.valueOf(in.nextString());
     } catch (IllegalArgumentException e) {
       throw new JsonParseException("Not a date string");
     }
   }
-
-  @Override
-  public JsonElement serialize(
-      final java.sql.Date src, final Type typeOfSrc, final JsonSerializationContext context) {
-    if (src == null) {
-      return JsonNull.INSTANCE;
-    }
-    return new JsonPrimitive(src.toString());
-  }
 }
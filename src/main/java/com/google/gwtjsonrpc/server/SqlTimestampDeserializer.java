@@ -14,48 +14,93 @@
 
 package com.google.gwtjsonrpc.server;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonNull;
 import com.google.gson.JsonParseException;
-import com.google.gson.JsonPrimitive;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.google.gwtjsonrpc.common.JavaSqlTimestampHelper;
-import java.lang.reflect.Type;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.TimeZone;
 
-public class SqlTimestampDeserializer
-    implements JsonDeserializer<java.sql.Timestamp>, JsonSerializer<java.sql.Timestamp> {
+/**
+ * Reads and writes a {@link java.sql.Timestamp} as <code>"yyyy-MM-dd HH:mm:ss.SSS000000"</code> in
+ * UTC.
+ *
+ * <p>Timestamps from 1583 to 9999 are formatted by hand into a char array; others, where the
+ * Julian calendar or a longer year applies, by SimpleDateFormat.
+ */
+public class SqlTimestampDeserializer extends TypeAdapter<java.sql.Timestamp> {
   private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+  private static final long DAY = 86400000L;
+  private static final long MIN = -12212553600000L; // 1583-01-01
+  private static final long MAX = 253402300800000L; // 10000-01-01
 
   @Override
-  public java.sql.Timestamp deserialize(
-      final JsonElement json, final Type typeOfT, final JsonDeserializationContext context)
-      throws JsonParseException {
-    if (json.isJsonNull()) {
+  public void write(final JsonWriter out, final java.sql.Timestamp src) throws IOException {
+    if (src == null) {
+      out.nullValue();
+    } else {
+      out.value(format(src.getTime()));
+    }
+  }
+
+  @Override
+  public java.sql.Timestamp read(final JsonReader in) throws IOException {
+    final JsonToken t = in.peek();
+    if (t == JsonToken.NULL) {
+      in.nextNull();
       return null;
     }
-    if (!json.isJsonPrimitive()) {
+    if (t != JsonToken.STRING) {
       throw new JsonParseException("Expected string for timestamp type");
     }
-    final JsonPrimitive p = (JsonPrimitive) json;
-    if (!p.isString()) {
-      throw new JsonParseException("Expected string for timestamp type");
+    return JavaSqlTimestampHelper.parseTimestamp(in.nextString());
+  }
+
+  static String format(final long millis) {
+    if (millis < MIN || MAX <= millis) {
+      return newFormat().format(new java.util.Date(millis)) + "000000";
     }
+    final int ms = (int) Math.floorMod(millis, DAY);
+
+    // civil date from days since 1970-01-01, in 400 year eras starting on March 1st
+    final long z = Math.floorDiv(millis, DAY) + 719468;
+    final int era = (int) (z / 146097);
+    final int doe = (int) (z - era * 146097L);
+    final int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+    final int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+    final int mp = (5 * doy + 2) / 153;
+    final int d = doy - (153 * mp + 2) / 5 + 1;
+    final int m = mp < 10 ? mp + 3 : mp - 9;
+    final int y = yoe + era * 400 + (m <= 2 ? 1 : 0);
 
-    return JavaSqlTimestampHelper.parseTimestamp(p.getAsString());
+    final char[] c = new char[29];
+    put(c, 0, y, 4);
+    c[4] = '-';
+    put(c, 5, m, 2);
+    c[7] = '-';
+    put(c, 8, d, 2);
+    c[10] = ' ';
+    put(c, 11, ms / 3600000, 2);
+    c[13] = ':';
+    put(c, 14, ms / 60000 % 60, 2);
+    c[16] = ':';
+    put(c, 17, ms / 1000 % 60, 2);
+    c[19] = '.';
+    put(c, 20, ms % 1000, 3);
+    for (int i = 23; i < c.length; i++) {
+      c[i] = '0';
+    }
+    return new String(c);
   }
 
-  @Override
-  public JsonElement serialize(
-      final java.sql.Timestamp src, final Type typeOfSrc, final JsonSerializationContext context) {
-    if (src == null) {
-      return JsonNull.INSTANCE;
+  private static void put(final char[] c, final int pos, int v, final int len) {
+    for (int i = pos + len - 1; i >= pos; i--) {
+      c[i] = (char) ('0' + v % 10);
+      v /= 10;
     }
-    return new JsonPrimitive(newFormat().format(src) + "000000");
   }
 
   private static SimpleDateFormat newFormat() {
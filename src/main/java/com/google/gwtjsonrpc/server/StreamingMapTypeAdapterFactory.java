@@ -0,0 +1,127 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads and writes maps in the format of {@link MapDeserializer}, streaming instead of building a
+ * JsonElement for every map.
+ *
+ * <p>Maps with String keys are an object; maps with other keys are an array alternating keys and
+ * values, <code>[k1, v1, k2, v2, ...]</code>. Maps read are HashMaps, so only map types a HashMap
+ * can be assigned to, declared with type arguments, are handled. The key and value adapters are
+ * looked up once for each map type.
+ */
+public class StreamingMapTypeAdapterFactory implements TypeAdapterFactory {
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> TypeAdapter<T> create(final Gson gson, final TypeToken<T> type) {
+    if (!(type.getType() instanceof ParameterizedType)
+        || !Map.class.isAssignableFrom(type.getRawType())
+        || !type.getRawType().isAssignableFrom(HashMap.class)) {
+      return null;
+    }
+    final Type[] args = ((ParameterizedType) type.getType()).getActualTypeArguments();
+    return (TypeAdapter<T>)
+        new Adapter<>(
+            args[0] == String.class,
+            gson.getAdapter(TypeToken.get(args[0])),
+            gson.getAdapter(TypeToken.get(args[1])));
+  }
+
+  private static final class Adapter<K, V> extends TypeAdapter<Map<K, V>> {
+    private final boolean stringKeys;
+    private final TypeAdapter<K> keys;
+    private final TypeAdapter<V> values;
+
+    Adapter(final boolean stringKeys, final TypeAdapter<K> keys, final TypeAdapter<V> values) {
+      this.stringKeys = stringKeys;
+      this.keys = keys;
+      this.values = values;
+    }
+
+    @Override
+    public void write(final JsonWriter out, final Map<K, V> src) throws IOException {
+      if (src == null) {
+        out.nullValue();
+      } else if (stringKeys) {
+        out.beginObject();
+        for (final Map.Entry<K, V> e : src.entrySet()) {
+          out.name(e.getKey().toString());
+          values.write(out, e.getValue());
+        }
+        out.endObject();
+      } else {
+        out.beginArray();
+        for (final Map.Entry<K, V> e : src.entrySet()) {
+          keys.write(out, e.getKey());
+          values.write(out, e.getValue());
+        }
+        out.endArray();
+      }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<K, V> read(final JsonReader in) throws IOException {
+      final JsonToken t = in.peek();
+      if (t == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+
+      final Map<K, V> r = new HashMap<>();
+      if (stringKeys) {
+        if (t != JsonToken.BEGIN_OBJECT) {
+          throw new JsonParseException("Expected object for map type");
+        }
+        in.beginObject();
+        while (in.hasNext()) {
+          final K k = (K) in.nextName();
+          r.put(k, values.read(in));
+        }
+        in.endObject();
+        return r;
+      }
+
+      if (t != JsonToken.BEGIN_ARRAY) {
+        throw new JsonParseException("Expected array for map type");
+      }
+      in.beginArray();
+      while (in.hasNext()) {
+        final K k = keys.read(in);
+        if (!in.hasNext()) {
+          throw new JsonParseException("Expected value after map key " + k);
+        }
+        r.put(k, values.read(in));
+      }
+      in.endArray();
+      return r;
+    }
+  }
+}
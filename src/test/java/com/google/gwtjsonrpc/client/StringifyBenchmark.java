@@ -0,0 +1,78 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.client;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.EntryPoint;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsonUtils;
+import com.google.gwt.dom.client.Document;
+import com.google.gwt.dom.client.PreElement;
+import com.google.gwtjsonrpc.client.impl.ser.JavaLangString_JsonSerializer;
+import com.google.gwtjsonrpc.client.impl.ser.ListSerializer;
+import com.google.gwtjsonrpc.client.impl.ser.StringMapSerializer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the two request encodings in the browser: JSON text appended by the serializers, and
+ * JavaScript values encoded by <code>JSON.stringify</code> (<code>gwtjsonrpc.stringify</code>).
+ *
+ * <p>Compile the StringifyBenchmark module with the test classes on the GWT classpath, open its
+ * host page and read the timings printed on the page.
+ */
+public class StringifyBenchmark implements EntryPoint {
+  private static final int ROWS = 20000;
+  private static final int ROUNDS = 5;
+
+  @Override
+  public void onModuleLoad() {
+    final List<Map<String, String>> rows = new ArrayList<>(ROWS);
+    for (int i = 0; i < ROWS; i++) {
+      final Map<String, String> row = new HashMap<>();
+      row.put("id", String.valueOf(i));
+      row.put("name", "Row \"" + i + "\"\n");
+      row.put("path", "/assets/" + (i % 97) + "/été.jpg");
+      rows.add(row);
+    }
+    final ListSerializer<Map<String, String>> ser =
+        new ListSerializer<>(new StringMapSerializer<>(JavaLangString_JsonSerializer.INSTANCE));
+
+    final StringBuilder out = new StringBuilder();
+    for (int round = 0; round < ROUNDS; round++) {
+      final double t0 = Duration.currentTimeMillis();
+      final StringBuilder sb = new StringBuilder();
+      ser.printJson(sb, rows);
+      final int printed = sb.toString().length();
+
+      final double t1 = Duration.currentTimeMillis();
+      final int stringified = JsonUtils.stringify((JavaScriptObject) ser.toJso(rows)).length();
+      final double t2 = Duration.currentTimeMillis();
+
+      out.append("round ").append(round);
+      out.append(": printJson ").append(t1 - t0).append(" ms (").append(printed).append(" chars)");
+      out.append(", JSON.stringify ").append(t2 - t1).append(" ms (");
+      out.append(stringified).append(" chars)\n");
+    }
+    report(out.toString());
+  }
+
+  private static void report(final String text) {
+    final PreElement pre = Document.get().createPreElement();
+    pre.setInnerText(text);
+    Document.get().getBody().appendChild(pre);
+  }
+}
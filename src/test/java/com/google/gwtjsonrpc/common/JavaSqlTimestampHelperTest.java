@@ -64,12 +64,31 @@ public class JavaSqlTimestampHelperTest {
     assertEquals("2006-01-02 09:04:05.789 -0500", reformat("2006-01-02 15:04:05.789 +0100"));
   }
 
+  @Test
+  public void parseFraction() {
+    assertEquals(700000000, parseTimestamp("2006-01-02 20:04:05.7").getNanos());
+    assertEquals(123456789, parseTimestamp("2006-01-02 20:04:05.123456789").getNanos());
+    assertEquals(123456789, parseTimestamp("2006-01-02 20:04:05.1234567891").getNanos());
+  }
+
+  @Test
+  public void parseRollsOverFields() {
+    assertEquals("2006-03-03 06:00:00.000 -0500", reformat("2006-02-30 35:00:00"));
+  }
+
+  @Test
+  public void parseOtherShapes() {
+    assertEquals("2006-01-02 15:04:05.000 -0500", reformat("2006-1-2 20:4:5"));
+    assertEquals("1066-10-13 19:00:00.000 -0500", reformat("1066-10-14"));
+  }
+
   @Test
   public void parseInvalidTimestamps() {
     assertInvalid("2006-01-02-15:04:05.789000000");
     assertInvalid("2006-01-02T15:04:05.789000000");
     assertInvalid("15:04:05");
     assertInvalid("15:04:05.999000000");
+    assertInvalid("2006-01-02 15:04:05.789 0500");
   }
 
   @Test
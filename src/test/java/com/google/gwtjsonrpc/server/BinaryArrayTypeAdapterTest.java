@@ -0,0 +1,101 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import com.google.gwtjsonrpc.common.BinaryArray;
+import com.google.gwtjsonrpc.server.dto.Sample;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BinaryArrayTypeAdapterTest {
+  static class Blob {
+    @BinaryArray byte[] data;
+    int size;
+  }
+
+  private Gson gson;
+
+  @Before
+  public void setUp() {
+    gson = JsonServlet.defaultGsonBuilder().create();
+  }
+
+  @Test
+  public void encodesLittleEndian() {
+    assertEquals("AQAAAP7///8=", BinaryArrayTypeAdapter.encode(new int[] {1, -2}));
+    assertEquals("AQAAAAAAAAA=", BinaryArrayTypeAdapter.encode(new long[] {1}));
+  }
+
+  @Test
+  public void roundTripsEveryType() {
+    final byte[] b = {1, -1, 127};
+    final int[] i = {0, Integer.MIN_VALUE, Integer.MAX_VALUE};
+    final long[] l = {Long.MIN_VALUE, -1, Long.MAX_VALUE};
+    final float[] f = {0.1f, Float.NaN, Float.NEGATIVE_INFINITY};
+    final double[] d = {0.1, Double.NaN, -0.0};
+    assertArrayEquals(b, (byte[]) decode(BinaryArrayTypeAdapter.encode(b), byte[].class));
+    assertArrayEquals(i, (int[]) decode(BinaryArrayTypeAdapter.encode(i), int[].class));
+    assertArrayEquals(l, (long[]) decode(BinaryArrayTypeAdapter.encode(l), long[].class));
+    assertArrayEquals(f, (float[]) decode(BinaryArrayTypeAdapter.encode(f), float[].class), 0);
+    assertArrayEquals(d, (double[]) decode(BinaryArrayTypeAdapter.encode(d), double[].class), 0);
+  }
+
+  @Test(expected = JsonSyntaxException.class)
+  public void rejectsPartialElements() {
+    decode("AQI=", int[].class);
+  }
+
+  @Test
+  public void generatedAdapterWritesAnnotatedFields() {
+    assertTrue(gson.getAdapter(Sample.class) instanceof GeneratedTypeAdapter);
+    final Sample s = new Sample();
+    s.setValues(new int[] {1});
+    s.setCounts(new long[] {2});
+    final JsonObject json = gson.toJsonTree(s).getAsJsonObject();
+    assertEquals("AQAAAA==", json.get("values").getAsString());
+    assertEquals(2, json.get("counts").getAsJsonArray().get(0).getAsInt());
+    assertFalse(json.has("weights"));
+  }
+
+  @Test
+  public void readsEitherForm() {
+    final Sample s =
+        gson.fromJson("{\"values\":[1,2],\"weights\":\"AAAAAAAA8D8=\"}", Sample.class);
+    assertArrayEquals(new int[] {1, 2}, s.getValues());
+    assertArrayEquals(new double[] {1}, s.getWeights(), 0);
+  }
+
+  @Test
+  public void reflectiveDtoWritesAnnotatedFields() {
+    final Blob b = new Blob();
+    b.data = new byte[] {1, 2};
+    b.size = 2;
+    final JsonObject json = gson.toJsonTree(b).getAsJsonObject();
+    assertEquals("AQI=", json.get("data").getAsString());
+    assertEquals(2, json.get("size").getAsInt());
+    assertArrayEquals(b.data, gson.fromJson("{\"data\":[1,2]}", Blob.class).data);
+  }
+
+  private static Object decode(final String text, final Class<?> type) {
+    return BinaryArrayTypeAdapter.decode(text, type);
+  }
+}
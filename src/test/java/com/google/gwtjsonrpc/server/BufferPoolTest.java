@@ -0,0 +1,150 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import org.junit.Test;
+
+public class BufferPoolTest {
+  @Test
+  public void reusesReleasedArrays() {
+    final BufferPool pool = new BufferPool(1 << 20);
+    final char[] c = pool.takeChars(5000);
+    assertEquals(8192, c.length);
+    pool.release(c);
+    assertEquals(16384, pool.getRetainedBytes());
+    assertSame(c, pool.takeChars(8000));
+    assertEquals(0, pool.getRetainedBytes());
+
+    final byte[] b = pool.takeBytes(1);
+    assertEquals(BufferPool.MIN_SIZE, b.length);
+    pool.release(b);
+    assertSame(b, pool.takeBytes(BufferPool.MIN_SIZE));
+    assertEquals(2, pool.getHits());
+    assertEquals(2, pool.getMisses());
+  }
+
+  @Test
+  public void keepsNoMoreThanLimit() {
+    final BufferPool pool = new BufferPool(10000);
+    final byte[] a = pool.takeBytes(8192);
+    final byte[] b = pool.takeBytes(8192);
+    pool.release(a);
+    pool.release(b);
+    assertEquals(8192, pool.getRetainedBytes());
+    assertSame(a, pool.takeBytes(8192));
+    assertNotSame(b, pool.takeBytes(8192));
+
+    final byte[] huge = pool.takeBytes(BufferPool.MAX_SIZE + 1);
+    assertEquals(BufferPool.MAX_SIZE + 1, huge.length);
+    pool.release(huge);
+    assertEquals(0, pool.getRetainedBytes());
+  }
+
+  private static byte[] bytes(final ByteBuffer b) {
+    final byte[] r = new byte[b.remaining()];
+    b.duplicate().get(r);
+    return r;
+  }
+
+  private static String text(final int n) {
+    final StringBuilder s = new StringBuilder();
+    for (int i = 0; s.length() < n; i++) {
+      s.append("{\"n\":").append(i).append(",\"s\":\"\u00e9\u20ac\ud83d\ude00\"},");
+    }
+    return s.toString();
+  }
+
+  @Test
+  public void encodesResponse() throws IOException {
+    final BufferPool pool = new BufferPool(1 << 24);
+    long misses = 0;
+    for (final int n : new int[] {10, 5000, 300000, 300000}) {
+      misses = pool.getMisses();
+      final String s = text(n);
+      final ResponseBuffer out = new ResponseBuffer(pool);
+      out.write(s);
+      final ByteBuffer b = out.encode(false);
+      assertEquals(s, new String(bytes(b), StandardCharsets.UTF_8));
+      out.release();
+    }
+    assertEquals(misses, pool.getMisses());
+  }
+
+  @Test
+  public void compressesResponse() throws IOException {
+    final BufferPool pool = new BufferPool(1 << 24);
+    final String s = text(100000);
+    long misses = 0;
+    for (int i = 0; i < 2; i++) {
+      misses = pool.getMisses();
+      final ResponseBuffer out = new ResponseBuffer(pool);
+      out.write(s);
+      final ByteBuffer b = out.encode(true);
+      final ByteArrayOutputStream plain = new ByteArrayOutputStream();
+      try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes(b)))) {
+        final byte[] buf = new byte[4096];
+        int n;
+        while ((n = in.read(buf)) >= 0) {
+          plain.write(buf, 0, n);
+        }
+      }
+      assertEquals(s, plain.toString("UTF-8"));
+      out.release();
+    }
+    assertEquals(misses, pool.getMisses());
+  }
+
+  @Test(timeout = 10000)
+  public void growsLinearlyPastLargestSizeClass() throws IOException {
+    final BufferPool pool = new BufferPool(1 << 24);
+    final String piece = text(64);
+    final int n = 3 * BufferPool.MAX_SIZE;
+    final ResponseBuffer out = new ResponseBuffer(pool);
+    try {
+      // Small writes, as a JsonWriter makes them.
+      //
+      while (out.length() < n) {
+        out.write(piece);
+      }
+      final ByteBuffer b = out.encode(true);
+      long plain = 0;
+      try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes(b)))) {
+        final byte[] buf = new byte[1 << 16];
+        int r;
+        while ((r = in.read(buf)) >= 0) {
+          plain += r;
+        }
+      }
+      assertEquals(out.length() / piece.length() * (long) utf8(piece), plain);
+    } finally {
+      out.release();
+    }
+  }
+
+  private static int utf8(final String s) {
+    return s.getBytes(StandardCharsets.UTF_8).length;
+  }
+}
@@ -0,0 +1,109 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.google.gson.JsonParseException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BulkBodyTest {
+  @Rule public final TemporaryFolder tmp = new TemporaryFolder();
+
+  private final Semaphore slots = new Semaphore(0);
+
+  private BulkBody spool(final byte[] data, final int head, final int max) throws IOException {
+    return BulkBody.spool(
+        tmp.getRoot(),
+        ByteBuffer.wrap(data, 0, head),
+        new ByteArrayInputStream(data, head, data.length - head),
+        max,
+        slots);
+  }
+
+  private static String readAll(final Reader r) throws IOException {
+    final StringBuilder s = new StringBuilder();
+    final char[] buf = new char[7];
+    int n;
+    while ((n = r.read(buf, 0, buf.length)) >= 0) {
+      s.append(buf, 0, n);
+    }
+    return s.toString();
+  }
+
+  @Test
+  public void readsSpooledBody() throws IOException {
+    final StringBuilder s = new StringBuilder("{\"method\":\"import\",\"params\":[[");
+    for (int i = 0; i < 100000; i++) {
+      s.append(i == 0 ? "" : ",").append("\"\u00e9\u20ac\ud83d\ude00").append(i).append('"');
+    }
+    final String body = s.append("]]}").toString();
+    final byte[] data = body.getBytes(StandardCharsets.UTF_8);
+
+    final BulkBody b = spool(data, 1000, data.length);
+    try {
+      assertEquals(data.length, b.size());
+      assertEquals(1, tmp.getRoot().list().length);
+      assertEquals(body, readAll(b.reader()));
+      assertEquals(body, readAll(b.reader()));
+    } finally {
+      b.close();
+    }
+    assertEquals(0, tmp.getRoot().list().length);
+    assertEquals(1, slots.availablePermits());
+
+    b.close();
+    assertEquals(1, slots.availablePermits());
+    try {
+      b.reader();
+      fail("read closed body");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void rejectsBodyOverLimit() throws IOException {
+    try {
+      spool(new byte[100], 10, 99);
+      fail("accepted body over limit");
+    } catch (JsonParseException e) {
+      assertSame(RejectedCall.BODY_TOO_LARGE, ((RejectedCall.ParseError) e).rejection);
+    }
+    assertEquals(0, tmp.getRoot().list().length);
+    assertEquals(1, slots.availablePermits());
+  }
+
+  @Test
+  public void reportsMalformedUtf8() throws IOException {
+    try (BulkBody b = spool(new byte[] {'"', (byte) 0xc3, '"'}, 1, 10)) {
+      readAll(b.reader());
+      fail("decoded malformed UTF-8");
+    } catch (CharacterCodingException e) {
+      // expected
+    }
+  }
+}
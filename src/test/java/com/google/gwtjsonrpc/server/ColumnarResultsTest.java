@@ -0,0 +1,77 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gwtjsonrpc.server.dto.Circle;
+import com.google.gwtjsonrpc.server.dto.Item;
+import com.google.gwtjsonrpc.server.dto.Shape;
+import com.google.gwtjsonrpc.server.dto.Square;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class ColumnarResultsTest {
+  private static String columnar(final Object result, final Type type, final boolean compact) {
+    final Gson gson = JsonServlet.defaultGsonBuilder().create();
+    final StringWriter sw = new StringWriter();
+    try {
+      if (!ColumnarResults.write(gson.newJsonWriter(sw), result, type, compact, gson)) {
+        assertEquals("", sw.toString());
+        return null;
+      }
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+    return sw.toString();
+  }
+
+  private static Item item(final int id, final String name) {
+    final Item i = new Item();
+    i.setId(id);
+    i.setName(name);
+    return i;
+  }
+
+  @Test
+  public void writesColumns() {
+    final List<Item> items = Arrays.asList(item(1, "a"), null, item(2, "b"));
+    assertEquals(
+        "{\"cols\":[\"id\",\"children\",\"count\",\"grade\",\"name\",\"price\",\"total\"],"
+            + "\"rows\":[[1,null,0,\"\\u0000\",\"a\",0.0,null],null,"
+            + "[2,null,0,\"\\u0000\",\"b\",0.0,null]]}",
+        columnar(items, new TypeToken<List<Item>>() {}.getType(), false));
+  }
+
+  @Test
+  public void compactColumnNames() {
+    final String json = columnar(new Item[] {item(1, "a")}, Item[].class, true);
+    assertTrue(json.startsWith("{\"cols\":[\"0\",\"1\",\"2\",\"3\",\"4\",\"5\",\"6\"],"));
+  }
+
+  @Test
+  public void mixedTypesAreNotColumnar() {
+    final List<Shape> shapes = Arrays.asList(new Circle(), new Square());
+    assertNull(columnar(shapes, new TypeToken<List<Shape>>() {}.getType(), false));
+    assertNull(columnar("x", String.class, false));
+  }
+}
@@ -0,0 +1,92 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.gson.Gson;
+import com.google.gwtjsonrpc.server.dto.Item;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompactTypeAdapterFactoryTest {
+  static class Settings {
+    boolean enabled = true;
+    int pageSize = 50;
+    double ratio = 0.5;
+    String title;
+  }
+
+  private Gson gson;
+
+  @Before
+  public void setUp() {
+    gson =
+        JsonServlet.defaultGsonBuilder()
+            .registerTypeAdapterFactory(new CompactTypeAdapterFactory())
+            .create();
+  }
+
+  @Test
+  public void writesAliasesAndOmitsDefaults() {
+    final Item item = new Item();
+    item.setId(1);
+    item.setName("n");
+    assertEquals("{\"0\":1,\"3\":\"\\u0000\",\"4\":\"n\"}", gson.toJson(item));
+  }
+
+  @Test
+  public void roundTrip() {
+    final String json = "{\"0\":7,\"1\":[{\"0\":8,\"3\":\"y\"}],\"2\":3,\"3\":\"x\",\"5\":1.5}";
+    final Item item = gson.fromJson(json, Item.class);
+    assertEquals(7, item.getId());
+    assertEquals(json, gson.toJson(item));
+  }
+
+  @Test
+  public void omittedPrimitivesReadAsZero() {
+    final Settings s = new Settings();
+    s.enabled = false;
+    s.pageSize = 0;
+    s.ratio = 0;
+    s.title = "t";
+    final String json = gson.toJson(s);
+    assertEquals("{\"3\":\"t\"}", json);
+
+    final Settings r = gson.fromJson(json, Settings.class);
+    assertEquals(false, r.enabled);
+    assertEquals(0, r.pageSize);
+    assertEquals(0, r.ratio, 0);
+    assertEquals("t", r.title);
+
+    final Settings d = gson.fromJson("{\"1\":20}", Settings.class);
+    assertEquals(false, d.enabled);
+    assertEquals(20, d.pageSize);
+  }
+
+  @Test
+  public void readsRegularNames() {
+    final Item item = gson.fromJson("{\"id\":2,\"name\":\"n\",\"count\":0}", Item.class);
+    assertEquals(2, item.getId());
+    assertEquals("n", item.getName());
+  }
+
+  @Test
+  public void enumsAsOrdinals() {
+    assertEquals("3", gson.toJson(TimeUnit.SECONDS));
+    assertEquals(TimeUnit.SECONDS, gson.fromJson("3", TimeUnit.class));
+    assertEquals(TimeUnit.SECONDS, gson.fromJson("\"SECONDS\"", TimeUnit.class));
+  }
+}
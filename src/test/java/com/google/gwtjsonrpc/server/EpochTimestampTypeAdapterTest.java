@@ -0,0 +1,72 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.sql.Timestamp;
+import org.junit.Test;
+
+public class EpochTimestampTypeAdapterTest {
+  private final Gson gson =
+      JsonServlet.defaultGsonBuilder()
+          .registerTypeAdapter(Timestamp.class, new EpochTimestampTypeAdapter())
+          .registerTypeAdapter(java.sql.Date.class, new EpochDateTypeAdapter())
+          .create();
+
+  @Test
+  public void writesMillis() {
+    assertEquals("1136232245789", gson.toJson(new Timestamp(1136232245789L)));
+    assertEquals("-1", gson.toJson(new Timestamp(-1)));
+    assertEquals("1136160000000", gson.toJson(new java.sql.Date(1136160000000L)));
+  }
+
+  @Test
+  public void writesNanosAsPair() {
+    final Timestamp t = new Timestamp(1136232245789L);
+    t.setNanos(789000001);
+    assertEquals("[1136232245789,789000001]", gson.toJson(t));
+    assertEquals(t, gson.fromJson(gson.toJson(t), Timestamp.class));
+    assertEquals(789000001, gson.fromJson(gson.toJson(t), Timestamp.class).getNanos());
+  }
+
+  @Test
+  public void readsEveryForm() {
+    final Timestamp t = new Timestamp(1136232245789L);
+    assertEquals(t, gson.fromJson("1136232245789", Timestamp.class));
+    assertEquals(t, gson.fromJson("\"1136232245789\"", Timestamp.class));
+    assertEquals(t, gson.fromJson("\"2006-01-02 20:04:05.789000000\"", Timestamp.class));
+    assertNull(gson.fromJson("null", Timestamp.class));
+
+    final java.sql.Date d = new java.sql.Date(1136160000000L);
+    assertEquals(d, gson.fromJson("1136160000000", java.sql.Date.class));
+    assertEquals(
+        java.sql.Date.valueOf("2006-01-02"), gson.fromJson("\"2006-01-02\"", java.sql.Date.class));
+    assertNull(gson.fromJson("null", java.sql.Date.class));
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void rejectsLongPair() {
+    gson.fromJson("[1136232245789,789000001,0]", Timestamp.class);
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void rejectsBadNanos() {
+    gson.fromJson("[1136232245789,1000000000]", Timestamp.class);
+  }
+}
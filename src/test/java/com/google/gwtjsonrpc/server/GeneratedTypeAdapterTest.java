@@ -0,0 +1,168 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gwtjsonrpc.common.SkipSerialization;
+import com.google.gwtjsonrpc.server.dto.Item;
+import com.google.gwtjsonrpc.server.dto.Label;
+import com.google.gwtjsonrpc.server.dto.Sample;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GeneratedTypeAdapterTest {
+  private Gson gson;
+
+  @Before
+  public void setUp() {
+    gson = clientNames(JsonServlet.defaultGsonBuilder()).create();
+  }
+
+  /** Name and skip fields like the GWT client generator does. */
+  private static GsonBuilder clientNames(final GsonBuilder b) {
+    return b.setFieldNamingStrategy(JsonFieldNames.CLIENT_NAMES)
+        .setExclusionStrategies(
+            new ExclusionStrategy() {
+              @Override
+              public boolean shouldSkipField(final FieldAttributes f) {
+                return f.getAnnotation(SkipSerialization.class) != null;
+              }
+
+              @Override
+              public boolean shouldSkipClass(final Class<?> c) {
+                return false;
+              }
+            });
+  }
+
+  private static GsonBuilder reflective() {
+    return new GsonBuilder()
+        .registerTypeAdapterFactory(new BinaryArrayTypeAdapterFactory())
+        .registerTypeAdapterFactory(new PrimitiveKeyMapTypeAdapterFactory());
+  }
+
+  private static void assertParity(final GsonBuilder b, final Object value) {
+    final Gson reflective = b.create();
+    final Gson generated = b.registerTypeAdapterFactory(new GeneratedTypeAdapterFactory()).create();
+    final Object a = generated.getAdapter(value.getClass());
+    assertTrue(a instanceof GeneratedTypeAdapter && !(a instanceof DtoTypeAdapter));
+
+    final String json = reflective.toJson(value);
+    assertEquals(reflective.toJsonTree(value), generated.toJsonTree(value));
+    assertEquals(json, reflective.toJson(generated.fromJson(json, value.getClass())));
+  }
+
+  @Test
+  public void factoryFindsGeneratedAdapter() {
+    assertTrue(gson.getAdapter(Item.class) instanceof GeneratedTypeAdapter);
+  }
+
+  @Test
+  public void writesClientFieldNames() {
+    final Item item = new Item();
+    item.setId(1);
+    item.setName("a\"b");
+    assertEquals(
+        "{\"id\":1,\"count\":0,\"grade\":\"\\u0000\",\"name\":\"a\\\"b\",\"price\":0.0}",
+        gson.toJson(item));
+  }
+
+  @Test
+  public void roundTrip() {
+    final String json =
+        "{\"id\":7,\"children\":[{\"id\":8,\"count\":0,\"grade\":\"y\",\"price\":0.0}],"
+            + "\"count\":3,\"grade\":\"x\",\"name\":\"n\",\"price\":1.5,\"total\":9}";
+    final Item item = gson.fromJson(json, Item.class);
+    assertEquals(7, item.getId());
+    assertEquals("n", item.getName());
+    assertEquals(json, gson.toJson(item));
+  }
+
+  @Test
+  public void skipsUnknownAndExcludedProperties() {
+    final Item item =
+        gson.fromJson(
+            "{\"id\":1,\"secret\":\"s\",\"cached\":5,\"unknown\":{\"a\":[1,{}]}}", Item.class);
+    assertEquals(1, item.getId());
+    assertEquals(
+        "{\"id\":1,\"count\":0,\"grade\":\"\\u0000\",\"price\":0.0}", gson.toJson(item));
+  }
+
+  @Test
+  public void acceptsNulls() {
+    final Item item = gson.fromJson("{\"name\":null,\"count\":null,\"children\":null}", Item.class);
+    assertNull(item.getName());
+    assertNull(gson.fromJson("null", Item.class));
+  }
+
+  @Test
+  public void matchesReflectionWithDefaultNames() {
+    final Item item = new Item();
+    item.setId(3);
+    item.setName("n");
+    assertParity(reflective(), item);
+    assertTrue(
+        reflective()
+            .registerTypeAdapterFactory(new GeneratedTypeAdapterFactory())
+            .create()
+            .toJson(item)
+            .contains("\"myName\":\"n\""));
+  }
+
+  @Test
+  public void matchesReflectionWithClientNames() {
+    final Item item = new Item();
+    item.setId(3);
+    item.setName("n");
+    assertParity(clientNames(reflective()), item);
+
+    final Sample s = new Sample();
+    s.setValues(new int[] {1, 2});
+    s.setCounts(new long[] {3});
+    assertParity(clientNames(reflective()), s);
+  }
+
+  @Test
+  public void readsAndWritesFinalAndRenamedFields() {
+    final Label label =
+        gson.fromJson(
+            "{\"text\":\"t\",\"color\":\"red\",\"counts\":{\"a\":[1]},\"weight\":2}",
+            Label.class);
+    assertEquals("t", label.getText());
+    assertEquals("red", label.getColor());
+    assertEquals(
+        "{\"colour\":\"red\",\"counts\":{\"a\":[1]},\"text\":\"t\",\"weight\":2}",
+        gson.toJson(label));
+    assertParity(reflective(), label);
+  }
+
+  @Test
+  public void leavesUnmatchedConfigurationsToReflection() {
+    final Gson g =
+        new GsonBuilder()
+            .excludeFieldsWithModifiers()
+            .registerTypeAdapterFactory(new GeneratedTypeAdapterFactory())
+            .create();
+    assertFalse(g.getAdapter(Item.class) instanceof GeneratedTypeAdapter);
+    assertTrue(g.toJsonTree(new Item()).getAsJsonObject().has("cached"));
+  }
+}
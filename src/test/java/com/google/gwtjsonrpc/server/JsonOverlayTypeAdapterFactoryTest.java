@@ -0,0 +1,75 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gwtjsonrpc.common.JsonOverlay;
+import com.google.gwtjsonrpc.server.dto.Item;
+import com.google.gwtjsonrpc.server.dto.ItemView;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class JsonOverlayTypeAdapterFactoryTest {
+  @JsonOverlay
+  interface FreeView {
+    String getName();
+
+    int count();
+
+    boolean isActive();
+
+    List<Integer> getIds();
+  }
+
+  private final Gson gson =
+      JsonServlet.defaultGsonBuilder().setFieldNamingStrategy(JsonFieldNames.CLIENT_NAMES).create();
+
+  @Test
+  public void readsViewAsItsClass() {
+    final ItemView view = gson.fromJson("{\"id\":3,\"name\":\"n\"}", ItemView.class);
+    assertTrue(view instanceof Item);
+    assertEquals("n", view.getName());
+    assertEquals(3, ((Item) view).getId());
+  }
+
+  @Test
+  public void writesViewsAsRuntimeClass() {
+    final Item item = new Item();
+    item.setName("n");
+    final List<ItemView> views = Collections.<ItemView>singletonList(item);
+    assertEquals(
+        "[" + gson.toJson(item) + "]",
+        gson.toJson(views, new TypeToken<List<ItemView>>() {}.getType()));
+  }
+
+  @Test
+  public void readsViewWithoutClassAsProxy() {
+    final String json = "{\"name\":\"n\",\"count\":2,\"ids\":[1,2]}";
+    final FreeView view = gson.fromJson(json, FreeView.class);
+    assertEquals("n", view.getName());
+    assertEquals(2, view.count());
+    assertFalse(view.isActive());
+    assertEquals(Arrays.asList(1, 2), view.getIds());
+    assertEquals(json, gson.toJson(view, FreeView.class));
+    assertNull(gson.fromJson("null", FreeView.class));
+  }
+}
@@ -0,0 +1,257 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gwtjsonrpc.common.AllowCrossSiteRequest;
+import com.google.gwtjsonrpc.common.AsyncCallback;
+import com.google.gwtjsonrpc.common.JsonConstants;
+import com.google.gwtjsonrpc.common.RemoteJsonService;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.AsyncContext;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JsonServletAsyncTest {
+  public interface EchoService extends RemoteJsonService {
+    @AllowCrossSiteRequest
+    void echo(String s, AsyncCallback<String> callback);
+
+    @AllowCrossSiteRequest
+    void fail(String s, AsyncCallback<String> callback);
+  }
+
+  @SuppressWarnings("serial")
+  private static class Service extends JsonServlet<ActiveCall> implements EchoService {
+    final ExecutorService pool = Executors.newSingleThreadExecutor();
+    volatile Thread thread;
+    volatile ActiveCall current;
+    volatile Object callback;
+
+    @Override
+    protected Executor createServiceExecutor() {
+      return pool;
+    }
+
+    @Override
+    protected void preInvoke(final ActiveCall call) {
+      if (call.getMethod().getName().equals("fail")) {
+        throw new IllegalStateException("broken preInvoke");
+      }
+    }
+
+    @Override
+    public void echo(final String s, final AsyncCallback<String> cb) {
+      thread = Thread.currentThread();
+      current = getCurrentCall();
+      callback = cb;
+      cb.onSuccess(s);
+    }
+
+    @Override
+    public void fail(final String s, final AsyncCallback<String> cb) {
+      cb.onSuccess(s);
+    }
+  }
+
+  private static <T> T proxy(final Class<T> type, final InvocationHandler h) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, h));
+  }
+
+  private Service service;
+  private int status;
+  private ByteArrayOutputStream out;
+
+  @Before
+  public void setUp() throws Exception {
+    final ServletContext ctx =
+        proxy(
+            ServletContext.class,
+            new InvocationHandler() {
+              @Override
+              public Object invoke(final Object p, final Method m, final Object[] args) {
+                return null;
+              }
+            });
+    service = new Service();
+    service.init(
+        proxy(
+            ServletConfig.class,
+            new InvocationHandler() {
+              @Override
+              public Object invoke(final Object p, final Method m, final Object[] args) {
+                return m.getName().equals("getServletContext") ? ctx : null;
+              }
+            }));
+  }
+
+  @After
+  public void tearDown() {
+    service.destroy();
+  }
+
+  private String post(final String body) throws Exception {
+    final byte[] data = body.getBytes(StandardCharsets.UTF_8);
+    final ByteArrayInputStream in = new ByteArrayInputStream(data);
+    final ServletInputStream sin =
+        new ServletInputStream() {
+          @Override
+          public int read() {
+            return in.read();
+          }
+
+          @Override
+          public int read(final byte[] b, final int off, final int len) {
+            return in.read(b, off, len);
+          }
+
+          @Override
+          public boolean isFinished() {
+            return in.available() == 0;
+          }
+
+          @Override
+          public boolean isReady() {
+            return true;
+          }
+
+          @Override
+          public void setReadListener(final ReadListener l) {}
+        };
+
+    final CountDownLatch done = new CountDownLatch(1);
+    final AsyncContext async =
+        proxy(
+            AsyncContext.class,
+            new InvocationHandler() {
+              @Override
+              public Object invoke(final Object p, final Method m, final Object[] args) {
+                if (m.getName().equals("complete")) {
+                  done.countDown();
+                }
+                return null;
+              }
+            });
+
+    final Map<String, Object> req = new HashMap<>();
+    req.put("getMethod", "POST");
+    req.put("getHeader:Accept", JsonConstants.JSON_TYPE);
+    req.put("getContentType", JsonConstants.JSON_TYPE);
+    req.put("getCharacterEncoding", JsonConstants.JSON_ENC);
+    req.put("getContentLength", data.length);
+    req.put("isAsyncSupported", true);
+    req.put("startAsync", async);
+    req.put("getInputStream", sin);
+
+    status = HttpServletResponse.SC_OK;
+    out = new ByteArrayOutputStream();
+    final ServletOutputStream sout =
+        new ServletOutputStream() {
+          @Override
+          public void write(final int b) {
+            out.write(b);
+          }
+
+          @Override
+          public boolean isReady() {
+            return true;
+          }
+
+          @Override
+          public void setWriteListener(final WriteListener l) {}
+        };
+
+    service.service(
+        proxy(
+            HttpServletRequest.class,
+            new InvocationHandler() {
+              @Override
+              public Object invoke(final Object p, final Method m, final Object[] args) {
+                if (m.getName().equals("getHeader")) {
+                  return req.get("getHeader:" + args[0]);
+                }
+                return req.get(m.getName());
+              }
+            }),
+        proxy(
+            HttpServletResponse.class,
+            new InvocationHandler() {
+              @Override
+              public Object invoke(final Object p, final Method m, final Object[] args) {
+                switch (m.getName()) {
+                  case "setStatus":
+                    status = (Integer) args[0];
+                    return null;
+                  case "reset":
+                    out.reset();
+                    return null;
+                  case "isCommitted":
+                    return false;
+                  case "getOutputStream":
+                    return sout;
+                  default:
+                    return null;
+                }
+              }
+            }));
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void currentCallFollowsTheExecutor() throws Exception {
+    assertEquals(
+        "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"hi\"}",
+        post("{\"jsonrpc\":\"2.0\",\"method\":\"echo\",\"params\":[\"hi\"],\"id\":1}"));
+    assertNotSame(Thread.currentThread(), service.thread);
+    assertSame(service.callback, service.current);
+    assertNull(JsonServlet.getCurrentCall());
+  }
+
+  @Test
+  public void failureOnExecutorIsAnError() throws Exception {
+    assertEquals(
+        "{\"jsonrpc\":\"2.0\",\"id\":1,"
+            + "\"error\":{\"code\":-32603,\"message\":\"Internal Server Error\"}}",
+        post("{\"jsonrpc\":\"2.0\",\"method\":\"fail\",\"params\":[\"hi\"],\"id\":1}"));
+    assertEquals(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, status);
+  }
+}
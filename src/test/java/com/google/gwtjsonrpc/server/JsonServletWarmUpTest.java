@@ -0,0 +1,156 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.reflect.TypeToken;
+import com.google.gwtjsonrpc.common.AsyncCallback;
+import com.google.gwtjsonrpc.server.dto.Circle;
+import com.google.gwtjsonrpc.server.dto.Item;
+import com.google.gwtjsonrpc.server.dto.ItemService;
+import com.google.gwtjsonrpc.server.dto.Lookup;
+import com.google.gwtjsonrpc.server.dto.Sample;
+import com.google.gwtjsonrpc.server.dto.Shape;
+import com.google.gwtjsonrpc.server.dto.Square;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import org.junit.Test;
+
+public class JsonServletWarmUpTest {
+  @SuppressWarnings("serial")
+  private static class Service extends JsonServlet<ActiveCall> implements ItemService {
+    private final int calls;
+    int invoked;
+
+    Service(final int calls) {
+      this.calls = calls;
+    }
+
+    @Override
+    protected int warmUpCalls() {
+      return calls;
+    }
+
+    @Override
+    public void save(final Item item, final AsyncCallback<List<Item>> callback) {
+      invoked++;
+    }
+
+    @Override
+    public void draw(final List<Shape> shapes, final AsyncCallback<Shape> callback) {
+      invoked++;
+    }
+
+    @Override
+    public void sample(final Sample sample, final AsyncCallback<Sample> callback) {
+      invoked++;
+    }
+
+    @Override
+    public void lookup(final Lookup lookup, final AsyncCallback<Lookup> callback) {
+      invoked++;
+    }
+  }
+
+  private static ServletConfig config(final List<String> log) {
+    final ServletContext ctx =
+        (ServletContext)
+            Proxy.newProxyInstance(
+                ServletContext.class.getClassLoader(),
+                new Class<?>[] {ServletContext.class},
+                new InvocationHandler() {
+                  @Override
+                  public Object invoke(final Object proxy, final Method m, final Object[] args) {
+                    if (m.getName().equals("log")) {
+                      log.add((String) args[0]);
+                    }
+                    return null;
+                  }
+                });
+    return (ServletConfig)
+        Proxy.newProxyInstance(
+            ServletConfig.class.getClassLoader(),
+            new Class<?>[] {ServletConfig.class},
+            new InvocationHandler() {
+              @Override
+              public Object invoke(final Object proxy, final Method m, final Object[] args) {
+                return m.getName().equals("getServletContext") ? ctx : null;
+              }
+            });
+  }
+
+  @Test
+  public void replaysWithoutInvoking() throws Exception {
+    final List<String> log = new ArrayList<>();
+    final Service s = new Service(3);
+    s.init(config(log));
+
+    assertEquals(0, s.invoked);
+    assertEquals(2, log.size());
+    assertTrue(log.get(0), log.get(0).startsWith("Resolved 6 of 6 adapters"));
+    assertTrue(log.get(1), log.get(1).startsWith("Warmed up 4 of 4 methods with 3 synthetic"));
+  }
+
+  @Test
+  public void resolvesConcreteResultClasses() throws Exception {
+    final List<String> log = new ArrayList<>();
+    final Service s =
+        new Service(0) {
+          @Override
+          protected boolean warmUpAdapters() {
+            return true;
+          }
+
+          @Override
+          protected Collection<Class<?>> polymorphicSubtypes() {
+            return Arrays.<Class<?>>asList(Circle.class, Square.class);
+          }
+        };
+    s.init(config(log));
+    assertEquals(1, log.size());
+    assertTrue(log.get(0), log.get(0).startsWith("Resolved 8 of 8 adapters"));
+  }
+
+  @Test
+  public void disabledByDefault() throws Exception {
+    final List<String> log = new ArrayList<>();
+    final Service s = new Service(0);
+    s.init(config(log));
+    assertTrue(log.isEmpty());
+  }
+
+  @Test
+  public void sampleValues() {
+    final SampleValues v = new SampleValues();
+    assertEquals(0, v.create(int.class));
+    assertEquals("", v.create(String.class));
+    assertNull(v.create(Shape.class));
+    assertNotNull(v.create(Item.class));
+    assertEquals(1, ((Item[]) v.create(Item[].class)).length);
+    assertTrue(v.create(new TypeToken<Map<String, Item>>() {}.getType()) instanceof Map);
+  }
+}
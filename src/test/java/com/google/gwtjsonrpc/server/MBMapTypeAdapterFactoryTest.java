@@ -0,0 +1,101 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gwtjsonrpc.server.dto.Item;
+import java.lang.annotation.ElementType;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class MBMapTypeAdapterFactoryTest {
+  private static final Type STRING_MAP = new TypeToken<Map<String, Integer>>() {}.getType();
+  private static final Type INT_MAP = new TypeToken<Map<Integer, String>>() {}.getType();
+  private static final Type ENUM_MAP = new TypeToken<Map<ElementType, Integer>>() {}.getType();
+  private static final Type DOUBLE_MAP = new TypeToken<Map<Double, String>>() {}.getType();
+  private static final Type ITEM_MAP = new TypeToken<HashMap<Item, Boolean>>() {}.getType();
+
+  private final Gson gson =
+      JsonServlet.defaultGsonBuilder().setFieldNamingStrategy(JsonFieldNames.CLIENT_NAMES).create();
+
+  @Test
+  public void writesPrimitiveKeysAsObject() {
+    final Map<String, Integer> s = new LinkedHashMap<>();
+    s.put("a", 1);
+    s.put("b", null);
+    assertEquals("{\"a\":1}", gson.toJson(s, STRING_MAP));
+    s.remove("b");
+    assertEquals(s, gson.fromJson(gson.toJson(s, STRING_MAP), STRING_MAP));
+
+    final Map<Integer, String> i = new LinkedHashMap<>();
+    i.put(7, "x");
+    i.put(-2, "y");
+    assertEquals("{\"7\":\"x\",\"-2\":\"y\"}", gson.toJson(i, INT_MAP));
+    assertEquals(i, gson.fromJson(gson.toJson(i, INT_MAP), INT_MAP));
+  }
+
+  @Test
+  public void writesEnumAndObjectKeysAsArrays() {
+    final Map<ElementType, Integer> e = new LinkedHashMap<>();
+    e.put(ElementType.FIELD, 1);
+    e.put(ElementType.TYPE, 2);
+    assertEquals(
+        "{\"keys\":[\"FIELD\",\"TYPE\"],\"values\":[1,2]}", gson.toJson(e, ENUM_MAP));
+    assertEquals(e, gson.fromJson(gson.toJson(e, ENUM_MAP), ENUM_MAP));
+
+    final Item item = new Item();
+    item.setName("n");
+    final HashMap<Item, Boolean> o = new HashMap<>();
+    o.put(item, true);
+    final JsonObject json = new JsonParser().parse(gson.toJson(o, ITEM_MAP)).getAsJsonObject();
+    assertEquals("n", json.getAsJsonArray("keys").get(0).getAsJsonObject().get("name").getAsString());
+    assertEquals("[true]", json.get("values").toString());
+    final Map<Item, Boolean> r = gson.fromJson(gson.toJson(o, ITEM_MAP), ITEM_MAP);
+    assertEquals("n", r.keySet().iterator().next().getName());
+  }
+
+  @Test
+  public void readsEmptyAndNull() {
+    assertEquals(new HashMap<String, Integer>(), gson.fromJson("{}", STRING_MAP));
+    assertNull(gson.fromJson("null", STRING_MAP));
+  }
+
+  @Test
+  public void readsPrimitiveKeysThroughKeyAdapter() {
+    final Map<Double, String> r = gson.fromJson("{\"1.5\":\"a\",\"-2\":\"b\"}", DOUBLE_MAP);
+    assertEquals("a", r.get(1.5));
+    assertEquals("b", r.get(-2.0));
+  }
+
+  @Test(expected = JsonSyntaxException.class)
+  public void rejectsDuplicateKeys() {
+    gson.fromJson("{\"7\":\"x\",\"7\":\"y\"}", INT_MAP);
+  }
+
+  @Test(expected = JsonSyntaxException.class)
+  public void rejectsMissingValues() {
+    gson.fromJson("{\"keys\":[\"FIELD\",\"TYPE\"],\"values\":[1]}", ENUM_MAP);
+  }
+}
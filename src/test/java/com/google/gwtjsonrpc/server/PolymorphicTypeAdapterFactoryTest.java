@@ -0,0 +1,179 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gwtjsonrpc.common.JsonTypeId;
+import com.google.gwtjsonrpc.common.JsonTypeIds;
+import com.google.gwtjsonrpc.server.dto.Circle;
+import com.google.gwtjsonrpc.server.dto.Shape;
+import com.google.gwtjsonrpc.server.dto.Square;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class PolymorphicTypeAdapterFactoryTest {
+  private static final Type SHAPES = new TypeToken<List<Shape>>() {}.getType();
+  private static final Type ANIMALS = new TypeToken<List<Animal>>() {}.getType();
+
+  abstract static class Animal {
+    String name;
+  }
+
+  @JsonTypeId(2)
+  static class Dog extends Animal {}
+
+  @JsonTypeId(3)
+  static class Cat extends Animal {}
+
+  static class Oval extends Circle {
+    double ratio;
+  }
+
+  private static Gson gson(final GsonBuilder gb, final boolean numericIds) {
+    return gb.setFieldNamingStrategy(JsonFieldNames.CLIENT_NAMES)
+        .registerTypeAdapterFactory(
+            PolymorphicTypeAdapterFactory.create(
+                Arrays.asList(SHAPES, Circle.class, Square.class), numericIds))
+        .create();
+  }
+
+  private static List<Shape> shapes() {
+    final Circle c = new Circle();
+    c.setColor("red");
+    c.radius = 1.5;
+    final Square s = new Square();
+    s.side = 2;
+    return Arrays.<Shape>asList(c, s);
+  }
+
+  @Test
+  public void onlyBaseTypesAreTagged() {
+    final PolymorphicTypeAdapterFactory f =
+        PolymorphicTypeAdapterFactory.create(Arrays.asList(SHAPES, Circle.class), false);
+    assertEquals(Collections.<Class<?>>singleton(Shape.class), f.getBaseTypes());
+    assertNull(
+        PolymorphicTypeAdapterFactory.create(Collections.singletonList(Circle.class), false));
+  }
+
+  @Test
+  public void writesNames() {
+    assertEquals(
+        "[{\"_type_\":\"com.google.gwtjsonrpc.server.dto.Circle\",\"color\":\"red\",\"radius\":1.5},"
+            + "{\"_type_\":\"com.google.gwtjsonrpc.server.dto.Square\",\"side\":2}]",
+        gson(JsonServlet.defaultGsonBuilder(), false).toJson(shapes(), SHAPES));
+  }
+
+  @Test
+  public void writesNumericIds() {
+    final int circle = JsonTypeIds.of(Circle.class.getCanonicalName());
+    assertEquals(
+        "[{\"_type_\":" + circle + ",\"color\":\"red\",\"radius\":1.5},{\"_type_\":2,\"side\":2}]",
+        gson(JsonServlet.defaultGsonBuilder(), true).toJson(shapes(), SHAPES));
+  }
+
+  @Test
+  public void readsNamesAndIdsAnywhereInObject() {
+    for (final GsonBuilder gb : Arrays.asList(JsonServlet.defaultGsonBuilder(), new GsonBuilder())) {
+      final List<Shape> r =
+          gson(gb, false)
+              .fromJson(
+                  "[{\"_type_\":2,\"side\":3},"
+                      + "{\"radius\":2.5,\"_type_\":\"com.google.gwtjsonrpc.server.dto.Circle\"},"
+                      + "{\"_type_\":\"com.google.gwtjsonrpc.server.dto.Square\"}, null]",
+                  SHAPES);
+      assertTrue(r.get(0) instanceof Square);
+      assertEquals(3, ((Square) r.get(0)).side);
+      assertTrue(r.get(1) instanceof Circle);
+      assertEquals(2.5, ((Circle) r.get(1)).radius, 0);
+      assertTrue(r.get(2) instanceof Square);
+      assertNull(r.get(3));
+    }
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void rejectsUnknownTypes() {
+    gson(JsonServlet.defaultGsonBuilder(), false)
+        .fromJson("[{\"_type_\":\"java.lang.Runtime\"}]", SHAPES);
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void rejectsUnknownIdsOfAbstractTypes() {
+    gson(JsonServlet.defaultGsonBuilder(), true).fromJson("[{\"_type_\":12345}]", SHAPES);
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void rejectsUnloadableNamesOfAbstractTypes() {
+    gson(JsonServlet.defaultGsonBuilder(), false)
+        .fromJson("[{\"_type_\":\"com.example.Hexagon\"}]", SHAPES);
+  }
+
+  @Test
+  public void readsUnknownNamesAsNearestKnownSuperclass() {
+    for (final GsonBuilder gb : Arrays.asList(JsonServlet.defaultGsonBuilder(), new GsonBuilder())) {
+      final List<Shape> r =
+          gson(gb, false)
+              .fromJson(
+                  "[{\"radius\":4,\"_type_\":\""
+                      + Oval.class.getCanonicalName()
+                      + "\",\"ratio\":2}]",
+                  SHAPES);
+      assertEquals(Circle.class, r.get(0).getClass());
+      assertEquals(4, ((Circle) r.get(0)).radius, 0);
+    }
+  }
+
+  @Test
+  public void reflectiveDelegateWritesLikeGson() {
+    final Circle c = new Circle();
+    c.radius = 1;
+    assertEquals(
+        "[{\"_type_\":\"com.google.gwtjsonrpc.server.dto.Circle\",\"radius\":1.0,"
+            + "\"color\":null}]",
+        gson(new GsonBuilder().serializeNulls(), false)
+            .toJson(Arrays.<Shape>asList(c), SHAPES));
+  }
+
+  @Test
+  public void unrelatedHierarchiesMayShareIds() {
+    final Gson g =
+        new GsonBuilder()
+            .registerTypeAdapterFactory(
+                PolymorphicTypeAdapterFactory.create(
+                    Arrays.asList(SHAPES, Circle.class, Square.class, ANIMALS, Dog.class, Cat.class),
+                    true))
+            .create();
+    final List<Shape> shapes = g.fromJson("[{\"_type_\":2,\"side\":3}]", SHAPES);
+    assertTrue(shapes.get(0) instanceof Square);
+    final List<Animal> animals = g.fromJson("[{\"_type_\":2},{\"_type_\":3}]", ANIMALS);
+    assertTrue(animals.get(0) instanceof Dog);
+    assertTrue(animals.get(1) instanceof Cat);
+    assertEquals("[{\"_type_\":2,\"name\":\"d\"}]", g.toJson(Arrays.asList(dog("d")), ANIMALS));
+  }
+
+  private static Dog dog(final String name) {
+    final Dog d = new Dog();
+    d.name = name;
+    return d;
+  }
+}
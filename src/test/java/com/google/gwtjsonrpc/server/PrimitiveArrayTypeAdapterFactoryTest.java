@@ -0,0 +1,118 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.LongSerializationPolicy;
+import com.google.gson.reflect.TypeToken;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class PrimitiveArrayTypeAdapterFactoryTest {
+  private static final Type INT_LIST = new TypeToken<List<Integer>>() {}.getType();
+  private static final Type LONG_LIST = new TypeToken<List<Long>>() {}.getType();
+
+  private final Gson gson = JsonServlet.defaultGsonBuilder().create();
+  private final Gson plain = new Gson();
+
+  @Test
+  public void writesLikeGson() {
+    final Object[] values = {
+      new int[] {1, -2, Integer.MAX_VALUE},
+      new long[] {Long.MIN_VALUE, 0},
+      new double[] {0.1, 1, -0.0, 1e300},
+      new float[] {0.1f, 3.4e38f},
+      new byte[] {-128, 127},
+      new short[] {-1, 300},
+      new int[0]
+    };
+    for (final Object v : values) {
+      assertEquals(plain.toJson(v), gson.toJson(v));
+      assertEquals(plain.toJsonTree(v), gson.toJsonTree(v));
+    }
+  }
+
+  @Test
+  public void readsLikeGson() {
+    final String json = "[1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16,17,\"18\",-1]";
+    assertArrayEquals(plain.fromJson(json, int[].class), gson.fromJson(json, int[].class));
+    assertArrayEquals(plain.fromJson(json, long[].class), gson.fromJson(json, long[].class));
+    assertArrayEquals(plain.fromJson(json, byte[].class), gson.fromJson(json, byte[].class));
+    assertArrayEquals(plain.fromJson(json, short[].class), gson.fromJson(json, short[].class));
+    assertArrayEquals(
+        plain.fromJson("[0.1,2]", double[].class), gson.fromJson("[0.1,2]", double[].class), 0);
+    assertArrayEquals(
+        plain.fromJson("[0.1,2]", float[].class), gson.fromJson("[0.1,2]", float[].class), 0);
+    assertEquals(null, gson.fromJson("null", int[].class));
+    assertArrayEquals(new int[] {1, -2}, gson.fromJson("\"AQAAAP7///8=\"", int[].class));
+  }
+
+  @Test(expected = JsonSyntaxException.class)
+  public void rejectsFractions() {
+    gson.fromJson("[1.5]", int[].class);
+  }
+
+  @Test
+  public void keepsLongSerializationPolicy() {
+    final Gson strings =
+        JsonServlet.defaultGsonBuilder()
+            .setLongSerializationPolicy(LongSerializationPolicy.STRING)
+            .create();
+    assertEquals("[\"1\"]", strings.toJson(new long[] {1}));
+  }
+
+  @Test
+  public void readsCompactLists() {
+    final Gson lists =
+        new GsonBuilder()
+            .registerTypeAdapterFactory(new PrimitiveArrayTypeAdapterFactory(true))
+            .create();
+    final List<Integer> ints = lists.fromJson("[3,1,2]", INT_LIST);
+    assertTrue(ints instanceof IntList);
+    assertEquals(Arrays.asList(3, 1, 2), ints);
+    assertEquals("[3,1,2]", lists.toJson(ints, INT_LIST));
+
+    final List<Long> longs = lists.fromJson("[5000000000]", LONG_LIST);
+    assertTrue(longs instanceof LongList);
+    assertEquals(5000000000L, ((LongList) longs).getLong(0));
+
+    final List<Integer> nulls = lists.fromJson("[1,null,2]", INT_LIST);
+    assertEquals(Arrays.asList(1, null, 2), nulls);
+    assertEquals("[1,2]", lists.toJson(Arrays.asList(1, 2), INT_LIST));
+  }
+
+  @Test
+  public void intListIsAList() {
+    final IntList l = new IntList(1);
+    for (int i = 0; i < 40; i++) {
+      l.addInt(i);
+    }
+    l.add(0, -1);
+    l.remove(40);
+    l.set(1, 7);
+    assertEquals(40, l.size());
+    assertEquals(Integer.valueOf(7), l.get(1));
+    assertEquals(38, l.getInt(39));
+    assertEquals(-1, l.toIntArray()[0]);
+  }
+}
@@ -0,0 +1,109 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gwtjsonrpc.common.PrimitiveKeyMap;
+import com.google.gwtjsonrpc.server.dto.Item;
+import com.google.gwtjsonrpc.server.dto.Lookup;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class PrimitiveKeyMapTypeAdapterTest {
+  static class Table {
+    @PrimitiveKeyMap Map<Long, String> rows;
+  }
+
+  private static final Type INT_MAP = new TypeToken<Map<Integer, String>>() {}.getType();
+
+  private final Gson gson =
+      JsonServlet.defaultGsonBuilder().setFieldNamingStrategy(JsonFieldNames.CLIENT_NAMES).create();
+
+  @Test
+  public void intKeyMapBehavesLikeHashMap() {
+    final Random r = new Random(7);
+    final IntKeyMap<Integer> m = new IntKeyMap<>();
+    final Map<Integer, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 100000; i++) {
+      final int k = r.nextInt(2000) - 1000;
+      switch (r.nextInt(3)) {
+        case 0:
+          assertEquals(expected.put(k, i), m.put(k, Integer.valueOf(i)));
+          break;
+        case 1:
+          assertEquals(expected.remove(k), m.remove(k));
+          break;
+        default:
+          assertEquals(expected.get(k), m.get(k));
+          assertEquals(expected.containsKey(k), m.containsKey(k));
+      }
+      assertEquals(expected.size(), m.size());
+    }
+    assertEquals(expected, m);
+    assertEquals(m, expected);
+    assertEquals(expected.hashCode(), m.hashCode());
+  }
+
+  @Test
+  public void writesKeysAsNames() {
+    final Map<Integer, String> m = new LinkedHashMap<>();
+    m.put(-3, "a");
+    m.put(12, null);
+    m.put(null, "n");
+    assertEquals("{\"-3\":\"a\",\"null\":\"n\"}", gson.toJson(m, INT_MAP));
+    m.remove(null);
+    m.remove(12);
+    assertEquals(m, gson.fromJson("{\"-3\":\"a\"}", INT_MAP));
+    assertEquals(m, gson.fromJson("{\"keys\":[-3],\"values\":[\"a\"]}", INT_MAP));
+  }
+
+  @Test
+  public void readsAnnotatedFieldsUnboxed() {
+    final Lookup l =
+        gson.fromJson(
+            "{\"names\":{\"1\":\"a\",\"0\":\"z\"},\"items\":{\"5000000000\":{\"name\":\"i\"}},"
+                + "\"counts\":{\"2\":3}}",
+            Lookup.class);
+    assertTrue(l.getNames() instanceof IntKeyMap);
+    assertEquals("z", ((IntKeyMap<String>) l.getNames()).get(0));
+    assertTrue(l.getItems() instanceof LongKeyMap);
+    assertEquals("i", l.getItems().get(5000000000L).getName());
+    assertEquals(Integer.valueOf(3), l.getCounts().get(2));
+    assertEquals(l.getNames(), gson.fromJson(gson.toJson(l), Lookup.class).getNames());
+
+    final Table t = gson.fromJson("{\"rows\":{\"-1\":\"x\"}}", Table.class);
+    assertTrue(t.rows instanceof LongKeyMap);
+    assertEquals("{\"rows\":{\"-1\":\"x\"}}", gson.toJson(t));
+  }
+
+  @Test(expected = JsonSyntaxException.class)
+  public void rejectsOtherKeys() {
+    gson.fromJson("{\"x\":\"a\"}", INT_MAP);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsOtherMaps() {
+    PrimitiveKeyMapTypeAdapter.of(gson, new TypeToken<HashMap<Integer, Item>>() {});
+  }
+}
@@ -0,0 +1,172 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RPCServletUtilsTest {
+  private static final String JSON = "{\"rows\":[[1,\"\u00e9\"],[2,null]]}";
+
+  @Rule public final TemporaryFolder tmp = new TemporaryFolder();
+
+  private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+  private final Map<String, Object> headers = new HashMap<>();
+
+  private HttpServletResponse response() {
+    return (HttpServletResponse)
+        Proxy.newProxyInstance(
+            HttpServletResponse.class.getClassLoader(),
+            new Class<?>[] {HttpServletResponse.class},
+            new InvocationHandler() {
+              @Override
+              public Object invoke(final Object proxy, final Method m, final Object[] args) {
+                switch (m.getName()) {
+                  case "getOutputStream":
+                    return new ServletOutputStream() {
+                      @Override
+                      public void write(final int b) {
+                        out.write(b);
+                      }
+
+                      @Override
+                      public boolean isReady() {
+                        return true;
+                      }
+
+                      @Override
+                      public void setWriteListener(final WriteListener l) {}
+                    };
+                  case "setHeader":
+                    headers.put((String) args[0], args[1]);
+                    return null;
+                  case "setContentLengthLong":
+                    headers.put("Content-Length", args[0]);
+                    return null;
+                  default:
+                    return null;
+                }
+              }
+            });
+  }
+
+  private void write(final File file, final boolean gzipped) throws IOException {
+    try (FileChannel body = FileChannel.open(file.toPath())) {
+      RPCServletUtils.writeResponse(
+          null,
+          response(),
+          "{\"id\":1,\"result\":".getBytes(StandardCharsets.UTF_8),
+          body,
+          "}".getBytes(StandardCharsets.UTF_8),
+          gzipped);
+    }
+  }
+
+  /** Decode each gzip member on its own, as a decoder stopping after one member would. */
+  private static List<String> members(final byte[] data) throws IOException {
+    final List<String> r = new ArrayList<>();
+    int pos = 0;
+    while (pos < data.length) {
+      assertEquals(0x1f, data[pos] & 0xff);
+      assertEquals(0x8b, data[pos + 1] & 0xff);
+      assertEquals("no optional header fields", 0, data[pos + 3]);
+      final Inflater inf = new Inflater(true);
+      inf.setInput(data, pos + 10, data.length - pos - 10);
+      final ByteArrayOutputStream plain = new ByteArrayOutputStream();
+      final byte[] buf = new byte[64];
+      try {
+        while (!inf.finished()) {
+          if (inf.needsInput()) {
+            throw new EOFException("truncated gzip member");
+          }
+          plain.write(buf, 0, inf.inflate(buf));
+        }
+      } catch (DataFormatException e) {
+        throw new IOException(e);
+      }
+      // Skip the CRC-32 and size trailing the member.
+      //
+      pos = data.length - inf.getRemaining() + 8;
+      inf.end();
+      r.add(plain.toString("UTF-8"));
+    }
+    return r;
+  }
+
+  @Test
+  public void writesFileBetweenHeadAndTail() throws IOException {
+    final File f = tmp.newFile();
+    Files.write(f.toPath(), JSON.getBytes(StandardCharsets.UTF_8));
+    write(f, false);
+    assertEquals(null, headers.get("Content-Encoding"));
+    assertEquals((long) out.size(), headers.get("Content-Length"));
+    assertEquals("{\"id\":1,\"result\":" + JSON + "}", out.toString("UTF-8"));
+  }
+
+  @Test
+  public void writesGzippedFileAsThreeMembers() throws IOException {
+    final File f = tmp.newFile();
+    try (OutputStream gz = new GZIPOutputStream(new FileOutputStream(f))) {
+      gz.write(JSON.getBytes(StandardCharsets.UTF_8));
+    }
+    write(f, true);
+    assertEquals("gzip", headers.get("Content-Encoding"));
+    assertEquals((long) out.size(), headers.get("Content-Length"));
+
+    final ByteArrayOutputStream plain = new ByteArrayOutputStream();
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+      final byte[] buf = new byte[64];
+      int n;
+      while ((n = in.read(buf)) >= 0) {
+        plain.write(buf, 0, n);
+      }
+    }
+    assertEquals("{\"id\":1,\"result\":" + JSON + "}", plain.toString("UTF-8"));
+
+    // A decoder that stops after the first member would only see the head.
+    //
+    assertEquals(
+        Arrays.asList("{\"id\":1,\"result\":", JSON, "}"), members(out.toByteArray()));
+  }
+}
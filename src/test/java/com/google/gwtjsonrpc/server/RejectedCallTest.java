@@ -0,0 +1,210 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.google.gson.JsonPrimitive;
+import com.google.gwtjsonrpc.common.AsyncCallback;
+import com.google.gwtjsonrpc.common.JsonConstants;
+import com.google.gwtjsonrpc.server.dto.Item;
+import com.google.gwtjsonrpc.server.dto.ItemService;
+import com.google.gwtjsonrpc.server.dto.Lookup;
+import com.google.gwtjsonrpc.server.dto.Sample;
+import com.google.gwtjsonrpc.server.dto.Shape;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RejectedCallTest {
+  @SuppressWarnings("serial")
+  private static class Service extends JsonServlet<ActiveCall> implements ItemService {
+    int invoked;
+
+    @Override
+    public void save(final Item item, final AsyncCallback<List<Item>> callback) {
+      invoked++;
+    }
+
+    @Override
+    public void draw(final List<Shape> shapes, final AsyncCallback<Shape> callback) {
+      invoked++;
+    }
+
+    @Override
+    public void sample(final Sample sample, final AsyncCallback<Sample> callback) {
+      invoked++;
+    }
+
+    @Override
+    public void lookup(final Lookup lookup, final AsyncCallback<Lookup> callback) {
+      invoked++;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T proxy(final Class<T> type, final Map<String, Object> answers) {
+    return (T)
+        Proxy.newProxyInstance(
+            type.getClassLoader(),
+            new Class<?>[] {type},
+            new InvocationHandler() {
+              @Override
+              public Object invoke(final Object proxy, final Method m, final Object[] args) {
+                if (m.getName().equals("getHeader")) {
+                  return answers.get("getHeader:" + args[0]);
+                }
+                return answers.get(m.getName());
+              }
+            });
+  }
+
+  private Service service;
+
+  @Before
+  public void setUp() throws Exception {
+    final Map<String, Object> ctx = new HashMap<>();
+    final Map<String, Object> config = new HashMap<>();
+    config.put("getServletContext", proxy(ServletContext.class, ctx));
+    service = new Service();
+    service.init(proxy(ServletConfig.class, config));
+  }
+
+  private String post(final String contentType, final String body) throws Exception {
+    final byte[] data = body.getBytes(StandardCharsets.UTF_8);
+    final ByteArrayInputStream in = new ByteArrayInputStream(data);
+    final Map<String, Object> req = new HashMap<>();
+    req.put("getMethod", "POST");
+    req.put("getHeader:Accept", JsonConstants.JSON_TYPE);
+    req.put("getContentType", contentType);
+    req.put("getCharacterEncoding", JsonConstants.JSON_ENC);
+    req.put("getContentLength", data.length);
+    req.put("isAsyncSupported", false);
+    req.put(
+        "getInputStream",
+        new ServletInputStream() {
+          @Override
+          public int read() {
+            return in.read();
+          }
+
+          @Override
+          public int read(final byte[] b, final int off, final int len) {
+            return in.read(b, off, len);
+          }
+
+          @Override
+          public boolean isFinished() {
+            return in.available() == 0;
+          }
+
+          @Override
+          public boolean isReady() {
+            return true;
+          }
+
+          @Override
+          public void setReadListener(final ReadListener l) {}
+        });
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final Map<String, Object> resp = new HashMap<>();
+    resp.put(
+        "getOutputStream",
+        new ServletOutputStream() {
+          @Override
+          public void write(final int b) {
+            out.write(b);
+          }
+
+          @Override
+          public boolean isReady() {
+            return true;
+          }
+
+          @Override
+          public void setWriteListener(final WriteListener l) {}
+        });
+
+    service.service(
+        proxy(HttpServletRequest.class, req), proxy(HttpServletResponse.class, resp));
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void contentType() throws Exception {
+    assertEquals(
+        "{\"error\":{\"name\":\"JSONRPCError\",\"code\":999,"
+            + "\"message\":\"Error parsing request\","
+            + "\"cause\":\"Invalid Request Content-Type\"}}",
+        post("text/plain", "{}"));
+    assertEquals(1, service.getRejectedCount(RejectReason.CONTENT_TYPE));
+  }
+
+  @Test
+  public void noSuchMethod() throws Exception {
+    assertEquals(
+        "{\"jsonrpc\":\"2.0\",\"id\":5,"
+            + "\"error\":{\"code\":-32603,\"message\":\"No such service method\"}}",
+        post(JsonConstants.JSON_TYPE, "{\"jsonrpc\":\"2.0\",\"method\":\"nope\",\"id\":5}"));
+    assertEquals(1, service.getRejectedCount(RejectReason.NO_SUCH_METHOD));
+  }
+
+  @Test
+  public void notAnObject() throws Exception {
+    post(JsonConstants.JSON_TYPE, "[1, 2]");
+    post(JsonConstants.JSON_TYPE, "{\"version\":\"1.1\",\"method\":7}");
+    assertEquals(2, service.getRejectedCount(RejectReason.MALFORMED));
+  }
+
+  @Test
+  public void xsrfBeforeParams() throws Exception {
+    assertEquals(
+        "{\"version\":\"1.1\",\"id\":\"\\u003c1\\u003e\",\"error\":{\"name\":\"JSONRPCError\","
+            + "\"code\":999,\"message\":\"Invalid xsrfKey in request\"}}",
+        post(
+            JsonConstants.JSON_TYPE,
+            "{\"version\":\"1.1\",\"method\":\"save\",\"params\":[[1,,]],\"id\":\"<1>\"}"));
+    assertEquals(1, service.getRejectedCount(RejectReason.INVALID_XSRF));
+    assertEquals(0, service.getRejectedCount(RejectReason.MALFORMED));
+    assertEquals(0, service.invoked);
+  }
+
+  @Test
+  public void callbackNeedsFullFormatter() {
+    final ActiveCall call = new ActiveCall(null, null);
+    call.versionName = "jsonrpc";
+    call.versionValue = new JsonPrimitive("2.0");
+    call.callback = "cb";
+    assertNull(RejectedCall.UNSAFE_CALLBACK.response(call));
+  }
+}
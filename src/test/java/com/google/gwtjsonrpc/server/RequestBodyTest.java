@@ -0,0 +1,103 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.google.gson.JsonParseException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Test;
+
+public class RequestBodyTest {
+  private static final String BODY = "{\"version\":\"1.1\",\"method\":\"save\",\"params\":[]}";
+
+  private static String read(final byte[] data, final int length, final String encoding)
+      throws IOException {
+    final InputStream in = new ByteArrayInputStream(data);
+    final InputStream body = RequestBody.decode(in, encoding);
+    final ByteBuffer b = RequestBody.read(body, body == in ? length : -1, 1024, false);
+    return new String(
+        b.array(), b.arrayOffset() + b.position(), b.remaining(), StandardCharsets.UTF_8);
+  }
+
+  private static byte[] gzip(final byte[] data) throws IOException {
+    final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(buf)) {
+      out.write(data);
+    }
+    return buf.toByteArray();
+  }
+
+  private static byte[] deflate(final byte[] data, final boolean raw) throws IOException {
+    final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+    try (DeflaterOutputStream out =
+        new DeflaterOutputStream(buf, new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+      out.write(data);
+    }
+    return buf.toByteArray();
+  }
+
+  private static void assertRejected(
+      final RejectedCall expected, final byte[] data, final int length, final String encoding)
+      throws IOException {
+    try {
+      read(data, length, encoding);
+      fail("expected " + expected.getCause().getMessage());
+    } catch (JsonParseException e) {
+      assertSame(expected, ((RejectedCall.ParseError) e).rejection);
+    }
+  }
+
+  @Test
+  public void plain() throws IOException {
+    final byte[] data = BODY.getBytes(StandardCharsets.UTF_8);
+    assertEquals(BODY, read(data, data.length, null));
+    assertEquals(BODY, read(data, -1, "identity"));
+    assertRejected(RejectedCall.INCOMPLETE_BODY, data, data.length + 1, null);
+    assertRejected(RejectedCall.BODY_REQUIRED, new byte[0], -1, null);
+    assertRejected(RejectedCall.BODY_TOO_LARGE, new byte[1025], -1, null);
+  }
+
+  @Test
+  public void compressed() throws IOException {
+    final byte[] data = BODY.getBytes(StandardCharsets.UTF_8);
+    assertEquals(BODY, read(gzip(data), -1, "gzip"));
+    assertEquals(BODY, read(deflate(data, false), 40, "deflate"));
+    assertEquals(BODY, read(deflate(data, true), -1, "DEFLATE"));
+    assertRejected(RejectedCall.CONTENT_ENCODING, data, data.length, "br");
+    assertRejected(RejectedCall.CORRUPT_BODY, data, data.length, "gzip");
+
+    final byte[] cut = gzip(data);
+    assertRejected(RejectedCall.INCOMPLETE_BODY, Arrays.copyOf(cut, 20), 20, "gzip");
+  }
+
+  @Test
+  public void limitsDecompressedSize() throws IOException {
+    // A megabyte of zeros compresses to about a kilobyte.
+    final byte[] bomb = gzip(new byte[1 << 20]);
+    assertRejected(RejectedCall.BODY_TOO_LARGE, bomb, bomb.length, "gzip");
+  }
+}
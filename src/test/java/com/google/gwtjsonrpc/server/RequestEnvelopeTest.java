@@ -0,0 +1,95 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class RequestEnvelopeTest {
+  @Test
+  public void keepsParamsAsText() {
+    final RequestEnvelope e =
+        RequestEnvelope.scan(
+            "{\"jsonrpc\":\"2.0\", \"method\" : \"save\",\n"
+                + "\"params\":[{\"a\":\"]}\\\"\"}, [1,,2]],\"id\":7,\"xsrfKey\":\"k\"}");
+    assertEquals("[{\"a\":\"]}\\\"\"}, [1,,2]]", e.params);
+    assertEquals("save", e.fields.get("method").getAsString());
+    assertEquals(7, e.fields.get("id").getAsInt());
+    assertEquals("k", e.fields.get("xsrfKey").getAsString());
+  }
+
+  @Test
+  public void escapedNames() {
+    final RequestEnvelope e = RequestEnvelope.scan("{\"me\u0074hod\":\"x\",\"params\":null}");
+    assertEquals("x", e.fields.get("method").getAsString());
+    assertEquals("null", e.params);
+  }
+
+  @Test
+  public void leavesOddBodiesToTheParser() {
+    assertNull(RequestEnvelope.scan("[]"));
+    assertNull(RequestEnvelope.scan("{method:\"x\"}"));
+    assertNull(RequestEnvelope.scan("{\"method\":\"x\"} {}"));
+    assertNull(RequestEnvelope.scan("{\"params\":[1,2}"));
+    assertNull(RequestEnvelope.scan("{\"method\":\"x\",}"));
+    assertEquals(0, RequestEnvelope.scan(" { } ").fields.size());
+  }
+
+  @Test
+  public void peeksMethodBeforeParams() {
+    assertEquals(
+        "load", RequestEnvelope.peekMethod("{\"id\":1,\"method\":\"load\",\"params\":[[1,"));
+    assertNull(RequestEnvelope.peekMethod("{\"params\":[[1,2,3],\"method\":\"load\"}"));
+    assertNull(RequestEnvelope.peekMethod("{\"method\":\"lo"));
+    assertNull(RequestEnvelope.peekMethod("[]"));
+  }
+
+  @Test
+  public void readsParams() {
+    final Gson gson = JsonServlet.defaultGsonBuilder().create();
+    final Type[] types = {String.class, int.class, int[].class, byte[].class};
+    final Object[] p = CallDeserializer.readParams(gson, types, "[\"a\", 3, [1,2], \"AQI=\"]");
+    assertEquals("a", p[0]);
+    assertEquals(3, p[1]);
+    assertArrayEquals(new int[] {1, 2}, (int[]) p[2]);
+    assertArrayEquals(new byte[] {1, 2}, (byte[]) p[3]);
+
+    final Type[] nullable = {String.class, int.class};
+    assertEquals(
+        Arrays.asList(null, null),
+        Arrays.asList(CallDeserializer.readParams(gson, nullable, "[null,null]")));
+  }
+
+  @Test
+  public void rejectsParamCount() {
+    final Gson gson = JsonServlet.defaultGsonBuilder().create();
+    for (final String raw : new String[] {"[]", "[1,2]", "[1,,2]", "[1"}) {
+      try {
+        CallDeserializer.readParams(gson, new Type[] {int.class}, raw);
+        fail(raw);
+      } catch (JsonParseException e) {
+        // expected
+      }
+    }
+  }
+}
@@ -0,0 +1,292 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import com.google.gwtjsonrpc.common.AllowCrossSiteRequest;
+import com.google.gwtjsonrpc.common.AsyncCallback;
+import com.google.gwtjsonrpc.common.JsonConstants;
+import com.google.gwtjsonrpc.common.RemoteJsonService;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.AsyncContext;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Compares a blocking service method called through {@link JsonServlet#service} on the container
+ * thread and on virtual threads.
+ *
+ * <p>The method sleeps for a fixed time, standing in for a JDBC or HTTP call. Requests are handed
+ * to a fixed pool standing in for the container's threads; a call counts as done when its response
+ * is complete. With {@link JsonServlet#createServiceExecutor()} returning null each call holds a
+ * container thread while it blocks; with {@link ServiceExecutors#newVirtualThreadPerTaskExecutor()}
+ * the container thread is released through asynchronous processing. Virtual threads are only
+ * available when running the multi-release JAR on Java 21 or later:
+ *
+ * <pre>
+ * mvn package   (with JAVA_HOME pointing at Java 21)
+ * java -cp target/gwtjsonrpc-1.13-SNAPSHOT.jar:target/test-classes:... \
+ *     com.google.gwtjsonrpc.server.ServiceExecutorBenchmark [calls] [blockMillis] [poolSize]
+ * </pre>
+ */
+public class ServiceExecutorBenchmark {
+  public interface BlockingService extends RemoteJsonService {
+    @AllowCrossSiteRequest
+    void block(AsyncCallback<String> callback);
+  }
+
+  @SuppressWarnings("serial")
+  private static class Service extends JsonServlet<ActiveCall> implements BlockingService {
+    private final long blockMillis;
+    private final boolean virtual;
+    Executor pool;
+
+    Service(final long blockMillis, final boolean virtual) {
+      this.blockMillis = blockMillis;
+      this.virtual = virtual;
+    }
+
+    @Override
+    protected Executor createServiceExecutor() {
+      pool = virtual ? ServiceExecutors.newVirtualThreadPerTaskExecutor() : null;
+      return pool;
+    }
+
+    @Override
+    public void block(final AsyncCallback<String> callback) {
+      try {
+        Thread.sleep(blockMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      callback.onSuccess("done");
+    }
+  }
+
+  private static final byte[] REQUEST =
+      "{\"jsonrpc\":\"2.0\",\"method\":\"block\",\"params\":[],\"id\":1}"
+          .getBytes(StandardCharsets.UTF_8);
+
+  public static void main(final String[] args) throws Exception {
+    final int calls = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+    final long blockMillis = args.length > 1 ? Long.parseLong(args[1]) : 20;
+    final int poolSize = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+    if (ServiceExecutors.newVirtualThreadPerTaskExecutor() == null) {
+      System.out.println("virtual: not supported by this JVM");
+    }
+
+    // Run each mode twice and report the second run, after warm up.
+    //
+    for (int round = 0; round < 2; round++) {
+      for (final boolean virtual : new boolean[] {false, true}) {
+        final Service s = new Service(blockMillis, virtual);
+        s.init(config());
+        if (virtual && s.pool == null) {
+          s.destroy();
+          continue;
+        }
+        final long t = run(s, calls, poolSize);
+        s.destroy();
+        if (round == 1) {
+          report(virtual ? "virtual" : "container(" + poolSize + ")", calls, t);
+        }
+      }
+    }
+  }
+
+  private static long run(final Service s, final int calls, final int poolSize)
+      throws InterruptedException {
+    final ExecutorService container = Executors.newFixedThreadPool(poolSize);
+    final CountDownLatch done = new CountDownLatch(calls);
+    final AtomicInteger failed = new AtomicInteger();
+    final long start = System.nanoTime();
+    for (int i = 0; i < calls; i++) {
+      container.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              try {
+                if (!call(s, done)) {
+                  done.countDown();
+                }
+              } catch (IOException | ServletException | RuntimeException e) {
+                failed.incrementAndGet();
+                done.countDown();
+              }
+            }
+          });
+    }
+    done.await();
+    final long elapsed = System.nanoTime() - start;
+    container.shutdown();
+    container.awaitTermination(1, TimeUnit.MINUTES);
+    if (failed.get() > 0) {
+      System.out.println(failed.get() + " calls failed");
+    }
+    return elapsed;
+  }
+
+  /** @return true if the call went asynchronous, and counts down <code>done</code> itself. */
+  private static boolean call(final Service s, final CountDownLatch done)
+      throws IOException, ServletException {
+    final ByteArrayInputStream in = new ByteArrayInputStream(REQUEST);
+    final ServletInputStream sin =
+        new ServletInputStream() {
+          @Override
+          public int read() {
+            return in.read();
+          }
+
+          @Override
+          public int read(final byte[] b, final int off, final int len) {
+            return in.read(b, off, len);
+          }
+
+          @Override
+          public boolean isFinished() {
+            return in.available() == 0;
+          }
+
+          @Override
+          public boolean isReady() {
+            return true;
+          }
+
+          @Override
+          public void setReadListener(final ReadListener l) {}
+        };
+    final ServletOutputStream sout =
+        new ServletOutputStream() {
+          @Override
+          public void write(final int b) {}
+
+          @Override
+          public void write(final byte[] b, final int off, final int len) {}
+
+          @Override
+          public boolean isReady() {
+            return true;
+          }
+
+          @Override
+          public void setWriteListener(final WriteListener l) {}
+        };
+    final AsyncContext async =
+        proxy(
+            AsyncContext.class,
+            new InvocationHandler() {
+              @Override
+              public Object invoke(final Object p, final Method m, final Object[] args) {
+                if (m.getName().equals("complete")) {
+                  done.countDown();
+                }
+                return null;
+              }
+            });
+    final boolean[] started = {false};
+
+    s.service(
+        proxy(
+            HttpServletRequest.class,
+            new InvocationHandler() {
+              @Override
+              public Object invoke(final Object p, final Method m, final Object[] args) {
+                switch (m.getName()) {
+                  case "getMethod":
+                    return "POST";
+                  case "getHeader":
+                    return "Accept".equals(args[0]) ? JsonConstants.JSON_TYPE : null;
+                  case "getContentType":
+                    return JsonConstants.JSON_TYPE;
+                  case "getCharacterEncoding":
+                    return JsonConstants.JSON_ENC;
+                  case "getContentLength":
+                    return REQUEST.length;
+                  case "getInputStream":
+                    return sin;
+                  case "isAsyncSupported":
+                    return true;
+                  case "startAsync":
+                    started[0] = true;
+                    return async;
+                  default:
+                    return null;
+                }
+              }
+            }),
+        proxy(
+            HttpServletResponse.class,
+            new InvocationHandler() {
+              @Override
+              public Object invoke(final Object p, final Method m, final Object[] args) {
+                switch (m.getName()) {
+                  case "isCommitted":
+                    return false;
+                  case "getOutputStream":
+                    return sout;
+                  default:
+                    return null;
+                }
+              }
+            }));
+    return started[0];
+  }
+
+  private static ServletConfig config() {
+    final ServletContext ctx =
+        proxy(
+            ServletContext.class,
+            new InvocationHandler() {
+              @Override
+              public Object invoke(final Object p, final Method m, final Object[] args) {
+                return null;
+              }
+            });
+    return proxy(
+        ServletConfig.class,
+        new InvocationHandler() {
+          @Override
+          public Object invoke(final Object p, final Method m, final Object[] args) {
+            return m.getName().equals("getServletContext") ? ctx : null;
+          }
+        });
+  }
+
+  private static <T> T proxy(final Class<T> type, final InvocationHandler h) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, h));
+  }
+
+  private static void report(final String name, final int calls, final long nanos) {
+    final double ms = nanos / 1e6;
+    System.out.printf("%-16s %8.1f ms %10.0f calls/s%n", name, ms, calls / (ms / 1000));
+  }
+}
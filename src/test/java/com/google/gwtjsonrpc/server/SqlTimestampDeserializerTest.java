@@ -0,0 +1,61 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+import org.junit.Test;
+
+public class SqlTimestampDeserializerTest {
+  private final Gson gson = JsonServlet.defaultGsonBuilder().create();
+
+  @Test
+  public void formatsLikeSimpleDateFormat() {
+    final SimpleDateFormat f = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    f.setTimeZone(TimeZone.getTimeZone("UTC"));
+    final Random r = new Random(42);
+    final long[] edges = {
+      0, -1, 951782400000L, -12212553600001L, -12212553600000L, 253402300799999L, 253402300800000L
+    };
+    for (final long t : edges) {
+      assertEquals(f.format(new Date(t)) + "000000", SqlTimestampDeserializer.format(t));
+    }
+    for (int i = 0; i < 10000; i++) {
+      final long t = (long) ((r.nextDouble() - 0.5) * 2 * 300000000000000L);
+      assertEquals(f.format(new Date(t)) + "000000", SqlTimestampDeserializer.format(t));
+    }
+  }
+
+  @Test
+  public void roundTrip() {
+    final Timestamp t = new Timestamp(1136232245789L);
+    final String json = gson.toJson(t);
+    assertEquals("\"2006-01-02 20:04:05.789000000\"", json);
+    assertEquals(t, gson.fromJson(json, Timestamp.class));
+    assertNull(gson.fromJson("null", Timestamp.class));
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void rejectsNumbers() {
+    gson.fromJson("1136232245789", Timestamp.class);
+  }
+}
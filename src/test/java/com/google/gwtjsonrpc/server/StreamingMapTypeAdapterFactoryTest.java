@@ -0,0 +1,80 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class StreamingMapTypeAdapterFactoryTest {
+  private static final Type STRING_MAP = new TypeToken<Map<String, List<Integer>>>() {}.getType();
+  private static final Type LONG_MAP = new TypeToken<HashMap<Long, String>>() {}.getType();
+
+  private final Gson gson =
+      new GsonBuilder().registerTypeAdapterFactory(new StreamingMapTypeAdapterFactory()).create();
+
+  @SuppressWarnings("deprecation")
+  private final Gson trees =
+      new GsonBuilder()
+          .registerTypeAdapter(Map.class, new MapDeserializer())
+          .registerTypeAdapter(HashMap.class, new MapDeserializer())
+          .create();
+
+  @Test
+  public void matchesMapDeserializer() {
+    final Map<String, List<Integer>> s = new LinkedHashMap<>();
+    s.put("a", Arrays.asList(1, 2));
+    s.put("b", null);
+    s.put("c", Arrays.<Integer>asList());
+    assertEquals(trees.toJson(s, STRING_MAP), gson.toJson(s, STRING_MAP));
+    assertEquals("{\"a\":[1,2],\"c\":[]}", gson.toJson(s, STRING_MAP));
+
+    final HashMap<Long, String> l = new HashMap<>();
+    l.put(5L, "x");
+    l.put(-1L, null);
+    assertEquals(trees.toJson(l, LONG_MAP), gson.toJson(l, LONG_MAP));
+
+    final String json = "[7,\"y\",8,null]";
+    final Map<Long, String> r = gson.fromJson(json, LONG_MAP);
+    assertTrue(r instanceof HashMap);
+    assertEquals(trees.<Map<Long, String>>fromJson(json, LONG_MAP), r);
+    assertEquals(
+        trees.<Map<String, List<Integer>>>fromJson("{\"a\":[3]}", STRING_MAP),
+        gson.<Map<String, List<Integer>>>fromJson("{\"a\":[3]}", STRING_MAP));
+    assertNull(gson.fromJson("null", LONG_MAP));
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void rejectsObjectForOtherKeys() {
+    gson.fromJson("{\"7\":\"y\"}", LONG_MAP);
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void rejectsMissingValue() {
+    gson.fromJson("[7,\"y\",8]", LONG_MAP);
+  }
+}
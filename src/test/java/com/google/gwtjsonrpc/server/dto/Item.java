@@ -0,0 +1,39 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server.dto;
+
+import com.google.gwtjsonrpc.common.SkipSerialization;
+import java.util.List;
+
+public class Item extends Base implements ItemView {
+  public static final int MAX = 10;
+
+  private String myName;
+  int count;
+  double price;
+  char grade;
+  Long total;
+  List<Item> children;
+  transient int cached;
+  @SkipSerialization String secret;
+
+  @Override
+  public String getName() {
+    return myName;
+  }
+
+  public void setName(final String name) {
+    myName = name;
+  }
+}
@@ -0,0 +1,28 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server.dto;
+
+import com.google.gwtjsonrpc.common.AsyncCallback;
+import com.google.gwtjsonrpc.common.RemoteJsonService;
+import java.util.List;
+
+public interface ItemService extends RemoteJsonService {
+  void save(Item item, AsyncCallback<List<Item>> callback);
+
+  void draw(List<Shape> shapes, AsyncCallback<Shape> callback);
+
+  void sample(Sample sample, AsyncCallback<Sample> callback);
+
+  void lookup(Lookup lookup, AsyncCallback<Lookup> callback);
+}
@@ -0,0 +1,46 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server.dto;
+
+import com.google.gson.annotations.SerializedName;
+import java.util.List;
+import java.util.Map;
+
+public class Label {
+  private final String text;
+
+  @SerializedName(
+      value = "colour",
+      alternate = {"color"})
+  String color;
+
+  Map<String, List<Integer>> counts;
+  Number weight;
+
+  public Label() {
+    this(null);
+  }
+
+  public Label(final String text) {
+    this.text = text;
+  }
+
+  public String getText() {
+    return text;
+  }
+
+  public String getColor() {
+    return color;
+  }
+}
@@ -0,0 +1,48 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gwtjsonrpc.server.dto;
+
+import com.google.gwtjsonrpc.common.PrimitiveKeyMap;
+import java.util.Map;
+
+public class Lookup {
+  @PrimitiveKeyMap Map<Integer, String> names;
+  @PrimitiveKeyMap Map<Long, Item> items;
+  Map<Integer, Integer> counts;
+
+  public Map<Integer, String> getNames() {
+    return names;
+  }
+
+  public void setNames(final Map<Integer, String> names) {
+    this.names = names;
+  }
+
+  public Map<Long, Item> getItems() {
+    return items;
+  }
+
+  public void setItems(final Map<Long, Item> items) {
+    this.items = items;
+  }
+
+  public Map<Integer, Integer> getCounts() {
+    return counts;
+  }
+
+  public void setCounts(final Map<Integer, Integer> counts) {
+    this.counts = counts;
+  }
+}
@@ -0,0 +1,46 @@
+// Copyright 2008 Google Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.gwtjsonrpc.server.dto;
+
+import com.google.gwtjsonrpc.common.BinaryArray;
+
+public class Sample {
+  @BinaryArray int[] values;
+  @BinaryArray double[] weights;
+  long[] counts;
+
+  public int[] getValues() {
+    return values;
+  }
+
+  public void setValues(final int[] values) {
+    this.values = values;
+  }
+
+  public double[] getWeights() {
+    return weights;
+  }
+
+  public void setWeights(final double[] weights) {
+    this.weights = weights;
+  }
+
+  public long[] getCounts() {
+    return counts;
+  }
+
+  public void setCounts(final long[] counts) {
+    this.counts = counts;
+  }
+}